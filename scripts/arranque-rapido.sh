@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Arranque rápido: AOT de Spring + archivo CDS de la JVM.
+#
+#   scripts/arranque-rapido.sh construir   # compila con -Parranque-rapido, extrae el jar y entrena el archivo CDS
+#   scripts/arranque-rapido.sh ejecutar    # arranca con AOT y el archivo CDS
+#
+# El entrenamiento arranca el contexto y sale en cuanto termina el refresh
+# (spring.context.exit=onRefresh), así que necesita la base de datos accesible.
+set -euo pipefail
+
+RAIZ="$(cd "$(dirname "$0")/.." && pwd)"
+DESTINO="$RAIZ/target/rapido"
+JAR="$DESTINO/producto.jar"
+CDS="$DESTINO/app.jsa"
+OPCIONES=(-Darranque.rapido=true -Dspring.aot.enabled=true -Dspring.profiles.active=dev,rapido)
+
+construir() {
+    (cd "$RAIZ" && ./mvnw -B -q -Parranque-rapido -DskipTests package)
+    rm -rf "$DESTINO"
+    java -Djarmode=tools -jar "$(ls "$RAIZ"/target/*.jar | grep -v original | head -1)" \
+        extract --destination "$DESTINO"
+    mv "$DESTINO"/*.jar "$JAR"
+    java -XX:ArchiveClassesAtExit="$CDS" -Dspring.context.exit=onRefresh "${OPCIONES[@]}" -jar "$JAR"
+    echo "Archivo CDS: $CDS"
+}
+
+ejecutar() {
+    [[ -f "$CDS" ]] || { echo "Falta $CDS: ejecuta primero '$0 construir'" >&2; exit 1; }
+    exec java -XX:SharedArchiveFile="$CDS" -Xshare:auto "${OPCIONES[@]}" "$@" -jar "$JAR"
+}
+
+case "${1:-}" in
+    construir) construir ;;
+    ejecutar) shift; ejecutar "$@" ;;
+    *) echo "Uso: $0 construir|ejecutar [opciones JVM]" >&2; exit 2 ;;
+esac
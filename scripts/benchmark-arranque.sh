@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+# Compara el arranque en modo normal, AOT y AOT + CDS (y la imagen nativa si existe).
+#
+#   scripts/benchmark-arranque.sh [repeticiones]
+#
+# Para cada modo mide el tiempo hasta que /actuator/health/readiness responde UP
+# (incluye el calentamiento) y la memoria residente (VmRSS) en ese momento, y
+# muestra la mediana de las repeticiones. Requiere haber ejecutado antes
+# "mvnw package" y "scripts/arranque-rapido.sh construir".
+set -euo pipefail
+
+RAIZ="$(cd "$(dirname "$0")/.." && pwd)"
+REPETICIONES="${1:-5}"
+PUERTO="${PUERTO:-8081}"
+READINESS="http://localhost:$PUERTO/actuator/health/readiness"
+JAR_NORMAL="$(ls "$RAIZ"/target/*.jar | grep -v original | head -1)"
+JAR_RAPIDO="$RAIZ/target/rapido/producto.jar"
+CDS="$RAIZ/target/rapido/app.jsa"
+NATIVO="$RAIZ/target/producto"
+RAPIDO=(-Darranque.rapido=true -Dspring.aot.enabled=true -Dspring.profiles.active=dev,rapido)
+
+mediana() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+# Arranca el comando, espera a readiness UP y escribe "ms rss_kb"
+medir() {
+    local inicio pid ms rss
+    inicio=$(date +%s%N)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    until curl -sf "$READINESS" 2>/dev/null | grep -q '"UP"'; do
+        kill -0 "$pid" 2>/dev/null || { echo "El proceso terminó antes de estar listo" >&2; return 1; }
+        sleep 0.05
+    done
+    ms=$(( ($(date +%s%N) - inicio) / 1000000 ))
+    rss=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$ms $rss"
+}
+
+modo() {
+    local nombre="$1"; shift
+    local resultados=()
+    for ((i = 0; i < REPETICIONES; i++)); do
+        resultados+=("$(medir "$@")")
+    done
+    printf '%-12s listo: %6s ms   rss: %7s KB\n' "$nombre" \
+        "$(printf '%s\n' "${resultados[@]}" | cut -d' ' -f1 | mediana)" \
+        "$(printf '%s\n' "${resultados[@]}" | cut -d' ' -f2 | mediana)"
+}
+
+modo normal java -Dspring.profiles.active=dev -jar "$JAR_NORMAL"
+modo aot java "${RAPIDO[@]}" -jar "$JAR_RAPIDO"
+modo aot+cds java -XX:SharedArchiveFile="$CDS" "${RAPIDO[@]}" -jar "$JAR_RAPIDO"
+if [[ -x "$NATIVO" ]]; then
+    modo nativo "$NATIVO" -Darranque.rapido=true -Dspring.profiles.active=dev,rapido
+fi
@@ -5,10 +5,13 @@ import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 
 import com.EcoMarket.producto.controller.InventarioControllerV2;
+import com.EcoMarket.producto.model.CamposModel;
 import com.EcoMarket.producto.model.Inventario;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 
+import java.util.Map;
+
 
 @Component
 public class InventarioAssembler implements RepresentationModelAssembler<Inventario, EntityModel<Inventario>> {
@@ -20,5 +23,12 @@ public class InventarioAssembler implements RepresentationModelAssembler<Inventa
         linkTo(methodOn(InventarioControllerV2.class).obtenerPorId(inventario.getId())).withSelfRel(),
         linkTo(methodOn(InventarioControllerV2.class).actualizar(inventario.getId(), inventario)).withRel("actualizar")
         );
-    }   
+    }
+
+    // Proyección parcial (fields=...): solo el enlace self, el id siempre viene incluido
+    public CamposModel toCamposModel(Map<String, Object> campos){
+        Long id = (Long) campos.get("id");
+        return new CamposModel(campos)
+        .add(linkTo(methodOn(InventarioControllerV2.class).obtenerPorId(id)).withSelfRel());
+    }
 }
@@ -5,6 +5,9 @@ import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+import java.util.Map;
+import com.EcoMarket.producto.model.CamposModel;
 import com.EcoMarket.producto.model.Producto;
 import com.EcoMarket.producto.controller.ProductoControllerV2;
 
@@ -18,4 +21,11 @@ public class ProductoModelAssembler implements  RepresentationModelAssembler<Pro
         linkTo(methodOn(ProductoControllerV2.class).Listar()).withRel("usuarios"),
         linkTo(methodOn(ProductoControllerV2.class).actualizar(producto.getId(), producto)).withRel("actualizar"));
     }
+
+    // Proyección parcial (fields=...): solo el enlace self, el id siempre viene incluido
+    public CamposModel toCamposModel(Map<String, Object> campos){
+        Long id = (Long) campos.get("id");
+        return new CamposModel(campos)
+        .add(linkTo(methodOn(ProductoControllerV2.class).obtenerPorId(id)).withSelfRel());
+    }
 }
@@ -26,7 +26,7 @@ import java.util.UUID;
  * @Component - Spring la reconoce como un componente y la gestiona
  * CommandLineRunner - Interfaz que permite ejecutar código al iniciar la app
  */
-@Profile("dev") // Solo funciona en perfil de desarrollo
+@Profile("dev & !rapido") // Solo funciona en perfil de desarrollo (no en arranque rápido)
 @Component // Spring gestiona esta clase como un bean
 public class DataLoader implements CommandLineRunner {
 
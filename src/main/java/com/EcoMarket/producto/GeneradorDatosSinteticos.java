@@ -0,0 +1,261 @@
+package com.EcoMarket.producto;
+
+import com.EcoMarket.producto.repository.Colacion;
+
+import net.datafaker.Faker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GENERADOR DE DATOS SINTÉTICOS PARA PRUEBAS DE CARGA
+ *
+ * Genera millones de productos con su inventario para reproducir en local el
+ * volumen de producción. Se activa con datos.sinteticos.productos > 0 (perfil dev).
+ *
+ * - Los productos se reparten en lotes; cada lote se inserta en una transacción
+ *   con batches JDBC (productos y después su inventario) desde varios hilos.
+ * - Los códigos son deterministas (S000000001, S000000002...), así que al volver a
+ *   ejecutar se saltan los lotes ya completos y de los incompletos solo se insertan
+ *   los códigos que faltan: la generación se puede reanudar y no borra nada, tampoco
+ *   los productos creados a mano con un código del tramo.
+ * - Las categorías siguen una distribución Zipf (pocas categorías concentran casi
+ *   todo el catálogo) y el stock una exponencial con un porcentaje de agotados,
+ *   como en producción.
+ *
+ * Para que MySQL agrupe de verdad los batches conviene añadir
+ * rewriteBatchedStatements=true a la URL de conexión.
+ */
+@Profile("dev")
+@Component
+public class GeneradorDatosSinteticos implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorDatosSinteticos.class);
+
+    private static final String PREFIJO = "S";
+    private static final int NUMERO_CATEGORIAS = 40;
+    private static final double EXPONENTE_ZIPF = 1.1;
+    private static final double PROBABILIDAD_AGOTADO = 0.05;
+    private static final double STOCK_MEDIO = 60;
+
+    private static final String INSERT_PRODUCTO = "INSERT INTO Producto "
+        + "(codigo, nombre, descripcion, precio, categoria, fecha_creacion, fecha_actualizacion, activo) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_INVENTARIO = "INSERT INTO Inventario "
+        + "(producto_id, cantidad, cantidad_minima, ubicacion, fecha_actualizacion, estado) "
+        + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${datos.sinteticos.productos:0}")
+    private long totalProductos;
+
+    @Value("${datos.sinteticos.hilos:4}")
+    private int hilos;
+
+    @Value("${datos.sinteticos.lote:1000}")
+    private int tamanoLote;
+
+    // Faker no es seguro entre hilos y crearlo es caro: uno por hilo de trabajo
+    private final ThreadLocal<Faker> fakers = ThreadLocal.withInitial(Faker::new);
+
+    private String[] categorias;
+    private double[] acumuladoCategorias;
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (totalProductos <= 0) {
+            return;
+        }
+        prepararCategorias();
+        long lotes = (totalProductos + tamanoLote - 1) / tamanoLote;
+        AtomicLong filas = new AtomicLong();
+        AtomicLong lotesSaltados = new AtomicLong();
+        long inicio = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (long lote = 0; lote < lotes; lote++) {
+                long desde = lote * tamanoLote + 1;
+                long hasta = Math.min(desde + tamanoLote - 1, totalProductos);
+                tareas.add(executor.submit(() -> {
+                    int insertadas = generarLote(desde, hasta);
+                    if (insertadas == 0) {
+                        lotesSaltados.incrementAndGet();
+                    }
+                    long total = filas.addAndGet(insertadas);
+                    if (insertadas > 0 && (hasta / tamanoLote) % 100 == 0) {
+                        log.info("Datos sintéticos: {} filas, {} filas/s", total, filasPorSegundo(total, inicio));
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        log.info("Datos sintéticos terminados: {} filas insertadas, {} lotes ya existentes, {} filas/s",
+            filas.get(), lotesSaltados.get(), filasPorSegundo(filas.get(), inicio));
+    }
+
+    /**
+     * Inserta los productos [desde, hasta] que falten y su inventario en una transacción.
+     * Devuelve las filas insertadas (0 si el lote ya existía).
+     *
+     * Nunca borra: un código del tramo que ya existe (de una ejecución anterior o creado
+     * a mano) se deja como está, con su inventario, y solo se generan los que faltan.
+     */
+    int generarLote(long desde, long hasta) {
+        String codigoDesde = codigo(desde);
+        String codigoHasta = codigo(hasta);
+        Set<String> existentes = new HashSet<>();
+        jdbcTemplate.query("SELECT codigo FROM Producto WHERE codigo BETWEEN ? AND ?",
+            rs -> {
+                existentes.add(Colacion.clave(rs.getString(1)));
+            }, codigoDesde, codigoHasta);
+        List<String> codigos = new ArrayList<>();
+        for (long i = desde; i <= hasta; i++) {
+            if (!existentes.contains(Colacion.clave(codigo(i)))) {
+                codigos.add(codigo(i));
+            }
+        }
+        if (codigos.isEmpty()) {
+            return 0;
+        }
+        Integer filas = transactionTemplate.execute(estado -> {
+            Faker faker = fakers.get();
+            ThreadLocalRandom rand = ThreadLocalRandom.current();
+            Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+            List<Object[]> productos = new ArrayList<>(codigos.size());
+            for (String codigo : codigos) {
+                productos.add(new Object[] {
+                    codigo,
+                    faker.commerce().productName(),
+                    faker.lorem().sentence(),
+                    BigDecimal.valueOf(faker.number().randomDouble(2, 1, 500)),
+                    categoriaAleatoria(rand),
+                    ahora,
+                    ahora,
+                    rand.nextDouble() < 0.9
+                });
+            }
+            jdbcTemplate.batchUpdate(INSERT_PRODUCTO, productos);
+
+            // Del tramo solo interesan los recién insertados, que tienen exactamente estos códigos
+            Map<String, Long> ids = new HashMap<>();
+            jdbcTemplate.query("SELECT id, codigo FROM Producto WHERE codigo BETWEEN ? AND ?",
+                rs -> {
+                    ids.put(rs.getString(2), rs.getLong(1));
+                }, codigoDesde, codigoHasta);
+
+            List<Object[]> inventarios = new ArrayList<>(productos.size());
+            for (Object[] producto : productos) {
+                int cantidad = rand.nextDouble() < PROBABILIDAD_AGOTADO
+                    ? 0 : (int) Math.ceil(-Math.log(1 - rand.nextDouble()) * STOCK_MEDIO);
+                int cantidadMinima = rand.nextInt(5, 25);
+                inventarios.add(new Object[] {
+                    ids.get((String) producto[0]),
+                    cantidad,
+                    cantidadMinima,
+                    faker.address().cityName(),
+                    ahora,
+                    estado(cantidad, cantidadMinima)
+                });
+            }
+            jdbcTemplate.batchUpdate(INSERT_INVENTARIO, inventarios);
+            return productos.size() + inventarios.size();
+        });
+        return filas == null ? 0 : filas;
+    }
+
+    // Misma regla que Inventario.actualizarEstado()
+    private static String estado(int cantidad, int cantidadMinima) {
+        if (cantidad <= 0) {
+            return "AGOTADO";
+        }
+        return cantidad <= cantidadMinima ? "BAJO_STOCK" : "DISPONIBLE";
+    }
+
+    private static String codigo(long indice) {
+        return PREFIJO + String.format("%09d", indice);
+    }
+
+    // Pesos 1/rango^s acumulados para elegir categoría por búsqueda binaria
+    private void prepararCategorias() {
+        Faker faker = new Faker(new Random(0));
+        categorias = new String[NUMERO_CATEGORIAS];
+        acumuladoCategorias = new double[NUMERO_CATEGORIAS];
+        double suma = 0;
+        for (int i = 0; i < NUMERO_CATEGORIAS; i++) {
+            categorias[i] = faker.commerce().department() + " " + (i + 1);
+            suma += 1.0 / Math.pow(i + 1, EXPONENTE_ZIPF);
+            acumuladoCategorias[i] = suma;
+        }
+        for (int i = 0; i < NUMERO_CATEGORIAS; i++) {
+            acumuladoCategorias[i] /= suma;
+        }
+    }
+
+    private String categoriaAleatoria(Random rand) {
+        int i = Arrays.binarySearch(acumuladoCategorias, rand.nextDouble());
+        return categorias[Math.min(i >= 0 ? i : -i - 1, NUMERO_CATEGORIAS - 1)];
+    }
+
+    private static long filasPorSegundo(long filas, long inicioNanos) {
+        double segundos = Math.max((System.nanoTime() - inicioNanos) / 1e9, 1e-3);
+        return (long) (filas / segundos);
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void setTotalProductos(long totalProductos) {
+        this.totalProductos = totalProductos;
+    }
+
+    public void setHilos(int hilos) {
+        this.hilos = hilos;
+    }
+
+    public void setTamanoLote(int tamanoLote) {
+        this.tamanoLote = tamanoLote;
+    }
+}
@@ -2,6 +2,7 @@ package com.EcoMarket.producto;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import io.github.cdimascio.dotenv.Dotenv;
 
@@ -12,12 +13,19 @@ import io.github.cdimascio.dotenv.Dotenv;
  * - @Configuration: Indica que la clase contiene configuración de Spring
  * - @EnableAutoConfiguration: Habilita la configuración automática de Spring Boot
  * - @ComponentScan: Escanea automáticamente los componentes en el paquete y subpaquetes
+ * @EnableScheduling: Habilita las tareas periódicas (@Scheduled) de los índices en memoria
+ *
+ * Con -Darranque.rapido=true (scripts/arranque-rapido.sh) no se lee el fichero .env:
+ * en ese modo las variables vienen del entorno del contenedor.
  */
 @SpringBootApplication
+@EnableScheduling
 public class ProjectApplication {
 
 	public static void main(String[] args) {
-		Dotenv.load();
+		if (!Boolean.getBoolean("arranque.rapido")) {
+			Dotenv.load();
+		}
 		SpringApplication.run(ProjectApplication.class, args);
 	}
 
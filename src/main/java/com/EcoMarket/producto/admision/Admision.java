@@ -0,0 +1,27 @@
+package com.EcoMarket.producto.admision;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Control de admisión de un endpoint (AdmisionInterceptor).
+ *
+ * En la clase fija la prioridad por defecto de todos sus endpoints; en un método
+ * la sustituye. Cada endpoint tiene su propio límite de concurrencia adaptativo,
+ * identificado por grupo (por defecto Controlador.metodo).
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Admision {
+
+    Prioridad prioridad() default Prioridad.NORMAL;
+
+    String grupo() default "";
+
+    /**
+     * Límite máximo de peticiones en curso del endpoint (0 = admision.grupo.maximo).
+     */
+    int maximo() default 0;
+}
@@ -0,0 +1,26 @@
+package com.EcoMarket.producto.admision;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/admision: límite adaptativo, peticiones en curso y rechazos por endpoint.
+ */
+@Component
+@Endpoint(id = "admision")
+public class AdmisionEndpoint {
+
+    private final ControlAdmision controlAdmision;
+
+    public AdmisionEndpoint(ControlAdmision controlAdmision) {
+        this.controlAdmision = controlAdmision;
+    }
+
+    @ReadOperation
+    public List<ControlAdmision.EstadoGrupo> estado() {
+        return controlAdmision.estado();
+    }
+}
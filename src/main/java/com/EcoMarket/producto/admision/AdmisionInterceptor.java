@@ -0,0 +1,69 @@
+package com.EcoMarket.producto.admision;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+
+/**
+ * Aplica ControlAdmision a los endpoints anotados con @Admision (en el método o en
+ * el controlador). Los endpoints de streaming (SseEmitter) no cuentan: sus
+ * conexiones duran minutos y no representan carga por petición.
+ */
+@Component
+public class AdmisionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMISO = AdmisionInterceptor.class.getName() + ".permiso";
+
+    private final ControlAdmision controlAdmision;
+
+    public AdmisionInterceptor(ControlAdmision controlAdmision) {
+        this.controlAdmision = controlAdmision;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod metodo) || request.getDispatcherType() != DispatcherType.REQUEST
+                || ResponseBodyEmitter.class.isAssignableFrom(metodo.getMethod().getReturnType())) {
+            return true;
+        }
+        Admision admision = AnnotatedElementUtils.findMergedAnnotation(metodo.getMethod(), Admision.class);
+        if (admision == null) {
+            admision = AnnotatedElementUtils.findMergedAnnotation(metodo.getBeanType(), Admision.class);
+        }
+        if (admision == null) {
+            return true;
+        }
+        String grupo = admision.grupo().isEmpty()
+            ? metodo.getBeanType().getSimpleName() + "." + metodo.getMethod().getName()
+            : admision.grupo();
+        try {
+            request.setAttribute(PERMISO, controlAdmision.admitir(grupo, admision.prioridad(), admision.maximo()));
+            return true;
+        } catch (AdmisionRechazadaException e) {
+            response.setStatus(e.getCodigo());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getReintentarEnSegundos()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("{\"error\":\"" + e.getMessage() + "\",\"reintentarEn\":" + e.getReintentarEnSegundos() + "}");
+            return false;
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMISO) instanceof ControlAdmision.Permiso permiso) {
+            request.removeAttribute(PERMISO);
+            controlAdmision.liberar(permiso, ex != null || response.getStatus() >= 500);
+        }
+    }
+}
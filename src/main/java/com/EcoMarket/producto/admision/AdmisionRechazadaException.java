@@ -0,0 +1,25 @@
+package com.EcoMarket.producto.admision;
+
+/**
+ * Petición rechazada por el control de admisión: 429 si el endpoint está en su
+ * límite, 503 si lo está el servicio entero.
+ */
+public class AdmisionRechazadaException extends RuntimeException {
+
+    private final int codigo;
+    private final long reintentarEnSegundos;
+
+    public AdmisionRechazadaException(int codigo, long reintentarEnSegundos, String mensaje) {
+        super(mensaje);
+        this.codigo = codigo;
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+
+    public int getCodigo() {
+        return codigo;
+    }
+
+    public long getReintentarEnSegundos() {
+        return reintentarEnSegundos;
+    }
+}
@@ -0,0 +1,185 @@
+package com.EcoMarket.producto.admision;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Control de admisión y descarte de carga.
+ *
+ * Cada petición necesita dos huecos:
+ * - uno del límite de su endpoint (grupo), que se adapta a la latencia de ese
+ *   endpoint; si no hay, 429: es ese endpoint el que recibe demasiadas peticiones.
+ * - uno del límite global, adaptado a la relación de latencias de todos los grupos
+ *   (así un listado lento no cuenta como sobrecarga por ser lento). Las masivas solo
+ *   pueden ocupar admision.fraccion.masiva del límite y las normales
+ *   admision.fraccion.normal; las críticas todo, y además pueden esperar
+ *   admision.espera-critica-ms a que se libere uno. Si no hay, 503.
+ *
+ * El rechazo es inmediato (salvo esa espera corta), con Retry-After según la
+ * latencia de referencia del endpoint.
+ *
+ * Métricas: ecomarket.admision.rechazos (grupo, prioridad, codigo),
+ * ecomarket.admision.espera (críticas), ecomarket.admision.limite y
+ * ecomarket.admision.en.curso (grupo), y el resumen de /actuator/admision.
+ */
+@Component
+public class ControlAdmision {
+
+    private static final String GLOBAL = "global";
+    private static final long REINTENTO_MAXIMO_SEGUNDOS = 30;
+
+    /**
+     * Hueco concedido; se devuelve con liberar al terminar la petición.
+     */
+    public record Permiso(String grupo, Prioridad prioridad, long inicio) {
+    }
+
+    /**
+     * Estado de un límite para /actuator/admision.
+     */
+    public record EstadoGrupo(String grupo, Prioridad prioridad, int limite, int enCurso, int esperando,
+            double latenciaReferenciaMs, double latenciaRecienteMs, long admitidas, long rechazadas) {
+    }
+
+    private final class Grupo {
+        final String nombre;
+        final Prioridad prioridad;
+        final LimiteAdaptativo limite;
+        final LongAdder admitidas = new LongAdder();
+        final LongAdder rechazadas = new LongAdder();
+
+        Grupo(String nombre, Prioridad prioridad, LimiteAdaptativo limite) {
+            this.nombre = nombre;
+            this.prioridad = prioridad;
+            this.limite = limite;
+            Gauge.builder("ecomarket.admision.limite", limite, LimiteAdaptativo::limite).tag("grupo", nombre).register(registry);
+            Gauge.builder("ecomarket.admision.en.curso", limite, LimiteAdaptativo::enCurso).tag("grupo", nombre).register(registry);
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<String, Grupo> grupos = new ConcurrentHashMap<>();
+    private final Grupo global;
+    private final int minimoGrupo;
+    private final int maximoGrupo;
+    private final int inicialGrupo;
+    private final double tolerancia;
+    private final double fraccionMasiva;
+    private final double fraccionNormal;
+    private final long esperaCriticaNanos;
+    private final Timer esperaCritica;
+
+    public ControlAdmision(ObjectProvider<MeterRegistry> registry,
+                           @Value("${admision.grupo.minimo:2}") int minimoGrupo,
+                           @Value("${admision.grupo.maximo:200}") int maximoGrupo,
+                           @Value("${admision.grupo.inicial:20}") int inicialGrupo,
+                           @Value("${admision.global.minimo:10}") int minimoGlobal,
+                           @Value("${admision.global.maximo:400}") int maximoGlobal,
+                           @Value("${admision.global.inicial:100}") int inicialGlobal,
+                           @Value("${admision.tolerancia:2.0}") double tolerancia,
+                           @Value("${admision.fraccion.masiva:0.5}") double fraccionMasiva,
+                           @Value("${admision.fraccion.normal:0.85}") double fraccionNormal,
+                           @Value("${admision.espera-critica-ms:50}") long esperaCriticaMs) {
+        this.registry = registry.getIfAvailable(SimpleMeterRegistry::new);
+        this.minimoGrupo = minimoGrupo;
+        this.maximoGrupo = maximoGrupo;
+        this.inicialGrupo = inicialGrupo;
+        this.tolerancia = tolerancia;
+        this.fraccionMasiva = fraccionMasiva;
+        this.fraccionNormal = fraccionNormal;
+        this.esperaCriticaNanos = TimeUnit.MILLISECONDS.toNanos(esperaCriticaMs);
+        this.esperaCritica = Timer.builder("ecomarket.admision.espera").tag("prioridad", Prioridad.CRITICA.name())
+            .description("Espera de las peticiones críticas por un hueco del límite global")
+            .register(this.registry);
+        this.global = new Grupo(GLOBAL, Prioridad.CRITICA,
+            new LimiteAdaptativo(minimoGlobal, maximoGlobal, inicialGlobal, tolerancia));
+    }
+
+    /**
+     * Admite la petición o lanza AdmisionRechazadaException con el código y el
+     * Retry-After que hay que devolver.
+     *
+     * @param maximo límite máximo propio del endpoint (0 = el de configuración)
+     */
+    public Permiso admitir(String nombre, Prioridad prioridad, int maximo) {
+        Grupo grupo = grupos.computeIfAbsent(nombre, n -> new Grupo(n, prioridad, new LimiteAdaptativo(minimoGrupo,
+            maximo > 0 ? maximo : maximoGrupo, maximo > 0 ? Math.min(inicialGrupo, maximo) : inicialGrupo, tolerancia)));
+        if (!grupo.limite.adquirir(1.0)) {
+            throw rechazar(grupo, 429, "Demasiadas peticiones simultáneas a " + nombre);
+        }
+        boolean admitida;
+        long inicioEspera = System.nanoTime();
+        try {
+            admitida = prioridad == Prioridad.CRITICA
+                ? global.limite.adquirir(1.0, esperaCriticaNanos)
+                : global.limite.adquirir(prioridad == Prioridad.MASIVA ? fraccionMasiva : fraccionNormal);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitida = false;
+        }
+        if (prioridad == Prioridad.CRITICA) {
+            esperaCritica.record(System.nanoTime() - inicioEspera, TimeUnit.NANOSECONDS);
+        }
+        if (!admitida) {
+            grupo.limite.soltar();
+            global.rechazadas.increment();
+            throw rechazar(grupo, 503, "Servicio saturado");
+        }
+        grupo.admitidas.increment();
+        global.admitidas.increment();
+        return new Permiso(nombre, prioridad, System.nanoTime());
+    }
+
+    /**
+     * Devuelve los huecos y ajusta los límites con la latencia de la petición.
+     *
+     * @param error la petición terminó con error de servidor (5xx o excepción)
+     */
+    public void liberar(Permiso permiso, boolean error) {
+        Grupo grupo = grupos.get(permiso.grupo());
+        grupo.limite.soltar();
+        global.limite.soltar();
+        double relacion = grupo.limite.medir(System.nanoTime() - permiso.inicio());
+        grupo.limite.ajustar(relacion, error);
+        global.limite.ajustar(relacion, error);
+    }
+
+    private AdmisionRechazadaException rechazar(Grupo grupo, int codigo, String mensaje) {
+        grupo.rechazadas.increment();
+        Counter.builder("ecomarket.admision.rechazos")
+            .tag("grupo", grupo.nombre).tag("prioridad", grupo.prioridad.name()).tag("codigo", Integer.toString(codigo))
+            .register(registry).increment();
+        long segundos = (long) Math.ceil(2 * grupo.limite.latenciaReferenciaMs() / 1000);
+        return new AdmisionRechazadaException(codigo, Math.min(Math.max(segundos, 1), REINTENTO_MAXIMO_SEGUNDOS), mensaje);
+    }
+
+    /**
+     * Estado del límite global (primero) y de cada endpoint.
+     */
+    public List<EstadoGrupo> estado() {
+        List<EstadoGrupo> estado = new ArrayList<>();
+        estado.add(estado(global));
+        grupos.values().stream().sorted(Comparator.comparing(g -> g.nombre)).forEach(g -> estado.add(estado(g)));
+        return estado;
+    }
+
+    private static EstadoGrupo estado(Grupo g) {
+        return new EstadoGrupo(g.nombre, g.prioridad, g.limite.limite(), g.limite.enCurso(), g.limite.esperando(),
+            g.limite.latenciaReferenciaMs(), g.limite.latenciaRecienteMs(), g.admitidas.sum(), g.rechazadas.sum());
+    }
+}
@@ -0,0 +1,152 @@
+package com.EcoMarket.producto.admision;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Límite de peticiones en curso que se ajusta con AIMD según la latencia.
+ *
+ * No usa un objetivo de latencia fijo (un listado completo tarda mucho más que una
+ * lectura por id): compara una media rápida de la latencia con una lenta que hace
+ * de referencia sin carga. Mientras la relación rápida/lenta no supere la
+ * tolerancia y el límite se esté usando, crece en 1/límite por petición (unas +1
+ * por ronda); si la supera o hay errores de servidor baja multiplicando por
+ * FACTOR_REDUCCION, como mucho una vez por latencia de referencia (y cada 100 ms).
+ */
+public class LimiteAdaptativo {
+
+    static final double FACTOR_REDUCCION = 0.9;
+    // Separación mínima entre reducciones (el límite global no mide latencias propias)
+    private static final long VENTANA_MINIMA_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final double ALFA_RAPIDA = 0.2;
+    private static final double ALFA_LENTA = 0.01;
+
+    private final int minimo;
+    private final int maximo;
+    private final double tolerancia;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition hueco = cerrojo.newCondition();
+    private final AtomicInteger esperando = new AtomicInteger();
+
+    private volatile double limite;
+    // Latencias en nanosegundos; solo se modifican dentro de synchronized
+    private double rapida;
+    private double lenta;
+    private long ultimaReduccion;
+
+    public LimiteAdaptativo(int minimo, int maximo, int inicial, double tolerancia) {
+        this.minimo = Math.max(1, minimo);
+        this.maximo = Math.max(this.minimo, maximo);
+        this.limite = Math.min(Math.max(inicial, this.minimo), this.maximo);
+        this.tolerancia = tolerancia;
+    }
+
+    /**
+     * Ocupa un hueco si hay menos peticiones en curso que fraccion × límite.
+     */
+    public boolean adquirir(double fraccion) {
+        int permitidas = Math.max(1, (int) (limite * fraccion));
+        while (true) {
+            int actual = enCurso.get();
+            if (actual >= permitidas) {
+                return false;
+            }
+            if (enCurso.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Como adquirir, pero espera hasta esperaNanos a que se libere un hueco.
+     */
+    public boolean adquirir(double fraccion, long esperaNanos) throws InterruptedException {
+        if (adquirir(fraccion)) {
+            return true;
+        }
+        if (esperaNanos <= 0) {
+            return false;
+        }
+        long restante = esperaNanos;
+        cerrojo.lock();
+        esperando.incrementAndGet();
+        try {
+            while (!adquirir(fraccion)) {
+                if (restante <= 0) {
+                    return false;
+                }
+                restante = hueco.awaitNanos(restante);
+            }
+            return true;
+        } finally {
+            esperando.decrementAndGet();
+            cerrojo.unlock();
+        }
+    }
+
+    public void soltar() {
+        enCurso.decrementAndGet();
+        if (esperando.get() > 0) {
+            cerrojo.lock();
+            try {
+                hueco.signal();
+            } finally {
+                cerrojo.unlock();
+            }
+        }
+    }
+
+    /**
+     * Registra la latencia de una petición y devuelve la relación entre la media
+     * rápida y la de referencia (1 = como sin carga).
+     */
+    public synchronized double medir(long nanos) {
+        if (lenta == 0) {
+            rapida = nanos;
+            lenta = nanos;
+        } else {
+            rapida += ALFA_RAPIDA * (nanos - rapida);
+            lenta += ALFA_LENTA * (nanos - lenta);
+        }
+        return rapida / Math.max(lenta, 1);
+    }
+
+    /**
+     * Aumento aditivo o reducción multiplicativa según la relación de latencias.
+     */
+    public synchronized void ajustar(double relacion, boolean error) {
+        long ahora = System.nanoTime();
+        if (error || relacion > tolerancia) {
+            if (ahora - ultimaReduccion >= Math.max((long) lenta, VENTANA_MINIMA_NANOS)) {
+                limite = Math.max(minimo, limite * FACTOR_REDUCCION);
+                ultimaReduccion = ahora;
+            }
+        } else if (enCurso.get() + 1 >= limite / 2) {
+            // Solo crece si se está usando: un límite ocioso no demuestra nada
+            limite = Math.min(maximo, limite + 1 / limite);
+        }
+    }
+
+    public int limite() {
+        return (int) limite;
+    }
+
+    public int enCurso() {
+        return enCurso.get();
+    }
+
+    public int esperando() {
+        return esperando.get();
+    }
+
+    public synchronized double latenciaReferenciaMs() {
+        return lenta / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public synchronized double latenciaRecienteMs() {
+        return rapida / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,14 @@
+package com.EcoMarket.producto.admision;
+
+/**
+ * Clase de prioridad de un endpoint. Cada clase puede ocupar como mucho una
+ * fracción del límite global de peticiones en curso, así las masivas nunca dejan
+ * sin hueco a las críticas.
+ */
+public enum Prioridad {
+    // Lecturas por id y stock: las que usa el checkout. Pueden esperar un poco por un hueco
+    CRITICA,
+    NORMAL,
+    // Listados sin paginar, búsquedas y operaciones en bloque
+    MASIVA
+}
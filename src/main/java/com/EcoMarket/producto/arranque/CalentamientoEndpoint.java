@@ -0,0 +1,32 @@
+package com.EcoMarket.producto.arranque;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/calentamiento: resultado del calentamiento y latencia tras el arranque.
+ */
+@Component
+@Endpoint(id = "calentamiento")
+public class CalentamientoEndpoint {
+
+    private final CalentamientoService calentamientoService;
+    private final LatenciaPostDespliegue latenciaPostDespliegue;
+
+    public CalentamientoEndpoint(CalentamientoService calentamientoService, LatenciaPostDespliegue latenciaPostDespliegue) {
+        this.calentamientoService = calentamientoService;
+        this.latenciaPostDespliegue = latenciaPostDespliegue;
+    }
+
+    @ReadOperation
+    public Map<String, Object> informe() {
+        Map<String, Object> informe = new LinkedHashMap<>();
+        informe.put("calentamiento", calentamientoService.informe());
+        informe.put("postDespliegue", latenciaPostDespliegue.resumen());
+        return informe;
+    }
+}
@@ -0,0 +1,241 @@
+package com.EcoMarket.producto.arranque;
+
+import com.EcoMarket.producto.metricas.ClavesCalientes;
+import com.EcoMarket.producto.metricas.TopClaves;
+import com.EcoMarket.producto.repository.InventarioRepository;
+import com.EcoMarket.producto.repository.ProductoRepository;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Calentamiento antes de aceptar tráfico.
+ *
+ * Spring Boot marca la aplicación como lista (readiness ACCEPTING_TRAFFIC) justo
+ * después de los oyentes de ApplicationReadyEvent; este oyente es el último
+ * (LOWEST_PRECEDENCE, los índices en memoria ya están cargados) y mientras dura la
+ * sonda de readiness sigue sin responder UP:
+ *
+ * 1. Precarga los productos e inventarios más consultados (los del último arranque,
+ *    guardados en calentamiento.fichero, más los de calentamiento.productos), lo que
+ *    deja sus páginas en el buffer pool de MySQL y el pool de conexiones abierto.
+ * 2. Lanza contra el propio servidor las GET principales de la API durante varias
+ *    rondas para que el JIT compile controladores, HATEOAS y Jackson (JSON y CBOR).
+ *
+ * El tiempo hasta estar listo, la duración y la latencia de la primera y la última
+ * ronda se publican en /actuator/calentamiento.
+ */
+@Service
+public class CalentamientoService {
+
+    private static final Logger log = LoggerFactory.getLogger(CalentamientoService.class);
+
+    // Cabecera de las peticiones sintéticas: no cuentan como tráfico real (claves
+    // calientes, popularidad del autocompletado ni latencia post-despliegue)
+    public static final String CABECERA = "X-Calentamiento";
+
+    /**
+     * Resultado del último calentamiento.
+     */
+    public record Informe(long tiempoHastaListoMs, long duracionMs, int productosPrecargados,
+            int inventariosPrecargados, int peticiones, int errores, double primeraRondaMs, double ultimaRondaMs) {
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private ClavesCalientes clavesCalientes;
+
+    @Value("${calentamiento.habilitado:true}")
+    private boolean habilitado = true;
+
+    @Value("${calentamiento.productos:}")
+    private List<Long> productosConfigurados = List.of();
+
+    @Value("${calentamiento.fichero:}")
+    private String fichero = "";
+
+    @Value("${calentamiento.rondas:200}")
+    private int rondas = 200;
+
+    @Value("${calentamiento.max-ms:30000}")
+    private long maxMs = 30_000;
+
+    private volatile Informe informe;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void calentar(ApplicationReadyEvent evento) {
+        if (!habilitado) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        long limite = inicio + maxMs * 1_000_000;
+
+        List<String> guardadas = leerFichero();
+        List<Long> productos = new ArrayList<>(clavesAPrecargar(productosConfigurados, guardadas, true));
+        List<Long> inventarios = new ArrayList<>(clavesAPrecargar(List.of(), guardadas, false));
+        int productosPrecargados = productoRepository.findAllById(productos).size();
+        int inventariosPrecargados = inventarioRepository.findAllById(inventarios).size();
+
+        int peticiones = 0;
+        int errores = 0;
+        double primeraRonda = 0;
+        double ultimaRonda = 0;
+        if (evento.getApplicationContext() instanceof WebServerApplicationContext web && web.getWebServer() != null) {
+            HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+            List<HttpRequest> ronda = peticiones("http://localhost:" + web.getWebServer().getPort(), productos, inventarios);
+            for (int r = 0; r < rondas && System.nanoTime() < limite; r++) {
+                long inicioRonda = System.nanoTime();
+                for (HttpRequest peticion : ronda) {
+                    peticiones++;
+                    try {
+                        HttpResponse<byte[]> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+                        if (respuesta.statusCode() >= 500) {
+                            errores++;
+                        }
+                    } catch (IOException e) {
+                        errores++;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                double ms = (System.nanoTime() - inicioRonda) / 1e6 / Math.max(ronda.size(), 1);
+                if (r == 0) {
+                    primeraRonda = ms;
+                }
+                ultimaRonda = ms;
+            }
+        }
+        informe = new Informe(ManagementFactory.getRuntimeMXBean().getUptime(), (System.nanoTime() - inicio) / 1_000_000,
+            productosPrecargados, inventariosPrecargados, peticiones, errores, primeraRonda, ultimaRonda);
+        log.info("Calentamiento terminado: {}", informe);
+    }
+
+    // GET principales de la API; se repiten en cada ronda
+    private static List<HttpRequest> peticiones(String base, List<Long> productos, List<Long> inventarios) {
+        List<String> rutas = new ArrayList<>(List.of(
+            "/api/v2/productos?fields=id,nombre,precio",
+            "/api/v2/productos/filtro?activo=true&size=20",
+            "/api/v2/productos/autocompletar?q=a",
+            "/api/v2/productos/buscar?q=manzana",
+            "/api/v2/productos/catalogo",
+            "/api/v1/inventario/valoracion"));
+        for (Long id : productos.subList(0, Math.min(productos.size(), 20))) {
+            rutas.add("/api/v2/productos/" + id);
+            rutas.add("/api/v1/inventario/producto/" + id + "/stock");
+        }
+        for (Long id : inventarios.subList(0, Math.min(inventarios.size(), 20))) {
+            rutas.add("/api/v2/inventario/" + id);
+        }
+        List<HttpRequest> peticiones = new ArrayList<>(rutas.size() + 2);
+        for (String ruta : rutas) {
+            peticiones.add(HttpRequest.newBuilder(URI.create(base + ruta)).header(CABECERA, "1")
+                .timeout(Duration.ofSeconds(5)).GET().build());
+        }
+        // Mismo recurso en CBOR para compilar también ese convertidor
+        if (!productos.isEmpty()) {
+            peticiones.add(HttpRequest.newBuilder(URI.create(base + "/api/v2/productos/" + productos.get(0)))
+                .header(CABECERA, "1").header("Accept", "application/cbor").timeout(Duration.ofSeconds(5)).GET().build());
+        }
+        return peticiones;
+    }
+
+    /**
+     * Ids a precargar: primero los configurados y después los del fichero (líneas
+     * "p:id" para productos e "i:id" para inventarios), sin repetir.
+     */
+    static Set<Long> clavesAPrecargar(List<Long> configuradas, List<String> lineas, boolean productos) {
+        Set<Long> claves = new LinkedHashSet<>(configuradas);
+        String prefijo = productos ? "p:" : "i:";
+        for (String linea : lineas) {
+            if (linea.startsWith(prefijo)) {
+                try {
+                    claves.add(Long.parseLong(linea.substring(2).trim()));
+                } catch (NumberFormatException e) {
+                    // línea corrupta: se ignora
+                }
+            }
+        }
+        return claves;
+    }
+
+    private List<String> leerFichero() {
+        if (fichero.isBlank() || !Files.isReadable(Path.of(fichero))) {
+            return List.of();
+        }
+        try {
+            return Files.readAllLines(Path.of(fichero), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("No se pudo leer {}: {}", fichero, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Guarda las claves calientes actuales para el próximo arranque.
+     */
+    @Scheduled(fixedDelayString = "${calentamiento.guardar-ms:300000}", initialDelayString = "${calentamiento.guardar-ms:300000}")
+    @PreDestroy
+    public void guardarClaves() {
+        if (fichero.isBlank()) {
+            return;
+        }
+        ClavesCalientes.Informe actual = clavesCalientes.informe();
+        if (actual.productos().isEmpty() && actual.inventarios().isEmpty()) {
+            // Sin tráfico todavía: se conserva el fichero anterior
+            return;
+        }
+        List<String> lineas = new ArrayList<>();
+        for (TopClaves.Clave clave : actual.productos()) {
+            lineas.add("p:" + clave.clave());
+        }
+        for (TopClaves.Clave clave : actual.inventarios()) {
+            lineas.add("i:" + clave.clave());
+        }
+        try {
+            Path destino = Path.of(fichero);
+            Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+            Files.write(temporal, lineas, StandardCharsets.UTF_8);
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("No se pudieron guardar las claves calientes en {}: {}", fichero, e.getMessage());
+        }
+    }
+
+    public Informe informe() {
+        return informe;
+    }
+}
@@ -0,0 +1,78 @@
+package com.EcoMarket.producto.arranque;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de las peticiones reales durante los primeros minutos tras el arranque
+ * (timer ecomarket.latencia.post.despliegue, con p50/p90/p99), para comparar
+ * despliegues con y sin calentamiento.
+ */
+@Component
+public class LatenciaPostDespliegue implements HandlerInterceptor {
+
+    private static final String INICIO = LatenciaPostDespliegue.class.getName() + ".inicio";
+
+    private final Timer timer;
+    private final long ventanaMs;
+    private volatile long finVentana = Long.MAX_VALUE;
+
+    public LatenciaPostDespliegue(ObjectProvider<MeterRegistry> registry,
+                                  @Value("${calentamiento.ventana-post-despliegue-ms:300000}") long ventanaMs) {
+        this.ventanaMs = ventanaMs;
+        this.timer = Timer.builder("ecomarket.latencia.post.despliegue")
+            .description("Latencia de las peticiones en los primeros minutos tras el arranque")
+            .publishPercentiles(0.5, 0.9, 0.99)
+            .register(registry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    // La ventana empieza cuando la aplicación ya acepta tráfico
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        finVentana = System.currentTimeMillis() + ventanaMs;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (System.currentTimeMillis() < finVentana && request.getHeader(CalentamientoService.CABECERA) == null) {
+            request.setAttribute(INICIO, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(INICIO) instanceof Long inicio) {
+            timer.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Número de peticiones medidas y percentiles en milisegundos.
+     */
+    public Map<String, Object> resumen() {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("peticiones", timer.count());
+        for (ValueAtPercentile percentil : timer.takeSnapshot().percentileValues()) {
+            resumen.put("p" + Math.round(percentil.percentile() * 100), percentil.value(TimeUnit.MILLISECONDS));
+        }
+        resumen.put("ventanaActiva", System.currentTimeMillis() < finVentana);
+        return resumen;
+    }
+}
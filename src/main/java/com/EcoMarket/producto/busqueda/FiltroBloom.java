@@ -0,0 +1,106 @@
+package com.EcoMarket.producto.busqueda;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtro de Bloom de cadenas.
+ *
+ * Responde "seguro que no está" o "puede que esté": no tiene falsos negativos y la
+ * probabilidad de falso positivo se fija al crearlo para un número de elementos
+ * esperado. Las k posiciones de cada cadena salen de dos hashes de 64 bits
+ * combinados (h1 + i·h2, Kirsch-Mitzenmacher). Los bits están en un AtomicLongArray,
+ * así que agregar y consultar son seguros entre hilos sin bloqueo. No admite borrar:
+ * quien lo usa debe reconstruirlo cuando se acumulan elementos que ya no existen.
+ */
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long numeroBits;
+    private final int numeroHashes;
+    private final LongAdder elementos = new LongAdder();
+
+    /**
+     * @param esperados elementos que se espera agregar
+     * @param falsoPositivo probabilidad de falso positivo con esos elementos (p. ej. 0.01)
+     */
+    public FiltroBloom(long esperados, double falsoPositivo) {
+        long n = Math.max(esperados, 1);
+        double p = Math.min(Math.max(falsoPositivo, 1e-9), 0.5);
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        long palabras = Math.max((m + 63) / 64, 1);
+        if (palabras > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filtro de Bloom demasiado grande: " + m + " bits");
+        }
+        this.bits = new AtomicLongArray((int) palabras);
+        this.numeroBits = palabras * 64;
+        this.numeroHashes = Math.max(1, (int) Math.round((double) numeroBits / n * Math.log(2)));
+    }
+
+    public void agregar(String valor) {
+        long h1 = hash(valor, 0x9E3779B97F4A7C15L);
+        long h2 = hash(valor, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < numeroHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numeroBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual = bits.get(palabra);
+            while ((actual & mascara) == 0 && !bits.compareAndSet(palabra, actual, actual | mascara)) {
+                actual = bits.get(palabra);
+            }
+        }
+        elementos.increment();
+    }
+
+    /**
+     * false si el valor seguro que no se ha agregado nunca.
+     */
+    public boolean puedeContener(String valor) {
+        long h1 = hash(valor, 0x9E3779B97F4A7C15L);
+        long h2 = hash(valor, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < numeroHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numeroBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Veces que se ha llamado a agregar (incluye repetidos).
+     */
+    public long elementos() {
+        return elementos.sum();
+    }
+
+    public long numeroBits() {
+        return numeroBits;
+    }
+
+    public int numeroHashes() {
+        return numeroHashes;
+    }
+
+    /**
+     * Probabilidad de falso positivo estimada con los elementos agregados.
+     */
+    public double falsoPositivoEstimado() {
+        return Math.pow(1 - Math.exp(-(double) numeroHashes * elementos() / numeroBits), numeroHashes);
+    }
+
+    // FNV-1a de 64 bits sobre los bytes UTF-8 con semilla, seguido del mezclador final de SplitMix64
+    private static long hash(String valor, long semilla) {
+        long h = 0xCBF29CE484222325L ^ semilla;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 27;
+        h *= 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
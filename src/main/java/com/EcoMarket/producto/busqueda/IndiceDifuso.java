@@ -0,0 +1,336 @@
+package com.EcoMarket.producto.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.hateoas.server.core.Relation;
+
+/**
+ * Índice de búsqueda tolerante a errores sobre nombre y categoría.
+ *
+ * El vocabulario (palabras distintas) va en un Vocabulario indexado por bigramas y
+ * cada palabra apunta a los productos que la contienen. Una consulta busca cada
+ * término con una distancia máxima según su longitud y puntúa cada producto con la
+ * similitud media de sus mejores coincidencias. Como el vocabulario crece mucho más
+ * despacio que el catálogo, buscar en él apenas depende del número de productos.
+ *
+ * Lo que sí crece con el catálogo son las listas de productos de las palabras
+ * frecuentes (una categoría puede tener decenas de miles), así que las listas son
+ * long[] con los ids y la puntuación se acumula en una tabla de arrays primitivos.
+ * De los productos puntuados solo se conservan los mejores con un montículo
+ * acotado: nunca se ordena la lista completa.
+ */
+public class IndiceDifuso {
+
+    /**
+     * Máximo de resultados que se pueden pedir (y paginar) en una consulta.
+     */
+    public static final int MAX_RESULTADOS = 1000;
+
+    /**
+     * Términos de la consulta que se tienen en cuenta; el resto se ignora.
+     */
+    static final int MAX_TERMINOS = 8;
+
+    /**
+     * Datos mínimos de un producto indexado.
+     */
+    public record Documento(Long id, String codigo, String nombre, String categoria) {
+    }
+
+    /**
+     * Producto encontrado y su puntuación en [0, 1].
+     */
+    @Relation(collectionRelation = "resultados", itemRelation = "resultado")
+    public record Resultado(Long id, String codigo, String nombre, String categoria, double puntuacion) {
+    }
+
+    /**
+     * Mejores resultados de una consulta y el número total de productos que coinciden.
+     */
+    public record Busqueda(List<Resultado> resultados, int total) {
+    }
+
+    // Ids de los productos que contienen una palabra, sin orden
+    private static final class Productos {
+        private long[] ids = new long[2];
+        private int tamano;
+
+        void agregar(long id) {
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano * 2);
+            }
+            ids[tamano++] = id;
+        }
+
+        void quitar(long id) {
+            for (int i = 0; i < tamano; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--tamano];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final Vocabulario vocabulario = new Vocabulario();
+    private final Map<String, Productos> productosPorPalabra = new HashMap<>();
+    private final Map<Long, Documento> documentos = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void agregar(Documento documento) {
+        lock.writeLock().lock();
+        try {
+            eliminarSinLock(documento.id());
+            documentos.put(documento.id(), documento);
+            for (String palabra : palabras(documento)) {
+                vocabulario.agregar(palabra);
+                productosPorPalabra.computeIfAbsent(palabra, p -> new Productos()).agregar(documento.id());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long id) {
+        lock.writeLock().lock();
+        try {
+            eliminarSinLock(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Los limite productos con mayor puntuación (de mayor a menor y, a igualdad, por id)
+     * y el total de productos que coinciden. limite se acota a [1, MAX_RESULTADOS].
+     */
+    public Busqueda buscar(String consulta, int limite) {
+        List<String> terminos = tokenizar(consulta);
+        if (terminos.size() > MAX_TERMINOS) {
+            terminos = terminos.subList(0, MAX_TERMINOS);
+        }
+        if (terminos.isEmpty()) {
+            return new Busqueda(List.of(), 0);
+        }
+        limite = Math.max(1, Math.min(limite, MAX_RESULTADOS));
+        lock.readLock().lock();
+        try {
+            // Por término, las palabras del vocabulario de más a menos parecidas: la primera
+            // vez que un producto aparece en un término es su mejor similitud para ese término
+            List<List<Palabra>> coincidencias = new ArrayList<>(terminos.size());
+            int estimado = 0;
+            for (String termino : terminos) {
+                List<Palabra> palabras = new ArrayList<>();
+                for (Vocabulario.Coincidencia coincidencia : vocabulario.buscar(termino, tolerancia(termino))) {
+                    Productos productos = productosPorPalabra.get(coincidencia.palabra());
+                    if (productos != null) {
+                        palabras.add(new Palabra(productos, 1.0 - (double) coincidencia.distancia()
+                            / Math.max(termino.length(), coincidencia.palabra().length())));
+                        estimado += productos.tamano;
+                    }
+                }
+                palabras.sort(Comparator.comparingDouble(Palabra::similitud).reversed());
+                coincidencias.add(palabras);
+            }
+            Acumulador acumulador = new Acumulador(Math.min(estimado, documentos.size()));
+            for (int t = 0; t < coincidencias.size(); t++) {
+                for (Palabra palabra : coincidencias.get(t)) {
+                    long[] ids = palabra.productos().ids;
+                    for (int i = 0, n = palabra.productos().tamano; i < n; i++) {
+                        acumulador.sumar(ids[i], t, palabra.similitud());
+                    }
+                }
+            }
+            return new Busqueda(mejores(acumulador, terminos.size(), limite), acumulador.tamano);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return documentos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Resultado> mejores(Acumulador acumulador, int terminos, int limite) {
+        Monticulo monticulo = new Monticulo(Math.min(limite, acumulador.tamano));
+        for (int i = 0; i < acumulador.ids.length; i++) {
+            if (acumulador.terminos[i] != 0) {
+                monticulo.ofrecer(acumulador.sumas[i] / terminos, acumulador.ids[i]);
+            }
+        }
+        Resultado[] resultados = new Resultado[monticulo.tamano];
+        while (monticulo.tamano > 0) {
+            Documento d = documentos.get(monticulo.ids[0]);
+            resultados[monticulo.tamano - 1] = new Resultado(d.id(), d.codigo(), d.nombre(), d.categoria(),
+                monticulo.puntuaciones[0]);
+            monticulo.quitarRaiz();
+        }
+        return Arrays.asList(resultados);
+    }
+
+    private record Palabra(Productos productos, double similitud) {
+    }
+
+    // Tabla hash abierta id -> (suma de similitudes, términos ya sumados como bits)
+    private static final class Acumulador {
+        private final long[] ids;
+        private final double[] sumas;
+        private final int[] terminos;
+        private final int mascara;
+        private int tamano;
+
+        Acumulador(int esperado) {
+            int capacidad = Integer.highestOneBit(Math.max(16, esperado * 2 - 1)) << 1;
+            ids = new long[capacidad];
+            sumas = new double[capacidad];
+            terminos = new int[capacidad];
+            mascara = capacidad - 1;
+        }
+
+        void sumar(long id, int termino, double similitud) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            int i = (int) (h ^ h >>> 32) & mascara;
+            while (terminos[i] != 0 && ids[i] != id) {
+                i = (i + 1) & mascara;
+            }
+            if (terminos[i] == 0) {
+                ids[i] = id;
+                tamano++;
+            } else if ((terminos[i] & 1 << termino) != 0) {
+                return;
+            }
+            terminos[i] |= 1 << termino;
+            sumas[i] += similitud;
+        }
+    }
+
+    // Los limite mejores; la raíz es el peor de ellos, el primero en salir si llega uno mejor
+    private static final class Monticulo {
+        private final double[] puntuaciones;
+        private final long[] ids;
+        private int tamano;
+
+        Monticulo(int capacidad) {
+            puntuaciones = new double[capacidad];
+            ids = new long[capacidad];
+        }
+
+        void ofrecer(double puntuacion, long id) {
+            if (tamano < ids.length) {
+                poner(tamano, puntuacion, id);
+                subir(tamano++);
+            } else if (mejor(puntuacion, id, puntuaciones[0], ids[0])) {
+                poner(0, puntuacion, id);
+                bajar();
+            }
+        }
+
+        void quitarRaiz() {
+            tamano--;
+            poner(0, puntuaciones[tamano], ids[tamano]);
+            bajar();
+        }
+
+        // a va antes que b: más puntuación o, a igualdad, menor id
+        private static boolean mejor(double puntuacionA, long idA, double puntuacionB, long idB) {
+            return puntuacionA > puntuacionB || puntuacionA == puntuacionB && idA < idB;
+        }
+
+        private boolean mejor(int a, int b) {
+            return mejor(puntuaciones[a], ids[a], puntuaciones[b], ids[b]);
+        }
+
+        private void subir(int i) {
+            while (i > 0 && mejor((i - 1) / 2, i)) {
+                intercambiar(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        }
+
+        private void bajar() {
+            int i = 0;
+            while (true) {
+                int peor = i;
+                for (int hijo = 2 * i + 1; hijo <= 2 * i + 2 && hijo < tamano; hijo++) {
+                    if (mejor(peor, hijo)) {
+                        peor = hijo;
+                    }
+                }
+                if (peor == i) {
+                    return;
+                }
+                intercambiar(i, peor);
+                i = peor;
+            }
+        }
+
+        private void poner(int i, double puntuacion, long id) {
+            puntuaciones[i] = puntuacion;
+            ids[i] = id;
+        }
+
+        private void intercambiar(int a, int b) {
+            double puntuacion = puntuaciones[a];
+            long id = ids[a];
+            poner(a, puntuaciones[b], ids[b]);
+            poner(b, puntuacion, id);
+        }
+    }
+
+    // Las palabras sin productos se quedan en el vocabulario (no admite borrado) y se ignoran al buscar
+    private void eliminarSinLock(Long id) {
+        Documento anterior = documentos.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        for (String palabra : palabras(anterior)) {
+            Productos productos = productosPorPalabra.get(palabra);
+            if (productos != null) {
+                productos.quitar(id);
+                if (productos.tamano == 0) {
+                    productosPorPalabra.remove(palabra);
+                }
+            }
+        }
+    }
+
+    /**
+     * Errores permitidos según la longitud del término: 0 hasta 2 letras, 1 hasta 5 y 2 a partir de 6.
+     */
+    static int tolerancia(String termino) {
+        if (termino.length() <= 2) {
+            return 0;
+        }
+        return termino.length() <= 5 ? 1 : 2;
+    }
+
+    private static Set<String> palabras(Documento documento) {
+        Set<String> palabras = new LinkedHashSet<>(tokenizar(documento.nombre()));
+        palabras.addAll(tokenizar(documento.categoria()));
+        return palabras;
+    }
+
+    static List<String> tokenizar(String texto) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : TriePrefijos.normalizar(texto).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,393 @@
+package com.EcoMarket.producto.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Trie de prefijos compacto (radix trie) para autocompletado.
+ *
+ * Las cadenas de nodos con un solo hijo se guardan como una única arista con una
+ * etiqueta de varios caracteres, así que el número de nodos depende de los puntos
+ * donde los términos se separan y no de su longitud total. Cada nodo guarda, además
+ * de sus hijos, los MAX_K mejores ids de todo su subárbol ordenados por puntuación:
+ * una consulta solo recorre los caracteres del prefijo y devuelve la lista ya
+ * calculada. Los hijos se guardan en arrays ordenados por el primer carácter de su
+ * etiqueta (búsqueda binaria) en vez de mapas para reducir memoria por nodo.
+ *
+ * Se indexan el nombre completo, cada palabra del nombre y el código, normalizados
+ * a minúsculas y sin tildes. Lecturas concurrentes, escrituras exclusivas.
+ */
+public class TriePrefijos {
+
+    public static final int MAX_K = 10;
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Elemento indexado.
+     */
+    public record Entrada(Long id, String codigo, String nombre, long puntuacion) {
+    }
+
+    private static final class Nodo {
+        // caracteres de la arista que llega a este nodo ("" en la raíz)
+        private String etiqueta;
+        // primer carácter de la etiqueta de cada hijo, ordenados
+        private char[] claves = new char[0];
+        private Nodo[] hijos = new Nodo[0];
+        // ids cuyo término termina exactamente en este nodo
+        private Set<Long> terminales;
+        // mejores ids del subárbol, de mayor a menor puntuación
+        private List<Long> mejores = new ArrayList<>(0);
+
+        Nodo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        int indice(char c) {
+            return Arrays.binarySearch(claves, c);
+        }
+
+        void anadir(int pos, Nodo hijo) {
+            char[] nuevasClaves = new char[claves.length + 1];
+            Nodo[] nuevosHijos = new Nodo[hijos.length + 1];
+            System.arraycopy(claves, 0, nuevasClaves, 0, pos);
+            System.arraycopy(hijos, 0, nuevosHijos, 0, pos);
+            nuevasClaves[pos] = hijo.etiqueta.charAt(0);
+            nuevosHijos[pos] = hijo;
+            System.arraycopy(claves, pos, nuevasClaves, pos + 1, claves.length - pos);
+            System.arraycopy(hijos, pos, nuevosHijos, pos + 1, hijos.length - pos);
+            claves = nuevasClaves;
+            hijos = nuevosHijos;
+        }
+
+        void quitar(int pos) {
+            char[] nuevasClaves = new char[claves.length - 1];
+            Nodo[] nuevosHijos = new Nodo[hijos.length - 1];
+            System.arraycopy(claves, 0, nuevasClaves, 0, pos);
+            System.arraycopy(hijos, 0, nuevosHijos, 0, pos);
+            System.arraycopy(claves, pos + 1, nuevasClaves, pos, claves.length - pos - 1);
+            System.arraycopy(hijos, pos + 1, nuevosHijos, pos, hijos.length - pos - 1);
+            claves = nuevasClaves;
+            hijos = nuevosHijos;
+        }
+
+        boolean sinTerminales() {
+            return terminales == null || terminales.isEmpty();
+        }
+    }
+
+    private final Nodo raiz = new Nodo("");
+    private final Map<Long, Entrada> entradas = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Comparator<Long> porPuntuacion = Comparator
+        .comparingLong((Long id) -> entradas.get(id).puntuacion()).reversed()
+        .thenComparing(Comparator.naturalOrder());
+
+    /**
+     * Inserta o reemplaza un elemento.
+     */
+    public void insertar(Long id, String codigo, String nombre, long puntuacion) {
+        lock.writeLock().lock();
+        try {
+            if (entradas.containsKey(id)) {
+                eliminarSinLock(id);
+            }
+            Entrada entrada = new Entrada(id, codigo, nombre, puntuacion);
+            entradas.put(id, entrada);
+            for (String termino : terminos(entrada)) {
+                Nodo nodo = raiz;
+                ofrecer(nodo, id);
+                int i = 0;
+                while (i < termino.length()) {
+                    int pos = nodo.indice(termino.charAt(i));
+                    if (pos < 0) {
+                        // Ningún hijo empieza por este carácter: el resto del término es una hoja
+                        Nodo hoja = new Nodo(termino.substring(i));
+                        nodo.anadir(-pos - 1, hoja);
+                        nodo = hoja;
+                        ofrecer(nodo, id);
+                        break;
+                    }
+                    Nodo hijo = nodo.hijos[pos];
+                    int comun = prefijoComun(hijo.etiqueta, termino, i);
+                    if (comun < hijo.etiqueta.length()) {
+                        hijo = dividir(nodo, pos, comun);
+                    }
+                    nodo = hijo;
+                    ofrecer(nodo, id);
+                    i += comun;
+                }
+                if (nodo.terminales == null) {
+                    nodo.terminales = new LinkedHashSet<>(2);
+                }
+                nodo.terminales.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long id) {
+        lock.writeLock().lock();
+        try {
+            eliminarSinLock(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve hasta k sugerencias para el prefijo, de mayor a menor puntuación.
+     */
+    public List<Entrada> sugerir(String prefijo, int k) {
+        String normalizado = normalizar(prefijo);
+        lock.readLock().lock();
+        try {
+            Nodo nodo = raiz;
+            int i = 0;
+            while (i < normalizado.length()) {
+                int pos = nodo.indice(normalizado.charAt(i));
+                if (pos < 0) {
+                    return List.of();
+                }
+                Nodo hijo = nodo.hijos[pos];
+                int comun = prefijoComun(hijo.etiqueta, normalizado, i);
+                // El prefijo puede acabar a mitad de una arista; si se separa de ella no hay resultados
+                if (comun < hijo.etiqueta.length() && i + comun < normalizado.length()) {
+                    return List.of();
+                }
+                nodo = hijo;
+                i += comun;
+            }
+            int limite = Math.min(k, nodo.mejores.size());
+            List<Entrada> resultado = new ArrayList<>(limite);
+            for (int j = 0; j < limite; j++) {
+                resultado.add(entradas.get(nodo.mejores.get(j)));
+            }
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Entrada obtener(Long id) {
+        lock.readLock().lock();
+        try {
+            return entradas.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return entradas.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de nodos del árbol, raíz incluida.
+     */
+    public int nodos() {
+        lock.readLock().lock();
+        try {
+            int total = 0;
+            List<Nodo> pendientes = new ArrayList<>(List.of(raiz));
+            while (!pendientes.isEmpty()) {
+                Nodo nodo = pendientes.remove(pendientes.size() - 1);
+                total++;
+                pendientes.addAll(Arrays.asList(nodo.hijos));
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void eliminarSinLock(Long id) {
+        Entrada entrada = entradas.get(id);
+        if (entrada == null) {
+            return;
+        }
+        Set<String> terminos = terminos(entrada);
+        // Primero se quita el id de los terminales, después se recalculan los mejores de cada camino
+        for (String termino : terminos) {
+            List<Nodo> camino = camino(termino);
+            Nodo ultimo = camino.get(camino.size() - 1);
+            if (profundidad(camino) == termino.length() && ultimo.terminales != null) {
+                ultimo.terminales.remove(id);
+                if (ultimo.terminales.isEmpty()) {
+                    ultimo.terminales = null;
+                }
+            }
+        }
+        // Nodos de todos los caminos, sin repetir los prefijos compartidos, de más profundo a menos:
+        // así cada nodo se recalcula a partir de hijos ya corregidos
+        Map<Nodo, Integer> profundidades = new IdentityHashMap<>();
+        for (String termino : terminos) {
+            List<Nodo> camino = camino(termino);
+            for (int i = 0; i < camino.size(); i++) {
+                profundidades.put(camino.get(i), i);
+            }
+        }
+        List<Map.Entry<Nodo, Integer>> nodos = new ArrayList<>(profundidades.entrySet());
+        nodos.sort(Map.Entry.<Nodo, Integer>comparingByValue().reversed());
+        for (Map.Entry<Nodo, Integer> paso : nodos) {
+            Nodo actual = paso.getKey();
+            if (actual.mejores.remove(id) && actual.mejores.size() == MAX_K - 1) {
+                recalcular(actual, id);
+            }
+        }
+        entradas.remove(id);
+        // Por último se quitan los nodos vacíos y se vuelven a juntar las aristas que quedan con un solo hijo
+        for (String termino : terminos) {
+            compactar(camino(termino));
+        }
+    }
+
+    // Nodos desde la raíz que coinciden entera o parcialmente con el término
+    private List<Nodo> camino(String termino) {
+        List<Nodo> camino = new ArrayList<>();
+        Nodo nodo = raiz;
+        camino.add(nodo);
+        int i = 0;
+        while (i < termino.length()) {
+            int pos = nodo.indice(termino.charAt(i));
+            if (pos < 0) {
+                break;
+            }
+            Nodo hijo = nodo.hijos[pos];
+            int comun = prefijoComun(hijo.etiqueta, termino, i);
+            if (comun < hijo.etiqueta.length()) {
+                break;
+            }
+            nodo = hijo;
+            camino.add(nodo);
+            i += comun;
+        }
+        return camino;
+    }
+
+    // Caracteres consumidos por el camino
+    private static int profundidad(List<Nodo> camino) {
+        int total = 0;
+        for (Nodo nodo : camino) {
+            total += nodo.etiqueta.length();
+        }
+        return total;
+    }
+
+    private void compactar(List<Nodo> camino) {
+        for (int i = camino.size() - 1; i > 0; i--) {
+            Nodo nodo = camino.get(i);
+            Nodo padre = camino.get(i - 1);
+            int pos = padre.indice(nodo.etiqueta.charAt(0));
+            if (pos < 0 || padre.hijos[pos] != nodo || !nodo.sinTerminales()) {
+                continue;
+            }
+            if (nodo.hijos.length == 0) {
+                padre.quitar(pos);
+            } else if (nodo.hijos.length == 1) {
+                // Sin terminales y con un solo hijo: el subárbol (y sus mejores) es el del hijo
+                Nodo hijo = nodo.hijos[0];
+                hijo.etiqueta = nodo.etiqueta + hijo.etiqueta;
+                padre.hijos[pos] = hijo;
+            }
+        }
+    }
+
+    // Parte la arista del hijo pos tras n caracteres y devuelve el nodo intermedio
+    private static Nodo dividir(Nodo padre, int pos, int n) {
+        Nodo hijo = padre.hijos[pos];
+        Nodo intermedio = new Nodo(hijo.etiqueta.substring(0, n));
+        hijo.etiqueta = hijo.etiqueta.substring(n);
+        intermedio.claves = new char[] {hijo.etiqueta.charAt(0)};
+        intermedio.hijos = new Nodo[] {hijo};
+        intermedio.mejores = new ArrayList<>(hijo.mejores);
+        padre.hijos[pos] = intermedio;
+        return intermedio;
+    }
+
+    // Caracteres iguales entre la etiqueta y el texto a partir de desde
+    private static int prefijoComun(String etiqueta, String texto, int desde) {
+        int maximo = Math.min(etiqueta.length(), texto.length() - desde);
+        int n = 0;
+        while (n < maximo && etiqueta.charAt(n) == texto.charAt(desde + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    // Recalcula los mejores de un nodo combinando sus terminales y los mejores de sus hijos
+    private void recalcular(Nodo nodo, Long excluido) {
+        Set<Long> candidatos = new LinkedHashSet<>();
+        if (nodo.terminales != null) {
+            candidatos.addAll(nodo.terminales);
+        }
+        for (Nodo hijo : nodo.hijos) {
+            candidatos.addAll(hijo.mejores);
+        }
+        candidatos.remove(excluido);
+        List<Long> ordenados = new ArrayList<>(candidatos);
+        ordenados.sort(porPuntuacion);
+        nodo.mejores = new ArrayList<>(ordenados.subList(0, Math.min(MAX_K, ordenados.size())));
+    }
+
+    private void ofrecer(Nodo nodo, Long id) {
+        List<Long> mejores = nodo.mejores;
+        if (mejores.contains(id)) {
+            return;
+        }
+        int pos = 0;
+        while (pos < mejores.size() && porPuntuacion.compare(mejores.get(pos), id) < 0) {
+            pos++;
+        }
+        if (pos < MAX_K) {
+            mejores.add(pos, id);
+            if (mejores.size() > MAX_K) {
+                mejores.remove(mejores.size() - 1);
+            }
+        }
+    }
+
+    private static Set<String> terminos(Entrada entrada) {
+        Set<String> terminos = new LinkedHashSet<>();
+        if (entrada.nombre() != null) {
+            String nombre = normalizar(entrada.nombre());
+            terminos.add(nombre);
+            for (String palabra : nombre.split("\\s+")) {
+                if (!palabra.isEmpty()) {
+                    terminos.add(palabra);
+                }
+            }
+        }
+        if (entrada.codigo() != null) {
+            terminos.add(normalizar(entrada.codigo()));
+        }
+        return terminos;
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinTildes.toLowerCase().trim();
+    }
+}
@@ -0,0 +1,189 @@
+package com.EcoMarket.producto.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Vocabulario de palabras con búsqueda por distancia de Levenshtein acotada.
+ *
+ * Cada palabra se indexa por sus bigramas, con una marca de inicio y otra de fin.
+ * Una edición cambia como mucho dos bigramas, así que una palabra a distancia k o
+ * menos de la consulta comparte con ella al menos (bigramas distintos de la
+ * consulta - 2k): solo esas candidatas, y con longitud a k o menos de la consulta,
+ * se comprueban con Levenshtein, que corta en cuanto se pasa de k. Si la cota no
+ * descarta nada (consultas repetitivas como "aaaaaa") se comprueban todas las
+ * palabras de longitud compatible.
+ * No es seguro para escritura concurrente: quien lo usa debe sincronizar.
+ */
+public class Vocabulario {
+
+    /**
+     * Palabra encontrada y su distancia a la consulta.
+     */
+    public record Coincidencia(String palabra, int distancia) {
+    }
+
+    private static final char INICIO = '\u0002';
+    private static final char FIN = '\u0003';
+
+    // Números de palabra que contienen un bigrama, en orden creciente
+    private static final class Lista {
+        private int[] numeros = new int[4];
+        private int tamano;
+
+        void agregar(int numero) {
+            if (tamano == numeros.length) {
+                numeros = Arrays.copyOf(numeros, tamano * 2);
+            }
+            numeros[tamano++] = numero;
+        }
+    }
+
+    private final List<String> palabras = new ArrayList<>();
+    private final Set<String> conocidas = new HashSet<>();
+    private final Map<Integer, Lista> palabrasPorBigrama = new HashMap<>();
+
+    /**
+     * Añade la palabra si no estaba. Devuelve true si se añadió.
+     */
+    public boolean agregar(String palabra) {
+        if (!conocidas.add(palabra)) {
+            return false;
+        }
+        int numero = palabras.size();
+        palabras.add(palabra);
+        for (int bigrama : bigramas(palabra)) {
+            palabrasPorBigrama.computeIfAbsent(bigrama, b -> new Lista()).agregar(numero);
+        }
+        return true;
+    }
+
+    /**
+     * Palabras a distancia menor o igual que maxDistancia.
+     */
+    public List<Coincidencia> buscar(String consulta, int maxDistancia) {
+        List<Coincidencia> resultado = new ArrayList<>();
+        int[][] filas = new int[2][consulta.length() + 1];
+        int[] bigramas = bigramas(consulta);
+        int minimoCompartidos = bigramas.length - 2 * maxDistancia;
+        if (minimoCompartidos <= 0) {
+            for (String palabra : palabras) {
+                comprobar(consulta, palabra, maxDistancia, filas, resultado);
+            }
+            return resultado;
+        }
+        int[] compartidos = new int[palabras.size()];
+        int[] candidatas = new int[64];
+        int numCandidatas = 0;
+        for (int bigrama : bigramas) {
+            Lista lista = palabrasPorBigrama.get(bigrama);
+            if (lista == null) {
+                continue;
+            }
+            for (int i = 0; i < lista.tamano; i++) {
+                int numero = lista.numeros[i];
+                if (++compartidos[numero] == minimoCompartidos) {
+                    if (numCandidatas == candidatas.length) {
+                        candidatas = Arrays.copyOf(candidatas, numCandidatas * 2);
+                    }
+                    candidatas[numCandidatas++] = numero;
+                }
+            }
+        }
+        for (int i = 0; i < numCandidatas; i++) {
+            comprobar(consulta, palabras.get(candidatas[i]), maxDistancia, filas, resultado);
+        }
+        return resultado;
+    }
+
+    public int tamano() {
+        return palabras.size();
+    }
+
+    private static void comprobar(String consulta, String palabra, int maxDistancia, int[][] filas,
+            List<Coincidencia> resultado) {
+        int d = levenshteinAcotada(consulta, palabra, maxDistancia, filas);
+        if (d <= maxDistancia) {
+            resultado.add(new Coincidencia(palabra, d));
+        }
+    }
+
+    // Bigramas distintos de ^palabra$, cada uno como dos chars en un int
+    private static int[] bigramas(String palabra) {
+        int[] bigramas = new int[palabra.length() + 1];
+        char anterior = INICIO;
+        for (int i = 0; i <= palabra.length(); i++) {
+            char c = i < palabra.length() ? palabra.charAt(i) : FIN;
+            bigramas[i] = anterior << 16 | c;
+            anterior = c;
+        }
+        return Arrays.stream(bigramas).distinct().toArray();
+    }
+
+    /**
+     * Distancia de Levenshtein si es como mucho tope; si no, cualquier valor mayor que tope.
+     * filas son dos arrays de al menos consulta.length() + 1 que se reutilizan entre llamadas.
+     */
+    static int levenshteinAcotada(String consulta, String palabra, int tope, int[][] filas) {
+        int n = consulta.length();
+        if (Math.abs(n - palabra.length()) > tope) {
+            return tope + 1;
+        }
+        int[] anterior = filas[0];
+        int[] actual = filas[1];
+        for (int j = 0; j <= n; j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= palabra.length(); i++) {
+            actual[0] = i;
+            int minimo = i;
+            char c = palabra.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int coste = c == consulta.charAt(j - 1) ? 0 : 1;
+                actual[j] = Math.min(Math.min(actual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + coste);
+                minimo = Math.min(minimo, actual[j]);
+            }
+            // Ninguna celda de una fila baja del mínimo de la anterior
+            if (minimo > tope) {
+                return tope + 1;
+            }
+            int[] t = anterior;
+            anterior = actual;
+            actual = t;
+        }
+        return anterior[n];
+    }
+
+    /**
+     * Distancia de Levenshtein con dos filas (memoria O(min(n, m))).
+     */
+    static int levenshtein(String a, String b) {
+        if (a.length() < b.length()) {
+            String t = a;
+            a = b;
+            b = t;
+        }
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int coste = ca == b.charAt(j - 1) ? 0 : 1;
+                actual[j] = Math.min(Math.min(actual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + coste);
+            }
+            int[] t = anterior;
+            anterior = actual;
+            actual = t;
+        }
+        return anterior[b.length()];
+    }
+}
@@ -0,0 +1,707 @@
+package com.EcoMarket.producto.conciliacion;
+
+import com.EcoMarket.producto.importacion.LectorCsv;
+import com.EcoMarket.producto.repository.Colacion;
+import com.EcoMarket.producto.service.AjusteStockService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Conciliación del inventario con un recuento físico o la exportación de otro sistema.
+ *
+ * Las dos partes pueden tener millones de filas, así que ninguna se carga entera:
+ * 1. El CSV del recuento (producto_id, ubicacion, cantidad) se lee en streaming en el
+ *    hilo de la petición y, a la vez, la tabla Inventario se recorre con un cursor en
+ *    el pool. Cada fila se escribe en una de conciliacion.particiones ficheros
+ *    temporales por lado según su producto_id.
+ * 2. Un RecursiveTask reparte las particiones en un ForkJoinPool: cada hoja carga en
+ *    memoria el recuento de una partición (las líneas repetidas de la misma ubicación
+ *    se suman; si la suma no cabe en un int la ubicación se informa como INVALIDA y no
+ *    se compara), recorre la partición del sistema y anota las discrepancias:
+ *    DIFERENCIA, FALTA_EN_SISTEMA (contado sin fila de inventario) y SIN_CONTAR
+ *    (fila de inventario que no aparece, salvo con soloContados). Las ubicaciones se
+ *    emparejan con la colación de la columna (Colacion.clave): "a1" es "A1".
+ * 3. Con corregir, las diferencias de cada partición se aplican con
+ *    AjusteStockService como deltas (contado - sistema), por lotes y en sus propias
+ *    transacciones: los movimientos posteriores a la lectura no se pisan. Cada llamada
+ *    a ajustar lleva como mucho conciliacion.ajustes-por-llamada líneas, así que sus
+ *    resultados y sus consultas IN no crecen con el recuento. Las
+ *    particiones no comparten productos, así que sus lotes no se bloquean entre sí.
+ *    Una ubicación con dos filas en Inventario no se corrige (el recuento se comparó
+ *    con la primera y no hay forma de elegir fila en el ajuste): se informa.
+ *
+ * La memoria usada es la de las particiones en curso (filas / particiones cada una);
+ * el informe indica las filas máximas en memoria, los bytes temporales y las filas
+ * por segundo. Las discrepancias quedan en un CSV descargable: primero las líneas
+ * INVALIDA del recuento y después el resto ordenado por producto y ubicación. Cada
+ * partición escribe las suyas ordenadas y al final se mezclan las particiones (una
+ * cabeza por partición en memoria).
+ */
+@Service
+public class ConciliacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConciliacionService.class);
+
+    private static final int MAXIMO_CARACTERES_REGISTRO = 4096;
+
+    static final String SIN_CORREGIR_REPETIDA = "sin corregir: ubicación repetida en el inventario";
+
+    // Orden de las discrepancias dentro de un producto: sin ubicación primero y después como ORDER BY ubicacion
+    private static final Comparator<String> UBICACIONES = Comparator.nullsFirst(Comparator.comparing(Colacion::clave));
+
+    public enum Tipo { DIFERENCIA, FALTA_EN_SISTEMA, SIN_CONTAR, INVALIDA }
+
+    /**
+     * Resultado de una conciliación. filasMaximasEnMemoria es lo más que ha tenido
+     * cargado una hoja del fork/join (recuento y discrepancias de su partición).
+     */
+    public record Informe(String id, long lineasRecuento, long filasSistema, long coincidentes, long diferencias,
+            long faltanEnSistema, long sinContar, long invalidas, long corregidas, long filasMaximasEnMemoria,
+            long bytesTemporales, long duracionMs, double filasPorSegundo) {
+    }
+
+    // ubicacion en forma Colacion.clave(): Inventario.ubicacion no distingue "a1" de "A1"
+    record Clave(long productoId, String ubicacion) {
+
+        static Clave de(long productoId, String ubicacion) {
+            return new Clave(productoId, Colacion.clave(ubicacion));
+        }
+    }
+
+    // Discrepancia de una partición; referencia es la línea del CSV o el id de Inventario
+    record Discrepancia(Tipo tipo, long productoId, String ubicacion, Integer sistema, Integer contado, long referencia,
+            String resultado) {
+    }
+
+    // Contadores de una o varias particiones
+    record Resumen(long coincidentes, long diferencias, long faltanEnSistema, long sinContar, long invalidas,
+            long corregidas, long filasMaximas) {
+
+        Resumen sumar(Resumen otro) {
+            return new Resumen(coincidentes + otro.coincidentes, diferencias + otro.diferencias,
+                faltanEnSistema + otro.faltanEnSistema, sinContar + otro.sinContar, invalidas + otro.invalidas,
+                corregidas + otro.corregidas, Math.max(filasMaximas, otro.filasMaximas));
+        }
+    }
+
+    /**
+     * Ficheros temporales de un lado, uno por partición: producto_id, ubicación,
+     * cantidad y referencia de cada fila.
+     */
+    static final class Particiones implements Closeable {
+        private final DataOutputStream[] salidas;
+        private long filas;
+
+        Particiones(Path directorio, String lado, int particiones) throws IOException {
+            salidas = new DataOutputStream[particiones];
+            for (int i = 0; i < particiones; i++) {
+                salidas[i] = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(fichero(directorio, lado, i)), 16 * 1024));
+            }
+        }
+
+        static Path fichero(Path directorio, String lado, int particion) {
+            return directorio.resolve(String.format("%s-%03d.bin", lado, particion));
+        }
+
+        void escribir(long productoId, String ubicacion, int cantidad, long referencia) throws IOException {
+            DataOutputStream salida = salidas[Math.floorMod(productoId, salidas.length)];
+            salida.writeLong(productoId);
+            salida.writeBoolean(ubicacion != null);
+            if (ubicacion != null) {
+                salida.writeUTF(ubicacion);
+            }
+            salida.writeInt(cantidad);
+            salida.writeLong(referencia);
+            filas++;
+        }
+
+        long filas() {
+            return filas;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (DataOutputStream salida : salidas) {
+                try {
+                    salida.close();
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    interface LectorFila {
+        void leer(long productoId, String ubicacion, int cantidad, long referencia) throws IOException;
+    }
+
+    static void leer(Path fichero, LectorFila lector) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(fichero), 16 * 1024))) {
+            while (true) {
+                long productoId;
+                try {
+                    productoId = entrada.readLong();
+                } catch (EOFException e) {
+                    return;
+                }
+                String ubicacion = entrada.readBoolean() ? entrada.readUTF() : null;
+                lector.leer(productoId, ubicacion, entrada.readInt(), entrada.readLong());
+            }
+        }
+    }
+
+    // Divide el rango de particiones hasta llegar a una
+    final class Comparar extends RecursiveTask<Resumen> {
+        private final Path directorio;
+        private final int desde;
+        private final int hasta;
+        private final boolean soloContados;
+        private final boolean corregir;
+
+        Comparar(Path directorio, int desde, int hasta, boolean soloContados, boolean corregir) {
+            this.directorio = directorio;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.soloContados = soloContados;
+            this.corregir = corregir;
+        }
+
+        @Override
+        protected Resumen compute() {
+            if (hasta - desde == 1) {
+                try {
+                    return compararParticion(directorio, desde, soloContados, corregir);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int mitad = (desde + hasta) >>> 1;
+            Comparar izquierda = new Comparar(directorio, desde, mitad, soloContados, corregir);
+            izquierda.fork();
+            Resumen derecha = new Comparar(directorio, mitad, hasta, soloContados, corregir).compute();
+            return izquierda.join().sumar(derecha);
+        }
+    }
+
+    // Cantidad contada de una ubicación (suma de sus líneas); ubicacion tal como vino en la primera
+    static final class Contado {
+        final long linea;
+        final String ubicacion;
+        int cantidad;
+        boolean visto;
+        // Línea con la que la suma dejó de caber en un int (0 si cabe)
+        long desbordada;
+
+        Contado(long linea, String ubicacion, int cantidad) {
+            this.linea = linea;
+            this.ubicacion = ubicacion;
+            this.cantidad = cantidad;
+        }
+
+        Contado sumar(Contado otra) {
+            if (desbordada == 0) {
+                try {
+                    cantidad = Math.addExact(cantidad, otra.cantidad);
+                } catch (ArithmeticException e) {
+                    desbordada = otra.linea;
+                }
+            }
+            return this;
+        }
+    }
+
+    private record Terminada(Informe informe, Path directorio, long terminada) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AjusteStockService ajusteStockService;
+
+    @Value("${conciliacion.directorio:./conciliaciones}")
+    private String directorioBase = "./conciliaciones";
+
+    @Value("${conciliacion.hilos:4}")
+    private int hilos = 4;
+
+    @Value("${conciliacion.particiones:64}")
+    private int particiones = 64;
+
+    @Value("${conciliacion.ajustes-por-llamada:1000}")
+    private int ajustesPorLlamada = 1000;
+
+    @Value("${conciliacion.retencion-ms:86400000}")
+    private long retencionMs = 86_400_000;
+
+    private final Map<String, Terminada> terminadas = new ConcurrentHashMap<>();
+    private JdbcTemplate cursor;
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void iniciar() {
+        // Plantilla propia: el fetch size de streaming no debe afectar al resto de consultas
+        if (cursor == null) {
+            cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+            cursor.setFetchSize(Integer.MIN_VALUE);
+        }
+        pool = new ForkJoinPool(hilos);
+    }
+
+    @PreDestroy
+    public void detener() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Concilia el recuento del cuerpo (CSV UTF-8 con cabecera producto_id, ubicacion y
+     * cantidad; ubicacion vacía es sin ubicación) con la tabla Inventario.
+     *
+     * @param soloContados si es true no se informan las filas de inventario sin contar (recuentos parciales)
+     * @param corregir si es true las diferencias se ajustan en el inventario
+     * @throws IllegalArgumentException si el separador, la cabecera o el CSV no son válidos
+     */
+    public Informe conciliar(InputStream entrada, char separador, boolean soloContados, boolean corregir)
+            throws IOException {
+        if (separador == '"' || separador == '\r' || separador == '\n') {
+            throw new IllegalArgumentException("Separador no válido");
+        }
+        long inicio = System.nanoTime();
+        String id = UUID.randomUUID().toString();
+        Path directorio = Path.of(directorioBase).resolve(id);
+        Files.createDirectories(directorio);
+        Path informeCsv = directorio.resolve("discrepancias.csv");
+        long[] invalidas = new long[1];
+        long filasSistema;
+        long lineasRecuento;
+        Resumen resumen;
+        long bytesTemporales;
+        try (BufferedWriter salida = Files.newBufferedWriter(informeCsv, StandardCharsets.UTF_8)) {
+            salida.write("tipo,producto_id,ubicacion,sistema,contado,referencia,resultado\n");
+            try (Particiones recuento = new Particiones(directorio, "recuento", particiones);
+                    Particiones inventario = new Particiones(directorio, "sistema", particiones)) {
+                // Las dos partes se leen a la vez: la base de datos en el pool y el CSV aquí
+                AtomicBoolean cancelado = new AtomicBoolean();
+                CompletableFuture<Long> sistema = CompletableFuture.supplyAsync(
+                    () -> volcarInventario(inventario, cancelado), pool);
+                try {
+                    volcarRecuento(new LectorCsv(new InputStreamReader(entrada, StandardCharsets.UTF_8), separador,
+                        MAXIMO_CARACTERES_REGISTRO), recuento, salida, invalidas);
+                } catch (IOException | RuntimeException e) {
+                    // Se espera a que el cursor pare antes de cerrar sus ficheros
+                    cancelado.set(true);
+                    sistema.handle((filas, error) -> null).join();
+                    throw e;
+                }
+                filasSistema = esperar(sistema);
+                lineasRecuento = recuento.filas() + invalidas[0];
+            }
+            bytesTemporales = tamano(directorio, ".bin");
+            resumen = pool.invoke(new Comparar(directorio, 0, particiones, soloContados, corregir));
+            mezclar(directorio, salida);
+        } catch (IOException | RuntimeException e) {
+            borrar(directorio);
+            throw e;
+        } finally {
+            borrarTemporales(directorio);
+        }
+
+        long duracion = (System.nanoTime() - inicio) / 1_000_000;
+        long filas = lineasRecuento + filasSistema;
+        Informe informe = new Informe(id, lineasRecuento, filasSistema, resumen.coincidentes(), resumen.diferencias(),
+            resumen.faltanEnSistema(), resumen.sinContar(), invalidas[0] + resumen.invalidas(), resumen.corregidas(), resumen.filasMaximas(),
+            bytesTemporales, duracion, duracion == 0 ? 0 : filas * 1000.0 / duracion);
+        terminadas.put(id, new Terminada(informe, directorio, System.currentTimeMillis()));
+        log.info("Conciliación {}: {} líneas de recuento y {} de inventario, {} diferencias, {} corregidas en {} ms "
+                + "({} filas/s, {} filas máximas en memoria)", id, lineasRecuento, filasSistema, resumen.diferencias(),
+            resumen.corregidas(), duracion, Math.round(informe.filasPorSegundo()), resumen.filasMaximas());
+        return informe;
+    }
+
+    private void volcarRecuento(LectorCsv lector, Particiones recuento, BufferedWriter salida, long[] invalidas)
+            throws IOException {
+        try (lector) {
+            int[] columnas;
+            try {
+                columnas = columnas(lector.siguiente());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cabecera no válida: " + e.getMessage());
+            }
+            List<String> campos;
+            while (true) {
+                try {
+                    campos = lector.siguiente();
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("CSV no válido: " + e.getMessage());
+                }
+                if (campos == null) {
+                    return;
+                }
+                long productoId;
+                int cantidad;
+                try {
+                    productoId = Long.parseLong(campos.get(columnas[0]).trim());
+                    cantidad = Integer.parseInt(campos.get(columnas[2]).trim());
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    invalidas[0]++;
+                    salida.write(Tipo.INVALIDA + ",,,,," + lector.linea() + ",producto_id y cantidad deben ser enteros\n");
+                    continue;
+                }
+                if (cantidad < 0) {
+                    invalidas[0]++;
+                    salida.write(Tipo.INVALIDA + "," + productoId + ",,,," + lector.linea() + ",cantidad negativa\n");
+                    continue;
+                }
+                String ubicacion = columnas[1] < campos.size() ? campos.get(columnas[1]).trim() : "";
+                recuento.escribir(productoId, ubicacion.isEmpty() ? null : ubicacion, cantidad, lector.linea());
+            }
+        }
+    }
+
+    // Posición de producto_id, ubicacion y cantidad en la cabecera
+    private static int[] columnas(List<String> cabecera) {
+        if (cabecera == null) {
+            throw new IllegalArgumentException("El fichero está vacío");
+        }
+        List<String> nombres = cabecera.stream().map(c -> c.trim().toLowerCase(Locale.ROOT)).toList();
+        int[] posiciones = new int[3];
+        String[] obligatorias = {"producto_id", "ubicacion", "cantidad"};
+        for (int i = 0; i < obligatorias.length; i++) {
+            posiciones[i] = nombres.indexOf(obligatorias[i]);
+            if (posiciones[i] < 0) {
+                throw new IllegalArgumentException("Falta la columna " + obligatorias[i] + " en la cabecera");
+            }
+        }
+        return posiciones;
+    }
+
+    private long volcarInventario(Particiones inventario, AtomicBoolean cancelado) {
+        cursor.query("SELECT id, producto_id, ubicacion, cantidad FROM Inventario", rs -> {
+            if (cancelado.get()) {
+                throw new CancellationException();
+            }
+            try {
+                inventario.escribir(rs.getLong(2), rs.getString(3), rs.getInt(4), rs.getLong(1));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return inventario.filas();
+    }
+
+    private static long esperar(CompletableFuture<Long> sistema) {
+        try {
+            return sistema.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    /**
+     * Compara una partición, escribe sus discrepancias ordenadas y, si se pide, las corrige.
+     */
+    Resumen compararParticion(Path directorio, int particion, boolean soloContados, boolean corregir) throws IOException {
+        Map<Clave, Contado> contados = new HashMap<>();
+        leer(Particiones.fichero(directorio, "recuento", particion), (productoId, ubicacion, cantidad, linea) ->
+            contados.merge(Clave.de(productoId, ubicacion), new Contado(linea, ubicacion, cantidad), Contado::sumar));
+
+        List<Discrepancia> discrepancias = new ArrayList<>();
+        Set<Clave> repetidas = new HashSet<>();
+        long[] coincidentes = new long[1];
+        leer(Particiones.fichero(directorio, "sistema", particion), (productoId, ubicacion, cantidad, inventarioId) -> {
+            Contado contado = contados.get(Clave.de(productoId, ubicacion));
+            if (contado != null && contado.desbordada != 0) {
+                // Sin cantidad contada válida no hay nada que comparar; la ubicación va como INVALIDA
+                contado.visto = true;
+            } else if (contado == null) {
+                if (!soloContados) {
+                    discrepancias.add(new Discrepancia(Tipo.SIN_CONTAR, productoId, ubicacion, cantidad, null, inventarioId, null));
+                }
+            } else if (contado.visto) {
+                // Dos filas de inventario con la misma ubicación: el recuento ya se comparó con la primera
+                repetidas.add(Clave.de(productoId, ubicacion));
+                discrepancias.add(new Discrepancia(Tipo.SIN_CONTAR, productoId, ubicacion, cantidad, null, inventarioId,
+                    "ubicación repetida en el inventario"));
+            } else {
+                contado.visto = true;
+                if (contado.cantidad == cantidad) {
+                    coincidentes[0]++;
+                } else {
+                    discrepancias.add(new Discrepancia(Tipo.DIFERENCIA, productoId, ubicacion, cantidad, contado.cantidad,
+                        inventarioId, null));
+                }
+            }
+        });
+        for (Map.Entry<Clave, Contado> entrada : contados.entrySet()) {
+            Contado contado = entrada.getValue();
+            if (contado.desbordada != 0) {
+                discrepancias.add(new Discrepancia(Tipo.INVALIDA, entrada.getKey().productoId(), contado.ubicacion, null,
+                    null, contado.desbordada, "la suma de cantidades de la ubicación no cabe en un entero"));
+            } else if (!contado.visto) {
+                discrepancias.add(new Discrepancia(Tipo.FALTA_EN_SISTEMA, entrada.getKey().productoId(),
+                    contado.ubicacion, null, contado.cantidad, contado.linea, null));
+            }
+        }
+        discrepancias.sort(Comparator.comparingLong(Discrepancia::productoId)
+            .thenComparing(Discrepancia::ubicacion, UBICACIONES));
+
+        long corregidas = corregir ? corregir(discrepancias, repetidas) : 0;
+        long[] tipos = new long[Tipo.values().length];
+        // Cada línea va con su clave de orden para la mezcla final
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(discrepanciasParciales(directorio, particion)), 16 * 1024))) {
+            for (Discrepancia d : discrepancias) {
+                tipos[d.tipo().ordinal()]++;
+                salida.writeLong(d.productoId());
+                salida.writeBoolean(d.ubicacion() != null);
+                if (d.ubicacion() != null) {
+                    salida.writeUTF(d.ubicacion());
+                }
+                salida.writeUTF(d.tipo() + "," + d.productoId() + "," + csv(d.ubicacion()) + ","
+                    + (d.sistema() == null ? "" : d.sistema()) + "," + (d.contado() == null ? "" : d.contado()) + ","
+                    + d.referencia() + "," + csv(d.resultado()));
+            }
+        }
+        return new Resumen(coincidentes[0], tipos[Tipo.DIFERENCIA.ordinal()], tipos[Tipo.FALTA_EN_SISTEMA.ordinal()],
+            tipos[Tipo.SIN_CONTAR.ordinal()], tipos[Tipo.INVALIDA.ordinal()], corregidas, contados.size() + discrepancias.size());
+    }
+
+    // Aplica las diferencias como deltas y anota el resultado de cada una. Con la ubicación
+    // repetida en Inventario no se sabe a qué fila aplicar el delta: solo se informa
+    private long corregir(List<Discrepancia> discrepancias, Set<Clave> repetidas) {
+        List<Integer> posiciones = new ArrayList<>();
+        List<AjusteStockService.AjusteStock> ajustes = new ArrayList<>();
+        for (int i = 0; i < discrepancias.size(); i++) {
+            Discrepancia d = discrepancias.get(i);
+            if (d.tipo() == Tipo.DIFERENCIA && repetidas.contains(Clave.de(d.productoId(), d.ubicacion()))) {
+                discrepancias.set(i, new Discrepancia(d.tipo(), d.productoId(), d.ubicacion(), d.sistema(), d.contado(),
+                    d.referencia(), SIN_CORREGIR_REPETIDA));
+            } else if (d.tipo() == Tipo.DIFERENCIA) {
+                posiciones.add(i);
+                ajustes.add(new AjusteStockService.AjusteStock(d.productoId(), d.ubicacion(), d.contado() - d.sistema(), null));
+            }
+        }
+        long aplicados = 0;
+        for (int desde = 0; desde < ajustes.size(); desde += ajustesPorLlamada) {
+            AjusteStockService.InformeAjustes resultado = ajusteStockService.ajustar(
+                ajustes.subList(desde, Math.min(desde + ajustesPorLlamada, ajustes.size())));
+            for (AjusteStockService.LineaResultado linea : resultado.lineas()) {
+                int i = posiciones.get(desde + linea.linea());
+                Discrepancia d = discrepancias.get(i);
+                discrepancias.set(i, new Discrepancia(d.tipo(), d.productoId(), d.ubicacion(), d.sistema(), d.contado(),
+                    d.referencia(), linea.resultado().name()));
+            }
+            aplicados += resultado.aplicados();
+        }
+        return aplicados;
+    }
+
+    private static Path discrepanciasParciales(Path directorio, int particion) {
+        return directorio.resolve(String.format("discrepancias-%03d.bin", particion));
+    }
+
+    // Siguiente discrepancia sin escribir de una partición
+    private static final class Cabeza {
+        final DataInputStream entrada;
+        long productoId;
+        String ubicacion;
+        String linea;
+
+        Cabeza(DataInputStream entrada) {
+            this.entrada = entrada;
+        }
+
+        boolean avanzar() throws IOException {
+            try {
+                productoId = entrada.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            ubicacion = entrada.readBoolean() ? entrada.readUTF() : null;
+            linea = entrada.readUTF();
+            return true;
+        }
+    }
+
+    /**
+     * Mezcla las discrepancias de todas las particiones, ordenadas cada una, en el
+     * informe: un producto solo está en una partición (producto_id mod particiones),
+     * así que basta con ir sacando la menor de las cabezas.
+     */
+    private void mezclar(Path directorio, BufferedWriter salida) throws IOException {
+        PriorityQueue<Cabeza> cabezas = new PriorityQueue<>(Math.max(particiones, 1),
+            Comparator.<Cabeza>comparingLong(c -> c.productoId).thenComparing(c -> c.ubicacion, UBICACIONES));
+        List<DataInputStream> entradas = new ArrayList<>(particiones);
+        try {
+            for (int i = 0; i < particiones; i++) {
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(discrepanciasParciales(directorio, i)), 16 * 1024));
+                entradas.add(entrada);
+                Cabeza cabeza = new Cabeza(entrada);
+                if (cabeza.avanzar()) {
+                    cabezas.add(cabeza);
+                }
+            }
+            while (!cabezas.isEmpty()) {
+                Cabeza menor = cabezas.poll();
+                salida.write(menor.linea);
+                salida.write('\n');
+                if (menor.avanzar()) {
+                    cabezas.add(menor);
+                }
+            }
+        } finally {
+            for (DataInputStream entrada : entradas) {
+                entrada.close();
+            }
+        }
+    }
+
+    private static String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    public Optional<Informe> informe(String id) {
+        return Optional.ofNullable(terminadas.get(id)).map(Terminada::informe);
+    }
+
+    public List<Informe> listar() {
+        return terminadas.values().stream().map(Terminada::informe).toList();
+    }
+
+    public Optional<Path> discrepancias(String id) {
+        return Optional.ofNullable(terminadas.get(id)).map(t -> t.directorio().resolve("discrepancias.csv"))
+            .filter(Files::exists);
+    }
+
+    /**
+     * Borra las conciliaciones terminadas hace más de conciliacion.retencion-ms.
+     */
+    @Scheduled(fixedDelayString = "${conciliacion.limpieza-ms:3600000}", initialDelayString = "${conciliacion.limpieza-ms:3600000}")
+    public void limpiar() {
+        long limite = System.currentTimeMillis() - retencionMs;
+        terminadas.values().removeIf(t -> {
+            if (t.terminada() > limite) {
+                return false;
+            }
+            borrar(t.directorio());
+            return true;
+        });
+    }
+
+    private static long tamano(Path directorio, String extension) throws IOException {
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            long total = 0;
+            for (Path fichero : (Iterable<Path>) ficheros::iterator) {
+                if (fichero.getFileName().toString().endsWith(extension)) {
+                    total += Files.size(fichero);
+                }
+            }
+            return total;
+        }
+    }
+
+    // Deja solo el informe final
+    private static void borrarTemporales(Path directorio) {
+        if (!Files.isDirectory(directorio)) {
+            return;
+        }
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            ficheros.filter(f -> !f.getFileName().toString().equals("discrepancias.csv")).forEach(ConciliacionService::borrarSilencioso);
+        } catch (IOException e) {
+            log.warn("No se pudieron borrar los temporales de {}: {}", directorio, e.getMessage());
+        }
+    }
+
+    private static void borrar(Path directorio) {
+        borrarTemporales(directorio);
+        borrarSilencioso(directorio.resolve("discrepancias.csv"));
+        borrarSilencioso(directorio);
+    }
+
+    private static void borrarSilencioso(Path fichero) {
+        try {
+            Files.deleteIfExists(fichero);
+        } catch (IOException e) {
+            log.debug("No se pudo borrar {}: {}", fichero, e.getMessage());
+        }
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setCursor(JdbcTemplate cursor) {
+        this.cursor = cursor;
+    }
+
+    public void setAjusteStockService(AjusteStockService ajusteStockService) {
+        this.ajusteStockService = ajusteStockService;
+    }
+
+    public void setDirectorioBase(String directorioBase) {
+        this.directorioBase = directorioBase;
+    }
+
+    public void setAjustesPorLlamada(int ajustesPorLlamada) {
+        this.ajustesPorLlamada = ajustesPorLlamada;
+    }
+
+    public void setParticiones(int particiones) {
+        this.particiones = particiones;
+    }
+}
@@ -0,0 +1,31 @@
+package com.EcoMarket.producto.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.EcoMarket.producto.admision.AdmisionInterceptor;
+
+/**
+ * Control de admisión de la API. Va antes que cualquier otro interceptor para que
+ * una petición rechazada no cueste nada más.
+ */
+@Configuration
+public class AdmisionConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private AdmisionInterceptor admisionInterceptor;
+
+    @Value("${admision.habilitada:true}")
+    private boolean habilitada = true;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (habilitada) {
+            registry.addInterceptor(admisionInterceptor).addPathPatterns("/api/**").order(Ordered.HIGHEST_PRECEDENCE);
+        }
+    }
+}
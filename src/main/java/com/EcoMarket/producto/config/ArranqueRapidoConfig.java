@@ -0,0 +1,24 @@
+package com.EcoMarket.producto.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Perfil "rapido": con spring.main.lazy-initialization=true se excluyen de la
+ * inicialización perezosa los beans de la aplicación. Los índices en memoria, los
+ * @Scheduled y el calentamiento tienen que existir desde el arranque; lo que se
+ * retrasa al primer uso son los beans de librerías que no los necesitan.
+ */
+@Configuration
+@Profile("rapido")
+public class ArranqueRapidoConfig {
+
+    private static final String PAQUETE = "com.EcoMarket.producto.";
+
+    @Bean
+    static LazyInitializationExcludeFilter beansDeLaAplicacion() {
+        return (nombre, definicion, tipo) -> tipo != null && tipo.getName().startsWith(PAQUETE);
+    }
+}
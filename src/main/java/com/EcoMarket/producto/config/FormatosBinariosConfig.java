@@ -0,0 +1,83 @@
+package com.EcoMarket.producto.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Formatos binarios (CBOR y Smile) negociados por la cabecera Accept.
+ *
+ * Los convertidores usan la misma configuración de Jackson que JSON y además el
+ * módulo HAL, de modo que EntityModel/CollectionModel conservan _links y _embedded
+ * también en binario. Sustituyen en su sitio a los convertidores CBOR/Smile que
+ * Spring añade por defecto, que van detrás de JSON: sin Accept o con Accept *&#47;*
+ * gana el primer convertidor capaz de escribir el tipo, y tiene que ser JSON.
+ * CBOR y Smile solo se eligen cuando el cliente los pide expresamente.
+ */
+@Configuration
+public class FormatosBinariosConfig implements WebMvcConfigurer {
+
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    @Autowired
+    private ObjectProvider<Jackson2ObjectMapperBuilder> builderProvider;
+
+    @Autowired
+    private LinkRelationProvider linkRelationProvider;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        ObjectMapper cbor = builderProvider.getObject().factory(new CBORFactory()).build();
+        ObjectMapper smile = builderProvider.getObject().factory(new SmileFactory()).build();
+        reemplazar(converters, MappingJackson2CborHttpMessageConverter.class,
+            new MappingJackson2CborHttpMessageConverter(conHal(cbor, linkRelationProvider)));
+        reemplazar(converters, MappingJackson2SmileHttpMessageConverter.class,
+            new MappingJackson2SmileHttpMessageConverter(conHal(smile, linkRelationProvider)));
+    }
+
+    // Ocupa el puesto del convertidor por defecto del mismo tipo o, si no lo hay, el último
+    private static void reemplazar(List<HttpMessageConverter<?>> converters, Class<?> tipo,
+            HttpMessageConverter<?> convertidor) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (tipo.isInstance(converters.get(i))) {
+                converters.set(i, convertidor);
+                return;
+            }
+        }
+        converters.add(convertidor);
+    }
+
+    /**
+     * Registra el módulo HAL en un ObjectMapper (cualquier formato de Jackson).
+     */
+    public static ObjectMapper conHal(ObjectMapper mapper, LinkRelationProvider linkRelationProvider) {
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+            linkRelationProvider, CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+
+    public void setBuilderProvider(ObjectProvider<Jackson2ObjectMapperBuilder> builderProvider) {
+        this.builderProvider = builderProvider;
+    }
+
+    public void setLinkRelationProvider(LinkRelationProvider linkRelationProvider) {
+        this.linkRelationProvider = linkRelationProvider;
+    }
+}
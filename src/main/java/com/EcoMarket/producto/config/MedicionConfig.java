@@ -0,0 +1,33 @@
+package com.EcoMarket.producto.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.EcoMarket.producto.arranque.LatenciaPostDespliegue;
+import com.EcoMarket.producto.metricas.ClavesCalientes;
+import com.EcoMarket.producto.metricas.ClavesCalientesInterceptor;
+
+/**
+ * Interceptores de medición: claves calientes en las GET por id de la API v2 y
+ * latencia de la API tras el arranque.
+ */
+@Configuration
+public class MedicionConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ClavesCalientes clavesCalientes;
+
+    @Autowired
+    private LatenciaPostDespliegue latenciaPostDespliegue;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ClavesCalientesInterceptor(clavesCalientes, true))
+            .addPathPatterns("/api/v2/productos/*");
+        registry.addInterceptor(new ClavesCalientesInterceptor(clavesCalientes, false))
+            .addPathPatterns("/api/v2/inventario/*");
+        registry.addInterceptor(latenciaPostDespliegue).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,108 @@
+package com.EcoMarket.producto.controller;
+
+import com.EcoMarket.producto.admision.Admision;
+import com.EcoMarket.producto.admision.Prioridad;
+import com.EcoMarket.producto.conciliacion.ConciliacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Conciliación del inventario con recuentos físicos o exportaciones de otros sistemas.
+ */
+@RestController
+@Admision
+@RequestMapping("/api/v1/inventario/conciliaciones")
+@Tag(name = "Conciliaciones", description = "Comparación del inventario con recuentos externos")
+public class ConciliacionController {
+
+    @Autowired
+    private ConciliacionService conciliacionService;
+
+    @Operation(
+        summary = "Conciliar el inventario con un recuento",
+        description = "El cuerpo es un CSV (UTF-8) con cabecera producto_id, ubicacion y cantidad. Devuelve el "
+            + "resumen; las discrepancias se descargan en /{id}/discrepancias. Con corregir=true las diferencias "
+            + "se ajustan en el inventario; con soloContados=true no se informan las filas sin contar"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "201", description = "Conciliación terminada"),
+        @ApiResponse(responseCode = "400", description = "Cabecera, separador o CSV no válidos; el cuerpo dice por qué")
+    })
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 1)
+    @PostMapping(consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> conciliar(InputStream cuerpo,
+            @RequestParam(defaultValue = ",") char separador,
+            @RequestParam(defaultValue = "false") boolean soloContados,
+            @RequestParam(defaultValue = "false") boolean corregir) throws IOException {
+        try {
+            ConciliacionService.Informe informe = conciliacionService.conciliar(cuerpo, separador, soloContados, corregir);
+            return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentRequest().replaceQuery(null)
+                    .path("/{id}").buildAndExpand(informe.id()).toUri())
+                .body(informe);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @Operation(
+        summary = "Listar conciliaciones",
+        description = "Conciliaciones terminadas que aún no se han borrado"
+    )
+    @GetMapping
+    public ResponseEntity<List<ConciliacionService.Informe>> listar() {
+        return ResponseEntity.ok(conciliacionService.listar());
+    }
+
+    @Operation(
+        summary = "Resumen de una conciliación",
+        description = "Discrepancias por tipo, correcciones, filas por segundo y memoria usada"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Resumen de la conciliación"),
+        @ApiResponse(responseCode = "404", description = "Conciliación no encontrada")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<ConciliacionService.Informe> informe(@PathVariable String id) {
+        return conciliacionService.informe(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+        summary = "Descargar las discrepancias",
+        description = "CSV con tipo, producto_id, ubicacion, cantidad en sistema y contada, referencia y resultado del ajuste"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Informe de discrepancias"),
+        @ApiResponse(responseCode = "404", description = "Conciliación no encontrada")
+    })
+    @GetMapping("/{id}/discrepancias")
+    public ResponseEntity<Resource> discrepancias(@PathVariable String id) {
+        return conciliacionService.discrepancias(id)
+                .map(fichero -> ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("text/csv"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("discrepancias-" + id + ".csv").build().toString())
+                    .<Resource>body(new FileSystemResource(fichero)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    public void setConciliacionService(ConciliacionService conciliacionService) {
+        this.conciliacionService = conciliacionService;
+    }
+}
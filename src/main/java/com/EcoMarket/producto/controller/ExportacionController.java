@@ -0,0 +1,127 @@
+package com.EcoMarket.producto.controller;
+
+import com.EcoMarket.producto.admision.Admision;
+import com.EcoMarket.producto.admision.Prioridad;
+import com.EcoMarket.producto.exportacion.ExportacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Exportaciones completas del catálogo para analítica (ficheros Apache Parquet).
+ */
+@RestController
+@Admision
+@RequestMapping("/api/v1/exportaciones")
+@Tag(name = "Exportaciones", description = "Volcados de Producto e Inventario a ficheros columnares")
+public class ExportacionController {
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    @Operation(
+        summary = "Iniciar una exportación",
+        description = "Exporta en segundo plano las tablas indicadas (producto, inventario; por defecto ambas) "
+            + "en particiones paralelas, cada una con su propia instantánea (coherencia POR_PARTICION). "
+            + "Con instantanea=true todas salen de la misma instantánea REPEATABLE READ, leídas en serie. "
+            + "Devuelve el trabajo y su URL de estado"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "202", description = "Exportación iniciada"),
+        @ApiResponse(responseCode = "400", description = "Tabla o número de particiones no válidos"),
+        @ApiResponse(responseCode = "409", description = "Ya hay demasiadas exportaciones en curso")
+    })
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 1)
+    @PostMapping
+    public ResponseEntity<ExportacionService.Progreso> iniciar(
+            @RequestParam(required = false) List<String> tablas,
+            @RequestParam(required = false) Integer particiones,
+            @RequestParam(defaultValue = "false") boolean instantanea) {
+        try {
+            ExportacionService.Progreso progreso = exportacionService.iniciar(tablas, particiones, instantanea);
+            return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().replaceQuery(null)
+                    .path("/{id}").buildAndExpand(progreso.id()).toUri())
+                .body(progreso);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @Operation(
+        summary = "Listar exportaciones",
+        description = "Trabajos en curso y terminados que aún no se han borrado"
+    )
+    @GetMapping
+    public ResponseEntity<List<ExportacionService.Progreso>> listar() {
+        return ResponseEntity.ok(exportacionService.listar());
+    }
+
+    @Operation(
+        summary = "Estado de una exportación",
+        description = "Estado, filas exportadas, filas por segundo y ficheros ya terminados"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Estado del trabajo"),
+        @ApiResponse(responseCode = "404", description = "Exportación no encontrada")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<ExportacionService.Progreso> progreso(@PathVariable String id) {
+        return exportacionService.progreso(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+        summary = "Descargar un fichero de una exportación",
+        description = "Descarga un fichero terminado (aparece en la lista de archivos del estado)"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Fichero .parquet"),
+        @ApiResponse(responseCode = "404", description = "Exportación o fichero no encontrado")
+    })
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 4)
+    @GetMapping("/{id}/archivos/{archivo}")
+    public ResponseEntity<Resource> descargar(@PathVariable String id, @PathVariable String archivo) {
+        Optional<Path> fichero = exportacionService.archivo(id, archivo);
+        if (fichero.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(archivo).build().toString())
+                .body(new FileSystemResource(fichero.get()));
+    }
+
+    @Operation(
+        summary = "Cancelar o borrar una exportación",
+        description = "Cancela el trabajo si está en curso o lo borra con sus ficheros si ya terminó"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "204", description = "Exportación cancelada o borrada"),
+        @ApiResponse(responseCode = "404", description = "Exportación no encontrada")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancelar(@PathVariable String id) {
+        return exportacionService.cancelar(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
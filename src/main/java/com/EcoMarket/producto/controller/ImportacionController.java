@@ -0,0 +1,114 @@
+package com.EcoMarket.producto.controller;
+
+import com.EcoMarket.producto.admision.Admision;
+import com.EcoMarket.producto.admision.Prioridad;
+import com.EcoMarket.producto.importacion.ImportacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Altas masivas de productos desde CSV (hojas de cálculo del equipo de catálogo).
+ */
+@RestController
+@Admision
+@RequestMapping("/api/v1/importaciones")
+@Tag(name = "Importaciones", description = "Alta de productos desde ficheros CSV")
+public class ImportacionController {
+
+    @Autowired
+    private ImportacionService importacionService;
+
+    @Operation(
+        summary = "Importar productos desde CSV",
+        description = "El cuerpo es el CSV (UTF-8) con cabecera: codigo, nombre y precio obligatorias; "
+            + "descripcion, categoria y activo opcionales. Se procesa en streaming y responde al terminar "
+            + "con el resumen; las filas rechazadas se descargan en /{id}/errores. Si la lectura se corta "
+            + "(CSV mal formado, cliente desconectado) responde 422: los lotes ya escritos se quedan y el "
+            + "resumen dice cuántas filas se procesaron"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "201", description = "Importación completada"),
+        @ApiResponse(responseCode = "400", description = "Cabecera o separador no válidos; el cuerpo dice por qué"),
+        @ApiResponse(responseCode = "422", description = "Importación interrumpida a medias; el cuerpo es el resumen")
+    })
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 1)
+    @PostMapping(consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<?> importar(InputStream cuerpo,
+            @RequestParam(defaultValue = ",") char separador) throws IOException {
+        ImportacionService.Informe informe;
+        try {
+            informe = importacionService.importar(cuerpo, separador);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        URI ubicacion = ServletUriComponentsBuilder.fromCurrentRequest().replaceQuery(null)
+            .path("/{id}").buildAndExpand(informe.id()).toUri();
+        if (informe.estado() == ImportacionService.EstadoImportacion.INTERRUMPIDA) {
+            return ResponseEntity.unprocessableEntity().location(ubicacion).body(informe);
+        }
+        return ResponseEntity.created(ubicacion).body(informe);
+    }
+
+    @Operation(
+        summary = "Listar importaciones",
+        description = "Importaciones en curso y terminadas que aún no se han borrado"
+    )
+    @GetMapping
+    public ResponseEntity<List<ImportacionService.Informe>> listar() {
+        return ResponseEntity.ok(importacionService.listar());
+    }
+
+    @Operation(
+        summary = "Resumen de una importación",
+        description = "Filas leídas, creadas y rechazadas y filas por segundo"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Resumen de la importación"),
+        @ApiResponse(responseCode = "404", description = "Importación no encontrada")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportacionService.Informe> informe(@PathVariable String id) {
+        return importacionService.informe(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+        summary = "Descargar el informe de errores",
+        description = "CSV con linea, codigo, motivo y detalle de cada fila rechazada"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Informe de errores"),
+        @ApiResponse(responseCode = "404", description = "Importación no encontrada o aún en curso")
+    })
+    @GetMapping("/{id}/errores")
+    public ResponseEntity<Resource> errores(@PathVariable String id) {
+        return importacionService.errores(id)
+                .map(fichero -> ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("text/csv"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("errores-" + id + ".csv").build().toString())
+                    .<Resource>body(new FileSystemResource(fichero)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    public void setImportacionService(ImportacionService importacionService) {
+        this.importacionService = importacionService;
+    }
+}
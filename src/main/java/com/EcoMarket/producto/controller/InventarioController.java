@@ -1,10 +1,20 @@
 package com.EcoMarket.producto.controller;
 
+import com.EcoMarket.producto.admision.Admision;
+import com.EcoMarket.producto.admision.Prioridad;
+import com.EcoMarket.producto.model.EstadoInventario;
 import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.service.AjusteStockService;
 import com.EcoMarket.producto.service.InventarioService;
+import com.EcoMarket.producto.service.InventarioStreamService;
+import com.EcoMarket.producto.service.ReposicionService;
+import com.EcoMarket.producto.service.StockAgregadoService;
+import com.EcoMarket.producto.service.ValoracionStockService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -14,14 +24,31 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
+@Admision
 @RequestMapping("/api/v1/inventario")
 @Tag(name = "Inventario", description = "Gestión del stock de productos")
 public class InventarioController {
 
     @Autowired
     private InventarioService inventarioService;
+
+    @Autowired
+    private InventarioStreamService inventarioStreamService;
+
+    @Autowired
+    private StockAgregadoService stockAgregadoService;
+
+    @Autowired
+    private AjusteStockService ajusteStockService;
+
+    @Autowired
+    private ValoracionStockService valoracionStockService;
+
+    @Autowired
+    private ReposicionService reposicionService;
     
     @Operation(
         summary = "Listar todo el inventario",
@@ -50,10 +77,114 @@ public class InventarioController {
         )
     )
 
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 4)
     @GetMapping
     public ResponseEntity<List<Inventario>> listarTodos() {
         return ResponseEntity.ok(inventarioService.listarTodos());
     }
+
+    @Operation(
+        summary = "Listar solo algunos campos",
+        description = "Con fields=campo1,campo2 solo se consultan y devuelven esas columnas (id siempre incluido)"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lista con los campos pedidos"),
+        @ApiResponse(responseCode = "400", description = "Campo no permitido")
+    })
+    @Admision(prioridad = Prioridad.MASIVA)
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> listarCampos(@RequestParam String fields) {
+        try {
+            return ResponseEntity.ok(inventarioService.listarCampos(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+        summary = "Suscribirse a los cambios de inventario",
+        description = "Server-Sent Events con cada alta, modificación o baja confirmada. "
+            + "productoId y estado filtran los eventos (las bajas se envían siempre). Un registro que deja "
+            + "de cumplir el filtro de estado llega como 'inventario-retirado'"
+    )
+    @ApiResponse(responseCode = "200", description = "Flujo text/event-stream de eventos 'inventario' e 'inventario-retirado'")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) Long productoId,
+                             @RequestParam(required = false) EstadoInventario estado) {
+        return inventarioStreamService.suscribir(productoId, estado);
+    }
+
+    @Operation(
+        summary = "Stock total de un producto",
+        description = "Suma de todas sus ubicaciones, cantidad por ubicación y peor estado. "
+            + "Se sirve de un agregado en memoria, sin recorrer las filas de inventario"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Stock agregado del producto"),
+        @ApiResponse(responseCode = "404", description = "El producto no tiene inventario")
+    })
+    @Admision(prioridad = Prioridad.CRITICA)
+    @GetMapping("/producto/{productoId}/stock")
+    public ResponseEntity<StockAgregadoService.StockProducto> stockPorProducto(@PathVariable Long productoId) {
+        return stockAgregadoService.obtener(productoId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+        summary = "Valoración del stock por categoría",
+        description = "Suma de cantidad × precio y unidades por categoría, mantenida en memoria con cada cambio"
+    )
+    @GetMapping("/valoracion")
+    public ResponseEntity<Map<String, ValoracionStockService.ValoracionCategoria>> valoracion() {
+        return ResponseEntity.ok(valoracionStockService.obtener());
+    }
+
+    @Operation(
+        summary = "Recalcular la valoración del stock",
+        description = "Reconstruye la valoración desde la base de datos sin bloquear las escrituras y devuelve las categorías con deriva"
+    )
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 1)
+    @PostMapping("/valoracion/recalcular")
+    public ResponseEntity<ValoracionStockService.Recalculo> recalcularValoracion() {
+        return ResponseEntity.ok(valoracionStockService.recalcular());
+    }
+
+    @Operation(
+        summary = "Registros con cantidad mínima insuficiente",
+        description = "Registros cuya cantidadMinima está por debajo de la sugerida según su consumo, de mayor a menor diferencia"
+    )
+    @GetMapping("/reposicion")
+    public ResponseEntity<List<ReposicionService.Sugerencia>> reposicion(@RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(reposicionService.infradimensionados(limite));
+    }
+
+    @Operation(
+        summary = "Punto de pedido sugerido",
+        description = "cantidadMinima y cantidad a reponer sugeridas a partir del consumo medio (EWMA) del registro"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Sugerencia del registro"),
+        @ApiResponse(responseCode = "404", description = "Registro desconocido o sin periodos cerrados")
+    })
+    @GetMapping("/{id}/reposicion")
+    public ResponseEntity<ReposicionService.Sugerencia> reposicionPorId(@PathVariable Long id) {
+        return reposicionService.obtener(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Admision(prioridad = Prioridad.CRITICA)
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> obtenerCamposPorId(@PathVariable Long id, @RequestParam String fields) {
+        try {
+            return inventarioService.obtenerCamposPorId(id, fields)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
     @Operation(
         summary = "Crear un registro de inventario",
         description = "Asocia un producto con stock en una ubicación determinada"
@@ -74,6 +205,7 @@ public class InventarioController {
         )
     )
 
+    @Admision(prioridad = Prioridad.CRITICA)
     @GetMapping("/{id}")
     public ResponseEntity<Inventario> obtenerPorId(@PathVariable Long id) {
         return inventarioService.obtenerPorId(id)
@@ -86,6 +218,31 @@ public class InventarioController {
         Inventario creado = inventarioService.guardar(inventario);
         return ResponseEntity.status(201).body(creado);
     }
+    @Operation(
+        summary = "Ajustar stock en bloque",
+        description = "Cada línea indica producto y ubicación con delta (entrada/salida) o cantidad (recuento). "
+            + "Se aplican por lotes transaccionales y se devuelve el resultado de cada línea"
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Informe de ajustes",
+        content = @Content(
+            mediaType = "application/json",
+            examples = @ExampleObject(value = """
+                [
+                  { "productoId": 1, "ubicacion": "Almacén A", "delta": 25 },
+                  { "productoId": 2, "ubicacion": "Almacén B", "cantidad": 40 }
+                ]
+            """)
+        )
+    )
+    @Admision(prioridad = Prioridad.MASIVA)
+    @PostMapping("/ajustes")
+    public ResponseEntity<AjusteStockService.InformeAjustes> ajustar(
+            @RequestBody List<AjusteStockService.AjusteStock> ajustes) {
+        return ResponseEntity.ok(ajusteStockService.ajustar(ajustes));
+    }
+
     @Operation(
         summary = "Actualizar un registro de inventario",
         description = "Modifica los datos de un inventario existente dado su ID"
@@ -94,6 +251,7 @@ public class InventarioController {
         @ApiResponse(responseCode = "200", description = "Inventario actualizado exitosamente"),
         @ApiResponse(responseCode = "404", description = "Inventario no encontrado")
     })
+    @Admision(prioridad = Prioridad.CRITICA)
     @PutMapping("/{id}")
     public ResponseEntity<Inventario> actualizar(@PathVariable Long id, @RequestBody Inventario inventario) {
         return inventarioService.actualizar(id, inventario)
@@ -119,5 +277,20 @@ public class InventarioController {
     public void setInventarioService(InventarioService inventarioService) {
     this.inventarioService = inventarioService;
     }
+    public void setInventarioStreamService(InventarioStreamService inventarioStreamService) {
+    this.inventarioStreamService = inventarioStreamService;
+    }
+    public void setStockAgregadoService(StockAgregadoService stockAgregadoService) {
+    this.stockAgregadoService = stockAgregadoService;
+    }
+    public void setAjusteStockService(AjusteStockService ajusteStockService) {
+    this.ajusteStockService = ajusteStockService;
+    }
+    public void setValoracionStockService(ValoracionStockService valoracionStockService) {
+    this.valoracionStockService = valoracionStockService;
+    }
+    public void setReposicionService(ReposicionService reposicionService) {
+    this.reposicionService = reposicionService;
+    }
     
 }
@@ -1,6 +1,9 @@
 package com.EcoMarket.producto.controller;
 
+import com.EcoMarket.producto.admision.Admision;
+import com.EcoMarket.producto.admision.Prioridad;
 import com.EcoMarket.producto.Assemblers.InventarioAssembler;
+import com.EcoMarket.producto.model.CamposModel;
 import com.EcoMarket.producto.model.Inventario;
 import com.EcoMarket.producto.service.InventarioService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,15 +18,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import static com.EcoMarket.producto.config.FormatosBinariosConfig.APPLICATION_CBOR_VALUE;
+import static com.EcoMarket.producto.config.FormatosBinariosConfig.APPLICATION_SMILE_VALUE;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
+@Admision
 @RequestMapping("/api/v2/inventario")
 @Tag(name = "Inventario", description = "Gestión del stock de productos")
 public class InventarioControllerV2 {
@@ -61,7 +68,8 @@ public class InventarioControllerV2 {
         )
     )
 
-    @GetMapping(produces = MediaTypes.HAL_JSON_VALUE)
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 4)
+    @GetMapping(produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<CollectionModel<EntityModel<Inventario>>> Listar(){
         List<Inventario> inventarios = inventarioService.listarTodos();
         if (inventarios.isEmpty()) {
@@ -76,6 +84,45 @@ public class InventarioControllerV2 {
         return ResponseEntity.ok(collectionModel);
     }
 
+    @Operation(
+        summary = "Listar solo algunos campos",
+        description = "Con fields=campo1,campo2 solo se consultan y devuelven esas columnas (id siempre incluido)"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lista con los campos pedidos"),
+        @ApiResponse(responseCode = "400", description = "Campo no permitido")
+    })
+    @Admision(prioridad = Prioridad.MASIVA)
+    @GetMapping(params = "fields", produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<CollectionModel<CamposModel>> listarCampos(@RequestParam String fields){
+        List<Map<String, Object>> filas;
+        try {
+            filas = inventarioService.listarCampos(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (filas.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        List<CamposModel> modelos = filas.stream()
+        .map(assembler::toCamposModel)
+        .collect(Collectors.toList());
+        return ResponseEntity.ok(CollectionModel.of(modelos,
+        linkTo(methodOn(InventarioControllerV2.class).listarCampos(fields)).withSelfRel()));
+    }
+
+    @Admision(prioridad = Prioridad.CRITICA)
+    @GetMapping(value = "/{id}", params = "fields", produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<CamposModel> obtenerCamposPorId(@PathVariable Long id, @RequestParam String fields){
+        try {
+            return inventarioService.obtenerCamposPorId(id, fields)
+            .map(campos -> ResponseEntity.ok(assembler.toCamposModel(campos)))
+            .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(
         summary = "Crear un registro de inventario",
         description = "Asocia un producto con stock en una ubicación determinada"
@@ -96,7 +143,8 @@ public class InventarioControllerV2 {
         )
     )
 
-    @GetMapping(value = "/{id}", produces = MediaTypes.HAL_JSON_VALUE)
+    @Admision(prioridad = Prioridad.CRITICA)
+    @GetMapping(value = "/{id}", produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<EntityModel<Inventario>> obtenerPorId(@PathVariable Long id) {
         Optional<Inventario> inventario = inventarioService.obtenerPorId(id);
         return inventario
@@ -124,6 +172,7 @@ public class InventarioControllerV2 {
         @ApiResponse(responseCode = "200", description = "Inventario actualizado exitosamente"),
         @ApiResponse(responseCode = "404", description = "Inventario no encontrado")
     })
+    @Admision(prioridad = Prioridad.CRITICA)
     @PutMapping(value = "/{id}", produces = MediaTypes.HAL_JSON_VALUE)
     public ResponseEntity<EntityModel<Inventario>> actualizar(@PathVariable Long id, @RequestBody Inventario inventario){
         Optional<Inventario> actualizado = inventarioService.actualizar(id, inventario);
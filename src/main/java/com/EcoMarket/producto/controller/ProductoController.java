@@ -1,6 +1,9 @@
 package com.EcoMarket.producto.controller;
 
+import com.EcoMarket.producto.admision.Admision;
+import com.EcoMarket.producto.admision.Prioridad;
 import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.service.HistorialPreciosService;
 import com.EcoMarket.producto.service.ProductoService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,7 +17,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @RestController: Combina @Controller + @ResponseBody (respuestas JSON automáticas)
@@ -23,12 +28,16 @@ import java.util.List;
  */
 
 @RestController
+@Admision
 @RequestMapping("/api/v1/productos")
 @Tag(name = "Productos", description = "Operaciones relacionadas con productos")
 public class ProductoController {
 
     @Autowired
     private ProductoService productoService;
+
+    @Autowired
+    private HistorialPreciosService historialPreciosService;
     @Operation(
         summary = "Listar todos los productos",
         description = "Obtiene una lista de todos los productos disponibles"
@@ -53,10 +62,41 @@ public class ProductoController {
             """)
         )
     )
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 4)
     @GetMapping
     public ResponseEntity<List<Producto>> listarTodos() {
         return ResponseEntity.ok(productoService.listarTodos());
     }
+
+    @Operation(
+        summary = "Listar solo algunos campos",
+        description = "Con fields=campo1,campo2 solo se consultan y devuelven esas columnas (id siempre incluido)"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lista con los campos pedidos"),
+        @ApiResponse(responseCode = "400", description = "Campo no permitido")
+    })
+    @Admision(prioridad = Prioridad.MASIVA)
+    @GetMapping(params = "fields")
+    public ResponseEntity<List<Map<String, Object>>> listarCampos(@RequestParam String fields) {
+        try {
+            return ResponseEntity.ok(productoService.listarCampos(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Admision(prioridad = Prioridad.CRITICA)
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> obtenerCamposPorId(@PathVariable Long id, @RequestParam String fields) {
+        try {
+            return productoService.obtenerCamposPorId(id, fields)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
     @Operation(
         summary = "Obtener producto por ID",
         description = "Devuelve un producto específico si existe"
@@ -65,12 +105,49 @@ public class ProductoController {
         @ApiResponse(responseCode = "200", description = "Producto encontrado"),
         @ApiResponse(responseCode = "404", description = "Producto no encontrado")
     })
+    @Admision(prioridad = Prioridad.CRITICA)
     @GetMapping("/{id}")
     public ResponseEntity<Producto> obtenerPorId(@PathVariable Long id) {
         return productoService.obtenerPorId(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+    @Operation(
+        summary = "Historial de precios",
+        description = "Cambios de precio entre desde y hasta (ISO-8601, por defecto todo el historial) "
+            + "y precio vigente al empezar el rango"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Historial del producto"),
+        @ApiResponse(responseCode = "400", description = "Rango no válido")
+    })
+    @GetMapping("/{id}/precios")
+    public ResponseEntity<HistorialPreciosService.HistorialPrecio> historialPrecios(@PathVariable Long id,
+            @RequestParam(required = false) Instant desde, @RequestParam(required = false) Instant hasta) {
+        try {
+            return ResponseEntity.ok(historialPreciosService.consultar(id,
+                desde != null ? desde : Instant.EPOCH, hasta != null ? hasta : Instant.now()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+        summary = "Historial de precios reducido",
+        description = "Divide el rango en el número de intervalos pedido y devuelve apertura, máximo, mínimo y cierre de cada uno"
+    )
+    @GetMapping(value = "/{id}/precios", params = "intervalos")
+    public ResponseEntity<List<HistorialPreciosService.IntervaloPrecio>> historialPreciosReducido(@PathVariable Long id,
+            @RequestParam(required = false) Instant desde, @RequestParam(required = false) Instant hasta,
+            @RequestParam int intervalos) {
+        try {
+            return ResponseEntity.ok(historialPreciosService.reducir(id,
+                desde != null ? desde : Instant.EPOCH, hasta != null ? hasta : Instant.now(), intervalos));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(
         summary = "Crear un nuevo producto",
         description = "Guarda un nuevo producto con los datos enviados"
@@ -129,5 +206,8 @@ public class ProductoController {
     }
     public void setProductoService(ProductoService productoService) {
     this.productoService = productoService;
+}
+    public void setHistorialPreciosService(HistorialPreciosService historialPreciosService) {
+    this.historialPreciosService = historialPreciosService;
 }
 }
@@ -1,7 +1,16 @@
 package com.EcoMarket.producto.controller;
 
+import com.EcoMarket.producto.admision.Admision;
+import com.EcoMarket.producto.admision.Prioridad;
 import com.EcoMarket.producto.Assemblers.ProductoModelAssembler;
+import com.EcoMarket.producto.model.CamposModel;
 import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.busqueda.IndiceDifuso;
+import com.EcoMarket.producto.busqueda.TriePrefijos;
+import com.EcoMarket.producto.service.AutocompletadoService;
+import com.EcoMarket.producto.service.BusquedaDifusaService;
+import com.EcoMarket.producto.service.CatalogoSnapshotService;
+import com.EcoMarket.producto.service.CreacionAgrupadaService;
 import com.EcoMarket.producto.service.ProductoService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,16 +21,31 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import static com.EcoMarket.producto.config.FormatosBinariosConfig.APPLICATION_CBOR_VALUE;
+import static com.EcoMarket.producto.config.FormatosBinariosConfig.APPLICATION_SMILE_VALUE;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +55,7 @@ import java.util.stream.Collectors;
  */
 
 @RestController
+@Admision
 @RequestMapping("/api/v2/productos")
 @Tag(name = "Productos", description = "Operaciones relacionadas con productos")
 public class ProductoControllerV2 {
@@ -41,6 +66,19 @@ public class ProductoControllerV2 {
     @Autowired
     private ProductoModelAssembler assembler;
 
+    @Autowired
+    private CatalogoSnapshotService catalogoSnapshotService;
+
+    @Autowired
+    private AutocompletadoService autocompletadoService;
+
+    @Autowired
+    private BusquedaDifusaService busquedaDifusaService;
+
+    // Altas en ráfaga agrupadas en una transacción (productos.creacion-agrupada.*)
+    @Autowired
+    private CreacionAgrupadaService creacionAgrupadaService;
+
     @Operation(
         summary = "Listar todos los productos",
         description = "Obtiene una lista de todos los productos disponibles"
@@ -65,7 +103,8 @@ public class ProductoControllerV2 {
             """)
         )
     )
-    @GetMapping(produces = MediaTypes.HAL_JSON_VALUE)
+    @Admision(prioridad = Prioridad.MASIVA, maximo = 4)
+    @GetMapping(produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<CollectionModel<EntityModel<Producto>>> Listar(){
         List<Producto> productos = productoService.listarTodos();
         if (productos.isEmpty()) {
@@ -79,6 +118,154 @@ public class ProductoControllerV2 {
         linkTo(methodOn(ProductoControllerV2.class).Listar()).withSelfRel());
         return ResponseEntity.ok(collectionModel);
     }
+
+    @Operation(
+        summary = "Listar solo algunos campos",
+        description = "Con fields=campo1,campo2 solo se consultan y devuelven esas columnas (id siempre incluido)"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lista con los campos pedidos"),
+        @ApiResponse(responseCode = "400", description = "Campo no permitido")
+    })
+    @Admision(prioridad = Prioridad.MASIVA)
+    @GetMapping(params = "fields", produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<CollectionModel<CamposModel>> listarCampos(@RequestParam String fields){
+        List<Map<String, Object>> filas;
+        try {
+            filas = productoService.listarCampos(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (filas.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        List<CamposModel> modelos = filas.stream()
+        .map(assembler::toCamposModel)
+        .collect(Collectors.toList());
+        return ResponseEntity.ok(CollectionModel.of(modelos,
+        linkTo(methodOn(ProductoControllerV2.class).listarCampos(fields)).withSelfRel()));
+    }
+
+    @Admision(prioridad = Prioridad.CRITICA)
+    @GetMapping(value = "/{id}", params = "fields", produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<CamposModel> obtenerCamposPorId(@PathVariable Long id, @RequestParam String fields){
+        try {
+            return productoService.obtenerCamposPorId(id, fields)
+            .map(campos -> ResponseEntity.ok(assembler.toCamposModel(campos)))
+            .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    @Operation(
+        summary = "Autocompletar productos",
+        description = "Sugiere productos activos cuyo nombre, alguna palabra del nombre o el código empiezan por q, "
+            + "ordenados por popularidad (máximo 10)"
+    )
+    @ApiResponse(responseCode = "200", description = "Sugerencias, posiblemente vacías")
+    @GetMapping(value = "/autocompletar", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<TriePrefijos.Entrada>> autocompletar(@RequestParam String q,
+            @RequestParam(defaultValue = "" + AutocompletadoService.K_POR_DEFECTO) int k){
+        return ResponseEntity.ok(autocompletadoService.sugerir(q, k));
+    }
+
+    @Operation(
+        summary = "Búsqueda tolerante a errores",
+        description = "Busca en nombre y categoría admitiendo errores de escritura (1 error hasta 5 letras, 2 a partir de 6); "
+            + "resultados puntuados de 0 a 1 y paginados"
+    )
+    @ApiResponse(responseCode = "200", description = "Página de resultados, posiblemente vacía")
+    @Admision(prioridad = Prioridad.MASIVA)
+    @GetMapping(value = "/buscar", produces = MediaTypes.HAL_JSON_VALUE)
+    public ResponseEntity<PagedModel<IndiceDifuso.Resultado>> buscar(@RequestParam String q,
+            @PageableDefault(size = 20) Pageable pageable){
+        Page<IndiceDifuso.Resultado> pagina = busquedaDifusaService.buscar(q, pageable);
+        PagedModel.PageMetadata metadata = new PagedModel.PageMetadata(
+            pagina.getSize(), pagina.getNumber(), pagina.getTotalElements(), pagina.getTotalPages());
+        return ResponseEntity.ok(PagedModel.of(pagina.getContent(), metadata,
+            Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel()));
+    }
+
+    @Operation(
+        summary = "Catálogo de productos activos",
+        description = "Devuelve el snapshot precalculado del catálogo activo (HAL JSON, gzip si el cliente lo acepta). "
+            + "Admite If-None-Match para responder 304 sin cuerpo"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Catálogo completo"),
+        @ApiResponse(responseCode = "304", description = "El catálogo no ha cambiado"),
+        @ApiResponse(responseCode = "503", description = "El catálogo todavía no está disponible")
+    })
+    @GetMapping(value = "/catalogo", produces = MediaTypes.HAL_JSON_VALUE)
+    public ResponseEntity<byte[]> catalogo(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        CatalogoSnapshotService.Snapshot snapshot = catalogoSnapshotService.obtener();
+        if (snapshot == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        boolean comprimido = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = snapshot.etag(comprimido);
+        if (ifNoneMatch != null && coincideEtag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+            .eTag(etag)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .header("X-Catalogo-Version", String.valueOf(snapshot.version()))
+            .contentType(MediaTypes.HAL_JSON);
+        if (comprimido) {
+            return respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+        }
+        return respuesta.body(snapshot.json());
+    }
+
+    // If-None-Match admite una lista de ETags; la comparación es débil (RFC 9110, 13.1.2)
+    static boolean coincideEtag(String ifNoneMatch, String etag) {
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*") || valor.replaceFirst("^W/", "").equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Operation(
+        summary = "Filtrar productos",
+        description = "Combina categoría, estado activo, rango de precio, texto del nombre y fecha de actualización; "
+            + "ordenable por id, codigo, precio o fechaActualizacion y paginado (máximo 100 por página)"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Página de productos que cumplen el filtro"),
+        @ApiResponse(responseCode = "400", description = "Parámetros de filtro u orden no válidos")
+    })
+    @GetMapping(value = "/filtro", produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<PagedModel<EntityModel<Producto>>> filtrar(
+            @RequestParam(required = false) String categoria,
+            @RequestParam(required = false) Boolean activo,
+            @RequestParam(required = false) BigDecimal precioMin,
+            @RequestParam(required = false) BigDecimal precioMax,
+            @RequestParam(required = false) String nombre,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime actualizadoDesde,
+            @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        Page<Producto> pagina;
+        try {
+            pagina = productoService.filtrar(categoria, activo, precioMin, precioMax, nombre, actualizadoDesde, pageable);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<EntityModel<Producto>> productosModel = pagina.getContent().stream()
+        .map(assembler::toModel)
+        .collect(Collectors.toList());
+        PagedModel.PageMetadata metadata = new PagedModel.PageMetadata(
+            pagina.getSize(), pagina.getNumber(), pagina.getTotalElements(), pagina.getTotalPages());
+        PagedModel<EntityModel<Producto>> pagedModel = PagedModel.of(productosModel, metadata,
+            Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+        return ResponseEntity.ok(pagedModel);
+    }
+
     @Operation(
         summary = "Obtener producto por ID",
         description = "Devuelve un producto específico si existe"
@@ -87,7 +274,8 @@ public class ProductoControllerV2 {
         @ApiResponse(responseCode = "200", description = "Producto encontrado"),
         @ApiResponse(responseCode = "404", description = "Producto no encontrado")
     })
-    @GetMapping(value = "/{id}", produces = MediaTypes.HAL_JSON_VALUE)
+    @Admision(prioridad = Prioridad.CRITICA)
+    @GetMapping(value = "/{id}", produces = {MediaTypes.HAL_JSON_VALUE, APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
     public ResponseEntity<EntityModel<Producto>> obtenerPorId(@PathVariable Long id) {
     return productoService.obtenerPorId(id)
         .map(producto -> ResponseEntity.ok(assembler.toModel(producto)))
@@ -116,7 +304,8 @@ public class ProductoControllerV2 {
     )
     @PostMapping(produces = MediaTypes.HAL_JSON_VALUE)
     public ResponseEntity<EntityModel<Producto>> crearProducto(@RequestBody Producto producto){
-        Producto nuevoProducto = productoService.guardar(producto);
+        Producto nuevoProducto = creacionAgrupadaService != null
+            ? creacionAgrupadaService.crear(producto) : productoService.guardar(producto);
         return ResponseEntity
         .created(linkTo(methodOn(ProductoControllerV2.class).obtenerPorId(nuevoProducto.getId())).toUri())
         .body(assembler.toModel(nuevoProducto));  
@@ -161,6 +350,10 @@ public class ProductoControllerV2 {
             .status(404).body("Producto no fue eliminado");
         }
     }
+    public void setCatalogoSnapshotService(CatalogoSnapshotService catalogoSnapshotService) {
+        this.catalogoSnapshotService = catalogoSnapshotService;
+    }
+
     public void setProductoService(ProductoService productoService2) {
         // TODO Auto-generated method stub
         throw new UnsupportedOperationException("Unimplemented method 'setProductoService'");
@@ -0,0 +1,23 @@
+package com.EcoMarket.producto.event;
+
+import com.EcoMarket.producto.model.Inventario;
+
+/**
+ * Evento publicado por InventarioService después de cada escritura.
+ *
+ * @param tipo operación realizada
+ * @param inventarioId id del registro de inventario afectado
+ * @param anterior copia del registro antes del cambio (null al crear o eliminar)
+ * @param actual registro guardado (null al eliminar)
+ * @param remoto true si el cambio se hizo en otra instancia y este evento solo
+ *               refresca los datos en memoria (InvalidacionBus); quien escriba en la
+ *               base de datos a partir del evento debe ignorarlo
+ */
+public record InventarioCambiadoEvent(Tipo tipo, Long inventarioId, Inventario anterior, Inventario actual, boolean remoto) {
+
+    public InventarioCambiadoEvent(Tipo tipo, Long inventarioId, Inventario anterior, Inventario actual) {
+        this(tipo, inventarioId, anterior, actual, false);
+    }
+
+    public enum Tipo { CREADO, ACTUALIZADO, ELIMINADO }
+}
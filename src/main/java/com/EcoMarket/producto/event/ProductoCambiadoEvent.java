@@ -0,0 +1,23 @@
+package com.EcoMarket.producto.event;
+
+import com.EcoMarket.producto.model.Producto;
+
+/**
+ * Evento publicado por ProductoService después de cada escritura.
+ *
+ * @param tipo operación realizada
+ * @param productoId id del producto afectado
+ * @param anterior copia del producto antes del cambio (null al crear o eliminar)
+ * @param actual producto guardado (null al eliminar)
+ * @param remoto true si el cambio se hizo en otra instancia y este evento solo
+ *               refresca los datos en memoria (InvalidacionBus); quien escriba en la
+ *               base de datos a partir del evento debe ignorarlo
+ */
+public record ProductoCambiadoEvent(Tipo tipo, Long productoId, Producto anterior, Producto actual, boolean remoto) {
+
+    public ProductoCambiadoEvent(Tipo tipo, Long productoId, Producto anterior, Producto actual) {
+        this(tipo, productoId, anterior, actual, false);
+    }
+
+    public enum Tipo { CREADO, ACTUALIZADO, ELIMINADO }
+}
@@ -0,0 +1,13 @@
+package com.EcoMarket.producto.event;
+
+/**
+ * Evento publicado por ProductoService cada vez que se lee un producto existente por id.
+ *
+ * Es la señal de popularidad de los índices en memoria (autocompletado). Va aparte de
+ * ProductoCambiadoEvent porque no cambia nada: los oyentes de escrituras (snapshot del
+ * catálogo, outbox, invalidación) no deben reaccionar a una lectura.
+ *
+ * @param productoId id del producto consultado
+ */
+public record ProductoConsultadoEvent(Long productoId) {
+}
@@ -0,0 +1,490 @@
+package com.EcoMarket.producto.exportacion;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escritor de ficheros Apache Parquet (.parquet), escrito a mano sobre la
+ * especificación de parquet-format para no depender de parquet-mr ni de Hadoop:
+ *
+ *   "PAR1" | grupo 0: columna 0, columna 1... | grupo 1... | FileMetaData (Thrift compacto) | longitud (int LE) | "PAR1"
+ *
+ * Las filas se acumulan en memoria hasta completar un grupo (filasPorGrupo) y cada
+ * columna del grupo se escribe como un column chunk de una página de datos v1
+ * comprimida con GZIP. Todas las columnas son OPTIONAL: la página empieza con los
+ * niveles de definición (RLE/bit-packed, 1 = hay valor) y sigue con los valores no nulos:
+ * - LONG, FECHA y DECIMAL: INT64 con DELTA_BINARY_PACKED (FECHA como TIMESTAMP_MILLIS
+ *   en UTC, DECIMAL como entero escalado con su escala y precisión 18),
+ * - TEXTO: BYTE_ARRAY UTF8 con diccionario si hay muchos valores repetidos (categoría,
+ *   ubicación, estado), si no PLAIN,
+ * - BOOLEANO: BOOLEAN PLAIN, un bit por fila.
+ * El pie guarda por column chunk sus desplazamientos, nulos y mínimo y máximo, así que
+ * cualquier lector de Parquet (Spark, DuckDB, pyarrow) puede saltar grupos o leer solo
+ * algunas columnas. La memoria usada es la de un grupo, sea cual sea el tamaño de la tabla.
+ */
+public class EscritorColumnar implements Closeable {
+
+    static final byte[] MAGIA = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+    // Valores de los enums de parquet.thrift
+    static final int BOOLEAN = 0;
+    static final int INT64 = 2;
+    static final int BYTE_ARRAY = 6;
+    static final int OPCIONAL = 1;
+    static final int UTF8 = 0;
+    static final int DECIMAL = 5;
+    static final int TIMESTAMP_MILLIS = 9;
+    static final int PLAIN = 0;
+    static final int PLAIN_DICTIONARY = 2;
+    static final int RLE = 3;
+    static final int DELTA_BINARY_PACKED = 5;
+    static final int GZIP = 2;
+    static final int PAGINA_DATOS = 0;
+    static final int PAGINA_DICCIONARIO = 2;
+    static final int PRECISION_DECIMAL = 18;
+
+    // DELTA_BINARY_PACKED: bloques de 128 diferencias en 4 miniblocks de 32
+    static final int DELTAS_POR_BLOQUE = 128;
+    static final int MINIBLOQUES = 4;
+
+    public enum Tipo { LONG, DECIMAL, TEXTO, BOOLEANO, FECHA }
+
+    /**
+     * Columna del fichero; escala solo se usa en DECIMAL.
+     */
+    public record Columna(String nombre, Tipo tipo, int escala) {
+
+        public Columna(String nombre, Tipo tipo) {
+            this(nombre, tipo, 0);
+        }
+    }
+
+    // Column chunk ya escrito, para el pie (minimo y maximo solo en LONG, FECHA y DECIMAL)
+    private record Trozo(List<Integer> codificaciones, long inicio, Long diccionario, long datos, long sinComprimir,
+            long comprimido, int nulos, Long minimo, Long maximo) {
+    }
+
+    private record Grupo(int filas, long bytes, List<Trozo> trozos) {
+    }
+
+    private final OutputStream salida;
+    private final List<Columna> columnas;
+    private final int filasPorGrupo;
+    private final long[][] numeros;
+    private final String[][] textos;
+    private final BitSet[] nulos;
+    private final List<Grupo> grupos = new ArrayList<>();
+    private int filasGrupo;
+    private long filas;
+    private long posicion;
+
+    public EscritorColumnar(OutputStream salida, List<Columna> columnas, int filasPorGrupo) throws IOException {
+        this.salida = salida;
+        this.columnas = List.copyOf(columnas);
+        this.filasPorGrupo = Math.max(filasPorGrupo, 1);
+        this.numeros = new long[columnas.size()][];
+        this.textos = new String[columnas.size()][];
+        this.nulos = new BitSet[columnas.size()];
+        for (int c = 0; c < columnas.size(); c++) {
+            if (columnas.get(c).tipo() == Tipo.TEXTO) {
+                textos[c] = new String[this.filasPorGrupo];
+            } else {
+                numeros[c] = new long[this.filasPorGrupo];
+            }
+            nulos[c] = new BitSet(this.filasPorGrupo);
+        }
+        escribir(MAGIA);
+    }
+
+    /**
+     * Añade una fila; los valores van en el orden de las columnas (null admitido).
+     */
+    public void escribirFila(Object[] valores) throws IOException {
+        for (int c = 0; c < columnas.size(); c++) {
+            Object valor = valores[c];
+            if (valor == null) {
+                nulos[c].set(filasGrupo);
+                continue;
+            }
+            Columna columna = columnas.get(c);
+            switch (columna.tipo()) {
+                case TEXTO -> textos[c][filasGrupo] = valor.toString();
+                case LONG -> numeros[c][filasGrupo] = ((Number) valor).longValue();
+                case BOOLEANO -> numeros[c][filasGrupo] = (Boolean) valor ? 1 : 0;
+                case DECIMAL -> numeros[c][filasGrupo] = ((BigDecimal) valor).setScale(columna.escala(), RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+                case FECHA -> numeros[c][filasGrupo] = ((LocalDateTime) valor).toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+        }
+        filas++;
+        if (++filasGrupo == filasPorGrupo) {
+            cerrarGrupo();
+        }
+    }
+
+    public long filas() {
+        return filas;
+    }
+
+    // Posición actual en la salida (bytes escritos)
+    public long bytes() {
+        return posicion;
+    }
+
+    private void cerrarGrupo() throws IOException {
+        if (filasGrupo == 0) {
+            return;
+        }
+        long inicio = posicion;
+        List<Trozo> trozos = new ArrayList<>(columnas.size());
+        for (int c = 0; c < columnas.size(); c++) {
+            trozos.add(escribirTrozo(c));
+            nulos[c].clear();
+            if (textos[c] != null) {
+                Arrays.fill(textos[c], 0, filasGrupo, null);
+            }
+        }
+        grupos.add(new Grupo(filasGrupo, posicion - inicio, trozos));
+        filasGrupo = 0;
+    }
+
+    private Trozo escribirTrozo(int c) throws IOException {
+        BitSet nulosColumna = nulos[c];
+        int cuantosNulos = nulosColumna.cardinality();
+        int[] niveles = new int[filasGrupo];
+        for (int i = 0; i < filasGrupo; i++) {
+            niveles[i] = nulosColumna.get(i) ? 0 : 1;
+        }
+        ByteArrayOutputStream definicion = new ByteArrayOutputStream(filasGrupo / 8 + 8);
+        escribirHibrido(definicion, niveles, filasGrupo, 1);
+        ByteArrayOutputStream pagina = new ByteArrayOutputStream(filasGrupo * 2);
+        pagina.writeBytes(enteroLE(definicion.size()));
+        pagina.writeBytes(definicion.toByteArray());
+
+        long inicio = posicion;
+        long[] tamanos = new long[2];
+        Long diccionario = null;
+        Long minimo = null;
+        Long maximo = null;
+        int codificacion;
+        Tipo tipo = columnas.get(c).tipo();
+        if (tipo == Tipo.TEXTO) {
+            Map<String, Integer> entradas = diccionario(textos[c], nulosColumna);
+            if (entradas != null) {
+                ByteArrayOutputStream valores = new ByteArrayOutputStream();
+                for (String valor : entradas.keySet()) {
+                    escribirTextoPlano(valores, valor);
+                }
+                diccionario = posicion;
+                escribirPagina(PAGINA_DICCIONARIO, valores.toByteArray(), entradas.size(), PLAIN_DICTIONARY, tamanos);
+                int ancho = Math.max(1, 32 - Integer.numberOfLeadingZeros(entradas.size() - 1));
+                int[] indices = new int[filasGrupo - cuantosNulos];
+                int n = 0;
+                for (int i = 0; i < filasGrupo; i++) {
+                    if (!nulosColumna.get(i)) {
+                        indices[n++] = entradas.get(textos[c][i]);
+                    }
+                }
+                pagina.write(ancho);
+                escribirHibrido(pagina, indices, n, ancho);
+                codificacion = PLAIN_DICTIONARY;
+            } else {
+                for (int i = 0; i < filasGrupo; i++) {
+                    if (!nulosColumna.get(i)) {
+                        escribirTextoPlano(pagina, textos[c][i]);
+                    }
+                }
+                codificacion = PLAIN;
+            }
+        } else if (tipo == Tipo.BOOLEANO) {
+            Empaquetador bits = new Empaquetador(pagina);
+            for (int i = 0; i < filasGrupo; i++) {
+                if (!nulosColumna.get(i)) {
+                    bits.poner(numeros[c][i], 1);
+                }
+            }
+            bits.cerrar();
+            codificacion = PLAIN;
+        } else {
+            long[] valores = new long[filasGrupo - cuantosNulos];
+            int n = 0;
+            for (int i = 0; i < filasGrupo; i++) {
+                if (!nulosColumna.get(i)) {
+                    long v = numeros[c][i];
+                    valores[n++] = v;
+                    minimo = minimo == null ? v : Math.min(minimo, v);
+                    maximo = maximo == null ? v : Math.max(maximo, v);
+                }
+            }
+            escribirDeltas(pagina, valores, n);
+            codificacion = DELTA_BINARY_PACKED;
+        }
+        long datos = posicion;
+        escribirPagina(PAGINA_DATOS, pagina.toByteArray(), filasGrupo, codificacion, tamanos);
+        List<Integer> codificaciones = codificacion == PLAIN_DICTIONARY
+            ? List.of(PLAIN_DICTIONARY, RLE) : List.of(codificacion, RLE);
+        return new Trozo(codificaciones, inicio, diccionario, datos, tamanos[0], tamanos[1], cuantosNulos, minimo, maximo);
+    }
+
+    // Diccionario cuando los distintos son como mucho la mitad de las filas; null si no compensa
+    private Map<String, Integer> diccionario(String[] valores, BitSet nulosColumna) {
+        Map<String, Integer> diccionario = new LinkedHashMap<>();
+        int limite = Math.max(filasGrupo / 2, 1);
+        for (int i = 0; i < filasGrupo && diccionario.size() <= limite; i++) {
+            if (!nulosColumna.get(i)) {
+                diccionario.putIfAbsent(valores[i], diccionario.size());
+            }
+        }
+        return diccionario.isEmpty() || diccionario.size() > limite ? null : diccionario;
+    }
+
+    // Cabecera de página (Thrift) y cuerpo comprimido; suma los tamaños al column chunk
+    private void escribirPagina(int tipo, byte[] cuerpo, int valores, int codificacion, long[] tamanos) throws IOException {
+        byte[] comprimido = comprimir(cuerpo);
+        ThriftCompacto.Escritor cabecera = new ThriftCompacto.Escritor()
+            .i32(1, tipo)
+            .i32(2, cuerpo.length)
+            .i32(3, comprimido.length);
+        if (tipo == PAGINA_DICCIONARIO) {
+            cabecera.estructura(7).i32(1, valores).i32(2, codificacion).fin();
+        } else {
+            cabecera.estructura(5).i32(1, valores).i32(2, codificacion).i32(3, RLE).i32(4, RLE).fin();
+        }
+        byte[] bytesCabecera = cabecera.fin().bytes();
+        escribir(bytesCabecera);
+        escribir(comprimido);
+        tamanos[0] += bytesCabecera.length + cuerpo.length;
+        tamanos[1] += bytesCabecera.length + comprimido.length;
+    }
+
+    private static byte[] comprimir(byte[] datos) {
+        ByteArrayOutputStream comprimido = new ByteArrayOutputStream(Math.max(datos.length / 2, 64));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(comprimido, 8192)) {
+            gzip.write(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return comprimido.toByteArray();
+    }
+
+    /**
+     * Escribe el último grupo y el pie y cierra la salida.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            cerrarGrupo();
+            byte[] pie = pie();
+            escribir(pie);
+            escribir(enteroLE(pie.length));
+            escribir(MAGIA);
+        } finally {
+            salida.close();
+        }
+    }
+
+    // FileMetaData: esquema, grupos con sus column chunks y estadísticas
+    private byte[] pie() {
+        ThriftCompacto.Escritor pie = new ThriftCompacto.Escritor()
+            .i32(1, 1)
+            .lista(2, ThriftCompacto.ESTRUCTURA, columnas.size() + 1)
+            .elemento().texto(4, "schema").i32(5, columnas.size()).fin();
+        for (Columna columna : columnas) {
+            pie.elemento().i32(1, tipoFisico(columna.tipo())).i32(3, OPCIONAL).texto(4, columna.nombre());
+            switch (columna.tipo()) {
+                case TEXTO -> pie.i32(6, UTF8);
+                case FECHA -> pie.i32(6, TIMESTAMP_MILLIS);
+                case DECIMAL -> pie.i32(6, DECIMAL).i32(7, columna.escala()).i32(8, PRECISION_DECIMAL);
+                default -> {
+                }
+            }
+            pie.fin();
+        }
+        pie.i64(3, filas).lista(4, ThriftCompacto.ESTRUCTURA, grupos.size());
+        for (Grupo grupo : grupos) {
+            pie.elemento().lista(1, ThriftCompacto.ESTRUCTURA, columnas.size());
+            for (int c = 0; c < columnas.size(); c++) {
+                Columna columna = columnas.get(c);
+                Trozo trozo = grupo.trozos().get(c);
+                pie.elemento().i64(2, trozo.inicio()).estructura(3)
+                    .i32(1, tipoFisico(columna.tipo()))
+                    .lista(2, ThriftCompacto.I32, trozo.codificaciones().size());
+                trozo.codificaciones().forEach(pie::i32Elemento);
+                pie.lista(3, ThriftCompacto.BINARIO, 1).textoElemento(columna.nombre())
+                    .i32(4, GZIP)
+                    .i64(5, grupo.filas())
+                    .i64(6, trozo.sinComprimir())
+                    .i64(7, trozo.comprimido())
+                    .i64(9, trozo.datos());
+                if (trozo.diccionario() != null) {
+                    pie.i64(11, trozo.diccionario());
+                }
+                pie.estructura(12).i64(3, trozo.nulos());
+                if (trozo.minimo() != null) {
+                    pie.binario(5, largoLE(trozo.maximo())).binario(6, largoLE(trozo.minimo()));
+                }
+                pie.fin().fin().fin();
+            }
+            pie.i64(2, grupo.bytes()).i64(3, grupo.filas()).fin();
+        }
+        return pie.texto(6, "EcoMarket producto-service").fin().bytes();
+    }
+
+    private static int tipoFisico(Tipo tipo) {
+        return switch (tipo) {
+            case TEXTO -> BYTE_ARRAY;
+            case BOOLEANO -> BOOLEAN;
+            default -> INT64;
+        };
+    }
+
+    private void escribir(byte[] datos) throws IOException {
+        salida.write(datos);
+        posicion += datos.length;
+    }
+
+    // RLE/bit-packing híbrido, siempre con grupos bit-packed de 8 valores
+    static void escribirHibrido(ByteArrayOutputStream salida, int[] valores, int n, int ancho) {
+        if (n == 0) {
+            return;
+        }
+        int grupos = (n + 7) / 8;
+        escribirVarint(salida, (long) grupos << 1 | 1);
+        Empaquetador bits = new Empaquetador(salida);
+        for (int i = 0; i < grupos * 8; i++) {
+            bits.poner(i < n ? valores[i] : 0, ancho);
+        }
+        bits.cerrar();
+    }
+
+    // DELTA_BINARY_PACKED: cabecera, y por bloque la diferencia mínima, los anchos y los miniblocks
+    static void escribirDeltas(ByteArrayOutputStream salida, long[] valores, int n) {
+        int porMinibloque = DELTAS_POR_BLOQUE / MINIBLOQUES;
+        escribirVarint(salida, DELTAS_POR_BLOQUE);
+        escribirVarint(salida, MINIBLOQUES);
+        escribirVarint(salida, n);
+        escribirVarint(salida, zigzag(n == 0 ? 0 : valores[0]));
+        long[] deltas = new long[DELTAS_POR_BLOQUE];
+        for (int desde = 1; desde < n; desde += DELTAS_POR_BLOQUE) {
+            int cuantos = Math.min(DELTAS_POR_BLOQUE, n - desde);
+            long minimo = Long.MAX_VALUE;
+            for (int j = 0; j < cuantos; j++) {
+                deltas[j] = valores[desde + j] - valores[desde + j - 1];
+                minimo = Math.min(minimo, deltas[j]);
+            }
+            escribirVarint(salida, zigzag(minimo));
+            int[] anchos = new int[MINIBLOQUES];
+            for (int j = 0; j < cuantos; j++) {
+                deltas[j] -= minimo;
+                anchos[j / porMinibloque] = Math.max(anchos[j / porMinibloque], 64 - Long.numberOfLeadingZeros(deltas[j]));
+            }
+            for (int ancho : anchos) {
+                salida.write(ancho);
+            }
+            // Solo se escriben los miniblocks con algún valor; el último se rellena con ceros
+            Empaquetador bits = new Empaquetador(salida);
+            for (int m = 0; m * porMinibloque < cuantos; m++) {
+                for (int j = m * porMinibloque; j < (m + 1) * porMinibloque; j++) {
+                    bits.poner(j < cuantos ? deltas[j] : 0, anchos[m]);
+                }
+            }
+            bits.cerrar();
+        }
+    }
+
+    /**
+     * Bits de varios valores seguidos, del menos significativo al más, como los empaqueta Parquet.
+     */
+    static final class Empaquetador {
+        private final ByteArrayOutputStream salida;
+        private int actual;
+        private int ocupados;
+
+        Empaquetador(ByteArrayOutputStream salida) {
+            this.salida = salida;
+        }
+
+        void poner(long valor, int ancho) {
+            int restantes = ancho;
+            while (restantes > 0) {
+                int caben = Math.min(8 - ocupados, restantes);
+                actual |= (int) ((valor & ((1L << caben) - 1)) << ocupados);
+                valor >>>= caben;
+                restantes -= caben;
+                ocupados += caben;
+                if (ocupados == 8) {
+                    salida.write(actual);
+                    actual = 0;
+                    ocupados = 0;
+                }
+            }
+        }
+
+        void cerrar() {
+            if (ocupados > 0) {
+                salida.write(actual);
+                actual = 0;
+                ocupados = 0;
+            }
+        }
+    }
+
+    static void escribirTextoPlano(ByteArrayOutputStream salida, String valor) {
+        byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+        salida.writeBytes(enteroLE(bytes.length));
+        salida.writeBytes(bytes);
+    }
+
+    static byte[] enteroLE(int valor) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(valor).array();
+    }
+
+    static byte[] largoLE(long valor) {
+        return ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(valor).array();
+    }
+
+    static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static void escribirVarint(ByteArrayOutputStream salida, long v) {
+        while ((v & ~0x7FL) != 0) {
+            salida.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        salida.write((int) v);
+    }
+
+    static long leerVarint(ByteBuffer datos) {
+        long resultado = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            byte b = datos.get();
+            resultado |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return resultado;
+            }
+        }
+        throw new IllegalArgumentException("Varint demasiado largo");
+    }
+}
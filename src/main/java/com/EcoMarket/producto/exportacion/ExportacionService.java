@@ -0,0 +1,536 @@
+package com.EcoMarket.producto.exportacion;
+
+import com.EcoMarket.producto.exportacion.EscritorColumnar.Columna;
+import com.EcoMarket.producto.exportacion.EscritorColumnar.Tipo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Exportaciones completas de Producto e Inventario a ficheros Parquet.
+ *
+ * Analítica necesita volcados periódicos y hasta ahora recorría la API REST. Cada
+ * exportación es un trabajo asíncrono:
+ * - El rango de ids de cada tabla se parte en N particiones y cada una se exporta en
+ *   un hilo del pool a su propio fichero (tabla-NNN.parquet, ver EscritorColumnar).
+ * - Cada partición lee su rango con un cursor (fetch size Integer.MIN_VALUE: MySQL
+ *   envía las filas de una en una en vez de cargar el resultado entero) y el escritor
+ *   solo guarda en memoria el grupo de filas en curso.
+ * - El fichero se escribe como .tmp y se renombra al terminar, así que un fichero
+ *   listado ya está completo y se puede descargar aunque el trabajo siga.
+ * - El progreso (filas, estimación por rango de ids y filas por segundo) se consulta
+ *   en cualquier momento; cancelar interrumpe las consultas en curso (Statement.cancel,
+ *   un KILL QUERY en MySQL: cerrar un cursor de streaming sin más lee todas las filas
+ *   que queden) y borra los ficheros.
+ * - Coherencia (ver Coherencia, también en el estado del trabajo): en paralelo cada
+ *   partición es una consulta con su propia instantánea, tomada cuando empieza; con
+ *   instantanea=true todas las particiones de todas las tablas se leen una tras otra
+ *   en una sola transacción REPEATABLE READ de solo lectura, sin paralelismo.
+ * Los trabajos terminados y sus ficheros se borran pasado exportacion.retencion-ms.
+ */
+@Service
+public class ExportacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportacionService.class);
+
+    public static final int PARTICIONES_MAXIMAS = 64;
+
+    public enum EstadoTrabajo { EN_CURSO, COMPLETADO, CANCELADO, FALLIDO }
+
+    /**
+     * Qué garantiza el conjunto de ficheros de un trabajo.
+     * - POR_PARTICION: cada fichero es una foto coherente, pero de un momento distinto;
+     *   un cambio confirmado durante la exportación puede verse en unos ficheros y no
+     *   en otros (p. ej. un inventario cuyo producto no aparece en producto-*.parquet).
+     * - INSTANTANEA_UNICA: todos los ficheros son la misma foto de la base de datos.
+     */
+    public enum Coherencia { POR_PARTICION, INSTANTANEA_UNICA }
+
+    /**
+     * Tabla exportable: nombre en la API, tabla SQL y columnas en orden.
+     */
+    record TablaExportable(String nombre, String tabla, List<Columna> columnas) {
+
+        String consulta() {
+            return "SELECT " + String.join(", ", columnas.stream().map(Columna::nombre).toList())
+                + " FROM " + tabla + " WHERE id BETWEEN ? AND ? ORDER BY id";
+        }
+    }
+
+    static final Map<String, TablaExportable> TABLAS = Map.of(
+        "producto", new TablaExportable("producto", "Producto", List.of(
+            new Columna("id", Tipo.LONG),
+            new Columna("codigo", Tipo.TEXTO),
+            new Columna("nombre", Tipo.TEXTO),
+            new Columna("descripcion", Tipo.TEXTO),
+            new Columna("precio", Tipo.DECIMAL, 2),
+            new Columna("categoria", Tipo.TEXTO),
+            new Columna("fecha_creacion", Tipo.FECHA),
+            new Columna("fecha_actualizacion", Tipo.FECHA),
+            new Columna("activo", Tipo.BOOLEANO))),
+        "inventario", new TablaExportable("inventario", "Inventario", List.of(
+            new Columna("id", Tipo.LONG),
+            new Columna("producto_id", Tipo.LONG),
+            new Columna("cantidad", Tipo.LONG),
+            new Columna("cantidad_minima", Tipo.LONG),
+            new Columna("ubicacion", Tipo.TEXTO),
+            new Columna("fecha_actualizacion", Tipo.FECHA),
+            new Columna("estado", Tipo.TEXTO))));
+
+    /**
+     * Fichero terminado de un trabajo.
+     */
+    public record Archivo(String nombre, String tabla, int particion, long filas, long bytes) {
+    }
+
+    /**
+     * Estado de un trabajo. filasEstimadas sale del rango de ids (cota superior).
+     */
+    public record Progreso(String id, EstadoTrabajo estado, List<String> tablas, int particiones, Coherencia coherencia,
+            long filas,
+            long filasEstimadas, double porcentaje, double filasPorSegundo, long duracionMs, String error,
+            List<Archivo> archivos) {
+    }
+
+    final class Trabajo {
+        final String id = UUID.randomUUID().toString();
+        final List<String> tablas;
+        final int particiones;
+        final Coherencia coherencia;
+        final Path directorio;
+        final long inicio = System.nanoTime();
+        final LongAdder filas = new LongAdder();
+        final AtomicBoolean cancelado = new AtomicBoolean();
+        final AtomicInteger pendientes = new AtomicInteger();
+        final List<Archivo> archivos = Collections.synchronizedList(new ArrayList<>());
+        // Consultas en curso, para cancelarlas en el servidor
+        final Set<Statement> sentencias = ConcurrentHashMap.newKeySet();
+        volatile long filasEstimadas;
+        volatile EstadoTrabajo estado = EstadoTrabajo.EN_CURSO;
+        volatile String error;
+        volatile long fin;
+        volatile long terminado;
+
+        Trabajo(List<String> tablas, int particiones, Coherencia coherencia) {
+            this.tablas = tablas;
+            this.particiones = particiones;
+            this.coherencia = coherencia;
+            this.directorio = Path.of(directorioBase).resolve(id);
+        }
+
+        Progreso progreso() {
+            // El estado se lee antes que los archivos: si ya está COMPLETADO, la lista está entera
+            EstadoTrabajo actual = estado;
+            long leidas = filas.sum();
+            long duracion = ((fin == 0 ? System.nanoTime() : fin) - inicio) / 1_000_000;
+            List<Archivo> copia;
+            synchronized (archivos) {
+                copia = new ArrayList<>(archivos);
+            }
+            copia.sort(Comparator.comparing(Archivo::nombre));
+            double porcentaje = actual == EstadoTrabajo.COMPLETADO ? 100
+                : filasEstimadas == 0 ? 0 : Math.min(99.9, 100.0 * leidas / filasEstimadas);
+            return new Progreso(id, actual, tablas, particiones, coherencia, leidas, filasEstimadas, porcentaje,
+                duracion == 0 ? 0 : leidas * 1000.0 / duracion, duracion, error, copia);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${exportacion.directorio:./exportaciones}")
+    private String directorioBase = "./exportaciones";
+
+    @Value("${exportacion.hilos:4}")
+    private int hilos = 4;
+
+    @Value("${exportacion.particiones:4}")
+    private int particionesPorDefecto = 4;
+
+    @Value("${exportacion.filas-por-grupo:65536}")
+    private int filasPorGrupo = 65_536;
+
+    @Value("${exportacion.maximo-trabajos:2}")
+    private int maximoTrabajos = 2;
+
+    @Value("${exportacion.retencion-ms:86400000}")
+    private long retencionMs = 86_400_000;
+
+    private final Map<String, Trabajo> trabajos = new ConcurrentHashMap<>();
+    private JdbcTemplate cursor;
+    private TransactionTemplate lectura;
+    private ExecutorService pool;
+
+    @PostConstruct
+    public void iniciar() {
+        // Plantilla propia: el fetch size de streaming no debe afectar al resto de consultas
+        if (cursor == null) {
+            cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+            cursor.setFetchSize(Integer.MIN_VALUE);
+        }
+        if (transactionManager != null) {
+            lectura = new TransactionTemplate(transactionManager);
+            lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            lectura.setReadOnly(true);
+        }
+        AtomicInteger numero = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "exportacion-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    public void detener() {
+        for (Trabajo trabajo : trabajos.values()) {
+            interrumpir(trabajo);
+        }
+        pool.shutdownNow();
+    }
+
+    public Progreso iniciar(List<String> tablas, Integer particiones) {
+        return iniciar(tablas, particiones, false);
+    }
+
+    /**
+     * Lanza una exportación de las tablas indicadas (producto, inventario). Con
+     * instantanea todas las particiones salen de la misma foto, leídas en serie.
+     *
+     * @throws IllegalArgumentException si una tabla no existe o las particiones no son válidas
+     * @throws IllegalStateException si ya hay exportacion.maximo-trabajos en curso o
+     *     se pide instantanea sin gestor de transacciones
+     */
+    public Progreso iniciar(List<String> tablas, Integer particiones, boolean instantanea) {
+        List<String> pedidas = new ArrayList<>(new LinkedHashSet<>(tablas == null || tablas.isEmpty()
+            ? List.of("producto", "inventario") : tablas.stream().map(t -> t.trim().toLowerCase()).toList()));
+        for (String tabla : pedidas) {
+            if (!TABLAS.containsKey(tabla)) {
+                throw new IllegalArgumentException("Tabla no exportable: " + tabla);
+            }
+        }
+        int n = particiones == null ? particionesPorDefecto : particiones;
+        if (n < 1 || n > PARTICIONES_MAXIMAS) {
+            throw new IllegalArgumentException("particiones debe estar entre 1 y " + PARTICIONES_MAXIMAS);
+        }
+        Trabajo trabajo;
+        synchronized (trabajos) {
+            long enCurso = trabajos.values().stream().filter(t -> t.estado == EstadoTrabajo.EN_CURSO).count();
+            if (enCurso >= maximoTrabajos) {
+                throw new IllegalStateException("Ya hay " + enCurso + " exportaciones en curso");
+            }
+            if (instantanea && lectura == null) {
+                throw new IllegalStateException("Sin gestor de transacciones no hay instantánea única");
+            }
+            trabajo = new Trabajo(pedidas, n, instantanea ? Coherencia.INSTANTANEA_UNICA : Coherencia.POR_PARTICION);
+            trabajos.put(trabajo.id, trabajo);
+        }
+        try {
+            Files.createDirectories(trabajo.directorio);
+            List<Runnable> tareas = new ArrayList<>();
+            for (String nombre : pedidas) {
+                TablaExportable tabla = TABLAS.get(nombre);
+                Map<String, Object> rango = jdbcTemplate.queryForMap(
+                    "SELECT MIN(id) AS minimo, MAX(id) AS maximo FROM " + tabla.tabla());
+                long minimo = rango.get("minimo") == null ? 1 : ((Number) rango.get("minimo")).longValue();
+                long maximo = rango.get("maximo") == null ? 0 : ((Number) rango.get("maximo")).longValue();
+                long ancho = Math.max(maximo - minimo + 1, 0);
+                trabajo.filasEstimadas += ancho;
+                for (int k = 0; k < n; k++) {
+                    int particion = k;
+                    long desde = minimo + ancho * k / n;
+                    long hasta = minimo + ancho * (k + 1) / n - 1;
+                    tareas.add(() -> exportarParticion(trabajo, tabla, particion, desde, hasta));
+                }
+            }
+            trabajo.pendientes.set(tareas.size());
+            if (instantanea) {
+                // Una transacción, una conexión y por tanto un hilo; la foto se toma en la primera lectura
+                pool.execute(() -> leerEnInstantanea(trabajo, tareas));
+            } else {
+                tareas.forEach(pool::execute);
+            }
+        } catch (IOException | RuntimeException e) {
+            fallar(trabajo, e);
+            borrarDirectorio(trabajo);
+            throw e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+        }
+        log.info("Exportación {} iniciada: {} en {} particiones", trabajo.id, pedidas, n);
+        return trabajo.progreso();
+    }
+
+    private void leerEnInstantanea(Trabajo trabajo, List<Runnable> tareas) {
+        try {
+            lectura.executeWithoutResult(estado -> tareas.forEach(Runnable::run));
+        } catch (RuntimeException e) {
+            // Sin transacción no se ha ejecutado ninguna partición
+            log.warn("Exportación {}: no se pudo abrir la instantánea: {}", trabajo.id, e.getMessage());
+            fallar(trabajo, e);
+            if (trabajo.pendientes.getAndSet(0) > 0) {
+                terminar(trabajo);
+            }
+        }
+    }
+
+    // Una partición: rango [desde, hasta] de ids (vacío si desde > hasta) a un fichero
+    void exportarParticion(Trabajo trabajo, TablaExportable tabla, int particion, long desde, long hasta) {
+        String nombre = String.format("%s-%03d.parquet", tabla.nombre(), particion);
+        Path destino = trabajo.directorio.resolve(nombre);
+        Path temporal = trabajo.directorio.resolve(nombre + ".tmp");
+        try {
+            if (trabajo.cancelado.get()) {
+                return;
+            }
+            List<Columna> columnas = tabla.columnas();
+            EscritorColumnar escritor = new EscritorColumnar(Files.newOutputStream(temporal), columnas, filasPorGrupo);
+            try (escritor) {
+                if (desde <= hasta) {
+                    Object[] fila = new Object[columnas.size()];
+                    Statement[] sentencia = new Statement[1];
+                    PreparedStatementCreator consulta = conexion -> {
+                        PreparedStatement ps = conexion.prepareStatement(tabla.consulta());
+                        ps.setLong(1, desde);
+                        ps.setLong(2, hasta);
+                        sentencia[0] = ps;
+                        trabajo.sentencias.add(ps);
+                        // Si se canceló antes de registrarla, interrumpir() no la ha visto
+                        if (trabajo.cancelado.get()) {
+                            throw new CancellationException();
+                        }
+                        return ps;
+                    };
+                    try {
+                        cursor.query(consulta, (RowCallbackHandler) rs -> {
+                            if (trabajo.cancelado.get()) {
+                                throw new CancellationException();
+                            }
+                            for (int c = 0; c < fila.length; c++) {
+                                fila[c] = leer(rs, c + 1, columnas.get(c).tipo());
+                            }
+                            try {
+                                escritor.escribirFila(fila);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            trabajo.filas.increment();
+                        });
+                    } finally {
+                        if (sentencia[0] != null) {
+                            trabajo.sentencias.remove(sentencia[0]);
+                        }
+                    }
+                }
+            }
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            trabajo.archivos.add(new Archivo(nombre, tabla.nombre(), particion, escritor.filas(), escritor.bytes()));
+        } catch (CancellationException e) {
+            // cancelado: los ficheros se borran al terminar la última partición
+        } catch (IOException | RuntimeException e) {
+            if (trabajo.cancelado.get()) {
+                // La consulta interrumpida por interrumpir() falla en el driver; no es un error
+                return;
+            }
+            log.warn("Exportación {}: fallo en {}: {}", trabajo.id, nombre, e.getMessage());
+            fallar(trabajo, e);
+        } finally {
+            borrarSilencioso(temporal);
+            if (trabajo.pendientes.decrementAndGet() == 0) {
+                terminar(trabajo);
+            }
+        }
+    }
+
+    private static Object leer(ResultSet rs, int columna, Tipo tipo) throws SQLException {
+        Object valor = switch (tipo) {
+            case LONG -> rs.getLong(columna);
+            case DECIMAL -> rs.getBigDecimal(columna);
+            case TEXTO -> rs.getString(columna);
+            case BOOLEANO -> rs.getBoolean(columna);
+            case FECHA -> rs.getObject(columna, LocalDateTime.class);
+        };
+        return rs.wasNull() ? null : valor;
+    }
+
+    private void fallar(Trabajo trabajo, Exception e) {
+        synchronized (trabajo) {
+            if (trabajo.estado == EstadoTrabajo.EN_CURSO) {
+                trabajo.estado = EstadoTrabajo.FALLIDO;
+                trabajo.error = e.getMessage();
+            }
+        }
+        interrumpir(trabajo);
+    }
+
+    // Detiene las particiones: las que leen filas paran en la siguiente y las consultas
+    // que esperan al servidor se cancelan allí
+    private void interrumpir(Trabajo trabajo) {
+        trabajo.cancelado.set(true);
+        for (Statement sentencia : trabajo.sentencias) {
+            try {
+                sentencia.cancel();
+            } catch (SQLException e) {
+                log.debug("Exportación {}: no se pudo cancelar una consulta: {}", trabajo.id, e.getMessage());
+            }
+        }
+    }
+
+    private void terminar(Trabajo trabajo) {
+        synchronized (trabajo) {
+            if (trabajo.estado == EstadoTrabajo.EN_CURSO) {
+                trabajo.estado = EstadoTrabajo.COMPLETADO;
+            }
+            trabajo.fin = System.nanoTime();
+            trabajo.terminado = System.currentTimeMillis();
+        }
+        if (trabajo.estado != EstadoTrabajo.COMPLETADO) {
+            borrarDirectorio(trabajo);
+        }
+        Progreso progreso = trabajo.progreso();
+        log.info("Exportación {} {}: {} filas en {} ms ({} filas/s)", trabajo.id, progreso.estado(), progreso.filas(),
+            progreso.duracionMs(), Math.round(progreso.filasPorSegundo()));
+    }
+
+    public Optional<Progreso> progreso(String id) {
+        return Optional.ofNullable(trabajos.get(id)).map(Trabajo::progreso);
+    }
+
+    public List<Progreso> listar() {
+        return trabajos.values().stream().map(Trabajo::progreso).toList();
+    }
+
+    /**
+     * Cancela un trabajo en curso (sus ficheros se borran al parar la última
+     * partición) o borra uno ya terminado con sus ficheros.
+     *
+     * @return false si el trabajo no existe
+     */
+    public boolean cancelar(String id) {
+        Trabajo trabajo = trabajos.get(id);
+        if (trabajo == null) {
+            return false;
+        }
+        interrumpir(trabajo);
+        synchronized (trabajo) {
+            if (trabajo.estado == EstadoTrabajo.EN_CURSO) {
+                trabajo.estado = EstadoTrabajo.CANCELADO;
+                return true;
+            }
+        }
+        trabajos.remove(id);
+        borrarDirectorio(trabajo);
+        return true;
+    }
+
+    /**
+     * Fichero terminado del trabajo, solo si está en su lista de archivos.
+     */
+    public Optional<Path> archivo(String id, String nombre) {
+        Trabajo trabajo = trabajos.get(id);
+        if (trabajo == null || trabajo.estado == EstadoTrabajo.CANCELADO || trabajo.estado == EstadoTrabajo.FALLIDO) {
+            return Optional.empty();
+        }
+        synchronized (trabajo.archivos) {
+            return trabajo.archivos.stream().filter(a -> a.nombre().equals(nombre)).findFirst()
+                .map(a -> trabajo.directorio.resolve(a.nombre()));
+        }
+    }
+
+    /**
+     * Borra los trabajos terminados hace más de exportacion.retencion-ms.
+     */
+    @Scheduled(fixedDelayString = "${exportacion.limpieza-ms:3600000}", initialDelayString = "${exportacion.limpieza-ms:3600000}")
+    public void limpiar() {
+        long limite = System.currentTimeMillis() - retencionMs;
+        trabajos.values().removeIf(trabajo -> {
+            if (trabajo.terminado == 0 || trabajo.terminado > limite) {
+                return false;
+            }
+            borrarDirectorio(trabajo);
+            return true;
+        });
+    }
+
+    private void borrarDirectorio(Trabajo trabajo) {
+        if (!Files.isDirectory(trabajo.directorio)) {
+            return;
+        }
+        try (Stream<Path> ficheros = Files.list(trabajo.directorio)) {
+            ficheros.forEach(ExportacionService::borrarSilencioso);
+        } catch (IOException e) {
+            log.warn("No se pudo vaciar {}: {}", trabajo.directorio, e.getMessage());
+        }
+        borrarSilencioso(trabajo.directorio);
+    }
+
+    private static void borrarSilencioso(Path fichero) {
+        try {
+            Files.deleteIfExists(fichero);
+        } catch (IOException e) {
+            log.debug("No se pudo borrar {}: {}", fichero, e.getMessage());
+        }
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public void setCursor(JdbcTemplate cursor) {
+        this.cursor = cursor;
+    }
+
+    public void setDirectorioBase(String directorioBase) {
+        this.directorioBase = directorioBase;
+    }
+
+    public void setFilasPorGrupo(int filasPorGrupo) {
+        this.filasPorGrupo = filasPorGrupo;
+    }
+}
@@ -0,0 +1,331 @@
+package com.EcoMarket.producto.exportacion;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lector de los ficheros Parquet escritos por EscritorColumnar.
+ *
+ * Lee el pie al abrir y después cada column chunk bajo demanda, así que se puede
+ * recorrer un fichero grande grupo a grupo o leer una sola columna sin cargar el
+ * resto. Solo entiende lo que escribe EscritorColumnar (columnas planas OPTIONAL,
+ * páginas v1, PLAIN, diccionario y DELTA_BINARY_PACKED, sin comprimir o GZIP); para
+ * otros ficheros Parquet está cualquier lector general.
+ */
+public class LectorColumnar implements Closeable {
+
+    private final FileChannel canal;
+    private final List<EscritorColumnar.Columna> columnas = new ArrayList<>();
+    private final long filas;
+    private final List<Map<Integer, Object>> grupos;
+
+    @SuppressWarnings("unchecked")
+    public LectorColumnar(Path fichero) throws IOException {
+        canal = FileChannel.open(fichero, StandardOpenOption.READ);
+        try {
+            long tamano = canal.size();
+            ByteBuffer cola = leer(tamano - 8, 8).order(ByteOrder.LITTLE_ENDIAN);
+            int longitudPie = cola.getInt();
+            byte[] magia = new byte[4];
+            cola.get(magia);
+            if (!Arrays.equals(magia, EscritorColumnar.MAGIA)) {
+                throw new IOException("No es un fichero Parquet: " + fichero);
+            }
+            Map<Integer, Object> pie = ThriftCompacto.leerEstructura(leer(tamano - 8 - longitudPie, longitudPie));
+            List<Map<Integer, Object>> esquema = (List<Map<Integer, Object>>) pie.get(2);
+            for (Map<Integer, Object> elemento : esquema.subList(1, esquema.size())) {
+                columnas.add(columna(elemento));
+            }
+            filas = (Long) pie.get(3);
+            grupos = (List<Map<Integer, Object>>) pie.get(4);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    private static EscritorColumnar.Columna columna(Map<Integer, Object> elemento) {
+        String nombre = new String((byte[]) elemento.get(4), StandardCharsets.UTF_8);
+        Integer convertido = (Integer) elemento.get(6);
+        EscritorColumnar.Tipo tipo = switch ((Integer) elemento.get(1)) {
+            case EscritorColumnar.BOOLEAN -> EscritorColumnar.Tipo.BOOLEANO;
+            case EscritorColumnar.BYTE_ARRAY -> EscritorColumnar.Tipo.TEXTO;
+            case EscritorColumnar.INT64 -> convertido == null ? EscritorColumnar.Tipo.LONG
+                : convertido == EscritorColumnar.DECIMAL ? EscritorColumnar.Tipo.DECIMAL
+                : convertido == EscritorColumnar.TIMESTAMP_MILLIS ? EscritorColumnar.Tipo.FECHA
+                : EscritorColumnar.Tipo.LONG;
+            default -> throw new IllegalArgumentException("Tipo Parquet no soportado en " + nombre);
+        };
+        Integer escala = (Integer) elemento.get(7);
+        return new EscritorColumnar.Columna(nombre, tipo, escala == null ? 0 : escala);
+    }
+
+    public List<EscritorColumnar.Columna> columnas() {
+        return List.copyOf(columnas);
+    }
+
+    public long filas() {
+        return filas;
+    }
+
+    public int grupos() {
+        return grupos.size();
+    }
+
+    /**
+     * Valores de una columna en un grupo: Long, BigDecimal, String, Boolean o LocalDateTime.
+     */
+    @SuppressWarnings("unchecked")
+    public Object[] leerColumna(int grupo, int columna) throws IOException {
+        Map<Integer, Object> g = grupos.get(grupo);
+        Map<Integer, Object> metadatos = (Map<Integer, Object>) ((List<Map<Integer, Object>>) g.get(1)).get(columna).get(3);
+        int codec = (Integer) metadatos.get(4);
+        Long desdeDiccionario = (Long) metadatos.get(11);
+        long inicio = desdeDiccionario != null ? desdeDiccionario : (Long) metadatos.get(9);
+        ByteBuffer trozo = leer(inicio, (int) (long) (Long) metadatos.get(7));
+        EscritorColumnar.Columna definicion = columnas.get(columna);
+        int numeroFilas = (int) (long) (Long) g.get(3);
+        Object[] valores = new Object[numeroFilas];
+        Object[] diccionario = null;
+        int leidas = 0;
+        while (leidas < numeroFilas) {
+            Map<Integer, Object> cabecera = ThriftCompacto.leerEstructura(trozo);
+            byte[] comprimido = new byte[(Integer) cabecera.get(3)];
+            trozo.get(comprimido);
+            ByteBuffer pagina = ByteBuffer.wrap(descomprimir(comprimido, (Integer) cabecera.get(2), codec))
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if ((Integer) cabecera.get(1) == EscritorColumnar.PAGINA_DICCIONARIO) {
+                int entradas = (Integer) ((Map<Integer, Object>) cabecera.get(7)).get(1);
+                diccionario = leerPlanos(pagina, definicion, entradas);
+                continue;
+            }
+            Map<Integer, Object> datos = (Map<Integer, Object>) cabecera.get(5);
+            int enPagina = (Integer) datos.get(1);
+            int longitudNiveles = pagina.getInt();
+            int[] niveles = leerHibrido(pagina.slice(pagina.position(), longitudNiveles), enPagina, 1);
+            pagina.position(pagina.position() + longitudNiveles);
+            int presentes = 0;
+            for (int nivel : niveles) {
+                presentes += nivel;
+            }
+            Object[] noNulos = switch ((Integer) datos.get(2)) {
+                case EscritorColumnar.PLAIN -> leerPlanos(pagina, definicion, presentes);
+                case EscritorColumnar.PLAIN_DICTIONARY, 8 -> {
+                    int ancho = pagina.get();
+                    int[] indices = leerHibrido(pagina, presentes, ancho);
+                    Object[] resultado = new Object[presentes];
+                    for (int i = 0; i < presentes; i++) {
+                        resultado[i] = diccionario[indices[i]];
+                    }
+                    yield resultado;
+                }
+                case EscritorColumnar.DELTA_BINARY_PACKED -> convertir(leerDeltas(pagina), definicion);
+                default -> throw new IOException("Codificación Parquet no soportada: " + datos.get(2));
+            };
+            int n = 0;
+            for (int i = 0; i < enPagina; i++) {
+                valores[leidas + i] = niveles[i] == 1 ? noNulos[n++] : null;
+            }
+            leidas += enPagina;
+        }
+        return valores;
+    }
+
+    /**
+     * Filas de un grupo con todas sus columnas.
+     */
+    public List<Object[]> leerGrupo(int grupo) throws IOException {
+        int numeroColumnas = columnas.size();
+        Object[][] porColumna = new Object[numeroColumnas][];
+        for (int c = 0; c < numeroColumnas; c++) {
+            porColumna[c] = leerColumna(grupo, c);
+        }
+        int numeroFilas = porColumna.length == 0 ? 0 : porColumna[0].length;
+        List<Object[]> resultado = new ArrayList<>(numeroFilas);
+        for (int i = 0; i < numeroFilas; i++) {
+            Object[] fila = new Object[numeroColumnas];
+            for (int c = 0; c < numeroColumnas; c++) {
+                fila[c] = porColumna[c][i];
+            }
+            resultado.add(fila);
+        }
+        return resultado;
+    }
+
+    private static Object[] leerPlanos(ByteBuffer datos, EscritorColumnar.Columna columna, int n) {
+        Object[] valores = new Object[n];
+        switch (columna.tipo()) {
+            case TEXTO -> {
+                for (int i = 0; i < n; i++) {
+                    byte[] bytes = new byte[datos.getInt()];
+                    datos.get(bytes);
+                    valores[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            case BOOLEANO -> {
+                Desempaquetador bits = new Desempaquetador(datos);
+                for (int i = 0; i < n; i++) {
+                    valores[i] = bits.leer(1) == 1;
+                }
+            }
+            default -> {
+                long[] numeros = new long[n];
+                for (int i = 0; i < n; i++) {
+                    numeros[i] = datos.getLong();
+                }
+                return convertir(numeros, columna);
+            }
+        }
+        return valores;
+    }
+
+    private static Object[] convertir(long[] numeros, EscritorColumnar.Columna columna) {
+        Object[] valores = new Object[numeros.length];
+        for (int i = 0; i < numeros.length; i++) {
+            valores[i] = switch (columna.tipo()) {
+                case DECIMAL -> BigDecimal.valueOf(numeros[i], columna.escala());
+                case FECHA -> LocalDateTime.ofInstant(Instant.ofEpochMilli(numeros[i]), ZoneOffset.UTC);
+                default -> numeros[i];
+            };
+        }
+        return valores;
+    }
+
+    // RLE/bit-packing híbrido: admite tramos RLE y bit-packed
+    static int[] leerHibrido(ByteBuffer datos, int n, int ancho) {
+        int[] valores = new int[n];
+        int leidos = 0;
+        while (leidos < n) {
+            long cabecera = EscritorColumnar.leerVarint(datos);
+            if ((cabecera & 1) == 1) {
+                int cuantos = (int) (cabecera >>> 1) * 8;
+                Desempaquetador bits = new Desempaquetador(datos);
+                for (int i = 0; i < cuantos; i++) {
+                    int valor = (int) bits.leer(ancho);
+                    if (leidos < n) {
+                        valores[leidos++] = valor;
+                    }
+                }
+            } else {
+                int repeticiones = (int) (cabecera >>> 1);
+                int valor = 0;
+                for (int b = 0; b < (ancho + 7) / 8; b++) {
+                    valor |= (datos.get() & 0xFF) << (8 * b);
+                }
+                for (int i = 0; i < repeticiones && leidos < n; i++) {
+                    valores[leidos++] = valor;
+                }
+            }
+        }
+        return valores;
+    }
+
+    static long[] leerDeltas(ByteBuffer datos) {
+        int porBloque = (int) EscritorColumnar.leerVarint(datos);
+        int miniBloques = (int) EscritorColumnar.leerVarint(datos);
+        int total = (int) EscritorColumnar.leerVarint(datos);
+        long anterior = EscritorColumnar.unzigzag(EscritorColumnar.leerVarint(datos));
+        int porMinibloque = porBloque / miniBloques;
+        long[] valores = new long[total];
+        if (total == 0) {
+            return valores;
+        }
+        valores[0] = anterior;
+        int leidos = 1;
+        while (leidos < total) {
+            long minimo = EscritorColumnar.unzigzag(EscritorColumnar.leerVarint(datos));
+            int[] anchos = new int[miniBloques];
+            for (int m = 0; m < miniBloques; m++) {
+                anchos[m] = datos.get() & 0xFF;
+            }
+            Desempaquetador bits = new Desempaquetador(datos);
+            for (int m = 0; m < miniBloques && leidos < total; m++) {
+                for (int i = 0; i < porMinibloque; i++) {
+                    long delta = bits.leer(anchos[m]);
+                    if (leidos < total) {
+                        anterior += minimo + delta;
+                        valores[leidos++] = anterior;
+                    }
+                }
+            }
+        }
+        return valores;
+    }
+
+    /**
+     * Lee valores empaquetados por Empaquetador; avanza el buffer byte a byte.
+     */
+    private static final class Desempaquetador {
+        private final ByteBuffer datos;
+        private int actual;
+        private int disponibles;
+
+        Desempaquetador(ByteBuffer datos) {
+            this.datos = datos;
+        }
+
+        long leer(int ancho) {
+            long valor = 0;
+            int leidos = 0;
+            while (leidos < ancho) {
+                if (disponibles == 0) {
+                    actual = datos.get() & 0xFF;
+                    disponibles = 8;
+                }
+                int toma = Math.min(disponibles, ancho - leidos);
+                valor |= (long) ((actual >>> (8 - disponibles)) & ((1 << toma) - 1)) << leidos;
+                disponibles -= toma;
+                leidos += toma;
+            }
+            return valor;
+        }
+    }
+
+    private ByteBuffer leer(long desde, int longitud) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(longitud);
+        while (buffer.hasRemaining()) {
+            if (canal.read(buffer, desde + buffer.position()) < 0) {
+                throw new IOException("Fichero Parquet truncado");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] descomprimir(byte[] datos, int longitudOriginal, int codec) throws IOException {
+        if (codec == 0) {
+            return datos;
+        }
+        if (codec != EscritorColumnar.GZIP) {
+            throw new IOException("Compresión Parquet no soportada: " + codec);
+        }
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(datos))) {
+            byte[] resultado = gzip.readNBytes(longitudOriginal);
+            if (resultado.length != longitudOriginal) {
+                throw new IOException("Página Parquet corrupta");
+            }
+            return resultado;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
@@ -0,0 +1,189 @@
+package com.EcoMarket.producto.exportacion;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Protocolo compacto de Thrift, lo justo para los metadatos de Parquet (pie del
+ * fichero y cabeceras de página): estructuras con campos i32, i64, binarios, booleanos,
+ * listas y estructuras anidadas.
+ *
+ * El escritor se usa encadenado siguiendo los ids de campo de parquet.thrift; el lector
+ * devuelve cada estructura como un mapa id de campo -> valor (Integer, Long, byte[],
+ * Boolean, List o Map).
+ */
+final class ThriftCompacto {
+
+    static final int BOOLEANO_CIERTO = 1;
+    static final int BOOLEANO_FALSO = 2;
+    static final int BYTE = 3;
+    static final int I16 = 4;
+    static final int I32 = 5;
+    static final int I64 = 6;
+    static final int DOUBLE = 7;
+    static final int BINARIO = 8;
+    static final int LISTA = 9;
+    static final int CONJUNTO = 10;
+    static final int MAPA = 11;
+    static final int ESTRUCTURA = 12;
+
+    private ThriftCompacto() {
+    }
+
+    /**
+     * Escritor de una estructura; fin() cierra la estructura abierta en curso.
+     */
+    static final class Escritor {
+        private final ByteArrayOutputStream salida = new ByteArrayOutputStream(256);
+        private final Deque<Integer> anteriores = new ArrayDeque<>();
+        private int ultimo;
+
+        Escritor i32(int campo, int valor) {
+            cabecera(campo, I32);
+            varint(zigzag(valor));
+            return this;
+        }
+
+        Escritor i64(int campo, long valor) {
+            cabecera(campo, I64);
+            varint(zigzag(valor));
+            return this;
+        }
+
+        Escritor binario(int campo, byte[] valor) {
+            cabecera(campo, BINARIO);
+            varint(valor.length);
+            salida.writeBytes(valor);
+            return this;
+        }
+
+        Escritor texto(int campo, String valor) {
+            return binario(campo, valor.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Escritor booleano(int campo, boolean valor) {
+            cabecera(campo, valor ? BOOLEANO_CIERTO : BOOLEANO_FALSO);
+            return this;
+        }
+
+        Escritor estructura(int campo) {
+            cabecera(campo, ESTRUCTURA);
+            return abrir();
+        }
+
+        // Lista de tamano elementos; los de tipo ESTRUCTURA se escriben con elemento() ... fin()
+        Escritor lista(int campo, int tipoElemento, int tamano) {
+            cabecera(campo, LISTA);
+            if (tamano < 15) {
+                salida.write(tamano << 4 | tipoElemento);
+            } else {
+                salida.write(0xF0 | tipoElemento);
+                varint(tamano);
+            }
+            return this;
+        }
+
+        Escritor elemento() {
+            return abrir();
+        }
+
+        Escritor i32Elemento(int valor) {
+            varint(zigzag(valor));
+            return this;
+        }
+
+        Escritor textoElemento(String valor) {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            salida.writeBytes(bytes);
+            return this;
+        }
+
+        Escritor fin() {
+            salida.write(0);
+            ultimo = anteriores.isEmpty() ? 0 : anteriores.pop();
+            return this;
+        }
+
+        byte[] bytes() {
+            return salida.toByteArray();
+        }
+
+        private Escritor abrir() {
+            anteriores.push(ultimo);
+            ultimo = 0;
+            return this;
+        }
+
+        private void cabecera(int campo, int tipo) {
+            int delta = campo - ultimo;
+            if (delta > 0 && delta <= 15) {
+                salida.write(delta << 4 | tipo);
+            } else {
+                salida.write(tipo);
+                varint(zigzag(campo));
+            }
+            ultimo = campo;
+        }
+
+        private void varint(long valor) {
+            EscritorColumnar.escribirVarint(salida, valor);
+        }
+    }
+
+    /**
+     * Lee una estructura desde la posición actual y deja el buffer detrás de su STOP.
+     */
+    static Map<Integer, Object> leerEstructura(ByteBuffer datos) {
+        Map<Integer, Object> campos = new HashMap<>();
+        int ultimo = 0;
+        while (true) {
+            int cabecera = datos.get() & 0xFF;
+            if (cabecera == 0) {
+                return campos;
+            }
+            int tipo = cabecera & 0x0F;
+            int delta = cabecera >>> 4;
+            int campo = delta != 0 ? ultimo + delta : (int) EscritorColumnar.unzigzag(EscritorColumnar.leerVarint(datos));
+            campos.put(campo, tipo == BOOLEANO_CIERTO || tipo == BOOLEANO_FALSO ? tipo == BOOLEANO_CIERTO : leerValor(datos, tipo));
+            ultimo = campo;
+        }
+    }
+
+    private static Object leerValor(ByteBuffer datos, int tipo) {
+        return switch (tipo) {
+            case BOOLEANO_CIERTO, BOOLEANO_FALSO -> datos.get() == BOOLEANO_CIERTO;
+            case BYTE -> datos.get();
+            case I16, I32 -> (int) EscritorColumnar.unzigzag(EscritorColumnar.leerVarint(datos));
+            case I64 -> EscritorColumnar.unzigzag(EscritorColumnar.leerVarint(datos));
+            case DOUBLE -> Double.longBitsToDouble(Long.reverseBytes(datos.getLong()));
+            case BINARIO -> {
+                byte[] bytes = new byte[(int) EscritorColumnar.leerVarint(datos)];
+                datos.get(bytes);
+                yield bytes;
+            }
+            case LISTA, CONJUNTO -> {
+                int cabecera = datos.get() & 0xFF;
+                int tamano = cabecera >>> 4 == 15 ? (int) EscritorColumnar.leerVarint(datos) : cabecera >>> 4;
+                List<Object> elementos = new ArrayList<>(tamano);
+                for (int i = 0; i < tamano; i++) {
+                    elementos.add(leerValor(datos, cabecera & 0x0F));
+                }
+                yield elementos;
+            }
+            case ESTRUCTURA -> leerEstructura(datos);
+            default -> throw new IllegalArgumentException("Tipo Thrift no soportado: " + tipo);
+        };
+    }
+
+    private static long zigzag(long v) {
+        return EscritorColumnar.zigzag(v);
+    }
+}
@@ -0,0 +1,543 @@
+package com.EcoMarket.producto.importacion;
+
+import com.EcoMarket.producto.busqueda.FiltroBloom;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.Colacion;
+import com.EcoMarket.producto.repository.ProductoRepository;
+import com.EcoMarket.producto.service.ExistenciaProductoService;
+import com.EcoMarket.producto.service.InsercionProductos;
+import com.EcoMarket.producto.service.ProductoService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Importación de productos desde CSV en streaming.
+ *
+ * Los equipos de catálogo mantienen los productos en hojas de cálculo y los daban de
+ * alta con un POST por fila. Aquí el cuerpo de la petición se lee registro a registro:
+ * - El hilo de la petición junta bloques de importacion.lote filas y los valida en
+ *   paralelo en el pool "importacion-N" (obligatorios, longitudes, precio, activo).
+ * - Los bloques validados se escriben en el orden del fichero, cada uno en su
+ *   transacción: descarta los códigos repetidos en el fichero y los que ya existen
+ *   (una consulta IN a ProductoRepository por bloque) e inserta el resto con un batch
+ *   JDBC (InsercionProductos), publicando sus eventos CREADO como en el alta normal.
+ *   Los códigos se comparan con la colación de la columna (Colacion): "abc" repite a
+ *   "ABC" en el fichero y existe si está "Abc".
+ * - Como mucho hay importacion.lotes-en-vuelo bloques leídos sin escribir. Con el
+ *   límite alcanzado el hilo deja de leer (y TCP frena al cliente) hasta escribir el
+ *   más antiguo, así que la memoria no depende del tamaño del fichero.
+ * - Cada fila rechazada va a un informe CSV (linea, codigo, motivo, detalle) que se
+ *   descarga después.
+ *
+ * Un código repetido en el fichero se reconoce porque ya existe en la base de datos y
+ * está en el filtro de Bloom de los insertados por esta importación (tamaño fijo, sea
+ * cual sea el fichero): con probabilidad importacion.falso-positivo un código que ya
+ * existía se informa como CODIGO_REPETIDO en vez de CODIGO_EXISTENTE. Un bloque que
+ * falla no deshace los anteriores; el informe dice qué filas no se guardaron.
+ */
+@Service
+public class ImportacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionService.class);
+
+    // Longitudes de V1__esquema_inicial.sql
+    static final int LONGITUD_TEXTO = 255;
+    static final int LONGITUD_DESCRIPCION = 1000;
+    private static final int MAXIMO_CARACTERES_REGISTRO = 16_384;
+
+    public enum Motivo { INVALIDA, CODIGO_REPETIDO, CODIGO_EXISTENTE, ERROR }
+
+    public enum EstadoImportacion { EN_CURSO, COMPLETADA, INTERRUMPIDA }
+
+    /**
+     * Resultado de una importación; rechazados son las filas del informe de errores.
+     */
+    public record Informe(String id, EstadoImportacion estado, long filas, long creados, long rechazados,
+            long duracionMs, double filasPorSegundo, String error) {
+    }
+
+    record Registro(long linea, List<String> campos) {
+    }
+
+    // Fila validada; motivo null mientras se puede guardar
+    static final class Fila {
+        final long linea;
+        final String codigo;
+        final Producto producto;
+        Motivo motivo;
+        String detalle;
+
+        Fila(long linea, String codigo, Producto producto) {
+            this.linea = linea;
+            this.codigo = codigo;
+            this.producto = producto;
+        }
+
+        Fila rechazar(Motivo motivo, String detalle) {
+            this.motivo = motivo;
+            this.detalle = detalle;
+            return this;
+        }
+    }
+
+    /**
+     * Posición de cada campo según la cabecera (-1 si no viene). Las columnas
+     * desconocidas se ignoran.
+     */
+    record Columnas(int total, int codigo, int nombre, int descripcion, int precio, int categoria, int activo) {
+
+        static Columnas de(List<String> cabecera) {
+            if (cabecera == null) {
+                throw new IllegalArgumentException("El fichero está vacío");
+            }
+            Map<String, Integer> posiciones = new HashMap<>();
+            for (int i = 0; i < cabecera.size(); i++) {
+                String nombre = cabecera.get(i).trim().toLowerCase(Locale.ROOT);
+                if (!nombre.isEmpty() && posiciones.put(nombre, i) != null) {
+                    throw new IllegalArgumentException("Columna repetida en la cabecera: " + nombre);
+                }
+            }
+            for (String obligatoria : List.of("codigo", "nombre", "precio")) {
+                if (!posiciones.containsKey(obligatoria)) {
+                    throw new IllegalArgumentException("Falta la columna " + obligatoria + " en la cabecera");
+                }
+            }
+            return new Columnas(cabecera.size(), posiciones.get("codigo"), posiciones.get("nombre"),
+                posiciones.getOrDefault("descripcion", -1), posiciones.get("precio"),
+                posiciones.getOrDefault("categoria", -1), posiciones.getOrDefault("activo", -1));
+        }
+    }
+
+    final class Importacion {
+        final String id = UUID.randomUUID().toString();
+        final Path errores = Path.of(directorioBase).resolve(id + "-errores.csv");
+        final long inicio = System.nanoTime();
+        final FiltroBloom insertados = new FiltroBloom(codigosEsperados, falsoPositivo);
+        volatile long filas;
+        volatile long creados;
+        volatile long rechazados;
+        volatile EstadoImportacion estado = EstadoImportacion.EN_CURSO;
+        volatile String error;
+        volatile long fin;
+        volatile long terminada;
+
+        Informe informe() {
+            long duracion = ((fin == 0 ? System.nanoTime() : fin) - inicio) / 1_000_000;
+            return new Informe(id, estado, filas, creados, rechazados, duracion,
+                duracion == 0 ? 0 : filas * 1000.0 / duracion, error);
+        }
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ExistenciaProductoService existenciaService;
+
+    @Value("${importacion.directorio:./importaciones}")
+    private String directorioBase = "./importaciones";
+
+    @Value("${importacion.hilos:4}")
+    private int hilos = 4;
+
+    @Value("${importacion.lote:1000}")
+    private int tamanoLote = 1000;
+
+    @Value("${importacion.lotes-en-vuelo:8}")
+    private int lotesEnVuelo = 8;
+
+    @Value("${importacion.codigos-esperados:5000000}")
+    private long codigosEsperados = 5_000_000;
+
+    @Value("${importacion.falso-positivo:0.001}")
+    private double falsoPositivo = 0.001;
+
+    @Value("${importacion.retencion-ms:86400000}")
+    private long retencionMs = 86_400_000;
+
+    private final Map<String, Importacion> importaciones = new ConcurrentHashMap<>();
+    private ExecutorService pool;
+
+    @PostConstruct
+    public void iniciar() {
+        AtomicInteger numero = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "importacion-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    public void detener() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Importa el CSV hasta el final del cuerpo. La primera fila es la cabecera con los
+     * nombres de columna: codigo, nombre y precio obligatorias; descripcion, categoria
+     * y activo opcionales (activo vacío es true).
+     *
+     * Un error de lectura (cliente desconectado, comillas sin cerrar) interrumpe la
+     * importación: lo ya escrito se queda y el informe queda INTERRUMPIDA.
+     *
+     * @throws IllegalArgumentException si el separador o la cabecera no son válidos
+     */
+    public Informe importar(InputStream entrada, char separador) throws IOException {
+        if (separador == '"' || separador == '\r' || separador == '\n') {
+            throw new IllegalArgumentException("Separador no válido");
+        }
+        LectorCsv lector = new LectorCsv(new InputStreamReader(entrada, StandardCharsets.UTF_8), separador,
+            MAXIMO_CARACTERES_REGISTRO);
+        Columnas columnas;
+        try {
+            columnas = Columnas.de(lector.siguiente());
+        } catch (IOException | IllegalArgumentException e) {
+            lector.close();
+            throw new IllegalArgumentException(e instanceof IOException ? "Cabecera no válida: " + e.getMessage() : e.getMessage());
+        }
+        Files.createDirectories(Path.of(directorioBase));
+        Importacion importacion = new Importacion();
+        importaciones.put(importacion.id, importacion);
+        Deque<Future<List<Fila>>> enVuelo = new ArrayDeque<>();
+        try (BufferedWriter errores = Files.newBufferedWriter(importacion.errores, StandardCharsets.UTF_8)) {
+            errores.write("linea,codigo,motivo,detalle\n");
+            try {
+                List<Registro> bloque = new ArrayList<>(tamanoLote);
+                List<String> campos;
+                while ((campos = lector.siguiente()) != null) {
+                    bloque.add(new Registro(lector.linea(), campos));
+                    if (bloque.size() == tamanoLote) {
+                        enviar(enVuelo, columnas, bloque, separador);
+                        bloque = new ArrayList<>(tamanoLote);
+                        // Contrapresión: no se lee más hasta escribir el bloque más antiguo
+                        if (enVuelo.size() >= lotesEnVuelo) {
+                            escribir(importacion, esperar(enVuelo.poll()), errores);
+                        }
+                    }
+                }
+                if (!bloque.isEmpty()) {
+                    enviar(enVuelo, columnas, bloque, separador);
+                }
+                while (!enVuelo.isEmpty()) {
+                    escribir(importacion, esperar(enVuelo.poll()), errores);
+                }
+                importacion.estado = EstadoImportacion.COMPLETADA;
+            } catch (IOException | RuntimeException e) {
+                enVuelo.forEach(f -> f.cancel(true));
+                importacion.error = e.getMessage();
+                importacion.estado = EstadoImportacion.INTERRUMPIDA;
+                log.warn("Importación {} interrumpida tras {} filas: {}", importacion.id, importacion.filas, e.getMessage());
+            }
+        } finally {
+            importacion.fin = System.nanoTime();
+            importacion.terminada = System.currentTimeMillis();
+            lector.close();
+        }
+        Informe informe = importacion.informe();
+        log.info("Importación {} {}: {} filas, {} creadas, {} rechazadas en {} ms ({} filas/s)", informe.id(),
+            informe.estado(), informe.filas(), informe.creados(), informe.rechazados(), informe.duracionMs(),
+            Math.round(informe.filasPorSegundo()));
+        return informe;
+    }
+
+    private void enviar(Deque<Future<List<Fila>>> enVuelo, Columnas columnas, List<Registro> bloque, char separador) {
+        // Con ; como separador (Excel en español) el precio suele venir con coma decimal
+        boolean comaDecimal = separador != ',';
+        enVuelo.add(pool.submit(() -> bloque.stream().map(r -> validar(columnas, r, comaDecimal)).toList()));
+    }
+
+    private static List<Fila> esperar(Future<List<Fila>> bloque) {
+        try {
+            return bloque.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Fallo al validar un bloque", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importación interrumpida");
+        }
+    }
+
+    /**
+     * Valida un registro y construye su producto (sin consultar la base de datos).
+     */
+    static Fila validar(Columnas columnas, Registro registro, boolean comaDecimal) {
+        List<String> campos = registro.campos();
+        String codigo = campos.size() > columnas.codigo() ? campos.get(columnas.codigo()).trim() : null;
+        Fila fila = new Fila(registro.linea(), codigo, new Producto());
+        if (campos.size() != columnas.total()) {
+            return fila.rechazar(Motivo.INVALIDA,
+                "Se esperaban " + columnas.total() + " columnas y hay " + campos.size());
+        }
+        String nombre = campos.get(columnas.nombre()).trim();
+        String descripcion = texto(campos, columnas.descripcion());
+        String categoria = texto(campos, columnas.categoria());
+        String precio = campos.get(columnas.precio()).trim();
+        String activo = columnas.activo() < 0 ? "" : campos.get(columnas.activo()).trim().toLowerCase(Locale.ROOT);
+        if (codigo.isEmpty() || nombre.isEmpty() || precio.isEmpty()) {
+            return fila.rechazar(Motivo.INVALIDA, "codigo, nombre y precio son obligatorios");
+        }
+        if (codigo.length() > LONGITUD_TEXTO || nombre.length() > LONGITUD_TEXTO
+                || (categoria != null && categoria.length() > LONGITUD_TEXTO)) {
+            return fila.rechazar(Motivo.INVALIDA, "codigo, nombre y categoria admiten " + LONGITUD_TEXTO + " caracteres");
+        }
+        if (descripcion != null && descripcion.length() > LONGITUD_DESCRIPCION) {
+            return fila.rechazar(Motivo.INVALIDA, "descripcion admite " + LONGITUD_DESCRIPCION + " caracteres");
+        }
+        BigDecimal valor;
+        try {
+            valor = new BigDecimal(comaDecimal ? precio.replace(',', '.') : precio).setScale(2, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            return fila.rechazar(Motivo.INVALIDA, "precio no es un número: " + precio);
+        }
+        if (valor.signum() < 0) {
+            return fila.rechazar(Motivo.INVALIDA, "precio negativo");
+        }
+        Boolean esActivo = switch (activo) {
+            case "", "true", "1", "si", "sí", "s" -> Boolean.TRUE;
+            case "false", "0", "no", "n" -> Boolean.FALSE;
+            default -> null;
+        };
+        if (esActivo == null) {
+            return fila.rechazar(Motivo.INVALIDA, "activo no válido: " + activo);
+        }
+        Producto producto = fila.producto;
+        producto.setCodigo(codigo);
+        producto.setNombre(nombre);
+        producto.setDescripcion(descripcion);
+        producto.setPrecio(valor);
+        producto.setCategoria(categoria);
+        producto.setActivo(esActivo);
+        return fila;
+    }
+
+    private static String texto(List<String> campos, int posicion) {
+        if (posicion < 0) {
+            return null;
+        }
+        String valor = campos.get(posicion).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    // En el hilo de la petición y en el orden del fichero
+    private void escribir(Importacion importacion, List<Fila> filas, BufferedWriter errores) throws IOException {
+        Set<String> enBloque = new HashSet<>(filas.size() * 2);
+        List<Fila> validas = new ArrayList<>(filas.size());
+        for (Fila fila : filas) {
+            if (fila.motivo != null) {
+                continue;
+            }
+            if (!enBloque.add(Colacion.clave(fila.codigo))) {
+                fila.rechazar(Motivo.CODIGO_REPETIDO, "Código repetido en el fichero");
+            } else {
+                validas.add(fila);
+            }
+        }
+        List<Fila> nuevas = new ArrayList<>(validas.size());
+        Set<String> existentes = codigosExistentes(validas);
+        for (Fila fila : validas) {
+            if (!existentes.contains(Colacion.clave(fila.codigo))) {
+                nuevas.add(fila);
+            } else if (importacion.insertados.puedeContener(Colacion.clave(fila.codigo))) {
+                fila.rechazar(Motivo.CODIGO_REPETIDO, "Código repetido en el fichero");
+            } else {
+                fila.rechazar(Motivo.CODIGO_EXISTENTE, "El código ya existe");
+            }
+        }
+        if (!nuevas.isEmpty()) {
+            guardar(nuevas);
+        }
+
+        long creados = 0;
+        for (Fila fila : filas) {
+            if (fila.motivo == null) {
+                importacion.insertados.agregar(Colacion.clave(fila.codigo));
+                creados++;
+            } else {
+                errores.write(fila.linea + "," + csv(fila.codigo) + "," + fila.motivo + "," + csv(fila.detalle) + "\n");
+            }
+        }
+        importacion.filas += filas.size();
+        importacion.creados += creados;
+        importacion.rechazados += filas.size() - creados;
+    }
+
+    // Un lote fallido (p. ej. otra petición dio de alta el mismo código a la vez) se repite fila a fila
+    private void guardar(List<Fila> nuevas) {
+        try {
+            transactionTemplate.executeWithoutResult(estado -> InsercionProductos.insertar(jdbcTemplate, eventPublisher,
+                nuevas.stream().map(f -> f.producto).toList()));
+        } catch (RuntimeException e) {
+            log.debug("Bloque de {} filas fallido, se guardan una a una: {}", nuevas.size(), e.getMessage());
+            for (Fila fila : nuevas) {
+                fila.producto.setId(null);
+                try {
+                    productoService.guardar(fila.producto);
+                } catch (RuntimeException error) {
+                    boolean existente = "El código ya existe".equals(error.getMessage())
+                        || ProductoService.esClaveDuplicada(error);
+                    fila.rechazar(existente ? Motivo.CODIGO_EXISTENTE : Motivo.ERROR,
+                        existente ? "El código ya existe" : error.getMessage());
+                }
+            }
+        }
+    }
+
+    // Solo pregunta por los códigos que el filtro de ExistenciaProductoService no descarta.
+    // Devuelve las claves (Colacion.clave) de los existentes, que pueden diferir en mayúsculas o tildes.
+    private Set<String> codigosExistentes(List<Fila> filas) {
+        List<String> dudosos = new ArrayList<>(filas.size());
+        for (Fila fila : filas) {
+            if (existenciaService == null || !existenciaService.codigoAusente(fila.codigo)) {
+                dudosos.add(fila.codigo);
+            }
+        }
+        if (dudosos.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> existentes = new HashSet<>();
+        for (String codigo : productoRepository.findCodigosExistentes(dudosos)) {
+            existentes.add(Colacion.clave(codigo));
+        }
+        return existentes;
+    }
+
+    private static String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    public Optional<Informe> informe(String id) {
+        return Optional.ofNullable(importaciones.get(id)).map(Importacion::informe);
+    }
+
+    public List<Informe> listar() {
+        return importaciones.values().stream().map(Importacion::informe).toList();
+    }
+
+    /**
+     * Informe de filas rechazadas, cuando la importación ya ha terminado.
+     */
+    public Optional<Path> errores(String id) {
+        Importacion importacion = importaciones.get(id);
+        if (importacion == null || importacion.estado == EstadoImportacion.EN_CURSO || !Files.exists(importacion.errores)) {
+            return Optional.empty();
+        }
+        return Optional.of(importacion.errores);
+    }
+
+    /**
+     * Olvida las importaciones terminadas hace más de importacion.retencion-ms y borra sus informes.
+     */
+    @Scheduled(fixedDelayString = "${importacion.limpieza-ms:3600000}", initialDelayString = "${importacion.limpieza-ms:3600000}")
+    public void limpiar() {
+        long limite = System.currentTimeMillis() - retencionMs;
+        importaciones.values().removeIf(importacion -> {
+            if (importacion.terminada == 0 || importacion.terminada > limite) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(importacion.errores);
+            } catch (IOException e) {
+                log.debug("No se pudo borrar {}: {}", importacion.errores, e.getMessage());
+            }
+            return true;
+        });
+    }
+
+    public void setProductoRepository(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    public void setProductoService(ProductoService productoService) {
+        this.productoService = productoService;
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void setExistenciaService(ExistenciaProductoService existenciaService) {
+        this.existenciaService = existenciaService;
+    }
+
+    public void setDirectorioBase(String directorioBase) {
+        this.directorioBase = directorioBase;
+    }
+
+    public void setTamanoLote(int tamanoLote) {
+        this.tamanoLote = tamanoLote;
+    }
+
+    public void setLotesEnVuelo(int lotesEnVuelo) {
+        this.lotesEnVuelo = lotesEnVuelo;
+    }
+
+    public void setCodigosEsperados(long codigosEsperados) {
+        this.codigosEsperados = codigosEsperados;
+    }
+}
@@ -0,0 +1,152 @@
+package com.EcoMarket.producto.importacion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de CSV (RFC 4180) que devuelve un registro cada vez, sin cargar el fichero.
+ *
+ * Admite campos entre comillas con separadores, saltos de línea y comillas dobladas
+ * (""), finales de línea \n o \r\n y BOM UTF-8 al principio. Un registro no puede
+ * pasar de maximoCaracteres: una comilla sin cerrar se tragaría el resto del fichero,
+ * así que se corta con error en vez de agotar la memoria.
+ */
+public class LectorCsv implements Closeable {
+
+    private static final int FIN = -1;
+    private static final int NINGUNO = -2;
+
+    private final Reader entrada;
+    private final char separador;
+    private final int maximoCaracteres;
+    private final char[] buffer = new char[8192];
+    private int posicion;
+    private int limite;
+    private int devuelto = NINGUNO;
+    private long linea = 1;
+    private long lineaRegistro;
+    private boolean primero = true;
+
+    public LectorCsv(Reader entrada, char separador, int maximoCaracteres) {
+        this.entrada = entrada;
+        this.separador = separador;
+        this.maximoCaracteres = maximoCaracteres;
+    }
+
+    /**
+     * Siguiente registro no vacío, o null al final del fichero.
+     *
+     * @throws IOException si falla la lectura, hay una comilla sin cerrar o el registro es demasiado largo
+     */
+    public List<String> siguiente() throws IOException {
+        int c = leer();
+        if (primero) {
+            primero = false;
+            if (c == '\uFEFF') {
+                c = leer();
+            }
+        }
+        // Las líneas en blanco no son registros
+        while (c == '\r' || c == '\n') {
+            finDeLinea(c);
+            c = leer();
+        }
+        if (c == FIN) {
+            return null;
+        }
+        lineaRegistro = linea;
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        int caracteres = 0;
+        boolean entreComillas = false;
+        boolean citado = false;
+        while (true) {
+            if (++caracteres > maximoCaracteres) {
+                throw new IOException("Registro de más de " + maximoCaracteres + " caracteres en la línea " + lineaRegistro);
+            }
+            if (entreComillas) {
+                if (c == FIN) {
+                    throw new IOException("Comillas sin cerrar desde la línea " + lineaRegistro);
+                }
+                if (c == '"') {
+                    c = leer();
+                    if (c == '"') {
+                        campo.append('"');
+                        c = leer();
+                    } else {
+                        entreComillas = false;
+                    }
+                    continue;
+                }
+                if (c == '\n') {
+                    linea++;
+                }
+                campo.append((char) c);
+                c = leer();
+                continue;
+            }
+            if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+                citado = false;
+                c = leer();
+            } else if (c == FIN || c == '\r' || c == '\n') {
+                campos.add(campo.toString());
+                if (c != FIN) {
+                    finDeLinea(c);
+                }
+                return campos;
+            } else if (c == '"' && campo.length() == 0 && !citado) {
+                entreComillas = true;
+                citado = true;
+                c = leer();
+            } else {
+                campo.append((char) c);
+                c = leer();
+            }
+        }
+    }
+
+    /**
+     * Línea del fichero (desde 1) donde empieza el último registro devuelto.
+     */
+    public long linea() {
+        return lineaRegistro;
+    }
+
+    // c es \n o \r; un \r seguido de \n es un solo fin de línea
+    private void finDeLinea(int c) throws IOException {
+        if (c == '\r') {
+            int siguiente = leer();
+            if (siguiente != '\n') {
+                devuelto = siguiente;
+            }
+        }
+        linea++;
+    }
+
+    private int leer() throws IOException {
+        if (devuelto != NINGUNO) {
+            int c = devuelto;
+            devuelto = NINGUNO;
+            return c;
+        }
+        if (posicion == limite) {
+            limite = entrada.read(buffer, 0, buffer.length);
+            posicion = 0;
+            if (limite <= 0) {
+                limite = 0;
+                return FIN;
+            }
+        }
+        return buffer[posicion++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+}
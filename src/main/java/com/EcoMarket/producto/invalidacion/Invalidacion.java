@@ -0,0 +1,13 @@
+package com.EcoMarket.producto.invalidacion;
+
+/**
+ * Aviso de que una entidad cambió en alguna instancia.
+ *
+ * @param origen id de la instancia que hizo el cambio (vacío si el transporte no lo conoce)
+ * @param entidad PRODUCTO o INVENTARIO
+ * @param id id de la entidad
+ * @param version versión de la entidad tras el cambio (entidad_version)
+ * @param instante momento del cambio en milisegundos epoch, para medir la propagación
+ */
+public record Invalidacion(String origen, String entidad, long id, long version, long instante) {
+}
@@ -0,0 +1,316 @@
+package com.EcoMarket.producto.invalidacion;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.repository.InventarioRepository;
+import com.EcoMarket.producto.repository.ProductoRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Invalidación de los datos en memoria entre instancias.
+ *
+ * Los índices y agregados en memoria (catálogo, autocompletado, búsqueda, stock,
+ * valoración, reposición...) se mantienen con los eventos de las escrituras de su
+ * propia instancia. Con varias instancias tras el gateway, este bus:
+ *
+ * 1. Apunta las entidades que cambia cada transacción local, incrementa su versión en
+ *    entidad_version justo antes del commit (un upsert por transacción) y tras el
+ *    commit difunde las invalidaciones por el transporte configurado
+ *    (invalidacion.transporte: tabla, multicast o memoria).
+ * 2. Al recibir una invalidación de otra instancia con una versión nueva, relee la
+ *    entidad y publica un ProductoCambiadoEvent o InventarioCambiadoEvent con
+ *    remoto=true, así cada caché se refresca por el mismo camino que con un cambio
+ *    local. Las repetidas, antiguas o propias se descartan por versión.
+ *
+ * El tiempo desde el cambio hasta aplicarlo en esta instancia se mide en el timer
+ * ecomarket.invalidacion.propagacion y se resume en /actuator/invalidacion.
+ */
+@Service
+public class InvalidacionBus {
+
+    private static final Logger log = LoggerFactory.getLogger(InvalidacionBus.class);
+
+    public static final String PRODUCTO = "PRODUCTO";
+    public static final String INVENTARIO = "INVENTARIO";
+
+    /**
+     * Contadores del bus y latencia de propagación en milisegundos.
+     */
+    public record Informe(String transporte, String nodo, long enviadas, long recibidas, long aplicadas,
+            long descartadas, long errores, Map<String, Object> propagacion) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private List<TransporteInvalidacion> disponibles = List.of();
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> registry;
+
+    @Value("${invalidacion.transporte:}")
+    private String transporte = "";
+
+    // Entidad cambiada en una transacción; ordenadas para que el upsert bloquee sus filas siempre en el mismo orden
+    private record Entidad(String tipo, long id) implements Comparable<Entidad> {
+
+        @Override
+        public int compareTo(Entidad otra) {
+            int c = tipo.compareTo(otra.tipo);
+            return c != 0 ? c : Long.compare(id, otra.id);
+        }
+    }
+
+    private final String nodo = UUID.randomUUID().toString();
+    // Última versión conocida de cada entidad ("PRODUCTO:12")
+    private final Map<String, Long> versiones = new ConcurrentHashMap<>();
+    private final AtomicLong enviadas = new AtomicLong();
+    private final AtomicLong recibidas = new AtomicLong();
+    private final AtomicLong aplicadas = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+    private TransporteInvalidacion activo;
+    private Timer propagacion;
+    private Clock reloj = Clock.systemUTC();
+
+    @PostConstruct
+    public void iniciar() {
+        propagacion = Timer.builder("ecomarket.invalidacion.propagacion")
+            .description("Tiempo desde un cambio en otra instancia hasta aplicarlo en esta")
+            .publishPercentiles(0.5, 0.9, 0.99)
+            .register(registry == null ? new SimpleMeterRegistry() : registry.getIfAvailable(SimpleMeterRegistry::new));
+        if (transporte.isBlank()) {
+            return;
+        }
+        activo = disponibles.stream().filter(t -> t.nombre().equals(transporte)).findFirst()
+            .orElseThrow(() -> new IllegalStateException("Transporte de invalidación desconocido: " + transporte));
+        activo.iniciar(this::recibir);
+        log.info("Invalidación entre instancias por {} (nodo {})", transporte, nodo);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (activo != null) {
+            activo.detener();
+        }
+    }
+
+    @EventListener
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        if (!evento.remoto()) {
+            anotar(PRODUCTO, evento.productoId());
+        }
+    }
+
+    @EventListener
+    public void alCambiarInventario(InventarioCambiadoEvent evento) {
+        if (!evento.remoto()) {
+            anotar(INVENTARIO, evento.inventarioId());
+        }
+    }
+
+    /**
+     * Apunta la entidad entre las cambiadas por la transacción en curso. Todas se
+     * versionan juntas justo antes del commit (la última sincronización) y el aviso
+     * sale solo si se confirma. Sin transacción se versiona y se difunde en el momento.
+     */
+    private void anotar(String entidad, Long id) {
+        if (activo == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versionar(Set.of(new Entidad(entidad, id))).forEach(this::difundir);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Entidad> cambiadas = (Set<Entidad>) TransactionSynchronizationManager.getResource(this);
+        if (cambiadas == null) {
+            Set<Entidad> nuevas = new TreeSet<>();
+            TransactionSynchronizationManager.bindResource(this, nuevas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private List<Invalidacion> versionadas = List.of();
+
+                @Override
+                public int getOrder() {
+                    return Ordered.LOWEST_PRECEDENCE;
+                }
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    versionadas = versionar(nuevas);
+                }
+
+                @Override
+                public void afterCommit() {
+                    versionadas.forEach(InvalidacionBus.this::difundir);
+                }
+
+                @Override
+                public void afterCompletion(int estado) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(InvalidacionBus.this);
+                }
+            });
+            cambiadas = nuevas;
+        }
+        cambiadas.add(new Entidad(entidad, id));
+    }
+
+    /**
+     * Incrementa la versión de las entidades con un solo upsert y las lee con una sola
+     * consulta. Con el transporte "tabla" toma antes un valor de invalidacion_secuencia:
+     * la fila del contador queda bloqueada hasta el commit, así que las transacciones
+     * se confirman en orden de secuencia y el sondeo no se salta ninguna.
+     */
+    private List<Invalidacion> versionar(Set<Entidad> entidades) {
+        long secuencia = 0;
+        if (activo instanceof TransporteTablaVersiones) {
+            // LAST_INSERT_ID() es por conexión: las dos sentencias van por la misma
+            secuencia = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+                try (Statement sentencia = con.createStatement()) {
+                    sentencia.executeUpdate("UPDATE invalidacion_secuencia SET valor = LAST_INSERT_ID(valor + 1) WHERE id = 1");
+                    try (ResultSet rs = sentencia.executeQuery("SELECT LAST_INSERT_ID()")) {
+                        rs.next();
+                        return rs.getLong(1);
+                    }
+                }
+            });
+        }
+        List<Object> argumentos = new ArrayList<>(entidades.size() * 3);
+        List<Object> claves = new ArrayList<>(entidades.size() * 2);
+        for (Entidad entidad : entidades) {
+            argumentos.addAll(List.of(entidad.tipo(), entidad.id(), secuencia));
+            claves.addAll(List.of(entidad.tipo(), entidad.id()));
+        }
+        jdbcTemplate.update("INSERT INTO entidad_version (entidad, entidad_id, version, actualizado, secuencia) VALUES "
+                + String.join(", ", Collections.nCopies(entidades.size(), "(?, ?, 1, " + TransporteTablaVersiones.AHORA + ", ?)"))
+                + " ON DUPLICATE KEY UPDATE version = version + 1, actualizado = VALUES(actualizado), "
+                + "secuencia = VALUES(secuencia)", argumentos.toArray());
+        return jdbcTemplate.query("SELECT entidad, entidad_id, version FROM entidad_version WHERE (entidad, entidad_id) IN ("
+                + String.join(", ", Collections.nCopies(entidades.size(), "(?, ?)")) + ")",
+            (rs, i) -> new Invalidacion(nodo, rs.getString(1), rs.getLong(2), rs.getLong(3), 0), claves.toArray());
+    }
+
+    // Versionada antes del commit; el instante de la propagación se toma ya confirmada
+    private void difundir(Invalidacion versionada) {
+        Invalidacion invalidacion = new Invalidacion(nodo, versionada.entidad(), versionada.id(), versionada.version(),
+            reloj.millis());
+        versiones.merge(clave(invalidacion.entidad(), invalidacion.id()), invalidacion.version(), Math::max);
+        try {
+            activo.publicar(invalidacion);
+            enviadas.incrementAndGet();
+        } catch (Exception e) {
+            // El cambio ya está confirmado: las otras instancias lo verán con el siguiente
+            errores.incrementAndGet();
+            log.warn("No se pudo difundir la invalidación {}: {}", invalidacion, e.getMessage());
+        }
+    }
+
+    void recibir(Invalidacion invalidacion) {
+        recibidas.incrementAndGet();
+        if (nodo.equals(invalidacion.origen())) {
+            descartadas.incrementAndGet();
+            return;
+        }
+        String clave = clave(invalidacion.entidad(), invalidacion.id());
+        // Las versiones empiezan en 1: 0 = entidad sin versión conocida
+        long[] conocida = new long[1];
+        versiones.compute(clave, (k, v) -> {
+            conocida[0] = v == null ? 0 : v;
+            return Math.max(conocida[0], invalidacion.version());
+        });
+        if (conocida[0] >= invalidacion.version()) {
+            descartadas.incrementAndGet();
+            return;
+        }
+        try {
+            refrescar(invalidacion);
+            aplicadas.incrementAndGet();
+            propagacion.record(Math.max(0, reloj.millis() - invalidacion.instante()), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Sin versión registrada la siguiente invalidación de la entidad se vuelve a aplicar
+            versiones.remove(clave, invalidacion.version());
+            errores.incrementAndGet();
+            log.warn("No se pudo aplicar la invalidación {}: {}", invalidacion, e.getMessage());
+        }
+    }
+
+    // Relee la entidad y la publica como cambio remoto; si ya no existe, como eliminada
+    private void refrescar(Invalidacion invalidacion) {
+        if (PRODUCTO.equals(invalidacion.entidad())) {
+            eventPublisher.publishEvent(productoRepository.findById(invalidacion.id())
+                .map(p -> new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, p.getId(), null, p, true))
+                .orElseGet(() -> new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ELIMINADO, invalidacion.id(),
+                    null, null, true)));
+        } else if (INVENTARIO.equals(invalidacion.entidad())) {
+            eventPublisher.publishEvent(inventarioRepository.findById(invalidacion.id())
+                .map(i -> new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ACTUALIZADO, i.getId(), null, i, true))
+                .orElseGet(() -> new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, invalidacion.id(),
+                    null, null, true)));
+        }
+    }
+
+    private static String clave(String entidad, long id) {
+        return entidad + ":" + id;
+    }
+
+    public Informe informe() {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("muestras", propagacion.count());
+        for (ValueAtPercentile percentil : propagacion.takeSnapshot().percentileValues()) {
+            resumen.put("p" + Math.round(percentil.percentile() * 100), percentil.value(TimeUnit.MILLISECONDS));
+        }
+        resumen.put("max", propagacion.max(TimeUnit.MILLISECONDS));
+        return new Informe(activo == null ? null : activo.nombre(), nodo, enviadas.get(), recibidas.get(),
+            aplicadas.get(), descartadas.get(), errores.get(), resumen);
+    }
+
+    public void setReloj(Clock reloj) {
+        this.reloj = reloj;
+    }
+}
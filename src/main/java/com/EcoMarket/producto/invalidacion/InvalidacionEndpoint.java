@@ -0,0 +1,24 @@
+package com.EcoMarket.producto.invalidacion;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/invalidacion: invalidaciones enviadas, recibidas y latencia de propagación.
+ */
+@Component
+@Endpoint(id = "invalidacion")
+public class InvalidacionEndpoint {
+
+    private final InvalidacionBus invalidacionBus;
+
+    public InvalidacionEndpoint(InvalidacionBus invalidacionBus) {
+        this.invalidacionBus = invalidacionBus;
+    }
+
+    @ReadOperation
+    public InvalidacionBus.Informe informe() {
+        return invalidacionBus.informe();
+    }
+}
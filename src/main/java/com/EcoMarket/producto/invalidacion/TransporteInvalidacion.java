@@ -0,0 +1,27 @@
+package com.EcoMarket.producto.invalidacion;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Transporte de invalidaciones entre instancias.
+ *
+ * Puede entregar repetidas, desordenadas o las propias invalidaciones de la
+ * instancia: InvalidacionBus las descarta por origen y versión.
+ */
+public interface TransporteInvalidacion {
+
+    /**
+     * Nombre con el que se elige en invalidacion.transporte.
+     */
+    String nombre();
+
+    void iniciar(Consumer<Invalidacion> receptor);
+
+    /**
+     * Difunde una invalidación ya confirmada en la base de datos.
+     */
+    void publicar(Invalidacion invalidacion) throws IOException;
+
+    void detener();
+}
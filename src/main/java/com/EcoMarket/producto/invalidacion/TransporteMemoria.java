@@ -0,0 +1,52 @@
+package com.EcoMarket.producto.invalidacion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Transporte "memoria": broker de prueba compartido por todos los contextos de
+ * Spring de la misma JVM (varias instancias de la aplicación en un test). Entrega
+ * en el hilo que publica, a todas las instancias suscritas al mismo canal.
+ */
+@Component
+public class TransporteMemoria implements TransporteInvalidacion {
+
+    private static final Map<String, List<Consumer<Invalidacion>>> CANALES = new ConcurrentHashMap<>();
+
+    @Value("${invalidacion.memoria.canal:ecomarket}")
+    private String canal = "ecomarket";
+
+    private Consumer<Invalidacion> receptor;
+
+    @Override
+    public String nombre() {
+        return "memoria";
+    }
+
+    @Override
+    public void iniciar(Consumer<Invalidacion> receptor) {
+        this.receptor = receptor;
+        CANALES.computeIfAbsent(canal, c -> new CopyOnWriteArrayList<>()).add(receptor);
+    }
+
+    @Override
+    public void publicar(Invalidacion invalidacion) {
+        for (Consumer<Invalidacion> suscriptor : CANALES.getOrDefault(canal, List.of())) {
+            suscriptor.accept(invalidacion);
+        }
+    }
+
+    @Override
+    public void detener() {
+        List<Consumer<Invalidacion>> suscriptores = CANALES.get(canal);
+        if (suscriptores != null) {
+            suscriptores.remove(receptor);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.EcoMarket.producto.invalidacion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Transporte "multicast": un datagrama UDP por invalidación al grupo configurado.
+ * La latencia es la de la red local, pero UDP puede perder avisos; si no es
+ * aceptable que una caché quede desfasada hasta el siguiente cambio de esa entidad,
+ * usar el transporte "tabla".
+ *
+ * Formato: origen|entidad|id|version|instante en UTF-8.
+ */
+@Component
+public class TransporteMulticast implements TransporteInvalidacion {
+
+    private static final Logger log = LoggerFactory.getLogger(TransporteMulticast.class);
+
+    @Value("${invalidacion.multicast.grupo:239.255.42.99}")
+    private String grupo = "239.255.42.99";
+
+    @Value("${invalidacion.multicast.puerto:4446}")
+    private int puerto = 4446;
+
+    @Value("${invalidacion.multicast.ttl:1}")
+    private int ttl = 1;
+
+    private MulticastSocket socket;
+    private InetSocketAddress destino;
+    private volatile boolean activo;
+
+    @Override
+    public String nombre() {
+        return "multicast";
+    }
+
+    @Override
+    public void iniciar(Consumer<Invalidacion> receptor) {
+        try {
+            destino = new InetSocketAddress(InetAddress.getByName(grupo), puerto);
+            socket = new MulticastSocket(puerto);
+            socket.setTimeToLive(ttl);
+            socket.joinGroup(destino, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo unir al grupo multicast " + grupo + ":" + puerto, e);
+        }
+        activo = true;
+        Thread hilo = new Thread(() -> escuchar(receptor), "invalidacion-multicast");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    private void escuchar(Consumer<Invalidacion> receptor) {
+        byte[] buffer = new byte[512];
+        while (activo) {
+            DatagramPacket paquete = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(paquete);
+                Invalidacion invalidacion = decodificar(new String(paquete.getData(), 0, paquete.getLength(), StandardCharsets.UTF_8));
+                if (invalidacion != null) {
+                    receptor.accept(invalidacion);
+                }
+            } catch (IOException e) {
+                if (activo) {
+                    log.warn("Error recibiendo invalidaciones: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Error aplicando una invalidación: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void publicar(Invalidacion invalidacion) throws IOException {
+        byte[] datos = codificar(invalidacion).getBytes(StandardCharsets.UTF_8);
+        socket.send(new DatagramPacket(datos, datos.length, destino));
+    }
+
+    static String codificar(Invalidacion i) {
+        return i.origen() + "|" + i.entidad() + "|" + i.id() + "|" + i.version() + "|" + i.instante();
+    }
+
+    // null si el datagrama no es una invalidación
+    static Invalidacion decodificar(String texto) {
+        String[] partes = texto.split("\\|");
+        if (partes.length != 5) {
+            return null;
+        }
+        try {
+            return new Invalidacion(partes[0], partes[1], Long.parseLong(partes[2]), Long.parseLong(partes[3]),
+                Long.parseLong(partes[4]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void detener() {
+        activo = false;
+        if (socket != null) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.EcoMarket.producto.invalidacion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Transporte "tabla": cada instancia sondea entidad_version buscando filas con una
+ * secuencia mayor que la última vista. No necesita red entre instancias y no
+ * pierde avisos; la latencia es el intervalo de sondeo.
+ *
+ * InvalidacionBus toma la secuencia de invalidacion_secuencia justo antes del commit
+ * y su fila queda bloqueada hasta que se confirma, así que una transacción con
+ * secuencia menor nunca se confirma después de una con secuencia mayor: basta con
+ * leer lo posterior al cursor, sin margen de tiempo ni filas releídas.
+ */
+@Component
+public class TransporteTablaVersiones implements TransporteInvalidacion {
+
+    private static final Logger log = LoggerFactory.getLogger(TransporteTablaVersiones.class);
+
+    static final String AHORA = "ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${invalidacion.tabla.intervalo-ms:500}")
+    private long intervaloMs = 500;
+
+    @Value("${invalidacion.tabla.lote:1000}")
+    private int lote = 1000;
+
+    private static final String SQL_SONDEO =
+        "SELECT entidad, entidad_id, version, actualizado, secuencia FROM entidad_version WHERE ";
+    private static final String SQL_ORDEN = " ORDER BY secuencia, entidad, entidad_id LIMIT ?";
+
+    private record Fila(Invalidacion invalidacion, long secuencia) {
+    }
+
+    private static final RowMapper<Fila> FILA = (rs, i) -> new Fila(
+        new Invalidacion("", rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)), rs.getLong(5));
+
+    private ScheduledExecutorService sondeo;
+    private volatile long cursor;
+
+    @Override
+    public String nombre() {
+        return "tabla";
+    }
+
+    @Override
+    public void iniciar(Consumer<Invalidacion> receptor) {
+        cursor = jdbcTemplate.queryForObject("SELECT valor FROM invalidacion_secuencia WHERE id = 1", Long.class);
+        sondeo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "invalidacion-tabla");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        sondeo.scheduleWithFixedDelay(() -> sondear(receptor), intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Pagina por (secuencia, entidad, entidad_id): una transacción puede dejar más filas
+    // que un lote con la misma secuencia. El cursor avanza solo tras leerlas todas.
+    void sondear(Consumer<Invalidacion> receptor) {
+        try {
+            List<Fila> filas = jdbcTemplate.query(SQL_SONDEO + "secuencia > ?" + SQL_ORDEN, FILA, cursor, lote);
+            Fila ultima = null;
+            while (!filas.isEmpty()) {
+                filas.forEach(fila -> receptor.accept(fila.invalidacion()));
+                ultima = filas.get(filas.size() - 1);
+                if (filas.size() < lote) {
+                    break;
+                }
+                filas = jdbcTemplate.query(SQL_SONDEO + "(secuencia, entidad, entidad_id) > (?, ?, ?)" + SQL_ORDEN, FILA,
+                    ultima.secuencia(), ultima.invalidacion().entidad(), ultima.invalidacion().id(), lote);
+            }
+            if (ultima != null) {
+                cursor = ultima.secuencia();
+            }
+        } catch (RuntimeException e) {
+            // Lo ya leído se vuelve a leer en el siguiente sondeo; el bus lo descarta por versión
+            log.warn("No se pudo sondear entidad_version: {}", e.getMessage());
+        }
+    }
+
+    // La fila de entidad_version ya es el aviso
+    @Override
+    public void publicar(Invalidacion invalidacion) {
+    }
+
+    @Override
+    public void detener() {
+        if (sondeo != null) {
+            sondeo.shutdownNow();
+        }
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setLote(int lote) {
+        this.lote = lote;
+    }
+}
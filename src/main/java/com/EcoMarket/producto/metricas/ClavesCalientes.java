@@ -0,0 +1,81 @@
+package com.EcoMarket.producto.metricas;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Productos e inventarios más consultados en las GET por id de la API v2.
+ *
+ * Se registra una de cada "muestreo" peticiones en un SketchConteoMinimo por tipo y
+ * las claves con más frecuencia estimada se mantienen en un TopClaves. Al final de
+ * cada ventana los contadores se dividen entre dos, así que el top refleja sobre
+ * todo el tráfico de las últimas ventanas. Las frecuencias publicadas se multiplican
+ * por el muestreo para que estén en peticiones.
+ */
+@Component
+public class ClavesCalientes {
+
+    /**
+     * Top de un tipo de clave.
+     */
+    public record Informe(List<TopClaves.Clave> productos, List<TopClaves.Clave> inventarios,
+            int muestreo, long ventanaMs, long ventanas) {
+    }
+
+    private final int muestreo;
+    private final long ventanaMs;
+    private final SketchConteoMinimo sketchProductos;
+    private final SketchConteoMinimo sketchInventarios;
+    private final TopClaves topProductos;
+    private final TopClaves topInventarios;
+    private volatile long ventanas;
+
+    public ClavesCalientes(@Value("${claves-calientes.muestreo:8}") int muestreo,
+                           @Value("${claves-calientes.ventana-ms:60000}") long ventanaMs,
+                           @Value("${claves-calientes.top:20}") int top,
+                           @Value("${claves-calientes.ancho:4096}") int ancho,
+                           @Value("${claves-calientes.profundidad:4}") int profundidad) {
+        this.muestreo = Math.max(muestreo, 1);
+        this.ventanaMs = ventanaMs;
+        this.sketchProductos = new SketchConteoMinimo(ancho, profundidad);
+        this.sketchInventarios = new SketchConteoMinimo(ancho, profundidad);
+        this.topProductos = new TopClaves(top);
+        this.topInventarios = new TopClaves(top);
+    }
+
+    /**
+     * true para una de cada "muestreo" peticiones; lo único que paga el resto.
+     */
+    public boolean muestrear() {
+        return muestreo == 1 || ThreadLocalRandom.current().nextInt(muestreo) == 0;
+    }
+
+    public void registrarProducto(long id) {
+        topProductos.ofrecer(id, sketchProductos.incrementar(id));
+    }
+
+    public void registrarInventario(long id) {
+        topInventarios.ofrecer(id, sketchInventarios.incrementar(id));
+    }
+
+    @Scheduled(fixedRateString = "${claves-calientes.ventana-ms:60000}", initialDelayString = "${claves-calientes.ventana-ms:60000}")
+    public void decaer() {
+        sketchProductos.decaer();
+        sketchInventarios.decaer();
+        topProductos.decaer();
+        topInventarios.decaer();
+        ventanas++;
+    }
+
+    public Informe informe() {
+        return new Informe(escalar(topProductos.obtener()), escalar(topInventarios.obtener()), muestreo, ventanaMs, ventanas);
+    }
+
+    private List<TopClaves.Clave> escalar(List<TopClaves.Clave> claves) {
+        return claves.stream().map(c -> new TopClaves.Clave(c.clave(), c.frecuencia() * muestreo)).toList();
+    }
+}
@@ -0,0 +1,24 @@
+package com.EcoMarket.producto.metricas;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/clavescalientes: productos e inventarios más consultados.
+ */
+@Component
+@Endpoint(id = "clavescalientes")
+public class ClavesCalientesEndpoint {
+
+    private final ClavesCalientes clavesCalientes;
+
+    public ClavesCalientesEndpoint(ClavesCalientes clavesCalientes) {
+        this.clavesCalientes = clavesCalientes;
+    }
+
+    @ReadOperation
+    public ClavesCalientes.Informe claves() {
+        return clavesCalientes.informe();
+    }
+}
@@ -0,0 +1,67 @@
+package com.EcoMarket.producto.metricas;
+
+import com.EcoMarket.producto.arranque.CalentamientoService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Alimenta ClavesCalientes con el {id} de las GET de la API v2. Las peticiones no
+ * muestreadas solo pagan un número aleatorio; las muestreadas leen la variable de
+ * la ruta ya resuelta por Spring y la convierten a long sin crear objetos.
+ */
+public class ClavesCalientesInterceptor implements HandlerInterceptor {
+
+    private final ClavesCalientes clavesCalientes;
+    private final boolean productos;
+
+    /**
+     * @param productos true para /api/v2/productos, false para /api/v2/inventario
+     */
+    public ClavesCalientesInterceptor(ClavesCalientes clavesCalientes, boolean productos) {
+        this.clavesCalientes = clavesCalientes;
+        this.productos = productos;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) || !clavesCalientes.muestrear()
+                || request.getHeader(CalentamientoService.CABECERA) != null) {
+            return true;
+        }
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (!(variables instanceof Map<?, ?> mapa) || !(mapa.get("id") instanceof String id)) {
+            return true;
+        }
+        long valor = parsear(id);
+        if (valor >= 0) {
+            if (productos) {
+                clavesCalientes.registrarProducto(valor);
+            } else {
+                clavesCalientes.registrarInventario(valor);
+            }
+        }
+        return true;
+    }
+
+    // -1 si no es un número (la petición acabará en 400; no se cuenta)
+    static long parsear(String texto) {
+        if (texto.isEmpty() || texto.length() > 18) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+}
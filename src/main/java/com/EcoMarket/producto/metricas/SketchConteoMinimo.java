@@ -0,0 +1,81 @@
+package com.EcoMarket.producto.metricas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch de claves long.
+ *
+ * profundidad filas de ancho contadores; cada clave incrementa un contador por fila
+ * (un hash distinto por fila) y su frecuencia estimada es el mínimo de esos
+ * contadores: nunca por debajo de la real y, con alta probabilidad, como mucho
+ * total / ancho × e por encima. Memoria fija y sin reservas de memoria por
+ * incremento; los contadores son atómicos, sin bloqueos.
+ */
+public class SketchConteoMinimo {
+
+    private final int profundidad;
+    private final int mascara;
+    private final long[] semillas;
+    private final AtomicLongArray contadores;
+
+    /**
+     * @param ancho contadores por fila (se redondea a potencia de dos)
+     * @param profundidad número de filas (funciones hash)
+     */
+    public SketchConteoMinimo(int ancho, int profundidad) {
+        int potencia = Integer.highestOneBit(Math.max(ancho, 2) - 1) << 1;
+        this.profundidad = profundidad;
+        this.mascara = potencia - 1;
+        this.semillas = new long[profundidad];
+        for (int i = 0; i < profundidad; i++) {
+            semillas[i] = mezclar(0x9E3779B97F4A7C15L * (i + 1));
+        }
+        this.contadores = new AtomicLongArray(potencia * profundidad);
+    }
+
+    /**
+     * Suma 1 a la clave y devuelve su frecuencia estimada tras el incremento.
+     */
+    public long incrementar(long clave) {
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < profundidad; fila++) {
+            minimo = Math.min(minimo, contadores.incrementAndGet(indice(fila, clave)));
+        }
+        return minimo;
+    }
+
+    public long estimar(long clave) {
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < profundidad; fila++) {
+            minimo = Math.min(minimo, contadores.get(indice(fila, clave)));
+        }
+        return minimo;
+    }
+
+    /**
+     * Divide todos los contadores entre dos: lo visto en ventanas anteriores pesa
+     * cada vez menos que lo reciente.
+     */
+    public void decaer() {
+        for (int i = 0; i < contadores.length(); i++) {
+            long actual;
+            do {
+                actual = contadores.get(i);
+            } while (actual != 0 && !contadores.compareAndSet(i, actual, actual >> 1));
+        }
+    }
+
+    private int indice(int fila, long clave) {
+        return fila * (mascara + 1) + (int) (mezclar(clave ^ semillas[fila]) & mascara);
+    }
+
+    // Finalizador de MurmurHash3 (64 bits)
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,135 @@
+package com.EcoMarket.producto.metricas;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Las k claves con más frecuencia estimada, en un montículo de mínimos sobre dos
+ * arrays fijos (sin objetos por clave).
+ *
+ * ofrecer() no espera nunca: si otro hilo está actualizando el montículo la muestra
+ * se descarta, lo que en una ruta caliente solo resta precisión.
+ */
+public class TopClaves {
+
+    /**
+     * Clave y frecuencia estimada.
+     */
+    public record Clave(long clave, long frecuencia) {
+    }
+
+    private final long[] claves;
+    private final long[] frecuencias;
+    private int tamano;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public TopClaves(int k) {
+        this.claves = new long[k];
+        this.frecuencias = new long[k];
+    }
+
+    public void ofrecer(long clave, long frecuencia) {
+        // Lectura sin lock para descartar rápido lo que no entra en el top
+        if (tamano == claves.length && frecuencia <= frecuencias[0]) {
+            return;
+        }
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < tamano; i++) {
+                if (claves[i] == clave) {
+                    if (frecuencia > frecuencias[i]) {
+                        frecuencias[i] = frecuencia;
+                        hundir(i);
+                    }
+                    return;
+                }
+            }
+            if (tamano < claves.length) {
+                claves[tamano] = clave;
+                frecuencias[tamano] = frecuencia;
+                flotar(tamano++);
+            } else if (frecuencia > frecuencias[0]) {
+                claves[0] = clave;
+                frecuencias[0] = frecuencia;
+                hundir(0);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Divide las frecuencias entre dos (el orden no cambia).
+     */
+    public void decaer() {
+        lock.lock();
+        try {
+            for (int i = 0; i < tamano; i++) {
+                frecuencias[i] >>= 1;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copia del top, de mayor a menor frecuencia.
+     */
+    public List<Clave> obtener() {
+        List<Clave> resultado;
+        lock.lock();
+        try {
+            resultado = new ArrayList<>(tamano);
+            for (int i = 0; i < tamano; i++) {
+                resultado.add(new Clave(claves[i], frecuencias[i]));
+            }
+        } finally {
+            lock.unlock();
+        }
+        resultado.sort(Comparator.comparingLong(Clave::frecuencia).reversed().thenComparingLong(Clave::clave));
+        return resultado;
+    }
+
+    private void flotar(int i) {
+        while (i > 0) {
+            int padre = (i - 1) / 2;
+            if (frecuencias[padre] <= frecuencias[i]) {
+                return;
+            }
+            intercambiar(i, padre);
+            i = padre;
+        }
+    }
+
+    private void hundir(int i) {
+        while (true) {
+            int menor = i;
+            int izquierdo = 2 * i + 1;
+            int derecho = izquierdo + 1;
+            if (izquierdo < tamano && frecuencias[izquierdo] < frecuencias[menor]) {
+                menor = izquierdo;
+            }
+            if (derecho < tamano && frecuencias[derecho] < frecuencias[menor]) {
+                menor = derecho;
+            }
+            if (menor == i) {
+                return;
+            }
+            intercambiar(i, menor);
+            i = menor;
+        }
+    }
+
+    private void intercambiar(int a, int b) {
+        long clave = claves[a];
+        claves[a] = claves[b];
+        claves[b] = clave;
+        long frecuencia = frecuencias[a];
+        frecuencias[a] = frecuencias[b];
+        frecuencias[b] = frecuencia;
+    }
+}
@@ -0,0 +1,27 @@
+package com.EcoMarket.producto.model;
+
+import java.util.Map;
+
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.hateoas.server.core.Relation;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+
+/**
+ * Representación HAL de una proyección parcial (fields=...).
+ * Los campos se serializan al mismo nivel que _links, igual que una entidad completa.
+ */
+@Relation(collectionRelation = "elementos", itemRelation = "elemento")
+public class CamposModel extends RepresentationModel<CamposModel> {
+
+    private final Map<String, Object> campos;
+
+    public CamposModel(Map<String, Object> campos) {
+        this.campos = campos;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getCampos() {
+        return campos;
+    }
+}
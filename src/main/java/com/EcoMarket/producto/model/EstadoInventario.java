@@ -0,0 +1,11 @@
+package com.EcoMarket.producto.model;
+
+/**
+ * Estado del stock de un registro de inventario.
+ * Se guarda como ENUM de MySQL (1 byte por fila) con el nombre de cada constante.
+ */
+public enum EstadoInventario {
+    DISPONIBLE,
+    BAJO_STOCK,
+    AGOTADO
+}
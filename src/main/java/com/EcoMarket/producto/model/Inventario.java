@@ -2,9 +2,12 @@ package com.EcoMarket.producto.model;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
@@ -16,7 +19,12 @@ import lombok.NoArgsConstructor;
 
 
 @Entity
-@Table(name = "Inventario")
+@Table(name = "Inventario", indexes = {
+    @Index(name = "idx_inventario_producto_ubicacion", columnList = "producto_id, ubicacion"),
+    @Index(name = "idx_inventario_estado_cantidad", columnList = "estado, cantidad"),
+    @Index(name = "idx_inventario_cantidad", columnList = "cantidad"),
+    @Index(name = "idx_inventario_fecha_actualizacion", columnList = "fecha_actualizacion")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -50,17 +58,18 @@ public class Inventario {
     private java.time.LocalDateTime fechaActualizacion;
     
     // Estado del inventario (disponible, agotado, bajo_stock)
-    @Column(name = "estado")
-    private String estado;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", columnDefinition = "ENUM('DISPONIBLE', 'BAJO_STOCK', 'AGOTADO')")
+    private EstadoInventario estado;
     
     // Método auxiliar para calcular el estado según la cantidad y cantidadMinima
     public void actualizarEstado() {
         if (cantidad <= 0) {
-            estado = "AGOTADO";
+            estado = EstadoInventario.AGOTADO;
         } else if (cantidadMinima != null && cantidad <= cantidadMinima) {
-            estado = "BAJO_STOCK";
+            estado = EstadoInventario.BAJO_STOCK;
         } else {
-            estado = "DISPONIBLE";
+            estado = EstadoInventario.DISPONIBLE;
         }
     }
     
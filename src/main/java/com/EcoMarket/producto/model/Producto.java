@@ -6,6 +6,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
@@ -17,14 +18,19 @@ import lombok.NoArgsConstructor;
 
 /**
  * @Entity: Marca la clase como una entidad JPA que se mapea a una tabla de BD
- * @Table: Especifica el nombre de la tabla en la base de datos
+ * @Table: Especifica el nombre de la tabla en la base de datos y los índices
+ *         compuestos que usa el filtro multi-criterio (ver ProductoSpecifications)
  * @Data: Lombok - Genera automáticamente getters, setters, toString, equals y hashCode
  * @NoArgsConstructor: Lombok - Genera constructor sin parámetros (requerido por JPA)
  * @AllArgsConstructor: Lombok - Genera constructor con todos los parámetros
  */
 
 @Entity
-@Table(name = "Producto")
+@Table(name = "Producto", indexes = {
+    @Index(name = "idx_producto_categoria_activo_precio", columnList = "categoria, activo, precio"),
+    @Index(name = "idx_producto_activo_precio", columnList = "activo, precio"),
+    @Index(name = "idx_producto_fecha_actualizacion", columnList = "fecha_actualizacion")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,30 @@
+package com.EcoMarket.producto.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Destino "bus": publica cada evento como evento de Spring para los oyentes de la
+ * propia aplicación (@EventListener de EventoOutbox).
+ */
+@Component
+public class DestinoBusInterno implements DestinoOutbox {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String nombre() {
+        return "bus";
+    }
+
+    @Override
+    public void enviar(List<EventoOutbox> eventos) {
+        for (EventoOutbox evento : eventos) {
+            eventPublisher.publishEvent(evento);
+        }
+    }
+}
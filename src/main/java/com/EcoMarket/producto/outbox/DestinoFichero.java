@@ -0,0 +1,58 @@
+package com.EcoMarket.producto.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Destino "fichero": añade cada evento como una línea JSON a outbox.fichero.ruta.
+ * El lote solo se confirma después de forzarlo a disco.
+ */
+@Component
+public class DestinoFichero implements DestinoOutbox {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${outbox.fichero.ruta:./outbox-eventos.jsonl}")
+    private String ruta = "./outbox-eventos.jsonl";
+
+    @Override
+    public String nombre() {
+        return "fichero";
+    }
+
+    @Override
+    public synchronized void enviar(List<EventoOutbox> eventos) throws IOException {
+        StringBuilder lineas = new StringBuilder(eventos.size() * 200);
+        for (EventoOutbox evento : eventos) {
+            lineas.append(objectMapper.writeValueAsString(evento)).append('\n');
+        }
+        try (FileChannel canal = FileChannel.open(Path.of(ruta),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer datos = ByteBuffer.wrap(lineas.toString().getBytes(StandardCharsets.UTF_8));
+            while (datos.hasRemaining()) {
+                canal.write(datos);
+            }
+            canal.force(false);
+        }
+    }
+
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void setRuta(String ruta) {
+        this.ruta = ruta;
+    }
+}
@@ -0,0 +1,39 @@
+package com.EcoMarket.producto.outbox;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Destino "memoria": guarda los eventos recibidos, para pruebas y desarrollo local.
+ * Con fallarProximos(n) rechaza los n siguientes lotes.
+ */
+@Component
+public class DestinoMemoria implements DestinoOutbox {
+
+    private final List<EventoOutbox> recibidos = new ArrayList<>();
+    private int fallos;
+
+    @Override
+    public String nombre() {
+        return "memoria";
+    }
+
+    @Override
+    public synchronized void enviar(List<EventoOutbox> eventos) {
+        if (fallos > 0) {
+            fallos--;
+            throw new IllegalStateException("Fallo simulado");
+        }
+        recibidos.addAll(eventos);
+    }
+
+    public synchronized List<EventoOutbox> recibidos() {
+        return new ArrayList<>(recibidos);
+    }
+
+    public synchronized void fallarProximos(int n) {
+        fallos = n;
+    }
+}
@@ -0,0 +1,21 @@
+package com.EcoMarket.producto.outbox;
+
+import java.util.List;
+
+/**
+ * Destino al que el relay del outbox entrega los eventos.
+ *
+ * Recibe lotes en orden de id: dentro de cada producto o registro de inventario en
+ * orden de versión, pero entre agregados distintos un id menor puede llegar en un
+ * lote posterior. Si enviar lanza una excepción el lote entero se vuelve a entregar
+ * más tarde, así que puede recibir eventos repetidos (mismo agregado y versión).
+ */
+public interface DestinoOutbox {
+
+    /**
+     * Nombre con el que se activa en outbox.destinos.
+     */
+    String nombre();
+
+    void enviar(List<EventoOutbox> eventos) throws Exception;
+}
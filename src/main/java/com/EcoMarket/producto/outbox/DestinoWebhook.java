@@ -0,0 +1,57 @@
+package com.EcoMarket.producto.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Destino "webhook": envía cada lote como un array JSON por POST a outbox.webhook.url.
+ * Cualquier respuesta que no sea 2xx cuenta como fallo y el lote se reintenta. La
+ * cabecera X-Outbox-Ultimo-Id lleva el id del último evento del lote.
+ */
+@Component
+public class DestinoWebhook implements DestinoOutbox {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${outbox.webhook.url:}")
+    private String url = "";
+
+    @Value("${outbox.webhook.timeout-ms:5000}")
+    private long timeoutMs = 5000;
+
+    private final HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    @Override
+    public String nombre() {
+        return "webhook";
+    }
+
+    @Override
+    public void enviar(List<EventoOutbox> eventos) throws IOException, InterruptedException {
+        if (url.isBlank()) {
+            throw new IllegalStateException("outbox.webhook.url no está configurada");
+        }
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(url))
+            .timeout(Duration.ofMillis(timeoutMs))
+            .header("Content-Type", "application/json")
+            .header("X-Outbox-Ultimo-Id", Long.toString(eventos.get(eventos.size() - 1).id()))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(eventos)))
+            .build();
+        HttpResponse<Void> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.discarding());
+        if (respuesta.statusCode() / 100 != 2) {
+            throw new IOException("El webhook respondió " + respuesta.statusCode());
+        }
+    }
+}
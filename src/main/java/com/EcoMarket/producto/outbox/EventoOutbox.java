@@ -0,0 +1,21 @@
+package com.EcoMarket.producto.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * Evento del outbox tal como lo reciben los destinos.
+ *
+ * @param id id del evento en outbox_evento; crece al insertar, no al confirmar, así
+ *           que entre agregados distintos no sigue el orden de commit
+ * @param agregado PRODUCTO o INVENTARIO
+ * @param agregadoId id del producto o del registro de inventario
+ * @param version versión del agregado, consecutiva y en orden de commit; los
+ *                consumidores la usan para descartar duplicados y eventos atrasados
+ *                (la entrega es al menos una vez)
+ * @param tipo CREADO, ACTUALIZADO o ELIMINADO
+ * @param creado instante de la escritura en milisegundos epoch
+ * @param datos estado tras el cambio en JSON (solo el id al eliminar)
+ */
+public record EventoOutbox(long id, String agregado, long agregadoId, long version, String tipo, long creado,
+        @JsonRawValue String datos) {
+}
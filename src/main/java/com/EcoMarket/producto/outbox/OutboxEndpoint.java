@@ -0,0 +1,26 @@
+package com.EcoMarket.producto.outbox;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/outbox: pendientes, entregados y errores del relay por destino.
+ */
+@Component
+@Endpoint(id = "outbox")
+public class OutboxEndpoint {
+
+    private final OutboxService outboxService;
+
+    public OutboxEndpoint(OutboxService outboxService) {
+        this.outboxService = outboxService;
+    }
+
+    @ReadOperation
+    public List<OutboxService.EstadoDestino> estado() {
+        return outboxService.estado();
+    }
+}
@@ -0,0 +1,424 @@
+package com.EcoMarket.producto.outbox;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Outbox transaccional de los cambios de productos e inventario.
+ *
+ * Cada escritura de ProductoService, InventarioService o de los ajustes en bloque
+ * (los refrescos de cambios hechos en otra instancia no: esos ya los guardó ella)
+ * guarda su evento en outbox_evento dentro de la misma transacción, justo antes del
+ * commit: si la transacción se deshace el evento tampoco existe, y si se confirma el
+ * evento no se puede perder. Por cada destino activo (outbox.destinos) queda una
+ * fila en outbox_pendiente. Los eventos de una transacción se escriben juntos, con
+ * tres batches JDBC en vez de tres sentencias por evento.
+ *
+ * Cada evento lleva la versión de su agregado (outbox_version): registrar la
+ * incrementa y deja bloqueada la fila del contador hasta el commit, así que las
+ * escrituras de un mismo producto o registro se serializan ahí y sus versiones
+ * siguen el orden de commit. El id no: AUTO_INCREMENT lo reparte al insertar, y una
+ * transacción con un id menor puede confirmar después que otra con uno mayor.
+ *
+ * El relay drena periódicamente cada destino por separado:
+ * - solo una instancia a la vez por destino (turno con caducidad en outbox_relay),
+ * - en lotes por orden de id. Como el contador serializa las escrituras de un
+ *   agregado, el evento de la versión n ya está confirmado cuando se inserta el de
+ *   la n + 1, y cada destino recibe los cambios de un agregado en orden. Entre
+ *   agregados distintos un evento con id menor puede llegar en un lote posterior,
+ * - al menos una vez: las pendientes se borran después de que el destino acepte el
+ *   lote; si falla se reintenta el lote completo con espera exponencial. Los
+ *   duplicados se descartan por agregado y versión.
+ *
+ * Los eventos entregados a todos los destinos se borran pasado outbox.retencion-ms.
+ * Si se quita un destino de la configuración sus pendientes quedan en la tabla
+ * hasta borrarlas a mano.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    public static final String PRODUCTO = "PRODUCTO";
+    public static final String INVENTARIO = "INVENTARIO";
+
+    private static final int BORRADO_MAXIMO = 10_000;
+
+    /**
+     * Estado del relay para un destino.
+     */
+    public record EstadoDestino(String destino, long pendientes, long entregados, int fallosSeguidos,
+            String ultimoError, Instant siguienteIntento) {
+    }
+
+    // Cambio de un agregado; los datos se leen al registrarlo, justo antes del commit
+    record Cambio(String agregado, Long agregadoId, String tipo, Supplier<Map<String, Object>> datos) {
+    }
+
+    private record Agregado(String tipo, Long id) implements Comparable<Agregado> {
+        @Override
+        public int compareTo(Agregado otro) {
+            int porTipo = tipo.compareTo(otro.tipo);
+            return porTipo != 0 ? porTipo : id.compareTo(otro.id);
+        }
+    }
+
+    // Cambios de la transacción en curso, en orden de llegada
+    private static final class Cambios {
+        final List<Cambio> lista = new ArrayList<>();
+        boolean escritos;
+    }
+
+    // Solo lo modifica el hilo del relay
+    private static final class Progreso {
+        volatile long entregados;
+        volatile int fallos;
+        volatile String ultimoError;
+        volatile long esperaHasta;
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private List<DestinoOutbox> disponibles = List.of();
+
+    @Value("${outbox.destinos:}")
+    private List<String> activos = List.of();
+
+    @Value("${outbox.lote:500}")
+    private int lote = 500;
+
+    @Value("${outbox.intervalo-ms:500}")
+    private long intervaloMs = 500;
+
+    @Value("${outbox.reintento-max-ms:60000}")
+    private long reintentoMaxMs = 60_000;
+
+    @Value("${outbox.turno-ms:30000}")
+    private long turnoMs = 30_000;
+
+    @Value("${outbox.retencion-ms:86400000}")
+    private long retencionMs = 86_400_000;
+
+    private final String propietario = UUID.randomUUID().toString();
+    private final Map<String, Progreso> progreso = new ConcurrentHashMap<>();
+    private final Set<String> turnosCreados = ConcurrentHashMap.newKeySet();
+    private Clock reloj = Clock.systemUTC();
+
+    @PostConstruct
+    public void validar() {
+        for (String nombre : activos) {
+            destino(nombre);
+        }
+    }
+
+    @EventListener
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        if (evento.remoto()) {
+            return;
+        }
+        anotar(new Cambio(PRODUCTO, evento.productoId(), evento.tipo().name(), () -> {
+            Producto p = evento.actual();
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("id", evento.productoId());
+            if (p != null) {
+                datos.put("codigo", p.getCodigo());
+                datos.put("nombre", p.getNombre());
+                datos.put("descripcion", p.getDescripcion());
+                datos.put("precio", p.getPrecio());
+                datos.put("categoria", p.getCategoria());
+                datos.put("activo", p.isActivo());
+                datos.put("fechaActualizacion", p.getFechaActualizacion() == null ? null : p.getFechaActualizacion().toString());
+            }
+            return datos;
+        }));
+    }
+
+    @EventListener
+    public void alCambiarInventario(InventarioCambiadoEvent evento) {
+        if (evento.remoto()) {
+            return;
+        }
+        anotar(new Cambio(INVENTARIO, evento.inventarioId(), evento.tipo().name(), () -> {
+            Inventario i = evento.actual();
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("id", evento.inventarioId());
+            if (i != null) {
+                datos.put("productoId", i.getProducto() == null ? null : i.getProducto().getId());
+                datos.put("cantidad", i.getCantidad());
+                datos.put("cantidadMinima", i.getCantidadMinima());
+                datos.put("ubicacion", i.getUbicacion());
+                datos.put("estado", i.getEstado() == null ? null : i.getEstado().name());
+            }
+            return datos;
+        }));
+    }
+
+    /**
+     * Apunta el cambio entre los de la transacción en curso. Todos se registran juntos
+     * justo antes del commit (antes que la sincronización de InvalidacionBus, que va
+     * la última) y se deshacen con ella. Sin transacción, o si llega cuando los de la
+     * transacción ya se escribieron, se registra en el momento.
+     */
+    private void anotar(Cambio cambio) {
+        if (activos.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            registrar(List.of(cambio));
+            return;
+        }
+        Cambios cambios = (Cambios) TransactionSynchronizationManager.getResource(this);
+        if (cambios == null) {
+            Cambios nuevos = new Cambios();
+            TransactionSynchronizationManager.bindResource(this, nuevos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.LOWEST_PRECEDENCE - 1;
+                }
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    nuevos.escritos = true;
+                    registrar(nuevos.lista);
+                }
+
+                @Override
+                public void afterCompletion(int estado) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OutboxService.this);
+                }
+            });
+            cambios = nuevos;
+        }
+        if (cambios.escritos) {
+            registrar(List.of(cambio));
+        } else {
+            cambios.lista.add(cambio);
+        }
+    }
+
+    /**
+     * Registra los cambios de una transacción con tres batches, sean cuantos sean:
+     * - sube la versión de cada agregado una vez por todos sus cambios (en orden de
+     *   agregado, para que dos transacciones bloqueen los contadores en el mismo orden);
+     *   la fila de outbox_version queda bloqueada hasta el commit y otra escritura del
+     *   mismo agregado espera aquí a que este se confirme,
+     * - inserta cada evento con su versión: el i-ésimo de n cambios de un agregado
+     *   lleva la versión final menos n - 1 - i, así que siguen el orden de llegada,
+     * - inserta una pendiente por evento y destino, buscando el evento por agregado y
+     *   versión (idx_outbox_evento_agregado_version).
+     * Un error aquí deshace la transacción de la escritura: sin evento no hay cambio.
+     */
+    void registrar(List<Cambio> cambios) {
+        if (cambios.isEmpty()) {
+            return;
+        }
+        List<String> jsons = new ArrayList<>(cambios.size());
+        Map<Agregado, Integer> porAgregado = new TreeMap<>();
+        for (Cambio cambio : cambios) {
+            try {
+                jsons.add(objectMapper.writeValueAsString(cambio.datos().get()));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("No se pudo serializar el evento del outbox", e);
+            }
+            porAgregado.merge(new Agregado(cambio.agregado(), cambio.agregadoId()), 1, Integer::sum);
+        }
+        List<Object[]> versiones = new ArrayList<>(porAgregado.size());
+        porAgregado.forEach((agregado, n) -> versiones.add(new Object[] {agregado.tipo(), agregado.id(), n, n}));
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_version (agregado, agregado_id, version) VALUES (?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE version = version + ?", versiones);
+
+        long creado = reloj.millis();
+        List<Object[]> eventos = new ArrayList<>(cambios.size());
+        List<Object[]> pendientes = new ArrayList<>(cambios.size() * activos.size());
+        for (int i = 0; i < cambios.size(); i++) {
+            Cambio cambio = cambios.get(i);
+            // Cambios del mismo agregado que quedan detrás de este
+            int despues = porAgregado.merge(new Agregado(cambio.agregado(), cambio.agregadoId()), -1, Integer::sum);
+            eventos.add(new Object[] {despues, cambio.tipo(), creado, jsons.get(i), cambio.agregado(), cambio.agregadoId()});
+            for (String destino : activos) {
+                pendientes.add(new Object[] {destino, cambio.agregado(), cambio.agregadoId(), despues});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_evento (agregado, agregado_id, version, tipo, creado, datos) "
+            + "SELECT agregado, agregado_id, version - ?, ?, ?, ? FROM outbox_version WHERE agregado = ? AND agregado_id = ?",
+            eventos);
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_pendiente (destino, evento_id) SELECT ?, e.id FROM outbox_evento e "
+            + "JOIN outbox_version v ON v.agregado = e.agregado AND v.agregado_id = e.agregado_id "
+            + "WHERE e.agregado = ? AND e.agregado_id = ? AND e.version = v.version - ?", pendientes);
+    }
+
+    /**
+     * Entrega las pendientes de cada destino del que esta instancia tiene el turno.
+     */
+    @Scheduled(fixedDelayString = "${outbox.intervalo-ms:500}")
+    public void drenar() {
+        for (String nombre : activos) {
+            Progreso p = progreso.computeIfAbsent(nombre, n -> new Progreso());
+            if (reloj.millis() < p.esperaHasta || !tomarTurno(nombre)) {
+                continue;
+            }
+            DestinoOutbox destino = destino(nombre);
+            // Deja margen para renovar el turno antes de que caduque
+            long limite = System.nanoTime() + turnoMs * 500_000;
+            try {
+                int entregados;
+                do {
+                    entregados = drenarLote(destino, p);
+                } while (entregados == lote && System.nanoTime() < limite && tomarTurno(nombre));
+            } catch (Exception e) {
+                p.fallos++;
+                p.ultimoError = e.toString();
+                p.esperaHasta = reloj.millis() + Math.min(intervaloMs << Math.min(p.fallos, 16), reintentoMaxMs);
+                log.warn("Outbox: el destino {} falló ({} seguidos): {}", nombre, p.fallos, e.getMessage());
+            }
+        }
+    }
+
+    private int drenarLote(DestinoOutbox destino, Progreso p) throws Exception {
+        List<EventoOutbox> eventos = jdbcTemplate.query(
+            "SELECT e.id, e.agregado, e.agregado_id, e.version, e.tipo, e.creado, e.datos FROM outbox_pendiente p "
+                + "JOIN outbox_evento e ON e.id = p.evento_id WHERE p.destino = ? ORDER BY p.evento_id LIMIT ?",
+            (rs, i) -> new EventoOutbox(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getLong(4), rs.getString(5),
+                rs.getLong(6), rs.getString(7)),
+            destino.nombre(), lote);
+        if (eventos.isEmpty()) {
+            return 0;
+        }
+        destino.enviar(eventos);
+
+        Object[] argumentos = new Object[eventos.size() + 1];
+        argumentos[0] = destino.nombre();
+        for (int i = 0; i < eventos.size(); i++) {
+            argumentos[i + 1] = eventos.get(i).id();
+        }
+        jdbcTemplate.update("DELETE FROM outbox_pendiente WHERE destino = ? AND evento_id IN ("
+            + String.join(",", Collections.nCopies(eventos.size(), "?")) + ")", argumentos);
+        p.entregados += eventos.size();
+        p.fallos = 0;
+        p.ultimoError = null;
+        return eventos.size();
+    }
+
+    // Toma o renueva el turno del destino si está libre, caducado o ya es nuestro
+    private boolean tomarTurno(String destino) {
+        long ahora = reloj.millis();
+        int filas = jdbcTemplate.update(
+            "UPDATE outbox_relay SET propietario = ?, hasta = ? WHERE destino = ? AND (propietario = ? OR hasta < ?)",
+            propietario, ahora + turnoMs, destino, propietario, ahora);
+        if (filas == 0 && turnosCreados.add(destino)) {
+            jdbcTemplate.update("INSERT IGNORE INTO outbox_relay (destino, propietario, hasta) VALUES (?, '', 0)", destino);
+            return tomarTurno(destino);
+        }
+        return filas > 0;
+    }
+
+    /**
+     * Libera los turnos al parar para que otra instancia continúe sin esperar a que caduquen.
+     */
+    @PreDestroy
+    public void liberarTurnos() {
+        if (!activos.isEmpty()) {
+            jdbcTemplate.update("UPDATE outbox_relay SET hasta = 0 WHERE propietario = ?", propietario);
+        }
+    }
+
+    /**
+     * Borra los eventos ya entregados a todos los destinos y más antiguos que la retención.
+     */
+    @Scheduled(fixedDelayString = "${outbox.limpieza-ms:600000}", initialDelayString = "${outbox.limpieza-ms:600000}")
+    public void limpiar() {
+        if (activos.isEmpty()) {
+            return;
+        }
+        long antesDe = reloj.millis() - retencionMs;
+        int borrados;
+        do {
+            borrados = jdbcTemplate.update("DELETE FROM outbox_evento WHERE creado < ? AND NOT EXISTS "
+                + "(SELECT 1 FROM outbox_pendiente p WHERE p.evento_id = outbox_evento.id) LIMIT " + BORRADO_MAXIMO, antesDe);
+        } while (borrados == BORRADO_MAXIMO);
+    }
+
+    public List<EstadoDestino> estado() {
+        Map<String, Long> pendientes = new HashMap<>();
+        jdbcTemplate.query("SELECT destino, COUNT(*) FROM outbox_pendiente GROUP BY destino",
+            rs -> {
+                pendientes.put(rs.getString(1), rs.getLong(2));
+            });
+        List<EstadoDestino> estado = new ArrayList<>();
+        for (String nombre : activos) {
+            Progreso p = progreso.computeIfAbsent(nombre, n -> new Progreso());
+            estado.add(new EstadoDestino(nombre, pendientes.getOrDefault(nombre, 0L), p.entregados, p.fallos,
+                p.ultimoError, p.esperaHasta == 0 ? null : Instant.ofEpochMilli(p.esperaHasta)));
+        }
+        return estado;
+    }
+
+    private DestinoOutbox destino(String nombre) {
+        for (DestinoOutbox destino : disponibles) {
+            if (destino.nombre().equals(nombre)) {
+                return destino;
+            }
+        }
+        throw new IllegalStateException("Destino de outbox desconocido: " + nombre);
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void setDestinos(List<DestinoOutbox> disponibles, List<String> activos) {
+        this.disponibles = disponibles;
+        this.activos = activos;
+    }
+
+    public void setLote(int lote) {
+        this.lote = lote;
+    }
+
+    public void setReloj(Clock reloj) {
+        this.reloj = reloj;
+    }
+}
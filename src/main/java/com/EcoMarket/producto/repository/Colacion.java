@@ -0,0 +1,34 @@
+package com.EcoMarket.producto.repository;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Comparación de textos como la hace MySQL con la colación por defecto de las columnas
+ * VARCHAR (V1 no fija otra): sin distinguir mayúsculas ni tildes y sin contar los
+ * espacios finales. "ABC", "abc" y "Abc " son el mismo Producto.codigo, y "a1" y "A1"
+ * la misma Inventario.ubicacion.
+ *
+ * Las estructuras en memoria que responden por la base de datos (filtros, cachés,
+ * mapas por clave) deben usar clave() para guardar y para buscar, o darán por
+ * distintos valores que la restricción única y los WHERE tratan como iguales.
+ */
+public final class Colacion {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    private Colacion() {
+    }
+
+    /**
+     * Forma canónica del texto según la colación; null sigue siendo null.
+     */
+    public static String clave(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinTildes.toLowerCase(Locale.ROOT).stripTrailing();
+    }
+}
@@ -0,0 +1,68 @@
+package com.EcoMarket.producto.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Construye consultas que seleccionan solo las columnas pedidas (proyección por tuplas).
+ *
+ * Las columnas no pedidas nunca aparecen en el SELECT, por lo que tampoco se leen
+ * ni se hidrata la entidad completa en el contexto de persistencia.
+ */
+final class ConsultaPorCampos {
+
+    private ConsultaPorCampos() {
+    }
+
+    /**
+     * @param rutas nombre del campo expuesto -> ruta del atributo JPA (p. ej. "productoId" -> "producto.id")
+     * @param id si no es null, filtra por la clave primaria
+     */
+    static <E> List<Map<String, Object>> seleccionar(EntityManager em, Class<E> entidad,
+            Map<String, String> rutas, Set<String> campos, Long id) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<E> root = query.from(entidad);
+
+        List<Selection<?>> selecciones = new ArrayList<>(campos.size());
+        for (String campo : campos) {
+            String ruta = rutas.get(campo);
+            if (ruta == null) {
+                throw new IllegalArgumentException("Campo no permitido: " + campo);
+            }
+            Path<?> path = root;
+            for (String parte : ruta.split("\\.")) {
+                path = path.get(parte);
+            }
+            selecciones.add(path.alias(campo));
+        }
+        query.multiselect(selecciones);
+        if (id != null) {
+            query.where(cb.equal(root.get("id"), id));
+        }
+        query.orderBy(cb.asc(root.get("id")));
+
+        List<Tuple> filas = em.createQuery(query).getResultList();
+        List<Map<String, Object>> resultado = new ArrayList<>(filas.size());
+        for (Tuple fila : filas) {
+            Map<String, Object> valores = new LinkedHashMap<>();
+            for (TupleElement<?> elemento : fila.getElements()) {
+                valores.put(elemento.getAlias(), fila.get(elemento));
+            }
+            resultado.add(valores);
+        }
+        return resultado;
+    }
+}
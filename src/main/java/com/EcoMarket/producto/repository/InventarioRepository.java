@@ -1,22 +1,28 @@
 package com.EcoMarket.producto.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.EcoMarket.producto.model.EstadoInventario;
 import com.EcoMarket.producto.model.Inventario;
 import com.EcoMarket.producto.model.Producto;
 
-import java.util.Optional;
 import java.util.List;
 
 @Repository
-public interface InventarioRepository extends JpaRepository<Inventario, Long> {
+public interface InventarioRepository extends JpaRepository<Inventario, Long>, InventarioRepositoryCustom {
     
-    Optional<Inventario> findByProducto(Producto producto);
+    // Un producto puede tener una fila por ubicación
+    List<Inventario> findByProducto(Producto producto);
     
-    Optional<Inventario> findByProductoId(Long productoId);
+    // Con el nombre derivado Hibernate hace LEFT JOIN con Producto para filtrar por su id;
+    // así compara directamente la clave foránea (idx_inventario_producto_ubicacion)
+    @Query("SELECT i FROM Inventario i WHERE i.producto.id = :productoId")
+    List<Inventario> findByProductoId(@Param("productoId") Long productoId);
     
-    List<Inventario> findByEstado(String estado);
+    List<Inventario> findByEstado(EstadoInventario estado);
     
     List<Inventario> findByCantidadLessThanEqual(Integer cantidad);
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.EcoMarket.producto.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Consultas con proyección dinámica de columnas (parámetro fields= de la API).
+ * productoId se lee de la clave foránea, sin JOIN con Producto.
+ */
+public interface InventarioRepositoryCustom {
+
+    // Campos que se pueden pedir y su atributo JPA
+    Map<String, String> CAMPOS = Map.of(
+        "id", "id",
+        "productoId", "producto.id",
+        "cantidad", "cantidad",
+        "cantidadMinima", "cantidadMinima",
+        "ubicacion", "ubicacion",
+        "fechaActualizacion", "fechaActualizacion",
+        "estado", "estado");
+
+    List<Map<String, Object>> findCampos(Set<String> campos);
+
+    Optional<Map<String, Object>> findCamposById(Long id, Set<String> campos);
+}
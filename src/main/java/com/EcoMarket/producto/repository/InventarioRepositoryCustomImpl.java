@@ -0,0 +1,28 @@
+package com.EcoMarket.producto.repository;
+
+import com.EcoMarket.producto.model.Inventario;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class InventarioRepositoryCustomImpl implements InventarioRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findCampos(Set<String> campos) {
+        return ConsultaPorCampos.seleccionar(entityManager, Inventario.class, CAMPOS, campos, null);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findCamposById(Long id, Set<String> campos) {
+        return ConsultaPorCampos.seleccionar(entityManager, Inventario.class, CAMPOS, campos, id)
+                .stream().findFirst();
+    }
+}
@@ -2,14 +2,19 @@ package com.EcoMarket.producto.repository;
 
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.EcoMarket.producto.model.Producto;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, JpaSpecificationExecutor<Producto>,
+        ProductoRepositoryCustom {
     
     Optional<Producto> findByCodigo(String codigo);
     
@@ -17,5 +22,12 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     
     List<Producto> findByNombreContainingIgnoreCase(String nombre);
     
+    // Con el nombre derivado Hibernate genera "where p1_0.activo" (sin comparación), que
+    // MySQL no resuelve con idx_producto_activo_precio
+    @Query("SELECT p FROM Producto p WHERE p.activo = true")
     List<Producto> findByActivoTrue();
+
+    // Comprobación por lotes de la importación CSV: solo lee el índice único de codigo
+    @Query("SELECT p.codigo FROM Producto p WHERE p.codigo IN :codigos")
+    List<String> findCodigosExistentes(@Param("codigos") Collection<String> codigos);
 }
\ No newline at end of file
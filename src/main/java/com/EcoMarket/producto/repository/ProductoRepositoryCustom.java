@@ -0,0 +1,28 @@
+package com.EcoMarket.producto.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Consultas con proyección dinámica de columnas (parámetro fields= de la API).
+ */
+public interface ProductoRepositoryCustom {
+
+    // Campos que se pueden pedir y su atributo JPA
+    Map<String, String> CAMPOS = Map.of(
+        "id", "id",
+        "codigo", "codigo",
+        "nombre", "nombre",
+        "descripcion", "descripcion",
+        "precio", "precio",
+        "categoria", "categoria",
+        "fechaCreacion", "fechaCreacion",
+        "fechaActualizacion", "fechaActualizacion",
+        "activo", "activo");
+
+    List<Map<String, Object>> findCampos(Set<String> campos);
+
+    Optional<Map<String, Object>> findCamposById(Long id, Set<String> campos);
+}
@@ -0,0 +1,28 @@
+package com.EcoMarket.producto.repository;
+
+import com.EcoMarket.producto.model.Producto;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class ProductoRepositoryCustomImpl implements ProductoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findCampos(Set<String> campos) {
+        return ConsultaPorCampos.seleccionar(entityManager, Producto.class, CAMPOS, campos, null);
+    }
+
+    @Override
+    public Optional<Map<String, Object>> findCamposById(Long id, Set<String> campos) {
+        return ConsultaPorCampos.seleccionar(entityManager, Producto.class, CAMPOS, campos, id)
+                .stream().findFirst();
+    }
+}
@@ -0,0 +1,78 @@
+package com.EcoMarket.producto.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.EcoMarket.producto.model.Producto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Criterios reutilizables para el filtro multi-criterio de productos.
+ *
+ * Cada método devuelve null cuando el parámetro no viene informado, de modo que
+ * Specification.where(...).and(...) lo ignora y la consulta generada solo
+ * contiene las condiciones pedidas. Las igualdades (categoria, activo) y el rango
+ * de precio coinciden con el prefijo de los índices compuestos declarados en Producto.
+ */
+public final class ProductoSpecifications {
+
+    private ProductoSpecifications() {
+    }
+
+    public static Specification<Producto> categoria(String categoria) {
+        if (categoria == null || categoria.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("categoria"), categoria);
+    }
+
+    public static Specification<Producto> activo(Boolean activo) {
+        if (activo == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get("activo"), activo);
+    }
+
+    public static Specification<Producto> precioDesde(BigDecimal precioMin) {
+        if (precioMin == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("precio"), precioMin);
+    }
+
+    public static Specification<Producto> precioHasta(BigDecimal precioMax) {
+        if (precioMax == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("precio"), precioMax);
+    }
+
+    public static Specification<Producto> nombreContiene(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return null;
+        }
+        String patron = "%" + nombre.toLowerCase() + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("nombre")), patron);
+    }
+
+    public static Specification<Producto> actualizadoDesde(LocalDateTime desde) {
+        if (desde == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("fechaActualizacion"), desde);
+    }
+
+    /**
+     * Combina todos los criterios informados con AND.
+     */
+    public static Specification<Producto> filtro(String categoria, Boolean activo, BigDecimal precioMin,
+            BigDecimal precioMax, String nombre, LocalDateTime actualizadoDesde) {
+        return Specification.where(categoria(categoria))
+                .and(activo(activo))
+                .and(precioDesde(precioMin))
+                .and(precioHasta(precioMax))
+                .and(nombreContiene(nombre))
+                .and(actualizadoDesde(actualizadoDesde));
+    }
+}
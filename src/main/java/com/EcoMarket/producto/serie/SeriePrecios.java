@@ -0,0 +1,200 @@
+package com.EcoMarket.producto.serie;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serie temporal de precios de un producto con codificación compacta.
+ *
+ * Los instantes son milisegundos epoch y los precios enteros escalados (céntimos,
+ * la misma escala que DECIMAL(38,2)), así que en memoria son dos long[] en vez de
+ * objetos Instant y BigDecimal. Al codificar:
+ * - el primer instante va completo, el segundo como delta y el resto como delta de
+ *   la delta (cambios a intervalos regulares ocupan 1 byte),
+ * - el primer precio va completo y el resto como diferencia con el anterior,
+ * todo en varint con zigzag. Un cambio de precio típico ocupa entre 3 y 6 bytes.
+ */
+public class SeriePrecios {
+
+    public static final int ESCALA = 2;
+
+    /**
+     * Resumen de un intervalo: precio al empezar, máximo, mínimo y precio al terminar.
+     * El precio es escalonado (se mantiene hasta el siguiente cambio), así que un
+     * intervalo sin cambios repite el último precio conocido.
+     */
+    public record Intervalo(long inicio, long fin, long apertura, long maximo, long minimo, long cierre, int cambios) {
+    }
+
+    private long[] instantes;
+    private long[] precios;
+    private int tamano;
+
+    public SeriePrecios() {
+        this(8);
+    }
+
+    public SeriePrecios(int capacidad) {
+        instantes = new long[Math.max(capacidad, 1)];
+        precios = new long[Math.max(capacidad, 1)];
+    }
+
+    /**
+     * Añade un punto; los instantes deben llegar en orden (uno anterior al último se
+     * ajusta al último para mantener la serie monótona).
+     */
+    public void agregar(long instante, long precio) {
+        if (tamano == instantes.length) {
+            instantes = Arrays.copyOf(instantes, tamano * 2);
+            precios = Arrays.copyOf(precios, tamano * 2);
+        }
+        instantes[tamano] = tamano > 0 ? Math.max(instante, instantes[tamano - 1]) : instante;
+        precios[tamano] = precio;
+        tamano++;
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    public long instante(int i) {
+        return instantes[i];
+    }
+
+    public long precio(int i) {
+        return precios[i];
+    }
+
+    public byte[] codificar() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(8 + tamano * 4);
+        escribirVarint(salida, tamano);
+        long deltaAnterior = 0;
+        for (int i = 0; i < tamano; i++) {
+            if (i == 0) {
+                escribirVarint(salida, zigzag(instantes[0]));
+                escribirVarint(salida, zigzag(precios[0]));
+                continue;
+            }
+            long delta = instantes[i] - instantes[i - 1];
+            escribirVarint(salida, zigzag(i == 1 ? delta : delta - deltaAnterior));
+            escribirVarint(salida, zigzag(precios[i] - precios[i - 1]));
+            deltaAnterior = delta;
+        }
+        return salida.toByteArray();
+    }
+
+    public static SeriePrecios decodificar(byte[] datos) {
+        int[] pos = {0};
+        int n = (int) leerVarint(datos, pos);
+        SeriePrecios serie = new SeriePrecios(n);
+        long instante = 0;
+        long precio = 0;
+        long delta = 0;
+        for (int i = 0; i < n; i++) {
+            long t = unzigzag(leerVarint(datos, pos));
+            long p = unzigzag(leerVarint(datos, pos));
+            if (i == 0) {
+                instante = t;
+                precio = p;
+            } else {
+                delta = i == 1 ? t : delta + t;
+                instante += delta;
+                precio += p;
+            }
+            serie.instantes[i] = instante;
+            serie.precios[i] = precio;
+        }
+        serie.tamano = n;
+        return serie;
+    }
+
+    /**
+     * Divide [desde, hasta) en n intervalos iguales y resume cada uno. precioInicial es
+     * el precio vigente en desde (null si el producto aún no tenía precio).
+     */
+    public List<Intervalo> reducir(long desde, long hasta, int n, Long precioInicial) {
+        List<Intervalo> intervalos = new ArrayList<>(n);
+        if (n <= 0 || hasta <= desde) {
+            return intervalos;
+        }
+        int i = primerIndiceDesde(desde);
+        Long vigente = i > 0 ? Long.valueOf(precios[i - 1]) : precioInicial;
+        long ancho = hasta - desde;
+        for (int k = 0; k < n; k++) {
+            long inicio = desde + ancho * k / n;
+            long fin = desde + ancho * (k + 1) / n;
+            Long apertura = vigente;
+            long maximo = vigente == null ? Long.MIN_VALUE : vigente;
+            long minimo = vigente == null ? Long.MAX_VALUE : vigente;
+            int cambios = 0;
+            while (i < tamano && instantes[i] < fin) {
+                vigente = precios[i];
+                maximo = Math.max(maximo, vigente);
+                minimo = Math.min(minimo, vigente);
+                cambios++;
+                i++;
+            }
+            if (vigente == null) {
+                continue;
+            }
+            intervalos.add(new Intervalo(inicio, fin, apertura == null ? precios[i - cambios] : apertura,
+                maximo, minimo, vigente, cambios));
+        }
+        return intervalos;
+    }
+
+    // Primer punto con instante >= desde (búsqueda binaria)
+    public int primerIndiceDesde(long desde) {
+        int bajo = 0;
+        int alto = tamano;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (instantes[medio] < desde) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    public static long escalar(BigDecimal precio) {
+        return precio.setScale(ESCALA, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal desescalar(long precio) {
+        return BigDecimal.valueOf(precio, ESCALA);
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream salida, long v) {
+        while ((v & ~0x7FL) != 0) {
+            salida.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        salida.write((int) v);
+    }
+
+    private static long leerVarint(byte[] datos, int[] pos) {
+        long resultado = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            byte b = datos[pos[0]++];
+            resultado |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return resultado;
+            }
+        }
+        throw new IllegalArgumentException("Varint demasiado largo");
+    }
+}
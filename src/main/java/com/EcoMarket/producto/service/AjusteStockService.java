@@ -0,0 +1,292 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.model.EstadoInventario;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.Colacion;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ajustes de stock en bloque (entradas de mercancía y recuentos).
+ *
+ * En vez de un PUT por fila, las líneas se validan juntas y se aplican por lotes:
+ * - Los productos de todas las líneas se comprueban con una consulta por cada
+ *   tamanoLote ids distintos (un IN acotado, como el de cada lote).
+ * - Las líneas se ordenan por producto y ubicación (mismo orden de bloqueo en
+ *   todas las peticiones, sin interbloqueos) y se parten en lotes.
+ * - Cada lote es una transacción: lee con FOR UPDATE las filas afectadas, calcula
+ *   en memoria la cantidad y el estado nuevos y los escribe con un batch JDBC.
+ *
+ * Las ubicaciones se comparan con la colación de la columna ("almacén a" es la fila
+ * "Almacén A"). Si un producto tiene dos filas en la misma ubicación, sus líneas se
+ * rechazan con UBICACION_REPETIDA en vez de ajustar una de ellas al azar.
+ *
+ * Un lote que falla no deshace los anteriores; el informe indica el resultado de
+ * cada línea en el orden de la petición.
+ */
+@Service
+public class AjusteStockService {
+
+    /**
+     * Línea de ajuste: delta suma o resta unidades (entrada o salida) y cantidad fija
+     * el stock contado. Debe venir exactamente uno de los dos.
+     */
+    public record AjusteStock(Long productoId, String ubicacion, Integer delta, Integer cantidad) {
+    }
+
+    public enum Resultado { APLICADO, INVALIDO, PRODUCTO_NO_ENCONTRADO, INVENTARIO_NO_ENCONTRADO, UBICACION_REPETIDA,
+        STOCK_NEGATIVO, ERROR }
+
+    /**
+     * Resultado de una línea (linea es su posición en la petición, desde 0).
+     */
+    public record LineaResultado(int linea, Long productoId, String ubicacion, Resultado resultado,
+            Long inventarioId, Integer cantidad, EstadoInventario estado) {
+    }
+
+    public record InformeAjustes(int aplicados, int rechazados, List<LineaResultado> lineas) {
+    }
+
+    // Fila de inventario leída para un lote
+    static final class FilaStock {
+        final long id;
+        final long productoId;
+        final String ubicacion;
+        // null = sin mínimo, como en Inventario
+        final Integer cantidadMinima;
+        int cantidad;
+        boolean modificada;
+        // Hay otra fila del producto en la misma ubicación: no se ajusta ninguna
+        boolean repetida;
+
+        FilaStock(long id, long productoId, String ubicacion, int cantidad, Integer cantidadMinima) {
+            this.id = id;
+            this.productoId = productoId;
+            this.ubicacion = ubicacion;
+            this.cantidad = cantidad;
+            this.cantidadMinima = cantidadMinima;
+        }
+    }
+
+    // La ubicación se guarda normalizada con Colacion.clave
+    record Clave(long productoId, String ubicacion) {
+        Clave {
+            ubicacion = Colacion.clave(ubicacion);
+        }
+    }
+
+    private static final String UPDATE_INVENTARIO =
+        "UPDATE Inventario SET cantidad = ?, estado = ?, fecha_actualizacion = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${inventario.ajustes.lote:1000}")
+    private int tamanoLote = 1000;
+
+    public InformeAjustes ajustar(List<AjusteStock> ajustes) {
+        LineaResultado[] resultados = new LineaResultado[ajustes.size()];
+        List<Integer> validas = new ArrayList<>(ajustes.size());
+        for (int i = 0; i < ajustes.size(); i++) {
+            AjusteStock ajuste = ajustes.get(i);
+            if (valido(ajuste)) {
+                validas.add(i);
+            } else {
+                resultados[i] = rechazo(i, ajuste, Resultado.INVALIDO);
+            }
+        }
+
+        Set<Long> productos = productosExistentes(validas.stream().map(i -> ajustes.get(i).productoId()).toList());
+        List<Integer> pendientes = new ArrayList<>(validas.size());
+        for (int i : validas) {
+            if (productos.contains(ajustes.get(i).productoId())) {
+                pendientes.add(i);
+            } else {
+                resultados[i] = rechazo(i, ajustes.get(i), Resultado.PRODUCTO_NO_ENCONTRADO);
+            }
+        }
+
+        // Orden estable por fila destino: las líneas repetidas se aplican en el orden de la petición
+        pendientes.sort(Comparator.comparing((Integer i) -> ajustes.get(i).productoId())
+            .thenComparing(i -> Colacion.clave(ajustes.get(i).ubicacion())));
+        for (int desde = 0; desde < pendientes.size(); desde += tamanoLote) {
+            List<Integer> lote = pendientes.subList(desde, Math.min(desde + tamanoLote, pendientes.size()));
+            try {
+                transactionTemplate.executeWithoutResult(estado -> aplicarLote(ajustes, lote, resultados));
+            } catch (RuntimeException e) {
+                for (int i : lote) {
+                    resultados[i] = rechazo(i, ajustes.get(i), Resultado.ERROR);
+                }
+            }
+        }
+
+        int aplicados = 0;
+        for (LineaResultado resultado : resultados) {
+            if (resultado.resultado() == Resultado.APLICADO) {
+                aplicados++;
+            }
+        }
+        return new InformeAjustes(aplicados, resultados.length - aplicados, List.of(resultados));
+    }
+
+    private void aplicarLote(List<AjusteStock> ajustes, List<Integer> lote, LineaResultado[] resultados) {
+        Set<Long> productoIds = new LinkedHashSet<>();
+        for (int i : lote) {
+            productoIds.add(ajustes.get(i).productoId());
+        }
+        Map<Clave, FilaStock> filas = leerFilas(productoIds);
+        planificar(ajustes, lote, filas, resultados);
+
+        LocalDateTime ahora = LocalDateTime.now();
+        Timestamp marca = Timestamp.valueOf(ahora);
+        List<Object[]> updates = new ArrayList<>();
+        List<Inventario> cambiados = new ArrayList<>();
+        for (FilaStock fila : filas.values()) {
+            if (!fila.modificada) {
+                continue;
+            }
+            EstadoInventario estado = estado(fila.cantidad, fila.cantidadMinima);
+            updates.add(new Object[] { fila.cantidad, estado.name(), marca, fila.id });
+            Producto producto = new Producto();
+            producto.setId(fila.productoId);
+            cambiados.add(new Inventario(fila.id, producto, fila.cantidad, fila.cantidadMinima, fila.ubicacion, ahora, estado));
+        }
+        jdbcTemplate.batchUpdate(UPDATE_INVENTARIO, updates);
+        // Los oyentes (stream, agregados) las reciben al confirmar el lote
+        if (eventPublisher != null) {
+            for (Inventario inventario : cambiados) {
+                eventPublisher.publishEvent(new InventarioCambiadoEvent(
+                    InventarioCambiadoEvent.Tipo.ACTUALIZADO, inventario.getId(), null, inventario));
+            }
+        }
+    }
+
+    /**
+     * Aplica en memoria las líneas del lote sobre las filas leídas y rellena su resultado.
+     */
+    static void planificar(List<AjusteStock> ajustes, List<Integer> lote, Map<Clave, FilaStock> filas,
+            LineaResultado[] resultados) {
+        for (int i : lote) {
+            AjusteStock ajuste = ajustes.get(i);
+            FilaStock fila = filas.get(new Clave(ajuste.productoId(), ajuste.ubicacion()));
+            if (fila == null) {
+                resultados[i] = rechazo(i, ajuste, Resultado.INVENTARIO_NO_ENCONTRADO);
+                continue;
+            }
+            if (fila.repetida) {
+                resultados[i] = rechazo(i, ajuste, Resultado.UBICACION_REPETIDA);
+                continue;
+            }
+            long nueva = ajuste.cantidad() != null ? ajuste.cantidad() : (long) fila.cantidad + ajuste.delta();
+            if (nueva < 0 || nueva > Integer.MAX_VALUE) {
+                resultados[i] = new LineaResultado(i, ajuste.productoId(), ajuste.ubicacion(),
+                    Resultado.STOCK_NEGATIVO, fila.id, fila.cantidad, estado(fila.cantidad, fila.cantidadMinima));
+                continue;
+            }
+            fila.cantidad = (int) nueva;
+            fila.modificada = true;
+            resultados[i] = new LineaResultado(i, ajuste.productoId(), ajuste.ubicacion(),
+                Resultado.APLICADO, fila.id, fila.cantidad, estado(fila.cantidad, fila.cantidadMinima));
+        }
+    }
+
+    // Usa idx_inventario_producto_ubicacion; bloquea las filas hasta el final del lote
+    private Map<Clave, FilaStock> leerFilas(Collection<Long> productoIds) {
+        Map<Clave, FilaStock> filas = new HashMap<>(productoIds.size() * 2);
+        jdbcTemplate.query("SELECT id, producto_id, ubicacion, cantidad, cantidad_minima FROM Inventario "
+                + "WHERE producto_id IN (" + marcadores(productoIds.size()) + ") FOR UPDATE",
+            rs -> {
+                FilaStock fila = new FilaStock(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getInt(4),
+                    rs.getObject(5, Integer.class));
+                FilaStock otra = filas.putIfAbsent(new Clave(fila.productoId, fila.ubicacion), fila);
+                if (otra != null) {
+                    otra.repetida = true;
+                }
+            }, productoIds.toArray());
+        return filas;
+    }
+
+    // Por tramos de tamanoLote ids: una sentencia preparada no admite más de 65.535 marcadores
+    private Set<Long> productosExistentes(List<Long> productoIds) {
+        List<Long> distintos = new ArrayList<>(new LinkedHashSet<>(productoIds));
+        if (distintos.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Long> existentes = new HashSet<>(distintos.size() * 2);
+        for (int desde = 0; desde < distintos.size(); desde += tamanoLote) {
+            List<Long> tramo = distintos.subList(desde, Math.min(desde + tamanoLote, distintos.size()));
+            jdbcTemplate.query("SELECT id FROM Producto WHERE id IN (" + marcadores(tramo.size()) + ")",
+                rs -> {
+                    existentes.add(rs.getLong(1));
+                }, tramo.toArray());
+        }
+        return existentes;
+    }
+
+    // Misma regla que Inventario.actualizarEstado()
+    static EstadoInventario estado(int cantidad, Integer cantidadMinima) {
+        Inventario inventario = new Inventario();
+        inventario.setCantidad(cantidad);
+        inventario.setCantidadMinima(cantidadMinima);
+        inventario.actualizarEstado();
+        return inventario.getEstado();
+    }
+
+    private static boolean valido(AjusteStock ajuste) {
+        return ajuste != null && ajuste.productoId() != null && ajuste.ubicacion() != null
+            && (ajuste.delta() == null) != (ajuste.cantidad() == null)
+            && (ajuste.cantidad() == null || ajuste.cantidad() >= 0);
+    }
+
+    private static LineaResultado rechazo(int linea, AjusteStock ajuste, Resultado resultado) {
+        return ajuste == null
+            ? new LineaResultado(linea, null, null, resultado, null, null, null)
+            : new LineaResultado(linea, ajuste.productoId(), ajuste.ubicacion(), resultado, null, null, null);
+    }
+
+    private static String marcadores(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void setTamanoLote(int tamanoLote) {
+        this.tamanoLote = tamanoLote;
+    }
+}
@@ -0,0 +1,138 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.arranque.CalentamientoService;
+import com.EcoMarket.producto.busqueda.TriePrefijos;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.event.ProductoConsultadoEvent;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.ProductoRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Autocompletado de productos activos por nombre y código.
+ *
+ * Las sugerencias salen de un TriePrefijos en memoria (sin consultar la base de datos)
+ * ordenadas por popularidad: número de veces que se ha consultado el producto por id.
+ * Igual que el resto de índices, se alimenta de eventos de ProductoService: las
+ * escrituras llegan con ProductoCambiadoEvent y las lecturas con ProductoConsultadoEvent.
+ * Los contadores se acumulan sin bloqueo y se vuelcan al trie periódicamente, para
+ * que cada lectura de un producto no tenga que reordenar el índice.
+ */
+@Service
+public class AutocompletadoService {
+
+    public static final int K_POR_DEFECTO = 5;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final TriePrefijos trie = new TriePrefijos();
+
+    // Accesos pendientes de volcar al trie
+    private final Map<Long, LongAdder> accesosPendientes = new ConcurrentHashMap<>();
+    // Popularidad acumulada por producto
+    private final Map<Long, Long> popularidad = new ConcurrentHashMap<>();
+    // Cambios que llegan mientras se lee la carga inicial; se aplican después de ella
+    private final CargaInicial<ProductoCambiadoEvent> carga = new CargaInicial<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        // Solo las columnas necesarias, sin descripcion
+        carga.ejecutar(() -> productoRepository.findCampos(Set.of("id", "codigo", "nombre", "activo")),
+            this::insertar, this::aplicar);
+    }
+
+    private void insertar(List<Map<String, Object>> filas) {
+        for (Map<String, Object> fila : filas) {
+            if (Boolean.TRUE.equals(fila.get("activo"))) {
+                Long id = (Long) fila.get("id");
+                trie.insertar(id, (String) fila.get("codigo"), (String) fila.get("nombre"), popularidad.getOrDefault(id, 0L));
+            }
+        }
+    }
+
+    public List<TriePrefijos.Entrada> sugerir(String prefijo, int k) {
+        if (prefijo == null || prefijo.isBlank()) {
+            return List.of();
+        }
+        return trie.sugerir(prefijo, Math.max(1, Math.min(k, TriePrefijos.MAX_K)));
+    }
+
+    /**
+     * Señal de popularidad: cada lectura de un producto por id, salvo las peticiones
+     * sintéticas del calentamiento de arranque (cabecera CalentamientoService.CABECERA).
+     * El evento se publica en el hilo de la petición, así que la cabecera se ve aquí.
+     */
+    @EventListener
+    public void alConsultarProducto(ProductoConsultadoEvent evento) {
+        if (!esCalentamiento()) {
+            registrarAcceso(evento.productoId());
+        }
+    }
+
+    public void registrarAcceso(Long id) {
+        accesosPendientes.computeIfAbsent(id, clave -> new LongAdder()).increment();
+    }
+
+    // Vuelca los accesos acumulados al trie (solo reindexa los productos que cambiaron)
+    @Scheduled(fixedDelayString = "${autocompletado.refresco-ms:30000}")
+    public void aplicarPopularidad() {
+        for (Long id : accesosPendientes.keySet()) {
+            LongAdder contador = accesosPendientes.remove(id);
+            long nuevos = contador == null ? 0 : contador.sum();
+            if (nuevos == 0) {
+                continue;
+            }
+            long total = popularidad.merge(id, nuevos, Long::sum);
+            TriePrefijos.Entrada entrada = trie.obtener(id);
+            if (entrada != null) {
+                trie.insertar(id, entrada.codigo(), entrada.nombre(), total);
+            }
+        }
+    }
+
+    private static boolean esCalentamiento() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos
+            && atributos.getRequest().getHeader(CalentamientoService.CABECERA) != null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        if (!carga.aplazar(evento)) {
+            aplicar(evento);
+        }
+    }
+
+    private void aplicar(ProductoCambiadoEvent evento) {
+        if (evento.tipo() == ProductoCambiadoEvent.Tipo.ELIMINADO) {
+            trie.eliminar(evento.productoId());
+            popularidad.remove(evento.productoId());
+            return;
+        }
+        Producto producto = evento.actual();
+        if (producto.isActivo()) {
+            trie.insertar(producto.getId(), producto.getCodigo(), producto.getNombre(),
+                popularidad.getOrDefault(producto.getId(), 0L));
+        } else {
+            trie.eliminar(producto.getId());
+        }
+    }
+
+    public void setProductoRepository(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+}
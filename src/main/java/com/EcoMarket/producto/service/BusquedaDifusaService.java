@@ -0,0 +1,84 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.busqueda.IndiceDifuso;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.ProductoRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Búsqueda tolerante a errores de escritura ("tomatoe", "manzna") sobre nombre y categoría.
+ *
+ * El índice vive en memoria, se carga al iniciar con una proyección de las columnas
+ * necesarias y se mantiene al día con los eventos de ProductoService. Los eventos que
+ * llegan mientras se lee la carga se aplican al terminarla, para que no los pise.
+ */
+@Service
+public class BusquedaDifusaService {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final IndiceDifuso indice = new IndiceDifuso();
+    private final CargaInicial<ProductoCambiadoEvent> carga = new CargaInicial<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        carga.ejecutar(() -> productoRepository.findCampos(Set.of("id", "codigo", "nombre", "categoria")),
+            this::agregar, this::aplicar);
+    }
+
+    private void agregar(List<Map<String, Object>> filas) {
+        for (Map<String, Object> fila : filas) {
+            indice.agregar(new IndiceDifuso.Documento((Long) fila.get("id"), (String) fila.get("codigo"),
+                (String) fila.get("nombre"), (String) fila.get("categoria")));
+        }
+    }
+
+    /**
+     * Página de resultados. Solo se pueden recorrer los IndiceDifuso.MAX_RESULTADOS
+     * primeros: el índice devuelve los mejores hasta el final de la página pedida y
+     * el total se acota a ese máximo.
+     */
+    public Page<IndiceDifuso.Resultado> buscar(String consulta, Pageable pageable) {
+        long hastaPedido = pageable.getOffset() + pageable.getPageSize();
+        IndiceDifuso.Busqueda busqueda = indice.buscar(consulta,
+            (int) Math.min(hastaPedido, IndiceDifuso.MAX_RESULTADOS));
+        List<IndiceDifuso.Resultado> resultados = busqueda.resultados();
+        int desde = (int) Math.min(pageable.getOffset(), resultados.size());
+        return new PageImpl<>(resultados.subList(desde, resultados.size()), pageable,
+            Math.min(busqueda.total(), IndiceDifuso.MAX_RESULTADOS));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        if (!carga.aplazar(evento)) {
+            aplicar(evento);
+        }
+    }
+
+    private void aplicar(ProductoCambiadoEvent evento) {
+        if (evento.tipo() == ProductoCambiadoEvent.Tipo.ELIMINADO) {
+            indice.eliminar(evento.productoId());
+            return;
+        }
+        Producto p = evento.actual();
+        indice.agregar(new IndiceDifuso.Documento(p.getId(), p.getCodigo(), p.getNombre(), p.getCategoria()));
+    }
+
+    public void setProductoRepository(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+}
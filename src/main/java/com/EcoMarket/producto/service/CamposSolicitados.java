@@ -0,0 +1,38 @@
+package com.EcoMarket.producto.service;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Interpreta el parámetro fields= ("codigo,nombre,precio") de los endpoints de listado.
+ */
+final class CamposSolicitados {
+
+    private CamposSolicitados() {
+    }
+
+    /**
+     * Devuelve los campos pedidos en el orden recibido, siempre con "id" primero
+     * (lo necesitan los enlaces HATEOAS). Lanza IllegalArgumentException si algún
+     * campo no existe en la entidad.
+     */
+    static Set<String> parsear(String fields, Map<String, String> permitidos) {
+        if (fields == null || fields.isBlank()) {
+            throw new IllegalArgumentException("Debe indicar al menos un campo");
+        }
+        Set<String> campos = new LinkedHashSet<>();
+        campos.add("id");
+        for (String campo : fields.split(",")) {
+            String limpio = campo.trim();
+            if (limpio.isEmpty()) {
+                continue;
+            }
+            if (!permitidos.containsKey(limpio)) {
+                throw new IllegalArgumentException("Campo no permitido: " + limpio);
+            }
+            campos.add(limpio);
+        }
+        return campos;
+    }
+}
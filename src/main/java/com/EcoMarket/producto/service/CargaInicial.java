@@ -0,0 +1,69 @@
+package com.EcoMarket.producto.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Carga de un índice en memoria que no pierde los eventos que llegan mientras se lee.
+ *
+ * Los índices se cargan con una consulta y se mantienen con eventos de después del
+ * commit. Entre la consulta y el momento en que sus filas sustituyen al índice puede
+ * confirmarse un cambio: si se aplicara en ese hueco, la carga lo pisaría con la fila
+ * leída antes. Aquí los eventos de ese intervalo se aplazan y se aplican, en orden de
+ * llegada, justo después de sustituir el índice (repetir un cambio que la consulta ya
+ * vio deja el mismo resultado).
+ *
+ * @param <E> tipo de evento
+ */
+final class CargaInicial<E> {
+
+    // null cuando no hay carga en curso
+    private List<E> aplazados;
+
+    /**
+     * Lee fuera de cualquier bloqueo, sustituye el índice con lo leído y aplica los
+     * eventos aplazados. Si la lectura falla, los aplazados se aplican al índice que
+     * había y se relanza el error.
+     */
+    <D> void ejecutar(Supplier<D> leer, Consumer<D> sustituir, Consumer<E> aplicar) {
+        synchronized (this) {
+            if (aplazados == null) {
+                aplazados = new ArrayList<>();
+            }
+        }
+        D datos = null;
+        RuntimeException error = null;
+        try {
+            datos = leer.get();
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        synchronized (this) {
+            try {
+                if (error == null) {
+                    sustituir.accept(datos);
+                }
+                aplazados.forEach(aplicar);
+            } finally {
+                aplazados = null;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * true si hay una carga en curso y el evento se ha guardado para después; si
+     * devuelve false el llamador lo aplica ya.
+     */
+    synchronized boolean aplazar(E evento) {
+        if (aplazados == null) {
+            return false;
+        }
+        aplazados.add(evento);
+        return true;
+    }
+}
@@ -0,0 +1,198 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.Assemblers.ProductoModelAssembler;
+import com.EcoMarket.producto.config.FormatosBinariosConfig;
+import com.EcoMarket.producto.controller.ProductoControllerV2;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.ProductoRepository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot en memoria del catálogo activo (findByActivoTrue) ya serializado en HAL JSON
+ * y comprimido con gzip.
+ *
+ * Cada escritura de ProductoService sube la versión del catálogo y programa una
+ * reconstrucción en un hilo propio; las peticiones siempre leen el último snapshot
+ * terminado y nunca esperan. Varias escrituras seguidas se agrupan en una sola
+ * reconstrucción. Todas las construcciones, también la del arranque, pasan por ese
+ * único hilo, y un snapshot nunca sustituye a otro de versión mayor.
+ */
+@Service
+public class CatalogoSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogoSnapshotService.class);
+
+    /**
+     * Catálogo serializado de una versión concreta.
+     */
+    public record Snapshot(long version, String etag, byte[] json, byte[] gzip) {
+
+        /**
+         * ETag de cada representación: la comprimida tiene otros bytes y no puede
+         * compartir el ETag fuerte de la identidad.
+         */
+        public String etag(boolean comprimido) {
+            return comprimido ? etag.substring(0, etag.length() - 1) + "-gzip\"" : etag;
+        }
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoModelAssembler assembler;
+
+    private ObjectMapper mapper;
+
+    private final AtomicReference<Snapshot> actual = new AtomicReference<>();
+    private final AtomicLong versionSolicitada = new AtomicLong();
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "catalogo-snapshot");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    @Autowired
+    public void configurarMapper(Jackson2ObjectMapperBuilder builder, LinkRelationProvider linkRelationProvider) {
+        this.mapper = FormatosBinariosConfig.conHal(builder.build(), linkRelationProvider);
+    }
+
+    /**
+     * Último snapshot construido, o null si todavía no hay ninguno.
+     */
+    public Snapshot obtener() {
+        return actual.get();
+    }
+
+    // El primer snapshot se construye antes de aceptar tráfico, en el hilo de las reconstrucciones
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        try {
+            executor.submit(() -> construir(versionSolicitada.get())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("No se pudo construir el snapshot inicial del catálogo", e.getCause());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        versionSolicitada.incrementAndGet();
+        programar();
+    }
+
+    private void programar() {
+        if (reconstruyendo.compareAndSet(false, true)) {
+            executor.execute(this::reconstruirPendientes);
+        }
+    }
+
+    private void reconstruirPendientes() {
+        try {
+            long version;
+            do {
+                version = versionSolicitada.get();
+                construir(version);
+            } while (version < versionSolicitada.get());
+        } catch (RuntimeException e) {
+            log.error("No se pudo reconstruir el snapshot del catálogo", e);
+        } finally {
+            reconstruyendo.set(false);
+        }
+        // Un cambio pudo llegar entre el último while y el set(false)
+        Snapshot snapshot = actual.get();
+        if (snapshot == null || snapshot.version() < versionSolicitada.get()) {
+            programar();
+        }
+    }
+
+    Snapshot construir(long version) {
+        List<Producto> activos = productoRepository.findByActivoTrue();
+        List<EntityModel<Producto>> modelos = activos.stream()
+            .map(assembler::toModel)
+            .collect(Collectors.toList());
+        CollectionModel<EntityModel<Producto>> coleccion = CollectionModel.of(modelos,
+            linkTo(methodOn(ProductoControllerV2.class).catalogo(null, null)).withSelfRel());
+        try {
+            byte[] json = mapper.writeValueAsBytes(coleccion);
+            Snapshot snapshot = new Snapshot(version, etag(json), json, gzip(json));
+            Snapshot publicado = actual.accumulateAndGet(snapshot,
+                (anterior, nuevo) -> anterior != null && anterior.version() > nuevo.version() ? anterior : nuevo);
+            if (publicado != snapshot) {
+                log.debug("Snapshot del catálogo v{} descartado: ya hay uno de la v{}", version, publicado.version());
+                return publicado;
+            }
+            log.debug("Snapshot del catálogo v{}: {} productos, {} bytes ({} gzip)",
+                version, activos.size(), json.length, snapshot.gzip().length);
+            return snapshot;
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo", e);
+        }
+    }
+
+    // ETag fuerte basado en el contenido: igual en todas las instancias con el mismo catálogo
+    private static String etag(byte[] json) {
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + json.length + "\"";
+    }
+
+    private static byte[] gzip(byte[] datos) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(datos.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(datos);
+        }
+        return salida.toByteArray();
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    public void setProductoRepository(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    public void setAssembler(ProductoModelAssembler assembler) {
+        this.assembler = assembler;
+    }
+
+    public void setMapper(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+}
@@ -0,0 +1,325 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.Colacion;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creación de productos con commit agrupado (group commit).
+ *
+ * Los proveedores dan de alta productos a ráfagas y cada POST pagaba su propia
+ * transacción, su findByCodigo y su INSERT. Con productos.creacion-agrupada.habilitada
+ * las altas se encolan y un único hilo escritor las junta durante unos milisegundos
+ * (espera-ms) o hasta completar un lote (lote), y las guarda en una transacción:
+ * - Los códigos repetidos dentro del lote y los que ya existen se detectan con una
+ *   sola consulta IN, comparando con la colación de la columna (Colacion); esas altas
+ *   fallan con "El código ya existe", como en guardar().
+ * - El resto se inserta con InsercionProductos (batch JDBC) y sus eventos CREADO se
+ *   publican dentro de la transacción (historial, outbox e invalidación escriben en
+ *   el mismo commit).
+ * - Si el lote falla (p. ej. otra instancia insertó el mismo código a la vez) cada
+ *   alta se repite sola con ProductoService.guardar() en el hilo de su petición, así
+ *   un error no arrastra a las demás ni detiene al escritor.
+ *
+ * Cada petición espera su propio resultado como máximo timeout-ms; al agotarlo cancela
+ * su solicitud y el escritor la descarta si aún no la ha guardado. Con la cola llena
+ * o sin código el alta no espera y se guarda directamente.
+ */
+@Service
+public class CreacionAgrupadaService {
+
+    private static final Logger log = LoggerFactory.getLogger(CreacionAgrupadaService.class);
+
+    /**
+     * Contadores desde el arranque.
+     */
+    public record Estado(boolean habilitada, long lotes, long creados, long duplicados, long individuales, int enCola) {
+    }
+
+    // resultado null: el lote falló y el alta se guarda sola en el hilo de la petición
+    record Solicitud(Producto producto, CompletableFuture<Producto> resultado) {
+    }
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ExistenciaProductoService existenciaService;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> registry;
+
+    @Value("${productos.creacion-agrupada.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${productos.creacion-agrupada.lote:100}")
+    private int tamanoLote = 100;
+
+    @Value("${productos.creacion-agrupada.espera-ms:5}")
+    private long esperaMs = 5;
+
+    @Value("${productos.creacion-agrupada.cola:10000}")
+    private int capacidad = 10_000;
+
+    @Value("${productos.creacion-agrupada.timeout-ms:5000}")
+    private long timeoutMs = 5000;
+
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong creados = new AtomicLong();
+    private final AtomicLong duplicados = new AtomicLong();
+    private final AtomicLong individuales = new AtomicLong();
+    private BlockingQueue<Solicitud> cola;
+    private Thread escritor;
+    private DistributionSummary tamanos;
+
+    @PostConstruct
+    public void iniciar() {
+        tamanos = DistributionSummary.builder("ecomarket.productos.creacion.lote")
+            .description("Altas de producto guardadas en cada transacción agrupada")
+            .register(registry == null ? new SimpleMeterRegistry() : registry.getIfAvailable(SimpleMeterRegistry::new));
+        if (!habilitada) {
+            return;
+        }
+        cola = new ArrayBlockingQueue<>(capacidad);
+        escritor = new Thread(this::escribir, "creacion-agrupada");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    // Termina las altas encoladas antes de que se cierre el pool de conexiones
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        if (escritor != null) {
+            escritor.interrupt();
+            escritor.join(timeoutMs);
+        }
+    }
+
+    /**
+     * Guarda el producto en el siguiente lote y devuelve el producto con su id.
+     */
+    public Producto crear(Producto producto) {
+        // Sin código guardar() falla igual; no ocupa sitio en el lote
+        if (cola == null || producto.getCodigo() == null) {
+            return productoService.guardar(producto);
+        }
+        Solicitud solicitud = new Solicitud(producto, new CompletableFuture<>());
+        if (!cola.offer(solicitud)) {
+            individuales.incrementAndGet();
+            return productoService.guardar(producto);
+        }
+        Producto guardado = esperar(solicitud);
+        if (guardado != null) {
+            return guardado;
+        }
+        individuales.incrementAndGet();
+        return productoService.guardar(producto);
+    }
+
+    private Producto esperar(Solicitud solicitud) {
+        try {
+            return solicitud.resultado().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            if (!solicitud.resultado().cancel(false)) {
+                // El escritor la completó justo ahora
+                return esperar(solicitud);
+            }
+            // Si el escritor ya la había tomado en un lote puede guardarse todavía;
+            // el cliente debe comprobar el código antes de reintentar
+            throw new RuntimeException("Tiempo de espera agotado al crear el producto " + solicitud.producto().getCodigo());
+        } catch (InterruptedException e) {
+            solicitud.resultado().cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Creación interrumpida");
+        }
+    }
+
+    // Bucle del hilo escritor: junta un lote y lo guarda
+    private void escribir() {
+        List<Solicitud> lote = new ArrayList<>(tamanoLote);
+        while (true) {
+            try {
+                lote.add(cola.take());
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+                cola.drainTo(lote, tamanoLote - lote.size());
+                while (lote.size() < tamanoLote) {
+                    Solicitud siguiente = cola.poll(limite - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                    cola.drainTo(lote, tamanoLote - lote.size());
+                }
+            } catch (InterruptedException e) {
+                cola.drainTo(lote);
+                for (int desde = 0; desde < lote.size(); desde += tamanoLote) {
+                    procesar(lote.subList(desde, Math.min(desde + tamanoLote, lote.size())));
+                }
+                return;
+            }
+            procesar(lote);
+            lote.clear();
+        }
+    }
+
+    /**
+     * Guarda un lote y completa el resultado de cada solicitud.
+     */
+    void procesar(List<Solicitud> lote) {
+        // Un código repetido dentro del lote (según la colación): gana la primera alta, como si hubieran
+        // llegado de una en una. Las canceladas por timeout ya no tienen quien las espere y no se guardan.
+        Map<String, Solicitud> porCodigo = new LinkedHashMap<>(lote.size() * 2);
+        for (Solicitud solicitud : lote) {
+            if (!solicitud.resultado().isDone()
+                    && porCodigo.putIfAbsent(Colacion.clave(solicitud.producto().getCodigo()), solicitud) != null) {
+                rechazar(solicitud);
+            }
+        }
+        if (porCodigo.isEmpty()) {
+            return;
+        }
+        lotes.incrementAndGet();
+        tamanos.record(porCodigo.size());
+        List<Solicitud> pendientes = new ArrayList<>(porCodigo.values());
+        try {
+            List<Solicitud> guardadas = transactionTemplate.execute(estado -> insertar(pendientes));
+            for (Solicitud solicitud : guardadas) {
+                solicitud.resultado().complete(solicitud.producto());
+            }
+            creados.addAndGet(guardadas.size());
+        } catch (RuntimeException e) {
+            log.debug("Lote de {} altas fallido, se guardan una a una: {}", pendientes.size(), e.getMessage());
+            for (Solicitud solicitud : pendientes) {
+                // El id asignado en el lote deshecho no existe
+                solicitud.producto().setId(null);
+                solicitud.resultado().complete(null);
+            }
+        }
+    }
+
+    // Dentro de la transacción: descarta los códigos existentes, inserta el resto y publica sus eventos
+    private List<Solicitud> insertar(List<Solicitud> pendientes) {
+        Set<String> existentes = codigosExistentes(pendientes);
+        List<Solicitud> nuevas = new ArrayList<>(pendientes.size());
+        for (Solicitud solicitud : pendientes) {
+            if (existentes.contains(Colacion.clave(solicitud.producto().getCodigo()))) {
+                rechazar(solicitud);
+            } else {
+                nuevas.add(solicitud);
+            }
+        }
+        if (nuevas.isEmpty()) {
+            return nuevas;
+        }
+        InsercionProductos.insertar(jdbcTemplate, eventPublisher, nuevas.stream().map(Solicitud::producto).toList());
+        return nuevas;
+    }
+
+    // Usa la restricción única de codigo; solo pregunta por los que el filtro de códigos no descarta.
+    // Devuelve las claves (Colacion.clave) de los existentes, que pueden diferir en mayúsculas o tildes.
+    private Set<String> codigosExistentes(List<Solicitud> solicitudes) {
+        List<String> dudosos = new ArrayList<>(solicitudes.size());
+        for (Solicitud solicitud : solicitudes) {
+            String codigo = solicitud.producto().getCodigo();
+            if (existenciaService == null || !existenciaService.codigoAusente(codigo)) {
+                dudosos.add(codigo);
+            }
+        }
+        if (dudosos.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> existentes = new HashSet<>();
+        jdbcTemplate.query("SELECT codigo FROM Producto WHERE codigo IN (" + InsercionProductos.marcadores(dudosos.size()) + ")",
+            rs -> {
+                existentes.add(Colacion.clave(rs.getString(1)));
+            }, dudosos.toArray());
+        return existentes;
+    }
+
+    private void rechazar(Solicitud solicitud) {
+        duplicados.incrementAndGet();
+        solicitud.resultado().completeExceptionally(new RuntimeException("El código ya existe"));
+    }
+
+    public Estado estado() {
+        return new Estado(cola != null, lotes.get(), creados.get(), duplicados.get(), individuales.get(),
+            cola == null ? 0 : cola.size());
+    }
+
+    public void setProductoService(ProductoService productoService) {
+        this.productoService = productoService;
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void setExistenciaService(ExistenciaProductoService existenciaService) {
+        this.existenciaService = existenciaService;
+    }
+
+    public void setHabilitada(boolean habilitada) {
+        this.habilitada = habilitada;
+    }
+
+    public void setTamanoLote(int tamanoLote) {
+        this.tamanoLote = tamanoLote;
+    }
+
+    public void setEsperaMs(long esperaMs) {
+        this.esperaMs = esperaMs;
+    }
+}
@@ -0,0 +1,292 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.busqueda.FiltroBloom;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.Colacion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Respuestas rápidas a "este producto no existe".
+ *
+ * Las integraciones de socios preguntan por muchos códigos que no existen y cada alta
+ * comprueba el código antes de insertar; casi siempre la respuesta es "no está" y
+ * aun así iba a MySQL. Aquí hay dos atajos:
+ * - Un filtro de Bloom con todos los Producto.codigo: si dice que no está, seguro que
+ *   no está. Se carga al arrancar y se reconstruye cuando acumula demasiados códigos
+ *   borrados o renombrados (un filtro de Bloom no admite borrar) y, en cualquier caso,
+ *   cada reconstruir-ms, que acota lo que puede faltar si se perdió algún aviso.
+ * - Una caché negativa de ids y códigos consultados sin resultado, con TTL corto y
+ *   tamaño máximo.
+ *
+ * Las altas se agregan al filtro antes de confirmar (un falso positivo de más no hace
+ * daño) y otra vez después, por si la reconstrucción empezó entre medias; después de
+ * confirmar también se quitan de la caché negativa. Una ausencia solo se guarda si no
+ * ha habido cambios desde que empezó la consulta, para no cachear la lectura anterior
+ * a un commit. Los cambios de otras instancias llegan por el bus de invalidación: sin
+ * transporte (invalidacion.transporte vacío) el filtro no ve las altas de las demás
+ * instancias y no se usa para responder "no está"; la caché negativa sigue, acotada
+ * por su TTL. Si aun así se cuela un duplicado, lo para la restricción única de codigo
+ * y ProductoService responde "El código ya existe".
+ *
+ * Filtro y caché guardan los códigos con Colacion.clave(): codigo usa la colación por
+ * defecto de MySQL, así que "abc" existe si existe "ABC".
+ */
+@Service
+public class ExistenciaProductoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExistenciaProductoService.class);
+
+    /**
+     * Estado del filtro y de la caché negativa.
+     */
+    public record Estado(boolean cargado, boolean respondeAusencias, long codigos, long bits, int hashes, double falsoPositivoEstimado,
+            long obsoletos, int ausentesPorId, int ausentesPorCodigo, long evitadasPorFiltro, long evitadasPorCache,
+            long reconstrucciones) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${existencia.bloom.falso-positivo:0.01}")
+    private double falsoPositivo = 0.01;
+
+    // Capacidad del filtro respecto a los códigos cargados, para admitir altas sin reconstruir
+    @Value("${existencia.bloom.margen:2.0}")
+    private double margen = 2.0;
+
+    // Reconstrucción completa periódica, aunque no haya obsoletos
+    @Value("${existencia.bloom.reconstruir-ms:3600000}")
+    private long reconstruirMs = 3_600_000;
+
+    // Sin bus de invalidación el filtro no conoce las altas de otras instancias
+    @Value("${invalidacion.transporte:}")
+    private String transporte = "";
+
+    @Value("${existencia.negativa.ttl-ms:5000}")
+    private long ttlMs = 5000;
+
+    @Value("${existencia.negativa.maximo:100000}")
+    private int maximo = 100_000;
+
+    private volatile FiltroBloom filtro;
+    private volatile FiltroBloom enConstruccion;
+    // Códigos del filtro que ya no existen (borrados o renombrados)
+    private final AtomicLong obsoletos = new AtomicLong();
+    // Se incrementa con cada cambio confirmado; marca de las consultas en curso
+    private final AtomicLong cambios = new AtomicLong();
+    private final Map<Long, Long> ausentesPorId = new ConcurrentHashMap<>();
+    private final Map<String, Long> ausentesPorCodigo = new ConcurrentHashMap<>();
+    private final AtomicLong evitadasPorFiltro = new AtomicLong();
+    private final AtomicLong evitadasPorCache = new AtomicLong();
+    private final AtomicLong reconstrucciones = new AtomicLong();
+    private volatile long reconstruido;
+    private Clock reloj = Clock.systemUTC();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        reconstruir();
+    }
+
+    /**
+     * Carga un filtro nuevo con los códigos de la tabla y sustituye al actual.
+     */
+    public synchronized void reconstruir() {
+        long inicio = System.nanoTime();
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Producto", Long.class);
+        FiltroBloom nuevo = new FiltroBloom((long) ((total == null ? 0 : total) * margen) + 1000, falsoPositivo);
+        // Las altas confirmadas durante la carga se agregan también al filtro nuevo
+        enConstruccion = nuevo;
+        try {
+            jdbcTemplate.query("SELECT codigo FROM Producto", rs -> {
+                nuevo.agregar(Colacion.clave(rs.getString(1)));
+            });
+            obsoletos.set(0);
+            filtro = nuevo;
+            reconstruido = reloj.millis();
+            reconstrucciones.incrementAndGet();
+        } finally {
+            enConstruccion = null;
+        }
+        log.info("Filtro de códigos: {} códigos en {} ms", nuevo.elementos(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Reconstruye el filtro si hay muchos códigos obsoletos, ya se ha llenado o pasó
+     * reconstruir-ms desde la última carga, y purga las ausencias caducadas.
+     */
+    @Scheduled(fixedDelayString = "${existencia.bloom.revisar-ms:600000}", initialDelayString = "${existencia.bloom.revisar-ms:600000}")
+    public void revisar() {
+        long ahora = reloj.millis();
+        ausentesPorId.values().removeIf(caduca -> caduca <= ahora);
+        ausentesPorCodigo.values().removeIf(caduca -> caduca <= ahora);
+        FiltroBloom actual = filtro;
+        if (actual != null && (obsoletos.get() > actual.elementos() / 10
+                || actual.falsoPositivoEstimado() > 2 * falsoPositivo
+                || ahora - reconstruido >= reconstruirMs)) {
+            reconstruir();
+        }
+    }
+
+    /**
+     * Busca el producto por id salvo que se sepa que no existe; guarda la ausencia.
+     */
+    public Optional<Producto> porId(Long id, Supplier<Optional<Producto>> consulta) {
+        if (vigente(ausentesPorId, id)) {
+            evitadasPorCache.incrementAndGet();
+            return Optional.empty();
+        }
+        long marca = cambios.get();
+        Optional<Producto> producto = consulta.get();
+        if (producto.isEmpty()) {
+            registrar(ausentesPorId, id, marca);
+        }
+        return producto;
+    }
+
+    /**
+     * Busca el producto por código salvo que se sepa que no existe; guarda la ausencia.
+     */
+    public Optional<Producto> porCodigo(String codigo, Supplier<Optional<Producto>> consulta) {
+        if (codigoAusente(codigo)) {
+            return Optional.empty();
+        }
+        long marca = cambios.get();
+        Optional<Producto> producto = consulta.get();
+        if (producto.isEmpty() && codigo != null) {
+            registrar(ausentesPorCodigo, Colacion.clave(codigo), marca);
+        }
+        return producto;
+    }
+
+    /**
+     * true si el código seguro que no existe (filtro de Bloom o ausencia reciente).
+     */
+    public boolean codigoAusente(String codigo) {
+        if (codigo == null) {
+            return false;
+        }
+        String clave = Colacion.clave(codigo);
+        FiltroBloom actual = filtro;
+        if (actual != null && respondeAusencias() && !actual.puedeContener(clave)) {
+            evitadasPorFiltro.incrementAndGet();
+            return true;
+        }
+        if (vigente(ausentesPorCodigo, clave)) {
+            evitadasPorCache.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void antesDeConfirmar(ProductoCambiadoEvent evento) {
+        if (evento.actual() != null) {
+            agregar(evento.actual().getCodigo());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        cambios.incrementAndGet();
+        ausentesPorId.remove(evento.productoId());
+        Producto actual = evento.actual();
+        Producto anterior = evento.anterior();
+        if (actual != null && actual.getCodigo() != null) {
+            agregar(actual.getCodigo());
+            ausentesPorCodigo.remove(Colacion.clave(actual.getCodigo()));
+        }
+        if (evento.tipo() == ProductoCambiadoEvent.Tipo.ELIMINADO
+                || (anterior != null && actual != null && anterior.getCodigo() != null
+                    && !Colacion.clave(anterior.getCodigo()).equals(Colacion.clave(actual.getCodigo())))) {
+            obsoletos.incrementAndGet();
+        }
+    }
+
+    private boolean respondeAusencias() {
+        return transporte != null && !transporte.isBlank();
+    }
+
+    private void agregar(String codigo) {
+        if (codigo == null) {
+            return;
+        }
+        String clave = Colacion.clave(codigo);
+        FiltroBloom actual = filtro;
+        if (actual != null) {
+            actual.agregar(clave);
+        }
+        FiltroBloom nuevo = enConstruccion;
+        if (nuevo != null) {
+            nuevo.agregar(clave);
+        }
+    }
+
+    private <K> boolean vigente(Map<K, Long> ausentes, K clave) {
+        Long caduca = ausentes.get(clave);
+        if (caduca == null) {
+            return false;
+        }
+        if (caduca > reloj.millis()) {
+            return true;
+        }
+        ausentes.remove(clave, caduca);
+        return false;
+    }
+
+    // Solo si nada ha cambiado desde que empezó la consulta y queda sitio
+    private <K> void registrar(Map<K, Long> ausentes, K clave, long marca) {
+        if (ausentes.size() < maximo && cambios.get() == marca) {
+            ausentes.put(clave, reloj.millis() + ttlMs);
+            if (cambios.get() != marca) {
+                ausentes.remove(clave);
+            }
+        }
+    }
+
+    public Estado estado() {
+        FiltroBloom actual = filtro;
+        return new Estado(actual != null, respondeAusencias(), actual == null ? 0 : actual.elementos(), actual == null ? 0 : actual.numeroBits(),
+            actual == null ? 0 : actual.numeroHashes(), actual == null ? 0 : actual.falsoPositivoEstimado(),
+            obsoletos.get(), ausentesPorId.size(), ausentesPorCodigo.size(), evitadasPorFiltro.get(),
+            evitadasPorCache.get(), reconstrucciones.get());
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setTtlMs(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    public void setTransporte(String transporte) {
+        this.transporte = transporte;
+    }
+
+    public void setReconstruirMs(long reconstruirMs) {
+        this.reconstruirMs = reconstruirMs;
+    }
+
+    public void setReloj(Clock reloj) {
+        this.reloj = reloj;
+    }
+}
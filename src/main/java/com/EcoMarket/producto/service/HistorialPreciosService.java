@@ -0,0 +1,170 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.serie.SeriePrecios;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Historial de precios de cada producto.
+ *
+ * Cada cambio de precio se añade a la serie del producto en la misma transacción que
+ * lo guarda (fase BEFORE_COMMIT del evento). La serie se guarda en la tabla
+ * precio_historial en bloques de hasta PUNTOS_POR_BLOQUE puntos codificados con
+ * SeriePrecios; cada bloque lleva su primer y último instante, así que una consulta
+ * por rango solo lee y decodifica los bloques que lo solapan.
+ */
+@Service
+public class HistorialPreciosService {
+
+    public static final int PUNTOS_POR_BLOQUE = 512;
+    public static final int INTERVALOS_MAXIMOS = 2000;
+
+    /**
+     * Cambio de precio.
+     */
+    public record PuntoPrecio(Instant instante, BigDecimal precio) {
+    }
+
+    /**
+     * Puntos de [desde, hasta] y precio vigente al empezar el rango (null si no había).
+     */
+    public record HistorialPrecio(Long productoId, Instant desde, Instant hasta, BigDecimal precioInicial,
+            List<PuntoPrecio> puntos) {
+    }
+
+    /**
+     * Resumen de un intervalo de la serie reducida.
+     */
+    public record IntervaloPrecio(Instant inicio, Instant fin, BigDecimal apertura, BigDecimal maximo,
+            BigDecimal minimo, BigDecimal cierre, int cambios) {
+    }
+
+    private record Bloque(int numero, byte[] datos) {
+    }
+
+    // Bloque 0 recién creado, todavía sin puntos
+    private static final byte[] VACIO = new SeriePrecios().codificar();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Clock reloj = Clock.systemUTC();
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        Producto actual = evento.actual();
+        // Los cambios de otras instancias ya los registró la instancia que los hizo
+        if (evento.remoto() || evento.tipo() == ProductoCambiadoEvent.Tipo.ELIMINADO || actual == null
+                || actual.getPrecio() == null) {
+            return;
+        }
+        Producto anterior = evento.anterior();
+        if (anterior != null && anterior.getPrecio() != null && anterior.getPrecio().compareTo(actual.getPrecio()) == 0) {
+            return;
+        }
+        registrar(evento.productoId(), reloj.millis(), SeriePrecios.escalar(actual.getPrecio()));
+    }
+
+    /**
+     * Añade un punto al último bloque del producto, o abre uno nuevo si está lleno.
+     *
+     * Un SELECT ... FOR UPDATE sin filas no bloquea nada (los bloqueos de hueco de
+     * InnoDB son compatibles entre sí), así que dos primeros cambios simultáneos de un
+     * producto leerían los dos "sin historial" e insertarían los dos el bloque 0. Por
+     * eso se inserta primero el bloque 0 vacío con INSERT ... ON DUPLICATE KEY UPDATE:
+     * si ya existía solo bloquea su fila, y en los dos casos la fila queda bloqueada
+     * hasta el commit y serializa los cambios de un mismo producto.
+     */
+    void registrar(Long productoId, long instante, long precio) {
+        jdbcTemplate.update("INSERT INTO precio_historial (producto_id, bloque, desde, hasta, puntos, datos) "
+                + "VALUES (?, 0, ?, ?, 0, ?) ON DUPLICATE KEY UPDATE puntos = puntos",
+            productoId, instante, instante, VACIO);
+        Bloque ultimo = jdbcTemplate.query(
+            "SELECT bloque, datos FROM precio_historial WHERE producto_id = ? ORDER BY bloque DESC LIMIT 1 FOR UPDATE",
+            (rs, i) -> new Bloque(rs.getInt(1), rs.getBytes(2)), productoId).get(0);
+        SeriePrecios serie = SeriePrecios.decodificar(ultimo.datos());
+        if (serie.tamano() >= PUNTOS_POR_BLOQUE) {
+            SeriePrecios nueva = new SeriePrecios(1);
+            nueva.agregar(instante, precio);
+            jdbcTemplate.update("INSERT INTO precio_historial (producto_id, bloque, desde, hasta, puntos, datos) "
+                    + "VALUES (?, ?, ?, ?, 1, ?)",
+                productoId, ultimo.numero() + 1, nueva.instante(0), nueva.instante(0), nueva.codificar());
+            return;
+        }
+        serie.agregar(instante, precio);
+        jdbcTemplate.update("UPDATE precio_historial SET desde = ?, hasta = ?, puntos = ?, datos = ? "
+                + "WHERE producto_id = ? AND bloque = ?",
+            serie.instante(0), serie.instante(serie.tamano() - 1), serie.tamano(), serie.codificar(),
+            productoId, ultimo.numero());
+    }
+
+    public HistorialPrecio consultar(Long productoId, Instant desde, Instant hasta) {
+        SeriePrecios serie = leer(productoId, desde.toEpochMilli(), hasta.toEpochMilli());
+        int i = serie.primerIndiceDesde(desde.toEpochMilli());
+        BigDecimal inicial = i > 0 ? SeriePrecios.desescalar(serie.precio(i - 1)) : null;
+        List<PuntoPrecio> puntos = new ArrayList<>();
+        for (; i < serie.tamano() && serie.instante(i) <= hasta.toEpochMilli(); i++) {
+            puntos.add(new PuntoPrecio(Instant.ofEpochMilli(serie.instante(i)), SeriePrecios.desescalar(serie.precio(i))));
+        }
+        return new HistorialPrecio(productoId, desde, hasta, inicial, puntos);
+    }
+
+    /**
+     * Serie reducida a n intervalos iguales entre desde y hasta (apertura, máximo, mínimo y cierre).
+     */
+    public List<IntervaloPrecio> reducir(Long productoId, Instant desde, Instant hasta, int intervalos) {
+        if (intervalos <= 0 || intervalos > INTERVALOS_MAXIMOS) {
+            throw new IllegalArgumentException("intervalos debe estar entre 1 y " + INTERVALOS_MAXIMOS);
+        }
+        SeriePrecios serie = leer(productoId, desde.toEpochMilli(), hasta.toEpochMilli());
+        List<IntervaloPrecio> resultado = new ArrayList<>(intervalos);
+        for (SeriePrecios.Intervalo intervalo : serie.reducir(desde.toEpochMilli(), hasta.toEpochMilli(), intervalos, null)) {
+            resultado.add(new IntervaloPrecio(Instant.ofEpochMilli(intervalo.inicio()), Instant.ofEpochMilli(intervalo.fin()),
+                SeriePrecios.desescalar(intervalo.apertura()), SeriePrecios.desescalar(intervalo.maximo()),
+                SeriePrecios.desescalar(intervalo.minimo()), SeriePrecios.desescalar(intervalo.cierre()),
+                intervalo.cambios()));
+        }
+        return resultado;
+    }
+
+    // Bloques que solapan [desde, hasta] más el anterior, que tiene el precio vigente en desde
+    private SeriePrecios leer(Long productoId, long desde, long hasta) {
+        if (hasta < desde) {
+            throw new IllegalArgumentException("hasta debe ser posterior a desde");
+        }
+        List<byte[]> bloques = new ArrayList<>(jdbcTemplate.query(
+            "SELECT datos FROM precio_historial WHERE producto_id = ? AND hasta < ? ORDER BY bloque DESC LIMIT 1",
+            (rs, i) -> rs.getBytes(1), productoId, desde));
+        bloques.addAll(jdbcTemplate.query(
+            "SELECT datos FROM precio_historial WHERE producto_id = ? AND hasta >= ? AND desde <= ? ORDER BY bloque",
+            (rs, i) -> rs.getBytes(1), productoId, desde, hasta));
+        SeriePrecios serie = new SeriePrecios();
+        for (byte[] datos : bloques) {
+            SeriePrecios bloque = SeriePrecios.decodificar(datos);
+            for (int i = 0; i < bloque.tamano(); i++) {
+                serie.agregar(bloque.instante(i), bloque.precio(i));
+            }
+        }
+        return serie;
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setReloj(Clock reloj) {
+        this.reloj = reloj;
+    }
+}
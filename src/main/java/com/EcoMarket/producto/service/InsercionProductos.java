@@ -0,0 +1,74 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.Colacion;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserción de productos nuevos con un batch JDBC, compartida por las altas agrupadas
+ * (CreacionAgrupadaService) y la importación CSV.
+ *
+ * Hace lo mismo que ProductoService.guardar() para un alta, pero para todo el lote: un
+ * batch INSERT, una consulta IN para recuperar los ids y un evento CREADO por producto.
+ * Los oyentes (historial, outbox, invalidación) escriben en la misma transacción.
+ */
+public final class InsercionProductos {
+
+    static final String INSERT_PRODUCTO = "INSERT INTO Producto "
+        + "(codigo, nombre, descripcion, precio, categoria, fecha_creacion, fecha_actualizacion, activo) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private InsercionProductos() {
+    }
+
+    /**
+     * Inserta los productos, les asigna id y fechas y publica su evento CREADO.
+     *
+     * Debe llamarse dentro de una transacción con códigos que no existen y distintos
+     * entre sí según Colacion.clave; si no, el batch falla con la restricción única.
+     *
+     * @param eventPublisher null para no publicar eventos
+     */
+    public static void insertar(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+            List<Producto> productos) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Timestamp marca = Timestamp.valueOf(ahora);
+        List<Object[]> filas = new ArrayList<>(productos.size());
+        for (Producto p : productos) {
+            filas.add(new Object[] {
+                p.getCodigo(), p.getNombre(), p.getDescripcion(), p.getPrecio(), p.getCategoria(), marca, marca, p.isActivo()
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT_PRODUCTO, filas);
+
+        // La base de datos compara los códigos con su colación; el mapa, igual
+        Map<String, Long> ids = new HashMap<>(productos.size() * 2);
+        jdbcTemplate.query("SELECT id, codigo FROM Producto WHERE codigo IN (" + marcadores(productos.size()) + ")",
+            rs -> {
+                ids.put(Colacion.clave(rs.getString(2)), rs.getLong(1));
+            }, productos.stream().map(Producto::getCodigo).toArray());
+        for (Producto p : productos) {
+            p.setId(ids.get(Colacion.clave(p.getCodigo())));
+            p.setFechaCreacion(ahora);
+            p.setFechaActualizacion(ahora);
+            if (eventPublisher != null) {
+                eventPublisher.publishEvent(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, p.getId(), null, p));
+            }
+        }
+    }
+
+    static String marcadores(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
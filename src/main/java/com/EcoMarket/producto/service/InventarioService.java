@@ -1,16 +1,20 @@
 package com.EcoMarket.producto.service;
 
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
 import com.EcoMarket.producto.model.Inventario;
 import com.EcoMarket.producto.repository.InventarioRepository;
+import com.EcoMarket.producto.repository.InventarioRepositoryCustom;
 import com.EcoMarket.producto.repository.ProductoRepository;
 
 import jakarta.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Transactional
@@ -23,6 +27,10 @@ public class InventarioService {
     @Autowired
     private ProductoRepository productoRepository;
 
+    // Notifica los cambios ya confirmados (stream SSE, agregados de stock, etc.)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public List<Inventario> listarTodos() {
         return inventarioRepository.findAll();
     }
@@ -31,6 +39,18 @@ public class InventarioService {
         return inventarioRepository.findById(id);
     }
 
+    /**
+     * Listado con solo los campos pedidos (fields=productoId,cantidad,estado).
+     * Las columnas no pedidas no se consultan en la base de datos.
+     */
+    public List<Map<String, Object>> listarCampos(String fields) {
+        return inventarioRepository.findCampos(CamposSolicitados.parsear(fields, InventarioRepositoryCustom.CAMPOS));
+    }
+
+    public Optional<Map<String, Object>> obtenerCamposPorId(Long id, String fields) {
+        return inventarioRepository.findCamposById(id, CamposSolicitados.parsear(fields, InventarioRepositoryCustom.CAMPOS));
+    }
+
     public Inventario guardar(Inventario inventario) {
         if (inventario.getProducto() == null || inventario.getProducto().getId() == null) {
             throw new IllegalArgumentException("Debe proporcionar un producto válido");
@@ -40,11 +60,14 @@ public class InventarioService {
         }
         inventario.setFechaActualizacion(LocalDateTime.now());
         inventario.actualizarEstado(); // lógica de estado
-        return inventarioRepository.save(inventario);
+        Inventario guardado = inventarioRepository.save(inventario);
+        publicar(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.CREADO, guardado.getId(), null, guardado));
+        return guardado;
     }
 
     public Optional<Inventario> actualizar(Long id, Inventario inventarioActualizado) {
         return inventarioRepository.findById(id).map(inventario -> {
+            Inventario anterior = copiar(inventario);
             if (inventarioActualizado.getProducto() == null || inventarioActualizado.getProducto().getId() == null) {
                 throw new IllegalArgumentException("Debe proporcionar un producto válido");
             }
@@ -57,21 +80,42 @@ public class InventarioService {
             inventario.setUbicacion(inventarioActualizado.getUbicacion());
             inventario.setFechaActualizacion(LocalDateTime.now());
             inventario.actualizarEstado();
-            return inventarioRepository.save(inventario);
+            Inventario guardado = inventarioRepository.save(inventario);
+            // Bloquea la fila antes de que el outbox registre el evento (ver OutboxService)
+            inventarioRepository.flush();
+            publicar(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ACTUALIZADO, id, anterior, guardado));
+            return guardado;
         });
     }
 
     public boolean eliminar(Long id) {
         if (inventarioRepository.existsById(id)) {
             inventarioRepository.deleteById(id);
+            inventarioRepository.flush();
+            publicar(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, id, null, null));
             return true;
         }
         return false;
     }
+
+    private void publicar(InventarioCambiadoEvent evento) {
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(evento);
+        }
+    }
+
+    private static Inventario copiar(Inventario i) {
+        return new Inventario(i.getId(), i.getProducto(), i.getCantidad(), i.getCantidadMinima(), i.getUbicacion(),
+                i.getFechaActualizacion(), i.getEstado());
+    }
+
     public void setInventarioRepository(InventarioRepository inventarioRepository) {
     this.inventarioRepository = inventarioRepository;
 }
     public void setProductoRepository(ProductoRepository productoRepository) {
     this.productoRepository = productoRepository;
+}
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+    this.eventPublisher = eventPublisher;
 }
 }
@@ -0,0 +1,329 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.model.EstadoInventario;
+import com.EcoMarket.producto.model.Inventario;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envío por Server-Sent Events de los cambios de inventario ya confirmados.
+ *
+ * Cada suscriptor tiene sus filtros (producto y/o estado) y una cola acotada. Un
+ * cambio solo se encola en los suscriptores a los que les interesa, y un pool de
+ * hilos vacía las colas: un suscriptor inactivo no ocupa ningún hilo, solo su
+ * SseEmitter y una cola vacía. Si un cliente lee más despacio de lo que llegan los
+ * cambios se descartan sus eventos más antiguos y, si sigue sin ponerse al día, se
+ * cierra su conexión (el navegador reconecta solo).
+ *
+ * Un envío a un cliente lento puede quedarse bloqueado en la escritura del socket.
+ * Cada suscriptor ocupa como mucho un hilo a la vez y cede el hilo cada
+ * ENVIOS_POR_TURNO eventos; el pool crece hasta HILOS_ENVIO para que los bloqueados
+ * no retengan a los demás, y un envío bloqueado más de envio-maximo-ms desconecta al
+ * cliente.
+ *
+ * Cuando un registro deja de pasar el filtro de estado de un suscriptor (por ejemplo
+ * deja de estar AGOTADO) se le envía un evento 'inventario-retirado' para que lo quite
+ * de pantalla. Si no se conoce el estado anterior (ajustes por lotes, cambios de otra
+ * instancia) se envía igualmente; el cliente ignora los que no estaba mostrando.
+ */
+@Service
+public class InventarioStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventarioStreamService.class);
+
+    public static final int CAPACIDAD_COLA = 256;
+    public static final int DESCARTES_MAXIMOS = 1024;
+    public static final int ENVIOS_POR_TURNO = 32;
+    public static final int HILOS_ENVIO = 64;
+
+    public static final String EVENTO = "inventario";
+    public static final String EVENTO_RETIRADO = "inventario-retirado";
+
+    /**
+     * Cambio enviado a los clientes (sin el producto completo).
+     */
+    public record CambioInventario(InventarioCambiadoEvent.Tipo tipo, Long id, Long productoId, Integer cantidad,
+            EstadoInventario estado, String ubicacion, LocalDateTime fechaActualizacion) {
+    }
+
+    // Evento SSE pendiente de enviar a un suscriptor
+    private record Envio(String nombre, CambioInventario cambio) {
+    }
+
+    final class Suscriptor {
+        private final SseEmitter emitter;
+        private final Long productoId;
+        private final EstadoInventario estado;
+        private final BlockingQueue<Envio> cola = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+        private final AtomicBoolean programado = new AtomicBoolean();
+        private final AtomicBoolean cerrado = new AtomicBoolean();
+        private final AtomicInteger descartes = new AtomicInteger();
+        // System.nanoTime() al empezar el envío en curso, 0 si no hay ninguno
+        private final AtomicLong envioDesde = new AtomicLong();
+
+        Suscriptor(SseEmitter emitter, Long productoId, EstadoInventario estado) {
+            this.emitter = emitter;
+            this.productoId = productoId;
+            this.estado = estado;
+        }
+
+        /**
+         * Evento que le corresponde a este suscriptor, o null si el cambio no le afecta.
+         */
+        String evento(CambioInventario cambio, Inventario anterior) {
+            if (cambio.tipo() == InventarioCambiadoEvent.Tipo.ELIMINADO) {
+                // Sin datos del registro borrado: se avisa a todos para que lo quiten de pantalla
+                return EVENTO;
+            }
+            if (productoId != null && !productoId.equals(cambio.productoId())) {
+                return null;
+            }
+            if (estado == null || estado == cambio.estado()) {
+                return EVENTO;
+            }
+            // Ya no pasa el filtro de estado: si lo pasaba, o no se sabe, hay que quitarlo
+            if (cambio.tipo() == InventarioCambiadoEvent.Tipo.ACTUALIZADO
+                    && (anterior == null || anterior.getEstado() == estado)) {
+                return EVENTO_RETIRADO;
+            }
+            return null;
+        }
+
+        // Encola sin bloquear; con la cola llena descarta el evento más antiguo
+        void encolar(String nombre, CambioInventario cambio) {
+            if (cerrado.get()) {
+                return;
+            }
+            Envio pendiente = new Envio(nombre, cambio);
+            while (!cola.offer(pendiente)) {
+                if (cola.poll() != null) {
+                    descartesTotales.incrementAndGet();
+                    if (descartes.incrementAndGet() > DESCARTES_MAXIMOS) {
+                        cerrar();
+                        return;
+                    }
+                }
+            }
+            if (programado.compareAndSet(false, true)) {
+                envio.execute(this::vaciar);
+            }
+        }
+
+        // Envía como mucho ENVIOS_POR_TURNO eventos y, si quedan, vuelve a la cola del pool
+        private void vaciar() {
+            try {
+                Envio pendiente;
+                int enviados = 0;
+                while (enviados < ENVIOS_POR_TURNO && !cerrado.get() && (pendiente = cola.poll()) != null) {
+                    envioDesde.set(System.nanoTime());
+                    emitter.send(SseEmitter.event()
+                        .name(pendiente.nombre())
+                        .id(String.valueOf(secuencia.incrementAndGet()))
+                        .data(pendiente.cambio(), MediaType.APPLICATION_JSON));
+                    envioDesde.set(0);
+                    enviados++;
+                }
+                if (cola.isEmpty()) {
+                    descartes.set(0);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado
+                envioDesde.set(0);
+                cerrar();
+                return;
+            } finally {
+                programado.set(false);
+            }
+            // Quedan eventos del turno, o un cambio llegó entre el último poll y el set(false)
+            if (!cola.isEmpty() && !cerrado.get() && programado.compareAndSet(false, true)) {
+                envio.execute(this::vaciar);
+            }
+        }
+
+        // Comentario SSE por el mismo turno que los eventos: si hay un envío en curso sobra, y si el
+        // ping se bloquea lo ve vigilarEnvios() como cualquier otro envío
+        void latir() {
+            if (cerrado.get() || !programado.compareAndSet(false, true)) {
+                return;
+            }
+            envio.execute(() -> {
+                try {
+                    envioDesde.set(System.nanoTime());
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    cerrar();
+                } finally {
+                    envioDesde.set(0);
+                    programado.set(false);
+                }
+                // Un cambio que llegó durante el ping no pudo programarse
+                if (!cola.isEmpty() && !cerrado.get() && programado.compareAndSet(false, true)) {
+                    envio.execute(this::vaciar);
+                }
+            });
+        }
+
+        boolean atascado(long ahora, long maximoNanos) {
+            long desde = envioDesde.get();
+            return desde != 0 && ahora - desde > maximoNanos;
+        }
+
+        void cerrar() {
+            if (!cerrado.compareAndSet(false, true)) {
+                return;
+            }
+            suscriptores.remove(this);
+            cola.clear();
+            emitter.complete();
+        }
+
+        int pendientes() {
+            return cola.size();
+        }
+
+        List<String> eventosPendientes() {
+            return cola.stream().map(Envio::nombre).toList();
+        }
+    }
+
+    @Value("${inventario.stream.timeout-ms:1800000}")
+    private long timeoutMs = 1_800_000L;
+
+    @Value("${inventario.stream.envio-maximo-ms:5000}")
+    private long envioMaximoMs = 5_000L;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final AtomicLong descartesTotales = new AtomicLong();
+
+    // Hasta HILOS_ENVIO hilos que se crean al hacer falta y terminan tras un minuto sin trabajo
+    private final ThreadPoolExecutor pool = new ThreadPoolExecutor(HILOS_ENVIO, HILOS_ENVIO,
+        60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread hilo = new Thread(r, "inventario-stream");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    private Executor envio = pool;
+
+    public InventarioStreamService() {
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Registra un cliente. productoId y estado son filtros opcionales (null = todos).
+     */
+    public SseEmitter suscribir(Long productoId, EstadoInventario estado) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        registrar(emitter, productoId, estado);
+        return emitter;
+    }
+
+    Suscriptor registrar(SseEmitter emitter, Long productoId, EstadoInventario estado) {
+        Suscriptor suscriptor = new Suscriptor(emitter, productoId, estado);
+        suscriptores.add(suscriptor);
+        emitter.onCompletion(() -> suscriptores.remove(suscriptor));
+        emitter.onTimeout(() -> suscriptores.remove(suscriptor));
+        emitter.onError(e -> suscriptores.remove(suscriptor));
+        return suscriptor;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioCambiadoEvent evento) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        CambioInventario cambio = cambio(evento);
+        for (Suscriptor suscriptor : suscriptores) {
+            String nombre = suscriptor.evento(cambio, evento.anterior());
+            if (nombre != null) {
+                suscriptor.encolar(nombre, cambio);
+            }
+        }
+    }
+
+    /**
+     * Desconecta a los clientes cuyo envío lleva bloqueado más de envio-maximo-ms.
+     */
+    @Scheduled(fixedDelayString = "${inventario.stream.vigilancia-ms:1000}")
+    public void vigilarEnvios() {
+        long ahora = System.nanoTime();
+        long maximo = TimeUnit.MILLISECONDS.toNanos(envioMaximoMs);
+        for (Suscriptor suscriptor : suscriptores) {
+            if (suscriptor.atascado(ahora, maximo)) {
+                log.warn("Cliente SSE de inventario desconectado: envío bloqueado más de {} ms", envioMaximoMs);
+                suscriptor.cerrar();
+            }
+        }
+    }
+
+    // Comentario SSE periódico para que proxies y balanceadores no corten las conexiones inactivas
+    @Scheduled(fixedDelayString = "${inventario.stream.heartbeat-ms:25000}")
+    public void latido() {
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.latir();
+        }
+    }
+
+    public int suscriptoresActivos() {
+        return suscriptores.size();
+    }
+
+    public long eventosDescartados() {
+        return descartesTotales.get();
+    }
+
+    static CambioInventario cambio(InventarioCambiadoEvent evento) {
+        Inventario i = evento.actual();
+        if (i == null) {
+            return new CambioInventario(evento.tipo(), evento.inventarioId(), null, null, null, null, null);
+        }
+        return new CambioInventario(evento.tipo(), i.getId(),
+            i.getProducto() != null ? i.getProducto().getId() : null,
+            i.getCantidad(), i.getEstado(), i.getUbicacion(), i.getFechaActualizacion());
+    }
+
+    @PreDestroy
+    public void detener() {
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.cerrar();
+        }
+        pool.shutdownNow();
+    }
+
+    void setEnvio(Executor envio) {
+        this.envio = envio;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public void setEnvioMaximoMs(long envioMaximoMs) {
+        this.envioMaximoMs = envioMaximoMs;
+    }
+}
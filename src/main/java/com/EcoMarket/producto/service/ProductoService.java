@@ -1,14 +1,29 @@
 package com.EcoMarket.producto.service;
 
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.event.ProductoConsultadoEvent;
 import com.EcoMarket.producto.model.Producto;
 import com.EcoMarket.producto.repository.ProductoRepository;
+import com.EcoMarket.producto.repository.ProductoRepositoryCustom;
+import com.EcoMarket.producto.repository.ProductoSpecifications;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * @Service: Marca la clase como un componente de servicio de Spring
@@ -19,18 +34,53 @@ import java.util.Optional;
 @Service
 public class ProductoService {
 
+    // Campos por los que se permite ordenar el filtro (todos cubiertos por un índice)
+    static final Set<String> CAMPOS_ORDENABLES = Set.of("id", "codigo", "precio", "fechaActualizacion");
+    static final int TAMANO_PAGINA_MAXIMO = 100;
+    // ER_DUP_ENTRY de MySQL (SQLState 23000, que también usan NOT NULL y las claves ajenas)
+    private static final int ERROR_CLAVE_DUPLICADA = 1062;
+
     @Autowired
     private ProductoRepository productoRepository;
 
+    // Notifica los cambios y las lecturas a los índices y cachés en memoria (snapshot del catálogo, autocompletado...)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Filtro de códigos y caché negativa: evita ir a la base de datos por productos que no existen
+    @Autowired
+    private ExistenciaProductoService existenciaService;
+
     public List<Producto> listarTodos() {
         return productoRepository.findAll();
     }
 
     public Optional<Producto> obtenerPorId(Long id) {
-        return productoRepository.findById(id);
+        Optional<Producto> producto = existenciaService == null ? productoRepository.findById(id)
+                : existenciaService.porId(id, () -> productoRepository.findById(id));
+        // Señal de popularidad para el autocompletado
+        if (eventPublisher != null && producto.isPresent()) {
+            eventPublisher.publishEvent(new ProductoConsultadoEvent(id));
+        }
+        return producto;
+    }
+
+    /**
+     * Listado con solo los campos pedidos (fields=codigo,nombre,precio).
+     * Las columnas no pedidas no se consultan en la base de datos.
+     */
+    public List<Map<String, Object>> listarCampos(String fields) {
+        return productoRepository.findCampos(CamposSolicitados.parsear(fields, ProductoRepositoryCustom.CAMPOS));
+    }
+
+    public Optional<Map<String, Object>> obtenerCamposPorId(Long id, String fields) {
+        return productoRepository.findCamposById(id, CamposSolicitados.parsear(fields, ProductoRepositoryCustom.CAMPOS));
     }
 
     public Optional<Producto> obtenerPorCodigo(String codigo) {
+        if (existenciaService != null) {
+            return existenciaService.porCodigo(codigo, () -> productoRepository.findByCodigo(codigo));
+        }
         return productoRepository.findByCodigo(codigo);
     }
 
@@ -46,17 +96,44 @@ public class ProductoService {
         return productoRepository.findByCategoria(categoria);
     }
 
+    /**
+     * Filtro multi-criterio paginado. Los parámetros nulos se ignoran y el orden
+     * solo puede usar campos indexados para no provocar un filesort sobre toda la tabla.
+     */
+    public Page<Producto> filtrar(String categoria, Boolean activo, BigDecimal precioMin, BigDecimal precioMax,
+            String nombre, LocalDateTime actualizadoDesde, Pageable pageable) {
+        if (precioMin != null && precioMax != null && precioMin.compareTo(precioMax) > 0) {
+            throw new IllegalArgumentException("precioMin no puede ser mayor que precioMax");
+        }
+        for (Sort.Order orden : pageable.getSort()) {
+            if (!CAMPOS_ORDENABLES.contains(orden.getProperty())) {
+                throw new IllegalArgumentException("No se puede ordenar por: " + orden.getProperty());
+            }
+        }
+        Pageable acotado = pageable.getPageSize() > TAMANO_PAGINA_MAXIMO
+                ? PageRequest.of(pageable.getPageNumber(), TAMANO_PAGINA_MAXIMO, pageable.getSort())
+                : pageable;
+        return productoRepository.findAll(
+                ProductoSpecifications.filtro(categoria, activo, precioMin, precioMax, nombre, actualizadoDesde),
+                acotado);
+    }
+
     public Producto guardar(Producto producto) {
         //verificación de codigo
-        if (productoRepository.findByCodigo(producto.getCodigo()).isPresent()) {
+        if (!codigoAusente(producto.getCodigo()) && productoRepository.findByCodigo(producto.getCodigo()).isPresent()) {
             throw new RuntimeException("El código ya existe");
     }
-        return productoRepository.save(producto);
+        Producto guardado = guardarConCodigoUnico(producto);
+        publicar(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, guardado.getId(), null, guardado));
+        return guardado;
     }
 
     public boolean eliminar(Long id) {
         if (productoRepository.existsById(id)) {
             productoRepository.deleteById(id);
+            // El DELETE bloquea la fila antes de que el outbox registre el evento (ver OutboxService)
+            productoRepository.flush();
+            publicar(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ELIMINADO, id, null, null));
             return true;
         }
         return false;
@@ -64,9 +141,11 @@ public class ProductoService {
     public Optional<Producto> actualizar(Long id, Producto productoActualizado) {
 
     return productoRepository.findById(id).map(producto -> {
+        Producto anterior = copiar(producto);
         // Si se cambia el código, verificar que no esté duplicado
         if (!producto.getCodigo().equals(productoActualizado.getCodigo())) {
-            if (productoRepository.findByCodigo(productoActualizado.getCodigo()).isPresent()) {
+            if (!codigoAusente(productoActualizado.getCodigo())
+                    && productoRepository.findByCodigo(productoActualizado.getCodigo()).isPresent()) {
                 throw new RuntimeException("El código ya existe");
             }
             producto.setCodigo(productoActualizado.getCodigo());
@@ -78,10 +157,67 @@ public class ProductoService {
         producto.setCategoria(productoActualizado.getCategoria());
         producto.setActivo(productoActualizado.isActivo());
         producto.setFechaActualizacion(LocalDateTime.now());
-        return productoRepository.save(producto);
+        // Con flush el UPDATE sale antes del evento del outbox (ver OutboxService)
+        Producto guardado = guardarConCodigoUnico(producto);
+        publicar(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, id, anterior, guardado));
+        return guardado;
     });
     }
+
+    // El filtro de códigos y la comprobación previa no ven las altas concurrentes ni las de otras
+    // instancias aún no propagadas: la restricción única de codigo las para y se responde lo mismo
+    private Producto guardarConCodigoUnico(Producto producto) {
+        try {
+            Producto guardado = productoRepository.save(producto);
+            productoRepository.flush();
+            return guardado;
+        } catch (DataIntegrityViolationException e) {
+            if (esClaveDuplicada(e)) {
+                throw new RuntimeException("El código ya existe");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * true si el error es una clave única repetida (MySQL 1062). En Producto la única
+     * clave única aparte del id autogenerado es codigo. No se mira el nombre de la
+     * restricción: las bases de datos anteriores a Flyway conservan el que generó Hibernate.
+     */
+    public static boolean esClaveDuplicada(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof DuplicateKeyException
+                    || (causa instanceof SQLException sql && sql.getErrorCode() == ERROR_CLAVE_DUPLICADA)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean codigoAusente(String codigo) {
+        return existenciaService != null && existenciaService.codigoAusente(codigo);
+    }
+
+    private void publicar(ProductoCambiadoEvent evento) {
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(evento);
+        }
+    }
+
+    private static Producto copiar(Producto p) {
+        return new Producto(p.getId(), p.getCodigo(), p.getNombre(), p.getDescripcion(), p.getPrecio(),
+                p.getCategoria(), p.getFechaCreacion(), p.getFechaActualizacion(), p.isActivo());
+    }
+
     public void setProductoRepository(ProductoRepository productoRepository){
         this.productoRepository = productoRepository;
     }
+
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void setExistenciaService(ExistenciaProductoService existenciaService) {
+        this.existenciaService = existenciaService;
+    }
 }
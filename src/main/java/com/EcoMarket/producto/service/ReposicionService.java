@@ -0,0 +1,225 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.repository.InventarioRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sugerencia de punto de pedido (cantidadMinima) y cantidad a reponer por registro
+ * de inventario, a partir de su consumo real.
+ *
+ * El consumo son las bajadas de cantidad que llegan con cada escritura confirmada
+ * (las subidas son reposiciones y no cuentan). Se acumula por registro, sin bloqueo global, y
+ * cada periodo se vuelca en una media móvil exponencial (EWMA) del consumo por periodo
+ * y de su varianza. Con ellas:
+ *
+ *   cantidadMinima = consumo medio × plazo + z × desviación × √plazo  (stock de seguridad)
+ *   cantidad a pedir = consumo medio × periodos de cobertura
+ *
+ * El volcado es incremental (O(1) por registro, sin releer historia) y recorre el
+ * mapa en paralelo con las operaciones bulk de ConcurrentHashMap.
+ */
+@Service
+public class ReposicionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReposicionService.class);
+
+    // Registros por tarea en el recorrido paralelo del mapa
+    private static final long UMBRAL_PARALELO = 10_000;
+
+    /**
+     * Sugerencia para un registro de inventario. consumoMedio y desviacion son por periodo.
+     */
+    public record Sugerencia(Long inventarioId, Long productoId, String ubicacion, int cantidad,
+            Integer cantidadMinimaActual, int cantidadMinimaSugerida, int cantidadReposicion,
+            double consumoMedio, double desviacion, long periodos) {
+    }
+
+    // Estado de un registro; consumoPendiente se escribe desde los oyentes y el resto solo desde el volcado
+    static final class EstadoSku {
+        final Long inventarioId;
+        final LongAdder consumoPendiente = new LongAdder();
+        volatile Long productoId;
+        volatile String ubicacion;
+        volatile int cantidad;
+        volatile Integer cantidadMinima;
+        double media;
+        double varianza;
+        long periodos;
+        volatile Sugerencia sugerencia;
+
+        EstadoSku(Long inventarioId) {
+            this.inventarioId = inventarioId;
+        }
+    }
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Value("${reposicion.alfa:0.3}")
+    private double alfa = 0.3;
+
+    // Periodos hasta que llega un pedido
+    @Value("${reposicion.plazo-periodos:24}")
+    private double plazo = 24;
+
+    // Periodos de consumo que debe cubrir cada pedido
+    @Value("${reposicion.cobertura-periodos:168}")
+    private double cobertura = 168;
+
+    // Factor de servicio: 1.65 ≈ 95 % de periodos de plazo sin rotura
+    @Value("${reposicion.z:1.65}")
+    private double z = 1.65;
+
+    private final ConcurrentHashMap<Long, EstadoSku> estados = new ConcurrentHashMap<>();
+    private final AtomicLong volcados = new AtomicLong();
+
+    // Cambios que llegan mientras se lee la carga inicial; se aplican después de ella
+    private final CargaInicial<InventarioCambiadoEvent> carga = new CargaInicial<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        carga.ejecutar(() -> inventarioRepository.findCampos(
+                Set.of("id", "productoId", "cantidad", "cantidadMinima", "ubicacion")),
+            this::insertar, this::aplicar);
+    }
+
+    private void insertar(List<Map<String, Object>> filas) {
+        for (Map<String, Object> fila : filas) {
+            EstadoSku estado = estados.computeIfAbsent((Long) fila.get("id"), EstadoSku::new);
+            Number cantidad = (Number) fila.get("cantidad");
+            Number minima = (Number) fila.get("cantidadMinima");
+            synchronized (estado) {
+                estado.productoId = (Long) fila.get("productoId");
+                estado.ubicacion = (String) fila.get("ubicacion");
+                estado.cantidad = cantidad == null ? 0 : cantidad.intValue();
+                estado.cantidadMinima = minima == null ? null : minima.intValue();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioCambiadoEvent evento) {
+        if (!carga.aplazar(evento)) {
+            aplicar(evento);
+        }
+    }
+
+    private void aplicar(InventarioCambiadoEvent evento) {
+        if (evento.tipo() == InventarioCambiadoEvent.Tipo.ELIMINADO || evento.actual() == null) {
+            estados.remove(evento.inventarioId());
+            return;
+        }
+        Inventario actual = evento.actual();
+        int nueva = actual.getCantidad() == null ? 0 : actual.getCantidad();
+        EstadoSku estado = estados.computeIfAbsent(evento.inventarioId(), EstadoSku::new);
+        synchronized (estado) {
+            if (evento.tipo() != InventarioCambiadoEvent.Tipo.CREADO && nueva < estado.cantidad) {
+                estado.consumoPendiente.add(estado.cantidad - nueva);
+            }
+            estado.cantidad = nueva;
+            estado.cantidadMinima = actual.getCantidadMinima();
+            estado.ubicacion = actual.getUbicacion();
+            if (actual.getProducto() != null) {
+                estado.productoId = actual.getProducto().getId();
+            }
+        }
+    }
+
+    /**
+     * Cierra el periodo: actualiza la EWMA de todos los registros en paralelo.
+     */
+    @Scheduled(fixedRateString = "${reposicion.periodo-ms:3600000}", initialDelayString = "${reposicion.periodo-ms:3600000}")
+    public void cerrarPeriodo() {
+        long inicio = System.nanoTime();
+        estados.forEachValue(UMBRAL_PARALELO, this::actualizar);
+        volcados.incrementAndGet();
+        log.debug("Reposición: {} registros recalculados en {} ms", estados.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    void actualizar(EstadoSku estado) {
+        double consumo = estado.consumoPendiente.sumThenReset();
+        if (estado.periodos == 0) {
+            estado.media = consumo;
+            estado.varianza = 0;
+        } else {
+            double diferencia = consumo - estado.media;
+            estado.media += alfa * diferencia;
+            estado.varianza = (1 - alfa) * (estado.varianza + alfa * diferencia * diferencia);
+        }
+        estado.periodos++;
+        double desviacion = Math.sqrt(estado.varianza);
+        int minima = (int) Math.ceil(estado.media * plazo + z * desviacion * Math.sqrt(plazo));
+        int reposicion = (int) Math.ceil(estado.media * cobertura);
+        estado.sugerencia = new Sugerencia(estado.inventarioId, estado.productoId, estado.ubicacion, estado.cantidad,
+            estado.cantidadMinima, minima, reposicion, estado.media, desviacion, estado.periodos);
+    }
+
+    /**
+     * Sugerencia del registro, o vacío si todavía no se ha cerrado ningún periodo con él.
+     */
+    public Optional<Sugerencia> obtener(Long inventarioId) {
+        EstadoSku estado = estados.get(inventarioId);
+        return estado == null ? Optional.empty() : Optional.ofNullable(estado.sugerencia);
+    }
+
+    /**
+     * Registros cuya cantidadMinima actual está por debajo de la sugerida, de mayor a
+     * menor diferencia (los que antes van a avisar tarde).
+     */
+    public List<Sugerencia> infradimensionados(int limite) {
+        List<Sugerencia> resultado = new ArrayList<>();
+        for (EstadoSku estado : estados.values()) {
+            Sugerencia s = estado.sugerencia;
+            if (s != null && deficit(s) > 0) {
+                resultado.add(s);
+            }
+        }
+        resultado.sort(Comparator.comparingInt(ReposicionService::deficit).reversed());
+        return resultado.subList(0, Math.min(Math.max(limite, 0), resultado.size()));
+    }
+
+    private static int deficit(Sugerencia s) {
+        return s.cantidadMinimaSugerida() - (s.cantidadMinimaActual() == null ? 0 : s.cantidadMinimaActual());
+    }
+
+    public long periodosCerrados() {
+        return volcados.get();
+    }
+
+    public void setInventarioRepository(InventarioRepository inventarioRepository) {
+        this.inventarioRepository = inventarioRepository;
+    }
+
+    public void setAlfa(double alfa) {
+        this.alfa = alfa;
+    }
+
+    public void setPlazo(double plazo) {
+        this.plazo = plazo;
+    }
+
+    public void setCobertura(double cobertura) {
+        this.cobertura = cobertura;
+    }
+}
@@ -0,0 +1,187 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.model.EstadoInventario;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.repository.InventarioRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stock agregado por producto: total, cantidad por ubicación y peor estado.
+ *
+ * Un producto puede tener varias filas de Inventario (una por ubicación). En vez de
+ * sumarlas en cada consulta, el agregado se carga al arrancar y se corrige con cada
+ * escritura confirmada restando la contribución anterior de la fila y sumando la
+ * nueva. La lectura es un get en un mapa y devuelve una vista inmutable.
+ *
+ * Los cambios confirmados mientras se lee la carga inicial se aplazan y se aplican
+ * después sobre lo leído (CargaInicial); si se aplicaran antes, la carga los pisaría.
+ */
+@Service
+public class StockAgregadoService {
+
+    private static final EstadoInventario[] ESTADOS = EstadoInventario.values();
+
+    /**
+     * Stock de un producto en todas sus ubicaciones. El peor estado es el más grave
+     * de sus filas (AGOTADO &gt; BAJO_STOCK &gt; DISPONIBLE). Las filas sin ubicación
+     * suman en sinUbicacion (null si no hay ninguna) y no aparecen en porUbicacion.
+     */
+    public record StockProducto(Long productoId, long total, Map<String, Long> porUbicacion, Long sinUbicacion,
+                                EstadoInventario estado) {
+    }
+
+    // Contribución de una fila de inventario al agregado de su producto
+    private record Fila(Long productoId, String ubicacion, long cantidad, EstadoInventario estado) {
+    }
+
+    // Acumulado mutable de un producto; solo se modifica con el lock del servicio
+    private static final class Acumulado {
+        private long total;
+        private int filas;
+        // ubicación -> {cantidad, filas}; una ubicación desaparece con su última fila
+        private final Map<String, long[]> porUbicacion = new HashMap<>(4);
+        // {cantidad, filas} de las filas con ubicacion null
+        private final long[] sinUbicacion = new long[2];
+        private final int[] filasPorEstado = new int[ESTADOS.length];
+        private volatile StockProducto vista;
+
+        void sumar(Fila fila, int signo) {
+            total += signo * fila.cantidad();
+            filas += signo;
+            String ubicacion = fila.ubicacion();
+            long[] valores = ubicacion == null ? sinUbicacion : porUbicacion.computeIfAbsent(ubicacion, u -> new long[2]);
+            valores[0] += signo * fila.cantidad();
+            valores[1] += signo;
+            if (valores[1] == 0 && ubicacion != null) {
+                porUbicacion.remove(ubicacion);
+            }
+            if (fila.estado() != null) {
+                filasPorEstado[fila.estado().ordinal()] += signo;
+            }
+        }
+
+        void publicar(Long productoId) {
+            EstadoInventario peor = null;
+            for (int i = ESTADOS.length - 1; i >= 0 && peor == null; i--) {
+                if (filasPorEstado[i] > 0) {
+                    peor = ESTADOS[i];
+                }
+            }
+            Map<String, Long> cantidades = new TreeMap<>();
+            porUbicacion.forEach((ubicacion, valores) -> cantidades.put(ubicacion, valores[0]));
+            vista = new StockProducto(productoId, total, Collections.unmodifiableMap(cantidades),
+                sinUbicacion[1] == 0 ? null : sinUbicacion[0], peor);
+        }
+    }
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    private final Map<Long, Fila> filas = new ConcurrentHashMap<>();
+    private final Map<Long, Acumulado> porProducto = new ConcurrentHashMap<>();
+    private final CargaInicial<InventarioCambiadoEvent> carga = new CargaInicial<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        // Sin JOIN con Producto ni columnas que el agregado no usa
+        carga.ejecutar(() -> inventarioRepository.findCampos(Set.of("id", "productoId", "cantidad", "ubicacion", "estado")),
+            this::sustituir, this::aplicar);
+    }
+
+    private void sustituir(List<Map<String, Object>> datos) {
+        synchronized (this) {
+            filas.clear();
+            porProducto.clear();
+            for (Map<String, Object> dato : datos) {
+                Number cantidad = (Number) dato.get("cantidad");
+                aplicarSinPublicar((Long) dato.get("id"), new Fila((Long) dato.get("productoId"),
+                    (String) dato.get("ubicacion"), cantidad == null ? 0 : cantidad.longValue(),
+                    (EstadoInventario) dato.get("estado")));
+            }
+            porProducto.forEach((productoId, acumulado) -> acumulado.publicar(productoId));
+        }
+    }
+
+    /**
+     * Stock agregado del producto, o vacío si no tiene ninguna fila de inventario.
+     */
+    public Optional<StockProducto> obtener(Long productoId) {
+        Acumulado acumulado = porProducto.get(productoId);
+        return acumulado == null ? Optional.empty() : Optional.ofNullable(acumulado.vista);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioCambiadoEvent evento) {
+        if (!carga.aplazar(evento)) {
+            aplicar(evento);
+        }
+    }
+
+    private void aplicar(InventarioCambiadoEvent evento) {
+        Inventario actual = evento.actual();
+        if (evento.tipo() == InventarioCambiadoEvent.Tipo.ELIMINADO || actual == null) {
+            aplicar(evento.inventarioId(), null);
+            return;
+        }
+        if (actual.getProducto() == null || actual.getProducto().getId() == null) {
+            return;
+        }
+        aplicar(evento.inventarioId(), new Fila(actual.getProducto().getId(), actual.getUbicacion(),
+            actual.getCantidad() == null ? 0 : actual.getCantidad(), actual.getEstado()));
+    }
+
+    // Resta la contribución anterior de la fila (si la había) y suma la nueva (null = borrada)
+    private synchronized void aplicar(Long inventarioId, Fila nueva) {
+        Fila anterior = aplicarSinPublicar(inventarioId, nueva);
+        if (anterior != null) {
+            publicar(anterior.productoId());
+        }
+        if (nueva != null && (anterior == null || !nueva.productoId().equals(anterior.productoId()))) {
+            publicar(nueva.productoId());
+        }
+    }
+
+    private Fila aplicarSinPublicar(Long inventarioId, Fila nueva) {
+        Fila anterior = nueva == null ? filas.remove(inventarioId) : filas.put(inventarioId, nueva);
+        if (anterior != null) {
+            Acumulado acumulado = porProducto.get(anterior.productoId());
+            acumulado.sumar(anterior, -1);
+        }
+        if (nueva != null) {
+            Acumulado acumulado = porProducto.computeIfAbsent(nueva.productoId(), id -> new Acumulado());
+            acumulado.sumar(nueva, 1);
+        }
+        return anterior;
+    }
+
+    private void publicar(Long productoId) {
+        Acumulado acumulado = porProducto.get(productoId);
+        if (acumulado == null) {
+            return;
+        }
+        if (acumulado.filas == 0) {
+            porProducto.remove(productoId);
+        } else {
+            acumulado.publicar(productoId);
+        }
+    }
+
+    public void setInventarioRepository(InventarioRepository inventarioRepository) {
+        this.inventarioRepository = inventarioRepository;
+    }
+}
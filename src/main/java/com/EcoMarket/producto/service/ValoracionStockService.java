@@ -0,0 +1,372 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Valoración del stock (cantidad × precio) y unidades por categoría.
+ *
+ * Se mantiene al día con deltas: un cambio de inventario suma o resta unidades al
+ * producto y valor a su categoría, y un cambio de precio o categoría de un producto
+ * mueve su valoración completa (unidades × precio). La consulta lee una copia
+ * publicada de unas decenas de totales, sin lock.
+ *
+ * Los listeners se ejecutan en el hilo del que escribe, así que no esperan: encolan el
+ * evento y lo aplica quien consiga el lock (ellos mismos casi siempre, o el hilo que
+ * lo tenga antes de soltarlo).
+ *
+ * recalcular() lee la base de datos fuera del lock, en una transacción REPEATABLE READ
+ * de solo lectura (la misma instantánea para las tres consultas): los totales por
+ * categoría con un GROUP BY y, en streaming, los productos y las filas de inventario
+ * que necesitan los deltas. Los eventos aplicados mientras tanto se repiten sobre el
+ * estado nuevo (aplicarlos es idempotente: dejan la fila o el producto como en el
+ * evento), se compara con los totales incrementales (deriva) y se sustituye el estado.
+ */
+@Service
+public class ValoracionStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(ValoracionStockService.class);
+
+    // Para inventario de productos que todavía no se conocen
+    private static final String SIN_CATEGORIA = "(sin categoría)";
+
+    static final String SQL_TOTALES = "SELECT p.categoria, SUM(i.cantidad * p.precio), SUM(i.cantidad) "
+        + "FROM Inventario i LEFT JOIN Producto p ON p.id = i.producto_id GROUP BY p.categoria";
+    static final String SQL_PRODUCTOS = "SELECT id, categoria, precio FROM Producto";
+    static final String SQL_INVENTARIO = "SELECT id, producto_id, cantidad FROM Inventario";
+
+    /**
+     * Totales de una categoría.
+     */
+    public record ValoracionCategoria(String categoria, BigDecimal valor, long unidades) {
+    }
+
+    /**
+     * Categoría cuyos totales incrementales no coincidían con los recalculados.
+     */
+    public record Deriva(String categoria, BigDecimal valorIncremental, BigDecimal valorRecalculado,
+            long unidadesIncremental, long unidadesRecalculado) {
+    }
+
+    public record Recalculo(Map<String, ValoracionCategoria> categorias, List<Deriva> derivas, long milisegundos) {
+    }
+
+    private record DatosProducto(String categoria, BigDecimal precio) {
+    }
+
+    private record FilaInventario(Long productoId, long cantidad) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate cursor;
+    private TransactionTemplate lectura;
+
+    // Eventos de inventario y de producto todavía sin aplicar
+    private final Queue<Object> pendientes = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Un recálculo cada vez
+    private final ReentrantLock recalculando = new ReentrantLock();
+
+    // Con lock
+    private Estado estado = new Estado();
+    private List<Object> aplicadosDuranteRecalculo;
+    private boolean cargado;
+
+    private volatile Map<String, ValoracionCategoria> publicado = Map.of();
+
+    @PostConstruct
+    public void iniciar() {
+        // Plantilla propia: el fetch size de streaming no debe afectar al resto de consultas
+        if (cursor == null) {
+            cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+            cursor.setFetchSize(Integer.MIN_VALUE);
+        }
+        lectura = new TransactionTemplate(transactionManager);
+        lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        lectura.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        Recalculo recalculo = recalcular();
+        log.info("Valoración de stock cargada: {} categorías en {} ms",
+            recalculo.categorias().size(), recalculo.milisegundos());
+    }
+
+    /**
+     * Valoración actual por categoría, ordenada por nombre.
+     */
+    public Map<String, ValoracionCategoria> obtener() {
+        return new TreeMap<>(publicado);
+    }
+
+    public Optional<ValoracionCategoria> obtener(String categoria) {
+        return Optional.ofNullable(publicado.get(categoria));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarInventario(InventarioCambiadoEvent evento) {
+        pendientes.add(evento);
+        aplicarPendientes();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        pendientes.add(evento);
+        aplicarPendientes();
+    }
+
+    /**
+     * Aplica la cola si el lock está libre. Si no lo está, quien lo tiene vuelve a
+     * mirar la cola después de soltarlo, así que ningún evento se queda sin aplicar.
+     */
+    private void aplicarPendientes() {
+        while (!pendientes.isEmpty() && lock.tryLock()) {
+            try {
+                vaciarCola();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Con lock
+    private void vaciarCola() {
+        Object evento;
+        boolean aplicados = false;
+        while ((evento = pendientes.poll()) != null) {
+            estado.aplicar(evento);
+            if (aplicadosDuranteRecalculo != null) {
+                aplicadosDuranteRecalculo.add(evento);
+            }
+            aplicados = true;
+        }
+        if (aplicados) {
+            publicado = Map.copyOf(estado.porCategoria);
+        }
+    }
+
+    /**
+     * Reconstruye la valoración desde la base de datos, informa de las categorías que
+     * habían derivado y reemplaza el estado incremental. Las consultas no toman el
+     * lock: las escrituras que lleguen mientras tanto se siguen aplicando.
+     */
+    public Recalculo recalcular() {
+        recalculando.lock();
+        try {
+            long inicio = System.nanoTime();
+            lock.lock();
+            try {
+                vaciarCola();
+                aplicadosDuranteRecalculo = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+
+            Estado nuevo;
+            try {
+                nuevo = lectura.execute(transaccion -> leer());
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    aplicadosDuranteRecalculo = null;
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+
+            List<Deriva> derivas;
+            lock.lock();
+            try {
+                vaciarCola();
+                for (Object evento : aplicadosDuranteRecalculo) {
+                    nuevo.aplicar(evento);
+                }
+                aplicadosDuranteRecalculo = null;
+                // En la carga inicial todo sería deriva respecto al estado vacío
+                derivas = cargado ? derivas(estado.porCategoria, nuevo.porCategoria) : List.of();
+                estado = nuevo;
+                cargado = true;
+                publicado = Map.copyOf(nuevo.porCategoria);
+            } finally {
+                lock.unlock();
+            }
+            aplicarPendientes();
+            if (!derivas.isEmpty()) {
+                log.warn("Valoración de stock: {} categorías con deriva, p. ej. {}", derivas.size(), derivas.get(0));
+            }
+            return new Recalculo(new TreeMap<>(publicado), derivas, (System.nanoTime() - inicio) / 1_000_000);
+        } finally {
+            recalculando.unlock();
+        }
+    }
+
+    // Dentro de la transacción de lectura
+    private Estado leer() {
+        Estado nuevo = new Estado();
+        cursor.query(SQL_TOTALES, rs -> {
+            String categoria = Objects.requireNonNullElse(rs.getString(1), SIN_CATEGORIA);
+            BigDecimal valor = Objects.requireNonNullElse(rs.getBigDecimal(2), BigDecimal.ZERO);
+            nuevo.sumarCategoria(categoria, valor, rs.getLong(3));
+        });
+        cursor.query(SQL_PRODUCTOS, rs -> {
+            nuevo.productos.put(rs.getLong(1), new DatosProducto(rs.getString(2), rs.getBigDecimal(3)));
+        });
+        cursor.query(SQL_INVENTARIO, rs -> {
+            FilaInventario fila = new FilaInventario(rs.getLong(2), rs.getLong(3));
+            nuevo.filas.put(rs.getLong(1), fila);
+            if (fila.cantidad() != 0) {
+                nuevo.unidadesPorProducto.merge(fila.productoId(), fila.cantidad(), Long::sum);
+            }
+        });
+        nuevo.unidadesPorProducto.values().removeIf(u -> u == 0L);
+        return nuevo;
+    }
+
+    static List<Deriva> derivas(Map<String, ValoracionCategoria> incremental, Map<String, ValoracionCategoria> recalculado) {
+        Set<String> categorias = new TreeSet<>(incremental.keySet());
+        categorias.addAll(recalculado.keySet());
+        List<Deriva> derivas = new ArrayList<>();
+        for (String categoria : categorias) {
+            ValoracionCategoria antes = incremental.get(categoria);
+            ValoracionCategoria ahora = recalculado.get(categoria);
+            BigDecimal valorAntes = antes == null ? BigDecimal.ZERO : antes.valor();
+            BigDecimal valorAhora = ahora == null ? BigDecimal.ZERO : ahora.valor();
+            long unidadesAntes = antes == null ? 0 : antes.unidades();
+            long unidadesAhora = ahora == null ? 0 : ahora.unidades();
+            if (valorAntes.compareTo(valorAhora) != 0 || unidadesAntes != unidadesAhora) {
+                derivas.add(new Deriva(categoria, valorAntes, valorAhora, unidadesAntes, unidadesAhora));
+            }
+        }
+        return derivas;
+    }
+
+    // Estado incremental; no es seguro para hilos
+    private static final class Estado {
+        private final Map<Long, DatosProducto> productos = new HashMap<>();
+        private final Map<Long, FilaInventario> filas = new HashMap<>();
+        private final Map<Long, Long> unidadesPorProducto = new HashMap<>();
+        private final Map<String, ValoracionCategoria> porCategoria = new HashMap<>();
+
+        void aplicar(Object evento) {
+            if (evento instanceof InventarioCambiadoEvent inventario) {
+                alCambiarInventario(inventario);
+            } else {
+                alCambiarProducto((ProductoCambiadoEvent) evento);
+            }
+        }
+
+        private void alCambiarInventario(InventarioCambiadoEvent evento) {
+            FilaInventario anterior = filas.remove(evento.inventarioId());
+            if (anterior != null) {
+                sumarUnidades(anterior.productoId(), -anterior.cantidad());
+            }
+            Inventario actual = evento.actual();
+            if (evento.tipo() != InventarioCambiadoEvent.Tipo.ELIMINADO && actual != null
+                    && actual.getProducto() != null && actual.getProducto().getId() != null) {
+                long cantidad = actual.getCantidad() == null ? 0 : actual.getCantidad();
+                filas.put(evento.inventarioId(), new FilaInventario(actual.getProducto().getId(), cantidad));
+                sumarUnidades(actual.getProducto().getId(), cantidad);
+            }
+        }
+
+        private void alCambiarProducto(ProductoCambiadoEvent evento) {
+            Long id = evento.productoId();
+            long unidades = unidadesPorProducto.getOrDefault(id, 0L);
+            DatosProducto anterior = productos.remove(id);
+            sumarCategoria(categoria(anterior), valor(anterior, -unidades), -unidades);
+            Producto actual = evento.actual();
+            if (evento.tipo() != ProductoCambiadoEvent.Tipo.ELIMINADO && actual != null) {
+                DatosProducto nuevo = new DatosProducto(actual.getCategoria(), actual.getPrecio());
+                productos.put(id, nuevo);
+                sumarCategoria(categoria(nuevo), valor(nuevo, unidades), unidades);
+            } else {
+                // Sus filas de inventario ya no cuentan para ninguna categoría conocida
+                sumarCategoria(SIN_CATEGORIA, BigDecimal.ZERO, unidades);
+            }
+        }
+
+        private void sumarUnidades(Long productoId, long delta) {
+            if (delta == 0) {
+                return;
+            }
+            unidadesPorProducto.merge(productoId, delta, Long::sum);
+            unidadesPorProducto.remove(productoId, 0L);
+            DatosProducto datos = productos.get(productoId);
+            sumarCategoria(categoria(datos), valor(datos, delta), delta);
+        }
+
+        void sumarCategoria(String categoria, BigDecimal valor, long unidades) {
+            if (unidades == 0 && valor.signum() == 0) {
+                return;
+            }
+            ValoracionCategoria actual = porCategoria.get(categoria);
+            BigDecimal nuevoValor = actual == null ? valor : actual.valor().add(valor);
+            long nuevasUnidades = actual == null ? unidades : actual.unidades() + unidades;
+            if (nuevasUnidades == 0 && nuevoValor.signum() == 0) {
+                porCategoria.remove(categoria);
+            } else {
+                porCategoria.put(categoria, new ValoracionCategoria(categoria, nuevoValor, nuevasUnidades));
+            }
+        }
+    }
+
+    private static String categoria(DatosProducto datos) {
+        return datos == null ? SIN_CATEGORIA : Objects.requireNonNullElse(datos.categoria(), SIN_CATEGORIA);
+    }
+
+    private static BigDecimal valor(DatosProducto datos, long unidades) {
+        if (datos == null || datos.precio() == null || unidades == 0) {
+            return BigDecimal.ZERO;
+        }
+        return datos.precio().multiply(BigDecimal.valueOf(unidades));
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setCursor(JdbcTemplate cursor) {
+        this.cursor = cursor;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+}
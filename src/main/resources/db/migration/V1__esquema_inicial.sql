@@ -0,0 +1,28 @@
+-- Esquema inicial, equivalente al que generaba spring.jpa.hibernate.ddl-auto=update.
+-- En bases de datos ya existentes no se ejecuta (spring.flyway.baseline-on-migrate marca la versión 1).
+
+CREATE TABLE IF NOT EXISTS Producto (
+    id                  BIGINT        NOT NULL AUTO_INCREMENT,
+    codigo              VARCHAR(255)  NOT NULL,
+    nombre              VARCHAR(255)  NOT NULL,
+    descripcion         VARCHAR(1000),
+    precio              DECIMAL(38,2) NOT NULL,
+    categoria           VARCHAR(255),
+    fecha_creacion      DATETIME(6),
+    fecha_actualizacion DATETIME(6),
+    activo              BIT           NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_producto_codigo UNIQUE (codigo)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS Inventario (
+    id                  BIGINT       NOT NULL AUTO_INCREMENT,
+    producto_id         BIGINT       NOT NULL,
+    cantidad            INT          NOT NULL,
+    cantidad_minima     INT,
+    ubicacion           VARCHAR(255),
+    fecha_actualizacion DATETIME(6),
+    estado              VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_inventario_producto FOREIGN KEY (producto_id) REFERENCES Producto (id)
+) ENGINE=InnoDB;
@@ -0,0 +1,70 @@
+-- Índices para cada consulta de ProductoRepository / InventarioRepository y estado compacto.
+--
+-- Los índices llevan los mismos nombres que los @Index de Producto e Inventario, así que
+-- una base de datos que venía de ddl-auto=update y se marcó con baseline en la versión 1
+-- ya puede tenerlos. MySQL no admite CREATE INDEX IF NOT EXISTS: cada índice se crea con
+-- una sentencia preparada solo si information_schema.statistics no lo tiene ya.
+
+-- estado: de VARCHAR(255) a ENUM (1 byte por fila). Los valores existentes ya son estos tres.
+ALTER TABLE Inventario MODIFY estado ENUM('DISPONIBLE', 'BAJO_STOCK', 'AGOTADO') NULL;
+
+-- Producto
+--   findByCodigo                       -> uk_producto_codigo
+--   findByCategoria, filtro categoria  -> idx_producto_categoria_activo_precio
+--   findByActivoTrue, filtro por precio -> idx_producto_activo_precio
+--   filtro actualizadoDesde            -> idx_producto_fecha_actualizacion
+--   findByNombreContainingIgnoreCase   -> LIKE '%x%' no puede usar un índice B-tree;
+--                                         la búsqueda de texto la resuelven el autocompletado y la búsqueda difusa en memoria
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+                 WHERE table_schema = DATABASE() AND table_name = 'Producto' AND index_name = 'idx_producto_categoria_activo_precio') > 0,
+    'SELECT 1', 'CREATE INDEX idx_producto_categoria_activo_precio ON Producto (categoria, activo, precio)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+                 WHERE table_schema = DATABASE() AND table_name = 'Producto' AND index_name = 'idx_producto_activo_precio') > 0,
+    'SELECT 1', 'CREATE INDEX idx_producto_activo_precio ON Producto (activo, precio)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+                 WHERE table_schema = DATABASE() AND table_name = 'Producto' AND index_name = 'idx_producto_fecha_actualizacion') > 0,
+    'SELECT 1', 'CREATE INDEX idx_producto_fecha_actualizacion ON Producto (fecha_actualizacion)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+-- Inventario
+--   findByProducto, findByProductoId   -> idx_inventario_producto_ubicacion
+--   findByEstado                       -> idx_inventario_estado_cantidad (cubre también COUNT por estado)
+--   findByCantidadLessThanEqual        -> idx_inventario_cantidad
+--   cambios recientes                  -> idx_inventario_fecha_actualizacion
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+                 WHERE table_schema = DATABASE() AND table_name = 'Inventario' AND index_name = 'idx_inventario_producto_ubicacion') > 0,
+    'SELECT 1', 'CREATE INDEX idx_inventario_producto_ubicacion ON Inventario (producto_id, ubicacion)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+                 WHERE table_schema = DATABASE() AND table_name = 'Inventario' AND index_name = 'idx_inventario_estado_cantidad') > 0,
+    'SELECT 1', 'CREATE INDEX idx_inventario_estado_cantidad ON Inventario (estado, cantidad)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+                 WHERE table_schema = DATABASE() AND table_name = 'Inventario' AND index_name = 'idx_inventario_cantidad') > 0,
+    'SELECT 1', 'CREATE INDEX idx_inventario_cantidad ON Inventario (cantidad)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+                 WHERE table_schema = DATABASE() AND table_name = 'Inventario' AND index_name = 'idx_inventario_fecha_actualizacion') > 0,
+    'SELECT 1', 'CREATE INDEX idx_inventario_fecha_actualizacion ON Inventario (fecha_actualizacion)');
+PREPARE ddl FROM @ddl;
+EXECUTE ddl;
+DEALLOCATE PREPARE ddl;
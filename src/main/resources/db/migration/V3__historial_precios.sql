@@ -0,0 +1,17 @@
+-- Historial de precios por producto (HistorialPreciosService).
+-- Cada fila es un bloque de hasta 512 cambios codificados con SeriePrecios
+-- (delta de delta en los instantes, céntimos en los precios). desde y hasta son el
+-- primer y último instante del bloque en milisegundos epoch, para leer solo los
+-- bloques que solapan el rango pedido.
+-- Sin clave foránea: el historial se conserva aunque se elimine el producto.
+
+CREATE TABLE precio_historial (
+    producto_id BIGINT    NOT NULL,
+    bloque      INT       NOT NULL,
+    desde       BIGINT    NOT NULL,
+    hasta       BIGINT    NOT NULL,
+    puntos      SMALLINT  NOT NULL,
+    datos       BLOB      NOT NULL,
+    PRIMARY KEY (producto_id, bloque),
+    INDEX idx_precio_historial_producto_hasta (producto_id, hasta)
+) ENGINE=InnoDB;
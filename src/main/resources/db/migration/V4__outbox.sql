@@ -0,0 +1,31 @@
+-- Outbox transaccional (OutboxService).
+-- outbox_evento guarda cada cambio de Producto o Inventario en la misma transacción
+-- que lo produce; outbox_pendiente tiene una fila por evento y destino que aún no lo
+-- ha recibido, así cada destino avanza a su ritmo y uno caído no bloquea a los demás.
+-- outbox_relay es el turno de cada destino entre instancias (propietario hasta un
+-- instante en milisegundos epoch), para entregar en orden desde una sola instancia.
+
+CREATE TABLE outbox_evento (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    agregado    VARCHAR(20)  NOT NULL,
+    agregado_id BIGINT       NOT NULL,
+    tipo        VARCHAR(20)  NOT NULL,
+    creado      BIGINT       NOT NULL,
+    datos       TEXT         NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_outbox_evento_creado (creado)
+) ENGINE=InnoDB;
+
+CREATE TABLE outbox_pendiente (
+    destino   VARCHAR(40) NOT NULL,
+    evento_id BIGINT      NOT NULL,
+    PRIMARY KEY (destino, evento_id),
+    INDEX idx_outbox_pendiente_evento (evento_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE outbox_relay (
+    destino     VARCHAR(40) NOT NULL,
+    propietario VARCHAR(64) NOT NULL,
+    hasta       BIGINT      NOT NULL,
+    PRIMARY KEY (destino)
+) ENGINE=InnoDB;
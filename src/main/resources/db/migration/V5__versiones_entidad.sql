@@ -0,0 +1,13 @@
+-- Versión de cada producto y registro de inventario para la invalidación entre
+-- instancias (InvalidacionBus). Cada escritura incrementa version en su propia
+-- transacción; actualizado es la hora de la base de datos en milisegundos epoch
+-- y es lo que sondea el transporte "tabla".
+
+CREATE TABLE entidad_version (
+    entidad     VARCHAR(20) NOT NULL,
+    entidad_id  BIGINT      NOT NULL,
+    version     BIGINT      NOT NULL,
+    actualizado BIGINT      NOT NULL,
+    PRIMARY KEY (entidad, entidad_id),
+    INDEX idx_entidad_version_actualizado (actualizado)
+) ENGINE=InnoDB;
@@ -0,0 +1,16 @@
+-- Versión por agregado de los eventos del outbox (OutboxService).
+-- outbox_version guarda la última versión de cada producto o registro de inventario;
+-- registrar la incrementa con INSERT ... ON DUPLICATE KEY UPDATE y su fila queda
+-- bloqueada hasta el commit, así que dos escrituras del mismo agregado se serializan
+-- y sus eventos llevan versiones consecutivas. Los ids de outbox_evento se reparten
+-- al insertar, no al confirmar: no sirven para ordenar ni para descartar duplicados.
+-- outbox_version no se limpia con los eventos: la versión no vuelve a empezar.
+
+CREATE TABLE outbox_version (
+    agregado    VARCHAR(20) NOT NULL,
+    agregado_id BIGINT      NOT NULL,
+    version     BIGINT      NOT NULL,
+    PRIMARY KEY (agregado, agregado_id)
+) ENGINE=InnoDB;
+
+ALTER TABLE outbox_evento ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER agregado_id;
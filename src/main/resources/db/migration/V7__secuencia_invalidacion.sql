@@ -0,0 +1,18 @@
+-- Secuencia de confirmación para el transporte "tabla" de InvalidacionBus.
+-- Cada transacción que versiona entidades incrementa invalidacion_secuencia.valor
+-- justo antes del commit y guarda el valor en secuencia de sus filas de
+-- entidad_version. La fila del contador queda bloqueada hasta el commit, así que las
+-- transacciones se confirman en orden de secuencia y el sondeo puede leer
+-- secuencia > última vista sin margen de tiempo ni relecturas.
+
+CREATE TABLE invalidacion_secuencia (
+    id    TINYINT NOT NULL,
+    valor BIGINT  NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+INSERT INTO invalidacion_secuencia (id, valor) VALUES (1, 0);
+
+ALTER TABLE entidad_version ADD COLUMN secuencia BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX idx_entidad_version_secuencia ON entidad_version (secuencia);
+DROP INDEX idx_entidad_version_actualizado ON entidad_version;
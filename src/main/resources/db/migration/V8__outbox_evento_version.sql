@@ -0,0 +1,7 @@
+-- Búsqueda de eventos del outbox por agregado y versión (OutboxService).
+-- registrar escribe los eventos de una transacción con un batch y después sus filas
+-- de outbox_pendiente con otro, localizando cada evento por agregado y versión en vez
+-- de por LAST_INSERT_ID(), que solo devuelve el id de la última fila insertada.
+-- No es única: los eventos anteriores a V6 tienen todos la versión 0.
+
+CREATE INDEX idx_outbox_evento_agregado_version ON outbox_evento (agregado, agregado_id, version);
@@ -0,0 +1,165 @@
+package com.EcoMarket.producto;
+
+import com.EcoMarket.producto.repository.Colacion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clase de pruebas unitarias para el generador de datos sintéticos
+ *
+ * Verifica el reparto en lotes, que volver a ejecutarlo no inserta nada y que al
+ * reanudar solo se generan los códigos que faltan sin tocar los creados a mano.
+ */
+public class GeneradorDatosSinteticosTest {
+
+    // Producto e Inventario en memoria; BETWEEN compara con la colación de la columna
+    static class TablasFalsas extends JdbcTemplate {
+        final Map<String, Long> productos = Collections.synchronizedMap(new LinkedHashMap<>());
+        final List<Long> inventario = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> lotesProducto = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> filas) {
+            if (sql.startsWith("INSERT INTO Producto")) {
+                lotesProducto.add(filas.size());
+                filas.forEach(fila -> crearProducto((String) fila[0]));
+            } else {
+                filas.forEach(fila -> inventario.add((Long) fila[0]));
+            }
+            return new int[filas.size()];
+        }
+
+        long crearProducto(String codigo) {
+            synchronized (productos) {
+                long id = productos.size() + 1L;
+                productos.put(codigo, id);
+                return id;
+            }
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) throws DataAccessException {
+            String desde = Colacion.clave((String) args[0]);
+            String hasta = Colacion.clave((String) args[1]);
+            List<Map.Entry<String, Long>> tramo;
+            synchronized (productos) {
+                tramo = productos.entrySet().stream()
+                    .filter(p -> Colacion.clave(p.getKey()).compareTo(desde) >= 0
+                        && Colacion.clave(p.getKey()).compareTo(hasta) <= 0)
+                    .map(p -> Map.entry(p.getKey(), p.getValue()))
+                    .toList();
+            }
+            for (Map.Entry<String, Long> producto : tramo) {
+                Object[] columnas = sql.startsWith("SELECT id")
+                    ? new Object[] {producto.getValue(), producto.getKey()} : new Object[] {producto.getKey()};
+                try {
+                    rch.processRow((ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[] {ResultSet.class}, (proxy, metodo, argumentos) -> columnas[(Integer) argumentos[0] - 1]));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private TablasFalsas tablas;
+    private GeneradorDatosSinteticos generador;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        tablas = new TablasFalsas();
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(i -> i.<TransactionCallback<Object>>getArgument(0).doInTransaction(null))
+            .when(transactionTemplate).execute(any());
+        generador = new GeneradorDatosSinteticos();
+        generador.setJdbcTemplate(tablas);
+        generador.setTransactionTemplate(transactionTemplate);
+        generador.setHilos(2);
+        generador.setTamanoLote(1000);
+    }
+
+    /**
+     * Prueba que los productos se reparten en lotes de tamanoLote, cada uno con su inventario
+     */
+    @Test
+    void testTamanoDeLote() throws Exception {
+        // ARRANGE
+        generador.setTotalProductos(2500);
+
+        // ACT
+        generador.run();
+
+        // ASSERT
+        assertEquals(List.of(500, 1000, 1000), tablas.lotesProducto.stream().sorted().toList());
+        assertEquals(2500, tablas.productos.size());
+        assertEquals(2500, tablas.inventario.size());
+        assertTrue(tablas.productos.containsKey("S000000001"));
+        assertTrue(tablas.productos.containsKey("S000002500"));
+    }
+
+    /**
+     * Prueba que volver a ejecutar con los mismos parámetros no inserta nada
+     */
+    @Test
+    void testReejecucionIdempotente() throws Exception {
+        // ARRANGE
+        generador.setTotalProductos(2500);
+        generador.run();
+        tablas.lotesProducto.clear();
+
+        // ACT
+        generador.run();
+
+        // ASSERT
+        assertEquals(List.of(), tablas.lotesProducto);
+        assertEquals(2500, tablas.productos.size());
+        assertEquals(2500, tablas.inventario.size());
+    }
+
+    /**
+     * Prueba que al reanudar se generan solo los códigos que faltan y que un producto
+     * creado a mano con un código del tramo se conserva sin inventario nuevo
+     */
+    @Test
+    void testReanudarSinBorrar() throws Exception {
+        // ARRANGE: primera ejecución con 1000 productos y uno a mano en el segundo lote
+        generador.setTotalProductos(1000);
+        generador.run();
+        long aMano = tablas.crearProducto("s000001500");
+        tablas.lotesProducto.clear();
+
+        // ACT
+        generador.setTotalProductos(2500);
+        generador.run();
+
+        // ASSERT
+        assertEquals(List.of(500, 999), tablas.lotesProducto.stream().sorted().toList());
+        assertEquals(aMano, tablas.productos.get("s000001500"));
+        assertEquals(2500, tablas.productos.size());
+        assertEquals(2499, tablas.inventario.size());
+        assertFalse(tablas.inventario.contains(aMano));
+    }
+}
@@ -0,0 +1,96 @@
+package com.EcoMarket.producto.admision;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Clase de pruebas unitarias para el control de admisión
+ *
+ * Verifica los límites por endpoint y globales, las clases de prioridad y el
+ * ajuste AIMD del límite según la latencia.
+ */
+public class ControlAdmisionTest {
+
+    // Límite global de 10 peticiones: 5 masivas, 8 normales y 10 críticas
+    private ControlAdmision control() {
+        return new ControlAdmision(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+            2, 200, 20, 10, 10, 10, 2.0, 0.5, 0.85, 0);
+    }
+
+    /**
+     * Prueba que un endpoint en su límite responde 429 sin afectar a los demás
+     */
+    @Test
+    void testRechazoPorEndpoint() {
+        // ARRANGE
+        ControlAdmision control = control();
+        control.admitir("ProductoController.listarTodos", Prioridad.MASIVA, 2);
+        control.admitir("ProductoController.listarTodos", Prioridad.MASIVA, 2);
+
+        // ACT
+        AdmisionRechazadaException rechazo = assertThrows(AdmisionRechazadaException.class,
+            () -> control.admitir("ProductoController.listarTodos", Prioridad.MASIVA, 2));
+
+        // ASSERT
+        assertEquals(429, rechazo.getCodigo());
+        assertTrue(rechazo.getReintentarEnSegundos() >= 1);
+        control.admitir("ProductoController.obtenerPorId", Prioridad.CRITICA, 0);
+    }
+
+    /**
+     * Prueba que las peticiones masivas no pueden ocupar los huecos reservados a las críticas
+     */
+    @Test
+    void testMasivasNoAgotanCriticas() {
+        // ARRANGE
+        ControlAdmision control = control();
+        for (int i = 0; i < 5; i++) {
+            control.admitir("masiva-" + i, Prioridad.MASIVA, 0);
+        }
+
+        // ACT
+        AdmisionRechazadaException rechazo = assertThrows(AdmisionRechazadaException.class,
+            () -> control.admitir("masiva-5", Prioridad.MASIVA, 0));
+        for (int i = 0; i < 5; i++) {
+            control.admitir("critica", Prioridad.CRITICA, 0);
+        }
+
+        // ASSERT
+        assertEquals(503, rechazo.getCodigo());
+        assertEquals(10, control.estado().get(0).enCurso());
+        assertEquals(503, assertThrows(AdmisionRechazadaException.class,
+            () -> control.admitir("critica", Prioridad.CRITICA, 0)).getCodigo());
+    }
+
+    /**
+     * Prueba que el límite crece con latencia estable y baja un 10 % cuando la latencia se dispara
+     */
+    @Test
+    void testAjusteAimd() {
+        // ARRANGE
+        LimiteAdaptativo limite = new LimiteAdaptativo(2, 100, 20, 2.0);
+        for (int i = 0; i < 15; i++) {
+            limite.adquirir(1.0);
+        }
+
+        // ACT: latencia estable con el límite en uso
+        for (int i = 0; i < 200; i++) {
+            limite.ajustar(limite.medir(1_000_000), false);
+        }
+        int crecido = limite.limite();
+        // la latencia se multiplica por 10
+        for (int i = 0; i < 5; i++) {
+            limite.ajustar(limite.medir(10_000_000), false);
+        }
+
+        // ASSERT
+        assertTrue(crecido > 20, "crecido = " + crecido);
+        assertEquals((int) (crecido * LimiteAdaptativo.FACTOR_REDUCCION), limite.limite(), 1);
+    }
+}
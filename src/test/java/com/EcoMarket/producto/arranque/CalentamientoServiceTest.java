@@ -0,0 +1,152 @@
+package com.EcoMarket.producto.arranque;
+
+import com.EcoMarket.producto.busqueda.TriePrefijos;
+import com.EcoMarket.producto.event.ProductoConsultadoEvent;
+import com.EcoMarket.producto.metricas.ClavesCalientes;
+import com.EcoMarket.producto.repository.InventarioRepository;
+import com.EcoMarket.producto.repository.ProductoRepository;
+import com.EcoMarket.producto.service.AutocompletadoService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Clase de pruebas unitarias para el calentamiento de arranque
+ *
+ * Verifica la selección de ids a precargar a partir de la configuración y del
+ * fichero de claves calientes del arranque anterior, que la aplicación no está
+ * lista mientras dura y que sus lecturas no cuentan como popularidad.
+ */
+public class CalentamientoServiceTest {
+
+    @AfterEach
+    void limpiar() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * Prueba que se combinan los ids configurados y los guardados, sin repetir y en orden
+     */
+    @Test
+    void testClavesAPrecargar() {
+        List<String> fichero = List.of("p:7", "i:30", "p:3", "p:x", "i:31", "p:5");
+
+        assertEquals(List.of(5L, 7L, 3L),
+            List.copyOf(CalentamientoService.clavesAPrecargar(List.of(5L), fichero, true)));
+        assertEquals(List.of(30L, 31L),
+            List.copyOf(CalentamientoService.clavesAPrecargar(List.of(), fichero, false)));
+    }
+
+    /**
+     * Prueba que la readiness no pasa a ACCEPTING_TRAFFIC hasta que termina el calentamiento
+     */
+    @Test
+    void testNoListoHastaTerminar() {
+        // ARRANGE
+        ContextoCalentamiento.estadosDurante.clear();
+        SpringApplication aplicacion = new SpringApplication(ContextoCalentamiento.class);
+        aplicacion.setWebApplicationType(WebApplicationType.NONE);
+        aplicacion.setDefaultProperties(Map.of("calentamiento.fichero", ""));
+
+        // ACT
+        try (ConfigurableApplicationContext contexto = aplicacion.run()) {
+
+            // ASSERT
+            assertEquals(List.of(ReadinessState.REFUSING_TRAFFIC), ContextoCalentamiento.estadosDurante);
+            assertEquals(ReadinessState.ACCEPTING_TRAFFIC,
+                contexto.getBean(ApplicationAvailability.class).getReadinessState());
+            assertNotNull(contexto.getBean(CalentamientoService.class).informe());
+        }
+    }
+
+    /**
+     * Prueba que las lecturas con la cabecera del calentamiento no suman popularidad
+     * y las de los usuarios sí, aunque lleguen a la vez
+     */
+    @Test
+    void testAccesosDelCalentamientoNoCuentan() {
+        // ARRANGE
+        ProductoRepository productoRepository = mock(ProductoRepository.class);
+        when(productoRepository.findCampos(Set.of("id", "codigo", "nombre", "activo"))).thenReturn(List.of(
+            Map.of("id", 1L, "codigo", "MAN-1", "nombre", "Manzana", "activo", true)));
+        AutocompletadoService autocompletado = new AutocompletadoService();
+        autocompletado.setProductoRepository(productoRepository);
+        autocompletado.cargar();
+        MockHttpServletRequest sintetica = new MockHttpServletRequest("GET", "/api/v2/productos/1");
+        sintetica.addHeader(CalentamientoService.CABECERA, "1");
+        MockHttpServletRequest real = new MockHttpServletRequest("GET", "/api/v2/productos/1");
+
+        // ACT
+        for (int i = 0; i < 3; i++) {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(sintetica));
+            autocompletado.alConsultarProducto(new ProductoConsultadoEvent(1L));
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(real));
+            autocompletado.alConsultarProducto(new ProductoConsultadoEvent(1L));
+        }
+        autocompletado.aplicarPopularidad();
+
+        // ASSERT
+        List<TriePrefijos.Entrada> sugerencias = autocompletado.sugerir("man", 5);
+        assertEquals(1, sugerencias.size());
+        assertEquals(3, sugerencias.get(0).puntuacion());
+    }
+
+    // Lo mínimo para que el calentamiento arranque: repositorios que apuntan la readiness al leer
+    @Configuration
+    static class ContextoCalentamiento {
+
+        static final List<ReadinessState> estadosDurante = new CopyOnWriteArrayList<>();
+
+        @Bean
+        ApplicationAvailabilityBean applicationAvailability() {
+            return new ApplicationAvailabilityBean();
+        }
+
+        @Bean
+        CalentamientoService calentamientoService() {
+            return new CalentamientoService();
+        }
+
+        @Bean
+        ProductoRepository productoRepository(ApplicationAvailability disponibilidad) {
+            ProductoRepository repositorio = mock(ProductoRepository.class);
+            when(repositorio.findAllById(any())).thenAnswer(invocacion -> {
+                estadosDurante.add(disponibilidad.getReadinessState());
+                return List.of();
+            });
+            return repositorio;
+        }
+
+        @Bean
+        InventarioRepository inventarioRepository() {
+            return mock(InventarioRepository.class);
+        }
+
+        @Bean
+        ClavesCalientes clavesCalientes() {
+            return mock(ClavesCalientes.class);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.EcoMarket.producto.arranque;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clase de pruebas unitarias para la latencia tras el despliegue
+ *
+ * Verifica que solo se miden las peticiones reales y solo dentro de la ventana
+ * que empieza cuando la aplicación está lista.
+ */
+public class LatenciaPostDespliegueTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private LatenciaPostDespliegue latencia(long ventanaMs) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<MeterRegistry> proveedor = mock(ObjectProvider.class);
+        when(proveedor.getIfAvailable(any())).thenReturn(registry);
+        return new LatenciaPostDespliegue(proveedor, ventanaMs);
+    }
+
+    private static void atender(LatenciaPostDespliegue latencia, boolean calentamiento) {
+        MockHttpServletRequest peticion = new MockHttpServletRequest("GET", "/api/v2/productos/1");
+        if (calentamiento) {
+            peticion.addHeader(CalentamientoService.CABECERA, "1");
+        }
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        latencia.preHandle(peticion, respuesta, null);
+        latencia.afterCompletion(peticion, respuesta, null, null);
+    }
+
+    /**
+     * Prueba que las peticiones del calentamiento no se miden y las reales sí
+     */
+    @Test
+    void testSoloPeticionesReales() {
+        // ARRANGE
+        LatenciaPostDespliegue latencia = latencia(60_000);
+        latencia.alIniciar();
+
+        // ACT
+        atender(latencia, true);
+        atender(latencia, false);
+        atender(latencia, false);
+        atender(latencia, true);
+
+        // ASSERT
+        Map<String, Object> resumen = latencia.resumen();
+        assertEquals(2L, resumen.get("peticiones"));
+        assertEquals(true, resumen.get("ventanaActiva"));
+        assertTrue(resumen.keySet().containsAll(List.of("p50", "p90", "p99")), resumen.toString());
+        assertEquals(2L, registry.get("ecomarket.latencia.post.despliegue").timer().count());
+    }
+
+    /**
+     * Prueba que al cerrarse la ventana se deja de medir
+     */
+    @Test
+    void testFueraDeLaVentana() {
+        // ARRANGE
+        LatenciaPostDespliegue latencia = latencia(0);
+        latencia.alIniciar();
+
+        // ACT
+        atender(latencia, false);
+
+        // ASSERT
+        Map<String, Object> resumen = latencia.resumen();
+        assertEquals(0L, resumen.get("peticiones"));
+        assertEquals(false, resumen.get("ventanaActiva"));
+    }
+}
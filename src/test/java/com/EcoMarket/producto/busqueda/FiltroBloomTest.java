@@ -0,0 +1,38 @@
+package com.EcoMarket.producto.busqueda;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Clase de pruebas unitarias para el filtro de Bloom de códigos
+ */
+public class FiltroBloomTest {
+
+    /**
+     * Prueba que no hay falsos negativos y que los falsos positivos rondan lo configurado
+     */
+    @Test
+    void testSinFalsosNegativos() {
+        // ARRANGE
+        FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+
+        // ACT
+        for (int i = 0; i < 10_000; i++) {
+            filtro.agregar("P" + i);
+        }
+        int falsosPositivos = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filtro.puedeContener("X" + i)) {
+                falsosPositivos++;
+            }
+        }
+
+        // ASSERT
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filtro.puedeContener("P" + i));
+        }
+        assertTrue(falsosPositivos < 200, "falsos positivos = " + falsosPositivos);
+        assertTrue(filtro.falsoPositivoEstimado() < 0.015);
+    }
+}
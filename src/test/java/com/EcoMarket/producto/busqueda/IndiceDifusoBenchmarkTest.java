@@ -0,0 +1,106 @@
+package com.EcoMarket.producto.busqueda;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Mide la latencia p99 de la búsqueda difusa con un catálogo sintético grande.
+ *
+ * Solo se ejecuta con BENCHMARK_BUSQUEDA=<productos> (el objetivo es 1000000):
+ * nombres de dos palabras sobre un vocabulario de 20.000 y 50 categorías, de modo
+ * que cada palabra de categoría coincide con unos 20.000 productos. Se consultan
+ * categorías con una errata (el peor caso), nombres con erratas y combinaciones
+ * de nombre y categoría, pidiendo la primera página de 20. Comprueba p99 < 5 ms.
+ *
+ *   BENCHMARK_BUSQUEDA=1000000 ./mvnw test -Dtest=IndiceDifusoBenchmarkTest
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_BUSQUEDA", matches = "\\d+")
+public class IndiceDifusoBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceDifusoBenchmarkTest.class);
+
+    private static final long P99_MAXIMO_NS = 5_000_000L;
+    private static final int CONSULTAS = 2000;
+    private static final int CALENTAMIENTO = 2000;
+
+    @Test
+    void testLatenciaP99() {
+        int productos = Integer.parseInt(System.getenv("BENCHMARK_BUSQUEDA"));
+        Random random = new Random(7);
+        List<String> vocabulario = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            vocabulario.add(palabra(random, 4 + random.nextInt(6)));
+        }
+        List<String> categorias = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            categorias.add(palabra(random, 6 + random.nextInt(4)));
+        }
+        IndiceDifuso indice = new IndiceDifuso();
+        for (long id = 1; id <= productos; id++) {
+            indice.agregar(new IndiceDifuso.Documento(id, "P" + id,
+                vocabulario.get(random.nextInt(vocabulario.size())) + " " + vocabulario.get(random.nextInt(vocabulario.size())),
+                categorias.get(random.nextInt(categorias.size()))));
+        }
+
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            indice.buscar(consulta(random, i, vocabulario, categorias), 20);
+        }
+        String[] tipos = {"categoría con errata", "nombre con errata", "nombre y categoría"};
+        long[][] tiempos = new long[tipos.length][CONSULTAS / tipos.length];
+        long[] todos = new long[tiempos.length * tiempos[0].length];
+        for (int i = 0; i < todos.length; i++) {
+            String consulta = consulta(random, i, vocabulario, categorias);
+            long inicio = System.nanoTime();
+            indice.buscar(consulta, 20);
+            todos[i] = System.nanoTime() - inicio;
+            tiempos[i % tipos.length][i / tipos.length] = todos[i];
+        }
+
+        for (int t = 0; t < tipos.length; t++) {
+            Arrays.sort(tiempos[t]);
+            log.info("Búsqueda difusa, {} productos, {}: p50 {} us, p99 {} us", productos, tipos[t],
+                tiempos[t][tiempos[t].length / 2] / 1000, percentil99(tiempos[t]) / 1000);
+        }
+        Arrays.sort(todos);
+        long p99 = percentil99(todos);
+        log.info("Búsqueda difusa, {} productos: p99 {} us", productos, p99 / 1000);
+        assertTrue(p99 < P99_MAXIMO_NS, "p99 demasiado alto: " + p99 / 1000 + " us");
+    }
+
+    // Alterna categoría con errata, nombre con errata y las dos cosas
+    private static String consulta(Random random, int i, List<String> vocabulario, List<String> categorias) {
+        String categoria = errata(random, categorias.get(random.nextInt(categorias.size())));
+        String nombre = errata(random, vocabulario.get(random.nextInt(vocabulario.size())));
+        return switch (i % 3) {
+            case 0 -> categoria;
+            case 1 -> nombre;
+            default -> nombre + " " + categoria;
+        };
+    }
+
+    private static String errata(Random random, String palabra) {
+        int posicion = random.nextInt(palabra.length());
+        return palabra.substring(0, posicion) + (char) ('a' + random.nextInt(26)) + palabra.substring(posicion + 1);
+    }
+
+    private static long percentil99(long[] ordenados) {
+        return ordenados[(int) (ordenados.length * 0.99)];
+    }
+
+    private static String palabra(Random random, int longitud) {
+        StringBuilder sb = new StringBuilder(longitud);
+        for (int i = 0; i < longitud; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
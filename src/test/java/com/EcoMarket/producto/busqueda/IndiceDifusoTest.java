@@ -0,0 +1,194 @@
+package com.EcoMarket.producto.busqueda;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Clase de pruebas unitarias para la búsqueda tolerante a errores
+ */
+public class IndiceDifusoTest {
+
+    private IndiceDifuso indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceDifuso();
+        indice.agregar(new IndiceDifuso.Documento(1L, "P001", "Tomate cherry", "Verduras"));
+        indice.agregar(new IndiceDifuso.Documento(2L, "P002", "Manzana roja", "Frutas"));
+        indice.agregar(new IndiceDifuso.Documento(3L, "P003", "Jugo de manzana", "Bebidas"));
+        indice.agregar(new IndiceDifuso.Documento(4L, "P004", "Mantequilla", "Lácteos"));
+    }
+
+    private static List<Long> ids(List<IndiceDifuso.Resultado> resultados) {
+        return resultados.stream().map(IndiceDifuso.Resultado::id).collect(Collectors.toList());
+    }
+
+    private List<IndiceDifuso.Resultado> buscar(String consulta) {
+        return indice.buscar(consulta, IndiceDifuso.MAX_RESULTADOS).resultados();
+    }
+
+    /**
+     * Prueba que los errores de escritura típicos encuentran el producto
+     */
+    @Test
+    void testErroresDeEscritura() {
+        assertEquals(List.of(1L), ids(buscar("tomatoe")));
+        assertEquals(List.of(2L, 3L), ids(buscar("manzna")));
+        assertEquals(List.of(4L), ids(buscar("lacteos")));
+    }
+
+    /**
+     * Prueba que la coincidencia de más términos puntúa más alto
+     */
+    @Test
+    void testPuntuacion() {
+        List<IndiceDifuso.Resultado> resultados = buscar("manzana roja");
+        assertEquals(List.of(2L, 3L), ids(resultados));
+        assertEquals(1.0, resultados.get(0).puntuacion(), 1e-9);
+        assertTrue(resultados.get(1).puntuacion() < 1.0);
+    }
+
+    /**
+     * Prueba que un producto eliminado o renombrado deja de aparecer
+     */
+    @Test
+    void testEliminarYActualizar() {
+        indice.eliminar(1L);
+        assertTrue(buscar("tomate").isEmpty());
+
+        indice.agregar(new IndiceDifuso.Documento(2L, "P002", "Pera", "Frutas"));
+        assertEquals(List.of(3L), ids(buscar("manzana")));
+    }
+
+    /**
+     * Prueba el vocabulario contra una búsqueda por fuerza bruta, también con palabras
+     * repetitivas en las que el filtro de bigramas no descarta nada
+     */
+    @Test
+    void testVocabularioIgualQueFuerzaBruta() {
+        Random random = new Random(42);
+        Vocabulario vocabulario = new Vocabulario();
+        List<String> palabras = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String palabra = i % 50 == 0 ? "a".repeat(3 + random.nextInt(6)) : palabraAleatoria(random);
+            if (vocabulario.agregar(palabra)) {
+                palabras.add(palabra);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            String consulta = i % 10 == 0 ? "a".repeat(4 + random.nextInt(4)) + "b" : palabraAleatoria(random);
+            for (int maxDistancia = 0; maxDistancia <= 2; maxDistancia++) {
+                int d = maxDistancia;
+                List<String> esperado = palabras.stream()
+                    .filter(p -> Vocabulario.levenshtein(consulta, p) <= d).sorted().collect(Collectors.toList());
+                List<String> obtenido = vocabulario.buscar(consulta, d).stream()
+                    .map(Vocabulario.Coincidencia::palabra).sorted().collect(Collectors.toList());
+                assertEquals(esperado, obtenido, consulta);
+            }
+        }
+    }
+
+    /**
+     * Prueba que el montículo acotado devuelve lo mismo que puntuar todo y ordenar,
+     * con palabras frecuentes (categorías) que coinciden con miles de productos
+     */
+    @Test
+    void testMejoresIgualQueOrdenarTodo() {
+        Random random = new Random(7);
+        List<String> vocabulario = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            vocabulario.add(palabraAleatoria(random));
+        }
+        IndiceDifuso grande = new IndiceDifuso();
+        List<IndiceDifuso.Documento> documentos = new ArrayList<>();
+        for (long id = 1; id <= 20_000; id++) {
+            IndiceDifuso.Documento documento = new IndiceDifuso.Documento(id, "P" + id,
+                vocabulario.get(random.nextInt(vocabulario.size())) + " " + vocabulario.get(random.nextInt(vocabulario.size())),
+                vocabulario.get(random.nextInt(10)));
+            grande.agregar(documento);
+            documentos.add(documento);
+        }
+        for (long id = 1; id <= 20_000; id += 7) {
+            grande.eliminar(id);
+            documentos.set((int) id - 1, null);
+        }
+        for (int i = 0; i < 40; i++) {
+            String consulta = i % 2 == 0 ? vocabulario.get(random.nextInt(10)) + "x"
+                : vocabulario.get(random.nextInt(vocabulario.size())) + " " + vocabulario.get(random.nextInt(10));
+            List<IndiceDifuso.Resultado> esperado = fuerzaBruta(documentos, consulta);
+            int limite = 1 + random.nextInt(200);
+
+            IndiceDifuso.Busqueda busqueda = grande.buscar(consulta, limite);
+
+            assertEquals(esperado.size(), busqueda.total(), consulta);
+            assertEquals(ids(esperado.subList(0, Math.min(limite, esperado.size()))), ids(busqueda.resultados()), consulta);
+        }
+    }
+
+    /**
+     * Prueba que el límite se acota a MAX_RESULTADOS pero el total cuenta todas las coincidencias
+     */
+    @Test
+    void testLimiteAcotado() {
+        IndiceDifuso grande = new IndiceDifuso();
+        for (long id = 1; id <= IndiceDifuso.MAX_RESULTADOS + 500; id++) {
+            grande.agregar(new IndiceDifuso.Documento(id, "P" + id, "Manzana " + id, "Frutas"));
+        }
+
+        IndiceDifuso.Busqueda busqueda = grande.buscar("frutas", Integer.MAX_VALUE);
+
+        assertEquals(IndiceDifuso.MAX_RESULTADOS, busqueda.resultados().size());
+        assertEquals(IndiceDifuso.MAX_RESULTADOS + 500, busqueda.total());
+        assertEquals(1L, busqueda.resultados().get(0).id());
+    }
+
+    // Puntúa cada documento con la definición del índice y ordena la lista completa
+    private static List<IndiceDifuso.Resultado> fuerzaBruta(List<IndiceDifuso.Documento> documentos, String consulta) {
+        List<String> terminos = IndiceDifuso.tokenizar(consulta);
+        List<IndiceDifuso.Resultado> resultados = new ArrayList<>();
+        for (IndiceDifuso.Documento d : documentos) {
+            if (d == null) {
+                continue;
+            }
+            List<String> palabras = new ArrayList<>(IndiceDifuso.tokenizar(d.nombre()));
+            palabras.addAll(IndiceDifuso.tokenizar(d.categoria()));
+            double suma = 0;
+            boolean coincide = false;
+            for (String termino : terminos) {
+                double mejor = 0;
+                for (String palabra : palabras) {
+                    int distancia = Vocabulario.levenshtein(termino, palabra);
+                    if (distancia <= IndiceDifuso.tolerancia(termino)) {
+                        coincide = true;
+                        mejor = Math.max(mejor, 1.0 - (double) distancia / Math.max(termino.length(), palabra.length()));
+                    }
+                }
+                suma += mejor;
+            }
+            if (coincide) {
+                resultados.add(new IndiceDifuso.Resultado(d.id(), d.codigo(), d.nombre(), d.categoria(), suma / terminos.size()));
+            }
+        }
+        resultados.sort(Comparator.comparingDouble(IndiceDifuso.Resultado::puntuacion).reversed()
+            .thenComparing(IndiceDifuso.Resultado::id));
+        return resultados;
+    }
+
+    private static String palabraAleatoria(Random random) {
+        int longitud = 4 + random.nextInt(6);
+        StringBuilder sb = new StringBuilder(longitud);
+        for (int i = 0; i < longitud; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package com.EcoMarket.producto.busqueda;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Clase de pruebas unitarias para el trie de autocompletado
+ */
+public class TriePrefijosTest {
+
+    private TriePrefijos trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new TriePrefijos();
+        trie.insertar(1L, "P001", "Manzana roja", 5);
+        trie.insertar(2L, "P002", "Manzanilla", 50);
+        trie.insertar(3L, "P003", "Jugo de manzana", 20);
+        trie.insertar(4L, "P004", "Mango", 1);
+    }
+
+    private List<Long> ids(List<TriePrefijos.Entrada> entradas) {
+        return entradas.stream().map(TriePrefijos.Entrada::id).collect(Collectors.toList());
+    }
+
+    /**
+     * Prueba que las sugerencias incluyen palabras intermedias y salen por popularidad
+     */
+    @Test
+    void testSugerirPorPopularidad() {
+        assertEquals(List.of(2L, 3L, 1L), ids(trie.sugerir("manz", 10)));
+        assertEquals(List.of(2L, 3L, 1L, 4L), ids(trie.sugerir("ma", 10)));
+        assertEquals(List.of(2L), ids(trie.sugerir("ma", 1)));
+    }
+
+    /**
+     * Prueba que la búsqueda ignora mayúsculas, tildes y encuentra por código
+     */
+    @Test
+    void testNormalizacionYCodigo() {
+        trie.insertar(5L, "X-900", "Plátano", 0);
+        assertEquals(List.of(5L), ids(trie.sugerir("PLAT", 10)));
+        assertEquals(List.of(5L), ids(trie.sugerir("x-9", 10)));
+        assertTrue(trie.sugerir("zzz", 10).isEmpty());
+    }
+
+    /**
+     * Prueba que al eliminar o actualizar se recalculan los mejores de cada nodo
+     */
+    @Test
+    void testEliminarYActualizar() {
+        trie.eliminar(2L);
+        assertEquals(List.of(3L, 1L), ids(trie.sugerir("manz", 10)));
+
+        trie.insertar(1L, "P001", "Manzana roja", 100);
+        assertEquals(List.of(1L, 3L), ids(trie.sugerir("manz", 10)));
+        assertEquals(3, trie.tamano());
+    }
+
+    /**
+     * Prueba que con más de MAX_K elementos, eliminar uno del top trae el siguiente mejor
+     */
+    @Test
+    void testRellenarTrasEliminar() {
+        TriePrefijos grande = new TriePrefijos();
+        for (long i = 1; i <= 30; i++) {
+            grande.insertar(i, "C" + i, "Producto " + i, i);
+        }
+        assertEquals(30L, grande.sugerir("prod", 1).get(0).id());
+        grande.eliminar(30L);
+        List<Long> top = ids(grande.sugerir("prod", TriePrefijos.MAX_K));
+        assertEquals(TriePrefijos.MAX_K, top.size());
+        assertEquals(29L, top.get(0));
+        assertEquals(20L, top.get(TriePrefijos.MAX_K - 1));
+    }
+
+    /**
+     * Prueba que las cadenas sin bifurcaciones ocupan una sola arista y que al
+     * eliminar se quitan los nodos vacíos y se vuelven a juntar las aristas
+     */
+    @Test
+    void testAristasCompactas() {
+        TriePrefijos compacto = new TriePrefijos();
+        compacto.insertar(1L, "P001", "Manzanilla", 1);
+        // raíz + "manzanilla" + "p001"
+        assertEquals(3, compacto.nodos());
+
+        compacto.insertar(2L, "P002", "Manzana", 2);
+        // "manzan" se parte en "a" e "illa", "p00" en "1" y "2"
+        assertEquals(7, compacto.nodos());
+        assertEquals(List.of(2L, 1L), ids(compacto.sugerir("manza", 10)));
+        assertEquals(List.of(1L), ids(compacto.sugerir("manzani", 10)));
+        assertTrue(compacto.sugerir("manzanx", 10).isEmpty());
+
+        compacto.eliminar(2L);
+        assertEquals(3, compacto.nodos());
+        assertEquals(List.of(1L), ids(compacto.sugerir("manza", 10)));
+        compacto.eliminar(1L);
+        assertEquals(1, compacto.nodos());
+    }
+
+    /**
+     * Prueba con altas, cambios de puntuación y bajas aleatorias que cada prefijo
+     * devuelve lo mismo que ordenar por fuerza bruta todos los elementos que lo contienen
+     */
+    @Test
+    void testEquivalenteAFuerzaBruta() {
+        Random random = new Random(42);
+        String[] silabas = {"ma", "man", "za", "na", "ro", "ja", "mo", "l", "a"};
+        TriePrefijos aleatorio = new TriePrefijos();
+        Map<Long, TriePrefijos.Entrada> vivos = new HashMap<>();
+        for (int paso = 0; paso < 3000; paso++) {
+            long id = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                aleatorio.eliminar(id);
+                vivos.remove(id);
+                continue;
+            }
+            StringBuilder nombre = new StringBuilder();
+            for (int palabra = 0; palabra < 1 + random.nextInt(2); palabra++) {
+                if (palabra > 0) {
+                    nombre.append(' ');
+                }
+                for (int s = 0; s < 1 + random.nextInt(4); s++) {
+                    nombre.append(silabas[random.nextInt(silabas.length)]);
+                }
+            }
+            long puntuacion = random.nextInt(50);
+            aleatorio.insertar(id, "C" + id, nombre.toString(), puntuacion);
+            vivos.put(id, new TriePrefijos.Entrada(id, "C" + id, nombre.toString(), puntuacion));
+        }
+
+        for (String prefijo : List.of("m", "ma", "man", "manz", "mana", "z", "za", "ro", "roj", "l", "la", "c1", "a", "mo", "x")) {
+            List<Long> esperado = vivos.values().stream()
+                .filter(e -> terminos(e).stream().anyMatch(t -> t.startsWith(prefijo)))
+                .sorted(Comparator.comparingLong(TriePrefijos.Entrada::puntuacion).reversed()
+                    .thenComparing(TriePrefijos.Entrada::id))
+                .limit(TriePrefijos.MAX_K)
+                .map(TriePrefijos.Entrada::id)
+                .collect(Collectors.toList());
+            assertEquals(esperado, ids(aleatorio.sugerir(prefijo, TriePrefijos.MAX_K)), "prefijo " + prefijo);
+        }
+        assertEquals(vivos.size(), aleatorio.tamano());
+
+        // Tras las bajas el árbol queda igual de compacto que uno construido desde cero
+        TriePrefijos nuevo = new TriePrefijos();
+        vivos.values().forEach(e -> nuevo.insertar(e.id(), e.codigo(), e.nombre(), e.puntuacion()));
+        assertEquals(nuevo.nodos(), aleatorio.nodos());
+    }
+
+    private static List<String> terminos(TriePrefijos.Entrada entrada) {
+        String nombre = TriePrefijos.normalizar(entrada.nombre());
+        List<String> terminos = new ArrayList<>(List.of(nombre, TriePrefijos.normalizar(entrada.codigo())));
+        terminos.addAll(Arrays.asList(nombre.split("\\s+")));
+        return terminos;
+    }
+}
@@ -0,0 +1,137 @@
+package com.EcoMarket.producto.conciliacion;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+
+/**
+ * Mide filas por segundo y memoria de una conciliación grande con datos sintéticos.
+ *
+ * Solo se ejecuta con BENCHMARK_CONCILIACION=<filas> (p. ej. 5000000): genera esas
+ * filas de inventario y un recuento con una diferencia cada 100 productos, sin
+ * base de datos. Registra en el log el throughput, los bytes temporales y el pico de heap, y
+ * comprueba que una hoja del fork/join nunca carga más que su partición.
+ *
+ *   BENCHMARK_CONCILIACION=5000000 ./mvnw test -Dtest=ConciliacionBenchmarkTest
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_CONCILIACION", matches = "\\d+")
+public class ConciliacionBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ConciliacionBenchmarkTest.class);
+
+    private static final int PARTICIONES = 64;
+
+    private static int contado(long productoId) {
+        return productoId % 100 == 0 ? 1 : (int) (productoId % 50);
+    }
+
+    // Inventario de 1..filas, una fila por producto en la ubicación A
+    static class CursorSintetico extends JdbcTemplate {
+        final long filas;
+
+        CursorSintetico(long filas) {
+            this.filas = filas;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            long[] actual = new long[1];
+            ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, metodo, argumentos) -> switch ((Integer) argumentos[0]) {
+                    case 3 -> "A";
+                    case 4 -> (int) (actual[0] % 50);
+                    default -> actual[0];
+                });
+            try {
+                for (actual[0] = 1; actual[0] <= filas; actual[0]++) {
+                    rch.processRow(rs);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // Recuento generado al leer, sin tenerlo entero en memoria
+    static InputStream recuento(long filas) {
+        return new InputStream() {
+            private long siguiente;
+            private byte[] linea = "producto_id,ubicacion,cantidad\n".getBytes(StandardCharsets.US_ASCII);
+            private int posicion;
+
+            @Override
+            public int read() {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0];
+            }
+
+            @Override
+            public int read(byte[] destino, int desde, int longitud) {
+                int leidos = 0;
+                while (leidos < longitud) {
+                    if (posicion == linea.length) {
+                        if (siguiente == filas) {
+                            return leidos == 0 ? -1 : leidos;
+                        }
+                        siguiente++;
+                        linea = (siguiente + ",A," + contado(siguiente) + "\n").getBytes(StandardCharsets.US_ASCII);
+                        posicion = 0;
+                    }
+                    int n = Math.min(longitud - leidos, linea.length - posicion);
+                    System.arraycopy(linea, posicion, destino, desde + leidos, n);
+                    posicion += n;
+                    leidos += n;
+                }
+                return leidos;
+            }
+        };
+    }
+
+    @Test
+    void testThroughputYMemoria() throws IOException {
+        long filas = Long.parseLong(System.getenv("BENCHMARK_CONCILIACION"));
+        Path directorio = Files.createTempDirectory("conciliaciones");
+        ConciliacionService conciliacionService = new ConciliacionService();
+        conciliacionService.setCursor(new CursorSintetico(filas));
+        conciliacionService.setDirectorioBase(directorio.toString());
+        conciliacionService.setParticiones(PARTICIONES);
+        conciliacionService.iniciar();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        try {
+            ConciliacionService.Informe informe = conciliacionService.conciliar(recuento(filas), ',', false, false);
+
+            long picoHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP).mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+            log.info("Conciliación de {} + {} filas: {} ms, {} filas/s, {} filas máximas en memoria, "
+                    + "{} MB temporales, pico de heap {} MB", informe.lineasRecuento(), informe.filasSistema(),
+                informe.duracionMs(), Math.round(informe.filasPorSegundo()), informe.filasMaximasEnMemoria(),
+                informe.bytesTemporales() >> 20, picoHeap >> 20);
+            assertEquals(filas / 100, informe.diferencias());
+            assertTrue(informe.filasMaximasEnMemoria() <= 2 * (filas / PARTICIONES + 1) * 11 / 10);
+        } finally {
+            conciliacionService.detener();
+            try (var ficheros = Files.walk(directorio)) {
+                ficheros.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.EcoMarket.producto.conciliacion;
+
+import com.EcoMarket.producto.service.AjusteStockService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Clase de pruebas unitarias para la conciliación del inventario
+ *
+ * Simula la tabla Inventario con un cursor en memoria y AjusteStockService con un
+ * registro de los ajustes pedidos.
+ */
+public class ConciliacionServiceTest {
+
+    /**
+     * JdbcTemplate que recorre filas de Inventario (id, producto_id, ubicacion, cantidad).
+     */
+    static class CursorInventario extends JdbcTemplate {
+        final List<Object[]> filas = new ArrayList<>();
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            for (Object[] fila : filas) {
+                try {
+                    rch.processRow((ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[] {ResultSet.class}, (proxy, metodo, argumentos) -> fila[(Integer) argumentos[0] - 1]));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private CursorInventario cursor;
+    private Path directorio;
+    private final List<AjusteStockService.AjusteStock> ajustes = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> llamadas = Collections.synchronizedList(new ArrayList<>());
+    private ConciliacionService conciliacionService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cursor = new CursorInventario();
+        directorio = Files.createTempDirectory("conciliaciones");
+        AjusteStockService ajusteStockService = new AjusteStockService() {
+            @Override
+            public InformeAjustes ajustar(List<AjusteStock> lineas) {
+                ajustes.addAll(lineas);
+                llamadas.add(lineas.size());
+                List<LineaResultado> resultados = new ArrayList<>();
+                for (int i = 0; i < lineas.size(); i++) {
+                    resultados.add(new LineaResultado(i, lineas.get(i).productoId(), lineas.get(i).ubicacion(),
+                        Resultado.APLICADO, null, null, null));
+                }
+                return new InformeAjustes(lineas.size(), 0, resultados);
+            }
+        };
+        conciliacionService = new ConciliacionService();
+        conciliacionService.setCursor(cursor);
+        conciliacionService.setAjusteStockService(ajusteStockService);
+        conciliacionService.setDirectorioBase(directorio.toString());
+        conciliacionService.setParticiones(4);
+        conciliacionService.iniciar();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        conciliacionService.detener();
+        try (var ficheros = Files.walk(directorio)) {
+            ficheros.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static InputStream csv(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Prueba cada tipo de discrepancia, la suma de líneas repetidas y la corrección con deltas
+     */
+    @Test
+    void testDiscrepanciasYCorreccion() throws IOException {
+        // ARRANGE
+        cursor.filas.add(new Object[] {1L, 1L, "A", 10});
+        cursor.filas.add(new Object[] {2L, 1L, "B", 5});
+        cursor.filas.add(new Object[] {3L, 2L, "A", 0});
+        cursor.filas.add(new Object[] {4L, 3L, null, 7});
+        cursor.filas.add(new Object[] {5L, 4L, "A", 2});
+        String recuento = "producto_id,ubicacion,cantidad\n"
+            + "1,A,10\n"
+            + "1,B,3\n"
+            + "2,A,1\n"
+            + "2,A,2\n"
+            + "3,,7\n"
+            + "9,A,4\n"
+            + "x,A,1\n";
+
+        // ACT
+        ConciliacionService.Informe informe = conciliacionService.conciliar(csv(recuento), ',', false, true);
+
+        // ASSERT
+        assertEquals(7, informe.lineasRecuento());
+        assertEquals(5, informe.filasSistema());
+        assertEquals(2, informe.coincidentes());
+        assertEquals(2, informe.diferencias());
+        assertEquals(1, informe.faltanEnSistema());
+        assertEquals(1, informe.sinContar());
+        assertEquals(1, informe.invalidas());
+        assertEquals(2, informe.corregidas());
+        assertTrue(ajustes.contains(new AjusteStockService.AjusteStock(1L, "B", -2, null)));
+        assertTrue(ajustes.contains(new AjusteStockService.AjusteStock(2L, "A", 3, null)));
+        assertEquals(2, ajustes.size());
+        assertEquals(List.of(
+            "tipo,producto_id,ubicacion,sistema,contado,referencia,resultado",
+            "INVALIDA,,,,,8,producto_id y cantidad deben ser enteros",
+            "DIFERENCIA,1,B,5,3,2,APLICADO",
+            "DIFERENCIA,2,A,0,3,3,APLICADO",
+            "SIN_CONTAR,4,A,2,,5,",
+            "FALTA_EN_SISTEMA,9,A,,4,7,"),
+            Files.readAllLines(conciliacionService.discrepancias(informe.id()).orElseThrow()));
+        try (var ficheros = Files.list(directorio.resolve(informe.id()))) {
+            assertEquals(1, ficheros.count());
+        }
+    }
+
+    /**
+     * Prueba el recuento parcial sin corrección y que una cabecera no válida no deja ficheros
+     */
+    @Test
+    void testRecuentoParcialYCabecera() throws IOException {
+        // ARRANGE
+        cursor.filas.add(new Object[] {1L, 1L, "A", 10});
+        cursor.filas.add(new Object[] {2L, 2L, "A", 5});
+
+        // ACT
+        ConciliacionService.Informe informe = conciliacionService.conciliar(
+            csv("cantidad;producto_id;ubicacion\n4;1;A\n"), ';', true, false);
+
+        // ASSERT
+        assertEquals(1, informe.diferencias());
+        assertEquals(0, informe.sinContar());
+        assertEquals(0, informe.corregidas());
+        assertTrue(ajustes.isEmpty());
+        assertThrows(IllegalArgumentException.class,
+            () -> conciliacionService.conciliar(csv("producto_id,cantidad\n1,4\n"), ',', false, false));
+        try (var ficheros = Files.list(directorio)) {
+            assertEquals(1, ficheros.count());
+        }
+    }
+
+    /**
+     * Prueba que la corrección llama a ajustar con como mucho ajustes-por-llamada
+     * líneas y anota el resultado de cada diferencia en su fila
+     */
+    @Test
+    void testCorreccionPorTramos() throws IOException {
+        // ARRANGE
+        conciliacionService.setAjustesPorLlamada(2);
+        StringBuilder recuento = new StringBuilder("producto_id,ubicacion,cantidad\n");
+        for (long productoId = 1; productoId <= 20; productoId++) {
+            cursor.filas.add(new Object[] {productoId, productoId, "A", 5});
+            recuento.append(productoId).append(",A,6\n");
+        }
+
+        // ACT
+        ConciliacionService.Informe informe = conciliacionService.conciliar(csv(recuento.toString()), ',', false, true);
+
+        // ASSERT
+        assertEquals(20, informe.corregidas());
+        assertEquals(20, ajustes.size());
+        assertTrue(llamadas.stream().allMatch(n -> n <= 2), "llamadas " + llamadas);
+        List<String> lineas = Files.readAllLines(conciliacionService.discrepancias(informe.id()).orElseThrow());
+        assertEquals(21, lineas.size());
+        assertTrue(lineas.stream().skip(1).allMatch(l -> l.startsWith("DIFERENCIA,") && l.endsWith(",APLICADO")));
+        // Cuatro particiones mezcladas en orden de producto
+        assertEquals(LongStream.rangeClosed(1, 20).boxed().toList(),
+            lineas.stream().skip(1).map(l -> Long.valueOf(l.split(",")[1])).toList());
+    }
+
+    /**
+     * Prueba que una ubicación con dos filas en Inventario se informa pero no se corrige,
+     * porque el ajuste no sabría a cuál de las dos aplicar el delta
+     */
+    @Test
+    void testUbicacionRepetidaNoSeCorrige() throws IOException {
+        // ARRANGE
+        cursor.filas.add(new Object[] {10L, 5L, "A", 3});
+        cursor.filas.add(new Object[] {11L, 5L, "A", 4});
+        cursor.filas.add(new Object[] {12L, 6L, "A", 1});
+
+        // ACT
+        ConciliacionService.Informe informe = conciliacionService.conciliar(
+            csv("producto_id,ubicacion,cantidad\n5,A,7\n6,A,2\n"), ',', false, true);
+
+        // ASSERT
+        assertEquals(1, informe.corregidas());
+        assertEquals(List.of(new AjusteStockService.AjusteStock(6L, "A", 1, null)), ajustes);
+        assertEquals(List.of(
+            "tipo,producto_id,ubicacion,sistema,contado,referencia,resultado",
+            "DIFERENCIA,5,A,3,7,10," + ConciliacionService.SIN_CORREGIR_REPETIDA,
+            "SIN_CONTAR,5,A,4,,11,ubicación repetida en el inventario",
+            "DIFERENCIA,6,A,1,2,12,APLICADO"),
+            Files.readAllLines(conciliacionService.discrepancias(informe.id()).orElseThrow()));
+    }
+
+    /**
+     * Prueba que una suma de líneas repetidas que no cabe en un int se informa como
+     * INVALIDA y no se corrige, y que las ubicaciones se emparejan sin distinguir mayúsculas
+     */
+    @Test
+    void testDesbordamientoYMayusculas() throws IOException {
+        // ARRANGE
+        cursor.filas.add(new Object[] {1L, 1L, "A1", 5});
+        cursor.filas.add(new Object[] {2L, 2L, "B2", 3});
+        String recuento = "producto_id,ubicacion,cantidad\n"
+            + "1,A1," + Integer.MAX_VALUE + "\n"
+            + "1,a1,1\n"
+            + "2,b2 ,2\n"
+            + "2,B2,2\n";
+
+        // ACT
+        ConciliacionService.Informe informe = conciliacionService.conciliar(csv(recuento), ',', false, true);
+
+        // ASSERT
+        assertEquals(1, informe.invalidas());
+        assertEquals(1, informe.diferencias());
+        assertEquals(0, informe.faltanEnSistema());
+        assertEquals(0, informe.sinContar());
+        assertEquals(List.of(new AjusteStockService.AjusteStock(2L, "B2", 1, null)), ajustes);
+        assertEquals(List.of(
+            "tipo,producto_id,ubicacion,sistema,contado,referencia,resultado",
+            "INVALIDA,1,A1,,,3,la suma de cantidades de la ubicación no cabe en un entero",
+            "DIFERENCIA,2,B2,3,4,2,APLICADO"),
+            Files.readAllLines(conciliacionService.discrepancias(informe.id()).orElseThrow()));
+    }
+}
@@ -0,0 +1,244 @@
+package com.EcoMarket.producto.config;
+
+import com.EcoMarket.producto.controller.ProductoController;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.service.ProductoService;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase de pruebas unitarias para FormatosBinariosConfig.
+ * Negocia el formato de GET /api/v1/productos con MockMvc sobre la misma lista de
+ * convertidores que monta Spring MVC (los de por defecto más extendMessageConverters).
+ *
+ * La comparación de tamaño y tiempos de codificación frente a JSON solo se ejecuta con
+ * BENCHMARK_FORMATOS=<productos> (p. ej. 1000):
+ *
+ *   BENCHMARK_FORMATOS=1000 ./mvnw test -Dtest=FormatosBinariosConfigTest
+ */
+public class FormatosBinariosConfigTest {
+
+    private static final Logger log = LoggerFactory.getLogger(FormatosBinariosConfigTest.class);
+
+    private static final int REPETICIONES = 50;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        FormatosBinariosConfig config = new FormatosBinariosConfig();
+        // Como en Spring Boot, cada petición del builder devuelve uno nuevo (ámbito prototype)
+        DefaultListableBeanFactory fabrica = new DefaultListableBeanFactory();
+        fabrica.registerBeanDefinition("builder", BeanDefinitionBuilder
+            .genericBeanDefinition(Jackson2ObjectMapperBuilder.class, Jackson2ObjectMapperBuilder::json)
+            .setScope(BeanDefinition.SCOPE_PROTOTYPE).getBeanDefinition());
+        config.setBuilderProvider(fabrica.getBeanProvider(Jackson2ObjectMapperBuilder.class));
+        config.setLinkRelationProvider(new DefaultLinkRelationProvider());
+
+        ProductoService productoService = mock(ProductoService.class);
+        when(productoService.listarTodos()).thenReturn(List.of(
+            new Producto(1L, "P001", "Manzana", null, new BigDecimal("1.50"), "Frutas", null, null, true)));
+        ProductoController controller = new ProductoController();
+        controller.setProductoService(productoService);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+            .setMessageConverters(new Convertidores(config).lista().toArray(new HttpMessageConverter<?>[0]))
+            .build();
+    }
+
+    /**
+     * Prueba que sin cabecera Accept se responde en JSON.
+     */
+    @Test
+    void testSinAcceptDevuelveJson() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/v1/productos")).andExpect(status().isOk()).andReturn();
+
+        assertEquals("P001", leer(resultado, new ObjectMapper(), MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Prueba que Accept: *&#47;* también da JSON y no el primer formato binario.
+     */
+    @Test
+    void testAcceptCualquieraDevuelveJson() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/v1/productos").accept(MediaType.ALL))
+            .andExpect(status().isOk()).andReturn();
+
+        assertEquals("P001", leer(resultado, new ObjectMapper(), MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Prueba que Accept: application/json da JSON.
+     */
+    @Test
+    void testAcceptJson() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/v1/productos").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk()).andReturn();
+
+        assertEquals("P001", leer(resultado, new ObjectMapper(), MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Prueba que Accept: application/cbor da CBOR legible con un ObjectMapper CBOR.
+     */
+    @Test
+    void testAcceptCbor() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/v1/productos")
+                .accept(MediaType.parseMediaType(FormatosBinariosConfig.APPLICATION_CBOR_VALUE)))
+            .andExpect(status().isOk()).andReturn();
+
+        assertEquals("P001", leer(resultado, new ObjectMapper(new CBORFactory()),
+            MediaType.parseMediaType(FormatosBinariosConfig.APPLICATION_CBOR_VALUE)));
+    }
+
+    /**
+     * Prueba que Accept: application/x-jackson-smile da Smile.
+     */
+    @Test
+    void testAcceptSmile() throws Exception {
+        MvcResult resultado = mockMvc.perform(get("/api/v1/productos")
+                .accept(MediaType.parseMediaType(FormatosBinariosConfig.APPLICATION_SMILE_VALUE)))
+            .andExpect(status().isOk()).andReturn();
+
+        assertEquals("P001", leer(resultado, new ObjectMapper(new SmileFactory()),
+            MediaType.parseMediaType(FormatosBinariosConfig.APPLICATION_SMILE_VALUE)));
+    }
+
+    /**
+     * Prueba que CBOR conserva la estructura HAL (_embedded y _links) igual que JSON.
+     */
+    @Test
+    void testCborConservaHal() throws Exception {
+        CollectionModel<EntityModel<Producto>> listado = CollectionModel.of(
+            List.of(EntityModel.of(new Producto(1L, "P001", "Manzana", null, new BigDecimal("1.50"), "Frutas", null, null, true),
+                Link.of("/api/v2/productos/1").withSelfRel())),
+            Link.of("/api/v2/productos").withSelfRel());
+        ObjectMapper json = mapperHal(new ObjectMapper());
+        ObjectMapper cbor = mapperHal(new ObjectMapper(new CBORFactory()));
+
+        JsonNode arbolCbor = cbor.readTree(cbor.writeValueAsBytes(listado));
+
+        assertEquals(json.readTree(json.writeValueAsBytes(listado)), arbolCbor);
+        assertTrue(arbolCbor.has("_embedded"));
+        assertTrue(arbolCbor.has("_links"));
+    }
+
+    /**
+     * Serializa un listado HAL grande en JSON, CBOR y Smile: el contenido decodificado es
+     * el mismo, los binarios ocupan menos y se registran tamaño y tiempos medios.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "BENCHMARK_FORMATOS", matches = "\\d+")
+    void testTamanoYTiemposFrenteAJson() throws Exception {
+        int productos = Integer.parseInt(System.getenv("BENCHMARK_FORMATOS"));
+        List<EntityModel<Producto>> modelos = new ArrayList<>(productos);
+        for (long i = 1; i <= productos; i++) {
+            Producto p = new Producto(i, "P" + i, "Producto " + i, "Descripción del producto " + i,
+                BigDecimal.valueOf(i, 2), "Frutas", LocalDateTime.now(), LocalDateTime.now(), true);
+            modelos.add(EntityModel.of(p, Link.of("/api/v2/productos/" + i).withSelfRel()));
+        }
+        CollectionModel<EntityModel<Producto>> listado = CollectionModel.of(modelos, Link.of("/api/v2/productos").withSelfRel());
+        ObjectMapper json = mapperHal(new ObjectMapper());
+        ObjectMapper cbor = mapperHal(new ObjectMapper(new CBORFactory()));
+        ObjectMapper smile = mapperHal(new ObjectMapper(new SmileFactory()));
+
+        byte[] bytesJson = medir("JSON", json, listado);
+        byte[] bytesCbor = medir("CBOR", cbor, listado);
+        byte[] bytesSmile = medir("Smile", smile, listado);
+
+        JsonNode arbolJson = json.readTree(bytesJson);
+        assertEquals(arbolJson, cbor.readTree(bytesCbor));
+        assertEquals(arbolJson, smile.readTree(bytesSmile));
+        assertTrue(bytesCbor.length < bytesJson.length);
+        assertTrue(bytesSmile.length < bytesJson.length);
+    }
+
+    // Los decimales se leen como BigDecimal en todos los formatos para poder comparar los árboles
+    private static ObjectMapper mapperHal(ObjectMapper base) {
+        return FormatosBinariosConfig.conHal(base.findAndRegisterModules()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS), new DefaultLinkRelationProvider());
+    }
+
+    // Codifica y decodifica varias veces para calentar el JIT y registra tamaño y tiempos medios
+    private static byte[] medir(String formato, ObjectMapper mapper, Object valor) throws Exception {
+        for (int i = 0; i < REPETICIONES; i++) {
+            mapper.readTree(mapper.writeValueAsBytes(valor));
+        }
+        byte[] bytes = null;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            bytes = mapper.writeValueAsBytes(valor);
+        }
+        long codificar = (System.nanoTime() - inicio) / REPETICIONES;
+        inicio = System.nanoTime();
+        for (int i = 0; i < REPETICIONES; i++) {
+            mapper.readTree(bytes);
+        }
+        long decodificar = (System.nanoTime() - inicio) / REPETICIONES;
+        log.info("{}: {} bytes, codificar {} us, decodificar {} us", formato, bytes.length, codificar / 1000,
+            decodificar / 1000);
+        return bytes;
+    }
+
+    // Comprueba el Content-Type y devuelve el código del primer producto
+    private static String leer(MvcResult resultado, ObjectMapper mapper, MediaType esperado) throws Exception {
+        MediaType tipo = MediaType.parseMediaType(resultado.getResponse().getContentType());
+        assertTrue(esperado.isCompatibleWith(tipo), "Content-Type " + tipo);
+        return mapper.readTree(resultado.getResponse().getContentAsByteArray()).get(0).get("codigo").asText();
+    }
+
+    // Convertidores por defecto de Spring MVC más los que añade la configuración
+    private static class Convertidores extends WebMvcConfigurationSupport {
+
+        private final FormatosBinariosConfig config;
+
+        Convertidores(FormatosBinariosConfig config) {
+            this.config = config;
+        }
+
+        @Override
+        protected void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+            config.extendMessageConverters(converters);
+        }
+
+        List<HttpMessageConverter<?>> lista() {
+            return getMessageConverters();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.EcoMarket.producto.controller;
+
+import com.EcoMarket.producto.conciliacion.ConciliacionService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Clase de pruebas unitarias para los códigos de respuesta de ConciliacionController
+ */
+public class ConciliacionControllerTest {
+
+    /**
+     * Prueba que una cabecera no válida responde 400 con el motivo en el cuerpo
+     */
+    @Test
+    void testCabeceraNoValida() throws IOException {
+        // ARRANGE
+        ConciliacionService conciliacionService = mock(ConciliacionService.class);
+        when(conciliacionService.conciliar(any(InputStream.class), eq(','), anyBoolean(), anyBoolean()))
+            .thenThrow(new IllegalArgumentException("Falta la columna cantidad en la cabecera"));
+        ConciliacionController conciliacionController = new ConciliacionController();
+        conciliacionController.setConciliacionService(conciliacionService);
+
+        // ACT
+        ResponseEntity<?> respuesta = conciliacionController.conciliar(new ByteArrayInputStream(new byte[0]), ',', false, false);
+
+        // ASSERT
+        assertEquals(HttpStatus.BAD_REQUEST, respuesta.getStatusCode());
+        assertEquals("Falta la columna cantidad en la cabecera", respuesta.getBody());
+    }
+}
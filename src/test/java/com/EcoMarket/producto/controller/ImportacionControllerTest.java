@@ -0,0 +1,89 @@
+package com.EcoMarket.producto.controller;
+
+import com.EcoMarket.producto.importacion.ImportacionService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Clase de pruebas unitarias para los códigos de respuesta de ImportacionController
+ */
+public class ImportacionControllerTest {
+
+    private ImportacionService importacionService;
+    private ImportacionController importacionController;
+
+    @BeforeEach
+    void setUp() {
+        importacionService = mock(ImportacionService.class);
+        importacionController = new ImportacionController();
+        importacionController.setImportacionService(importacionService);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(
+            new MockHttpServletRequest("POST", "/api/v1/importaciones")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static ImportacionService.Informe informe(ImportacionService.EstadoImportacion estado) {
+        return new ImportacionService.Informe("abc", estado, 10, 4, 0, 5, 2000, null);
+    }
+
+    /**
+     * Prueba que una cabecera no válida responde 400 con el motivo en el cuerpo
+     */
+    @Test
+    void testCabeceraNoValida() throws IOException {
+        // ARRANGE
+        when(importacionService.importar(any(InputStream.class), eq(',')))
+            .thenThrow(new IllegalArgumentException("Falta la columna precio en la cabecera"));
+
+        // ACT
+        ResponseEntity<?> respuesta = importacionController.importar(new ByteArrayInputStream(new byte[0]), ',');
+
+        // ASSERT
+        assertEquals(HttpStatus.BAD_REQUEST, respuesta.getStatusCode());
+        assertEquals("Falta la columna precio en la cabecera", respuesta.getBody());
+    }
+
+    /**
+     * Prueba que una importación completa responde 201 y una interrumpida 422, las dos
+     * con el resumen y su ubicación
+     */
+    @Test
+    void testCompletadaEInterrumpida() throws IOException {
+        // ARRANGE
+        when(importacionService.importar(any(InputStream.class), eq(',')))
+            .thenReturn(informe(ImportacionService.EstadoImportacion.COMPLETADA))
+            .thenReturn(informe(ImportacionService.EstadoImportacion.INTERRUMPIDA));
+
+        // ACT
+        ResponseEntity<?> completada = importacionController.importar(new ByteArrayInputStream(new byte[0]), ',');
+        ResponseEntity<?> interrumpida = importacionController.importar(new ByteArrayInputStream(new byte[0]), ',');
+
+        // ASSERT
+        assertEquals(HttpStatus.CREATED, completada.getStatusCode());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, interrumpida.getStatusCode());
+        assertEquals("/api/v1/importaciones/abc", interrumpida.getHeaders().getLocation().getPath());
+        assertEquals(ImportacionService.EstadoImportacion.INTERRUMPIDA,
+            ((ImportacionService.Informe) interrumpida.getBody()).estado());
+    }
+}
@@ -0,0 +1,105 @@
+package com.EcoMarket.producto.exportacion;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Clase de pruebas unitarias para el formato columnar de las exportaciones
+ *
+ * Escribe ficheros con varios grupos de filas y los vuelve a leer.
+ */
+public class EscritorColumnarTest {
+
+    private static final List<EscritorColumnar.Columna> COLUMNAS = List.of(
+        new EscritorColumnar.Columna("id", EscritorColumnar.Tipo.LONG),
+        new EscritorColumnar.Columna("codigo", EscritorColumnar.Tipo.TEXTO),
+        new EscritorColumnar.Columna("precio", EscritorColumnar.Tipo.DECIMAL, 2),
+        new EscritorColumnar.Columna("categoria", EscritorColumnar.Tipo.TEXTO),
+        new EscritorColumnar.Columna("fecha_creacion", EscritorColumnar.Tipo.FECHA),
+        new EscritorColumnar.Columna("activo", EscritorColumnar.Tipo.BOOLEANO));
+
+    private Object[] fila(long i) {
+        return new Object[] {
+            i,
+            "P" + i,
+            i % 7 == 0 ? null : new BigDecimal("1.50").add(BigDecimal.valueOf(i, 2)),
+            i % 5 == 0 ? null : "Categoria " + (i % 3),
+            LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(i),
+            i % 2 == 0
+        };
+    }
+
+    /**
+     * Prueba que los valores, incluidos los nulos, se leen igual que se escribieron en varios grupos
+     */
+    @Test
+    void testIdaYVuelta() throws IOException {
+        // ARRANGE
+        Path fichero = Files.createTempFile("exportacion", ".parquet");
+
+        // ACT
+        try (EscritorColumnar escritor = new EscritorColumnar(Files.newOutputStream(fichero), COLUMNAS, 1000)) {
+            for (long i = 0; i < 2500; i++) {
+                escritor.escribirFila(fila(i));
+            }
+        }
+
+        // ASSERT
+        try (LectorColumnar lector = new LectorColumnar(fichero)) {
+            assertEquals(2500, lector.filas());
+            assertEquals(3, lector.grupos());
+            assertEquals(COLUMNAS, lector.columnas());
+            long i = 0;
+            for (int g = 0; g < lector.grupos(); g++) {
+                for (Object[] leida : lector.leerGrupo(g)) {
+                    assertArrayEquals(fila(i), leida, "fila " + i);
+                    i++;
+                }
+            }
+            assertEquals(2500, i);
+            assertNull(lector.leerColumna(0, 2)[0]);
+            assertEquals(1500L, lector.leerColumna(1, 0)[500]);
+        } finally {
+            Files.delete(fichero);
+        }
+    }
+
+    /**
+     * Prueba que un fichero vacío tiene pie y se lee sin grupos
+     */
+    @Test
+    void testFicheroVacioYCompresion() throws IOException {
+        // ARRANGE
+        Path vacio = Files.createTempFile("exportacion", ".parquet");
+        Path lleno = Files.createTempFile("exportacion", ".parquet");
+
+        // ACT
+        new EscritorColumnar(Files.newOutputStream(vacio), COLUMNAS, 1000).close();
+        try (EscritorColumnar escritor = new EscritorColumnar(Files.newOutputStream(lleno), COLUMNAS, 10_000)) {
+            for (long i = 0; i < 10_000; i++) {
+                escritor.escribirFila(fila(i));
+            }
+        }
+
+        // ASSERT
+        try (LectorColumnar lector = new LectorColumnar(vacio)) {
+            assertEquals(0, lector.filas());
+            assertEquals(0, lector.grupos());
+        }
+        // Menos de 6 bytes por fila para seis columnas
+        assertTrue(Files.size(lleno) < 60_000, "bytes = " + Files.size(lleno));
+        Files.delete(vacio);
+        Files.delete(lleno);
+    }
+}
@@ -0,0 +1,309 @@
+package com.EcoMarket.producto.exportacion;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de pruebas unitarias para las exportaciones columnares
+ *
+ * Simula la tabla Producto con un cursor en memoria y comprueba el reparto en
+ * particiones, el progreso y los ficheros resultantes.
+ */
+public class ExportacionServiceTest {
+
+    /**
+     * JdbcTemplate que recorre los productos 1..filas del rango pedido, fila a fila.
+     * Con bloquear, la consulta espera al servidor hasta que se cancela su sentencia.
+     */
+    static class CursorProductos extends JdbcTemplate {
+        final long filas;
+        final boolean bloquear;
+        final List<PreparedStatement> canceladas = new CopyOnWriteArrayList<>();
+        final List<Boolean> enTransaccion = new CopyOnWriteArrayList<>();
+        final Set<String> hilos = ConcurrentHashMap.newKeySet();
+        final CountDownLatch consultando = new CountDownLatch(1);
+
+        CursorProductos(long filas, boolean bloquear) {
+            this.filas = filas;
+            this.bloquear = bloquear;
+        }
+
+        @Override
+        public Map<String, Object> queryForMap(String sql) {
+            Map<String, Object> rango = new HashMap<>();
+            rango.put("minimo", filas == 0 ? null : 1L);
+            rango.put("maximo", filas == 0 ? null : filas);
+            return rango;
+        }
+
+        @Override
+        public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+            long[] rango = new long[2];
+            CountDownLatch cancelada = new CountDownLatch(1);
+            PreparedStatement ps = mock(PreparedStatement.class);
+            try {
+                doAnswer(i -> rango[(Integer) i.getArgument(0) - 1] = i.getArgument(1)).when(ps).setLong(anyInt(), anyLong());
+                doAnswer(i -> {
+                    canceladas.add(ps);
+                    cancelada.countDown();
+                    return null;
+                }).when(ps).cancel();
+                Connection conexion = mock(Connection.class);
+                when(conexion.prepareStatement(anyString())).thenReturn(ps);
+                psc.createPreparedStatement(conexion);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            enTransaccion.add(TransaccionesFalsas.ACTIVA.get());
+            hilos.add(Thread.currentThread().getName());
+            if (bloquear) {
+                consultando.countDown();
+                try {
+                    cancelada.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // Lo que hace el driver de MySQL con una consulta cancelada
+                throw new QueryTimeoutException("Query execution was interrupted");
+            }
+            for (long id = rango[0]; id <= rango[1]; id++) {
+                Object[] fila = {id, "P" + id, "Producto " + id, null, new BigDecimal("2.50"), "Frutas",
+                    LocalDateTime.of(2025, 1, 1, 0, 0), null, true};
+                Object[] ultimo = new Object[1];
+                ResultSet rs = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] {ResultSet.class}, (proxy, metodo, argumentos) -> {
+                        if (metodo.getName().equals("wasNull")) {
+                            return ultimo[0] == null;
+                        }
+                        ultimo[0] = fila[(Integer) argumentos[0] - 1];
+                        return ultimo[0] == null && metodo.getReturnType().isPrimitive()
+                            ? (metodo.getReturnType() == boolean.class ? (Object) false : (Object) 0L) : ultimo[0];
+                    });
+                try {
+                    rch.processRow(rs);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gestor de transacciones que anota cada transacción y marca el hilo mientras dura.
+     */
+    static class TransaccionesFalsas implements PlatformTransactionManager {
+        static final ThreadLocal<Boolean> ACTIVA = ThreadLocal.withInitial(() -> false);
+        final List<TransactionDefinition> abiertas = new CopyOnWriteArrayList<>();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definicion) {
+            abiertas.add(definicion);
+            ACTIVA.set(true);
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus estado) {
+            ACTIVA.set(false);
+        }
+
+        @Override
+        public void rollback(TransactionStatus estado) {
+            ACTIVA.set(false);
+        }
+    }
+
+    private Path directorio;
+    private ExportacionService exportacionService;
+    private final TransaccionesFalsas transacciones = new TransaccionesFalsas();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directorio = Files.createTempDirectory("exportaciones");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        exportacionService.detener();
+        try (var ficheros = Files.walk(directorio)) {
+            ficheros.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private ExportacionService servicio(CursorProductos cursor) {
+        ExportacionService servicio = new ExportacionService();
+        servicio.setJdbcTemplate(cursor);
+        servicio.setCursor(cursor);
+        servicio.setTransactionManager(transacciones);
+        servicio.setDirectorioBase(directorio.toString());
+        servicio.setFilasPorGrupo(100);
+        servicio.iniciar();
+        return servicio;
+    }
+
+    private ExportacionService.Progreso esperar(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ExportacionService.Progreso progreso = exportacionService.progreso(id).orElseThrow();
+            if (progreso.estado() != ExportacionService.EstadoTrabajo.EN_CURSO) {
+                return progreso;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("La exportación no terminó");
+    }
+
+    /**
+     * Prueba que las particiones cubren toda la tabla sin repetir filas y se pueden leer
+     */
+    @Test
+    void testExportarEnParticiones() throws Exception {
+        // ARRANGE
+        CursorProductos cursor = new CursorProductos(1003, false);
+        exportacionService = servicio(cursor);
+
+        // ACT
+        String id = exportacionService.iniciar(List.of("producto"), 4).id();
+        ExportacionService.Progreso progreso = esperar(id);
+
+        // ASSERT
+        assertEquals(ExportacionService.EstadoTrabajo.COMPLETADO, progreso.estado());
+        assertEquals(ExportacionService.Coherencia.POR_PARTICION, progreso.coherencia());
+        assertEquals(List.of(false, false, false, false), cursor.enTransaccion);
+        assertEquals(1003, progreso.filas());
+        assertEquals(4, progreso.archivos().size());
+        long filas = 0;
+        long siguienteId = 1;
+        for (ExportacionService.Archivo archivo : progreso.archivos()) {
+            try (LectorColumnar lector = new LectorColumnar(exportacionService.archivo(id, archivo.nombre()).orElseThrow())) {
+                filas += lector.filas();
+                for (int g = 0; g < lector.grupos(); g++) {
+                    for (Object[] fila : lector.leerGrupo(g)) {
+                        assertEquals(siguienteId++, fila[0]);
+                    }
+                }
+            }
+        }
+        assertEquals(1003, filas);
+        assertTrue(exportacionService.archivo(id, "../otro.parquet").isEmpty());
+    }
+
+    /**
+     * Prueba los parámetros no válidos y que borrar un trabajo terminado elimina sus ficheros
+     */
+    @Test
+    void testValidarYBorrar() throws Exception {
+        // ARRANGE
+        exportacionService = servicio(new CursorProductos(0, false));
+
+        // ACT
+        assertThrows(IllegalArgumentException.class, () -> exportacionService.iniciar(List.of("usuarios"), 2));
+        assertThrows(IllegalArgumentException.class, () -> exportacionService.iniciar(null, 0));
+        String id = exportacionService.iniciar(null, 1).id();
+        ExportacionService.Progreso progreso = esperar(id);
+
+        // ASSERT
+        assertEquals(ExportacionService.EstadoTrabajo.COMPLETADO, progreso.estado());
+        assertEquals(List.of("inventario-000.parquet", "producto-000.parquet"),
+            progreso.archivos().stream().map(ExportacionService.Archivo::nombre).toList());
+        assertTrue(exportacionService.cancelar(id));
+        assertFalse(Files.exists(directorio.resolve(id)));
+        assertTrue(exportacionService.progreso(id).isEmpty());
+    }
+
+    /**
+     * Prueba que con instantanea todas las particiones se leen en serie dentro de una
+     * sola transacción REPEATABLE READ de solo lectura
+     */
+    @Test
+    void testInstantaneaUnica() throws Exception {
+        // ARRANGE
+        CursorProductos cursor = new CursorProductos(500, false);
+        exportacionService = servicio(cursor);
+
+        // ACT
+        String id = exportacionService.iniciar(List.of("producto"), 4, true).id();
+        ExportacionService.Progreso progreso = esperar(id);
+
+        // ASSERT
+        assertEquals(ExportacionService.EstadoTrabajo.COMPLETADO, progreso.estado(), progreso.error());
+        assertEquals(ExportacionService.Coherencia.INSTANTANEA_UNICA, progreso.coherencia());
+        assertEquals(4, progreso.archivos().size());
+        assertEquals(500, progreso.filas());
+        assertEquals(1, transacciones.abiertas.size());
+        assertEquals(TransactionDefinition.ISOLATION_REPEATABLE_READ, transacciones.abiertas.get(0).getIsolationLevel());
+        assertTrue(transacciones.abiertas.get(0).isReadOnly());
+        assertEquals(List.of(true, true, true, true), cursor.enTransaccion);
+        assertEquals(1, cursor.hilos.size());
+    }
+
+    /**
+     * Prueba que cancelar interrumpe en el servidor la consulta que aún no ha devuelto
+     * filas, en vez de esperar a la siguiente fila
+     */
+    @Test
+    void testCancelarInterrumpeLaConsulta() throws Exception {
+        // ARRANGE
+        CursorProductos cursor = new CursorProductos(1000, true);
+        exportacionService = servicio(cursor);
+        String id = exportacionService.iniciar(List.of("producto"), 1).id();
+        assertTrue(cursor.consultando.await(5, TimeUnit.SECONDS));
+
+        // ACT
+        assertTrue(exportacionService.cancelar(id));
+        ExportacionService.Progreso progreso = esperar(id);
+
+        // ASSERT
+        assertEquals(ExportacionService.EstadoTrabajo.CANCELADO, progreso.estado());
+        assertEquals(1, cursor.canceladas.size());
+        assertNull(progreso.error());
+        assertTrue(borrado(directorio.resolve(id)));
+    }
+
+    private static boolean borrado(Path carpeta) throws InterruptedException {
+        for (int i = 0; i < 500 && Files.exists(carpeta); i++) {
+            Thread.sleep(10);
+        }
+        return !Files.exists(carpeta);
+    }
+}
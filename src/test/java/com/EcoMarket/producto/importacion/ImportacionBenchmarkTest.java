@@ -0,0 +1,163 @@
+package com.EcoMarket.producto.importacion;
+
+import com.EcoMarket.producto.repository.ProductoRepository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Importa un CSV sintético grande para comprobar que la memoria no depende del fichero.
+ *
+ * Solo se ejecuta con BENCHMARK_IMPORTACION=<filas> (p. ej. 5000000): el CSV se genera
+ * según se lee y la tabla falsa solo cuenta filas, así que lo único que crece es lo que
+ * retiene el servicio. Comprueba que nunca hay más de importacion.lotes-en-vuelo bloques
+ * leídos sin escribir (más los buffers del lector) y registra filas/s y pico de heap.
+ *
+ *   BENCHMARK_IMPORTACION=5000000 ./mvnw test -Dtest=ImportacionBenchmarkTest
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK_IMPORTACION", matches = "\\d+")
+public class ImportacionBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionBenchmarkTest.class);
+
+    private static final int LOTE = 1000;
+    private static final int LOTES_EN_VUELO = 8;
+
+    // Filas que caben en los buffers de InputStreamReader y LectorCsv (8 KB cada uno)
+    static final int FILAS_EN_BUFFERS = 2000;
+
+    /**
+     * CSV codigo,nombre,precio de P1..Pfilas generado al leer; servidas cuenta las filas entregadas.
+     */
+    static InputStream csv(long filas, AtomicLong servidas) {
+        return new InputStream() {
+            private byte[] linea = "codigo,nombre,precio\n".getBytes(StandardCharsets.US_ASCII);
+            private int posicion;
+
+            @Override
+            public int read() {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0];
+            }
+
+            @Override
+            public int read(byte[] destino, int desde, int longitud) {
+                int leidos = 0;
+                while (leidos < longitud) {
+                    if (posicion == linea.length) {
+                        if (servidas.get() == filas) {
+                            return leidos == 0 ? -1 : leidos;
+                        }
+                        long siguiente = servidas.incrementAndGet();
+                        linea = ("P" + siguiente + ",Producto " + siguiente + ",2.50\n").getBytes(StandardCharsets.US_ASCII);
+                        posicion = 0;
+                    }
+                    int n = Math.min(longitud - leidos, linea.length - posicion);
+                    System.arraycopy(linea, posicion, destino, desde + leidos, n);
+                    posicion += n;
+                    leidos += n;
+                }
+                return leidos;
+            }
+        };
+    }
+
+    // Cuenta las filas escritas y el máximo de filas leídas por delante de ellas
+    static class TablaContadora extends JdbcTemplate {
+        final AtomicLong servidas;
+        long escritas;
+        long adelantoMaximo;
+
+        TablaContadora(AtomicLong servidas) {
+            this.servidas = servidas;
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> filas) {
+            adelantoMaximo = Math.max(adelantoMaximo, servidas.get() - escritas);
+            escritas += filas.size();
+            return new int[filas.size()];
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+        }
+    }
+
+    @Test
+    void testMemoriaAcotada() throws IOException {
+        long filas = Long.parseLong(System.getenv("BENCHMARK_IMPORTACION"));
+        Path directorio = Files.createTempDirectory("importaciones");
+        AtomicLong servidas = new AtomicLong();
+        TablaContadora tabla = new TablaContadora(servidas);
+        ImportacionService importacionService = new ImportacionService();
+        importacionService.setProductoRepository((ProductoRepository) Proxy.newProxyInstance(
+            ProductoRepository.class.getClassLoader(), new Class<?>[] {ProductoRepository.class},
+            (proxy, metodo, argumentos) -> List.of()));
+        importacionService.setJdbcTemplate(tabla);
+        importacionService.setTransactionTemplate(new TransactionTemplate(new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definicion) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus estado) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus estado) {
+            }
+        }));
+        importacionService.setDirectorioBase(directorio.toString());
+        importacionService.setTamanoLote(LOTE);
+        importacionService.setLotesEnVuelo(LOTES_EN_VUELO);
+        importacionService.setCodigosEsperados(filas);
+        importacionService.iniciar();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        try {
+            ImportacionService.Informe informe = importacionService.importar(csv(filas, servidas), ',');
+
+            long picoHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP).mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+            log.info("Importación de {} filas: {} ms, {} filas/s, como mucho {} filas leídas sin escribir, "
+                    + "pico de heap {} MB", informe.filas(), informe.duracionMs(), Math.round(informe.filasPorSegundo()),
+                tabla.adelantoMaximo, picoHeap >> 20);
+            assertEquals(ImportacionService.EstadoImportacion.COMPLETADA, informe.estado());
+            assertEquals(filas, informe.creados());
+            assertEquals(filas, tabla.escritas);
+            assertTrue(tabla.adelantoMaximo <= (LOTES_EN_VUELO + 1L) * LOTE + FILAS_EN_BUFFERS,
+                "filas leídas sin escribir: " + tabla.adelantoMaximo);
+        } finally {
+            importacionService.detener();
+            try (var ficheros = Files.walk(directorio)) {
+                ficheros.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.EcoMarket.producto.importacion;
+
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.ProductoRepository;
+import com.EcoMarket.producto.service.TablaProductos;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clase de pruebas unitarias para la importación de productos desde CSV
+ *
+ * Usa una tabla Producto en memoria (JdbcTemplate y ProductoRepository simulados)
+ * para comprobar la validación, los códigos repetidos y existentes, el tamaño de los
+ * lotes y el informe de errores.
+ */
+public class ImportacionServiceTest {
+
+    private TablaProductos tabla;
+    private Path directorio;
+    private final List<ProductoCambiadoEvent> eventos = new ArrayList<>();
+    private ImportacionService importacionService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tabla = new TablaProductos();
+        directorio = Files.createTempDirectory("importaciones");
+        ProductoRepository repositorio = (ProductoRepository) Proxy.newProxyInstance(
+            ProductoRepository.class.getClassLoader(), new Class<?>[] {ProductoRepository.class},
+            (proxy, metodo, argumentos) -> {
+                if (!metodo.getName().equals("findCodigosExistentes")) {
+                    throw new UnsupportedOperationException(metodo.getName());
+                }
+                return ((Collection<?>) argumentos[0]).stream().map(c -> tabla.guardado((String) c)).filter(Objects::nonNull).toList();
+            });
+        PlatformTransactionManager transacciones = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definicion) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus estado) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus estado) {
+            }
+        };
+        importacionService = new ImportacionService();
+        importacionService.setProductoRepository(repositorio);
+        importacionService.setJdbcTemplate(tabla);
+        importacionService.setTransactionTemplate(new TransactionTemplate(transacciones));
+        importacionService.setEventPublisher(evento -> eventos.add((ProductoCambiadoEvent) evento));
+        importacionService.setDirectorioBase(directorio.toString());
+        importacionService.setTamanoLote(2);
+        importacionService.setLotesEnVuelo(2);
+        importacionService.setCodigosEsperados(1000);
+        importacionService.iniciar();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        importacionService.detener();
+        try (var ficheros = Files.walk(directorio)) {
+            ficheros.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static InputStream csv(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Prueba que las filas válidas se guardan por lotes y las demás van al informe en orden
+     */
+    @Test
+    void testImportarConErrores() throws IOException {
+        // ARRANGE
+        tabla.insertar("EXISTE");
+        String contenido = "codigo,nombre,precio,categoria,activo,columna_extra\n"
+            + "P1,Manzana,2.50,Frutas,si,x\n"
+            + "P2,\"Queso, curado\",12,Lácteos,,x\n"
+            + "P3,Pera,caro,Frutas,,x\n"
+            + "P1,Manzana otra vez,3,Frutas,,x\n"
+            + "EXISTE,Repetido,1,,,x\n"
+            + "P4,Uva,-1,,,x\n"
+            + "P5,Kiwi,0.999,,no,x\n"
+            + ",Sin código,1,,,x\n"
+            + "P6,Corta\n";
+
+        // ACT
+        ImportacionService.Informe informe = importacionService.importar(csv(contenido), ',');
+
+        // ASSERT
+        assertEquals(ImportacionService.EstadoImportacion.COMPLETADA, informe.estado());
+        assertEquals(9, informe.filas());
+        assertEquals(3, informe.creados());
+        assertEquals(6, informe.rechazados());
+        assertTrue(tabla.lotes.stream().allMatch(n -> n <= 2));
+        assertEquals(List.of("EXISTE", "P1", "P2", "P5"), List.copyOf(tabla.ids.keySet()));
+        assertEquals(3, eventos.size());
+        Producto kiwi = eventos.get(2).actual();
+        assertEquals(new BigDecimal("1.00"), kiwi.getPrecio());
+        assertEquals(false, kiwi.isActivo());
+        assertEquals("Queso, curado", eventos.get(1).actual().getNombre());
+
+        List<String> errores = Files.readAllLines(importacionService.errores(informe.id()).orElseThrow());
+        assertEquals(7, errores.size());
+        assertTrue(errores.get(1).startsWith("4,P3,INVALIDA,"));
+        assertEquals("5,P1,CODIGO_REPETIDO,Código repetido en el fichero", errores.get(2));
+        assertEquals("6,EXISTE,CODIGO_EXISTENTE,El código ya existe", errores.get(3));
+        assertTrue(errores.get(4).startsWith("7,P4,INVALIDA,"));
+        assertTrue(errores.get(5).startsWith("9,,INVALIDA,"));
+        assertTrue(errores.get(6).startsWith("10,P6,INVALIDA,"));
+    }
+
+    /**
+     * Prueba que los códigos repetidos y existentes se reconocen con la colación de
+     * la columna, sin distinguir mayúsculas ni tildes
+     */
+    @Test
+    void testCodigosConMayusculasYTildes() throws IOException {
+        // ARRANGE: cada bloque es de 2 filas, así que "pé-1" repite un código de otro bloque
+        tabla.insertar("Existe");
+        String contenido = "codigo,nombre,precio\n"
+            + "PE-1,Manzana,1\n"
+            + "pe-1,Manzana,1\n"
+            + "EXISTE,Repetido,1\n"
+            + "pé-1,Manzana,1\n"
+            + "PE-2,Pera,1\n";
+
+        // ACT
+        ImportacionService.Informe informe = importacionService.importar(csv(contenido), ',');
+
+        // ASSERT
+        assertEquals(2, informe.creados());
+        assertEquals(List.of("Existe", "PE-1", "PE-2"), List.copyOf(tabla.ids.keySet()));
+        List<String> errores = Files.readAllLines(importacionService.errores(informe.id()).orElseThrow());
+        assertEquals("3,pe-1,CODIGO_REPETIDO,Código repetido en el fichero", errores.get(1));
+        assertEquals("4,EXISTE,CODIGO_EXISTENTE,El código ya existe", errores.get(2));
+        assertEquals("5,pé-1,CODIGO_REPETIDO,Código repetido en el fichero", errores.get(3));
+        assertEquals(List.of(1, 1), tabla.lotes);
+    }
+
+    /**
+     * Prueba que una cabecera sin columnas obligatorias se rechaza y que un CSV roto
+     * interrumpe la importación conservando los lotes ya escritos
+     */
+    @Test
+    void testCabeceraYCsvRoto() throws IOException {
+        // ACT / ASSERT
+        assertThrows(IllegalArgumentException.class,
+            () -> importacionService.importar(csv("codigo,nombre\nP1,Manzana\n"), ','));
+        assertThrows(IllegalArgumentException.class,
+            () -> importacionService.importar(csv("codigo;nombre;precio\n"), '"'));
+
+        // ARRANGE
+        StringBuilder contenido = new StringBuilder("codigo;nombre;precio\n");
+        for (int i = 1; i <= 6; i++) {
+            contenido.append("P").append(i).append(";Producto;1,5\n");
+        }
+        contenido.append("P7;\"sin cerrar;1\n");
+
+        // ACT
+        ImportacionService.Informe informe = importacionService.importar(csv(contenido.toString()), ';');
+
+        // ASSERT
+        assertEquals(ImportacionService.EstadoImportacion.INTERRUMPIDA, informe.estado());
+        assertTrue(informe.error().contains("línea 8"));
+        assertEquals(new BigDecimal("1.50"), eventos.get(0).actual().getPrecio());
+        assertTrue(tabla.ids.size() >= 2 && tabla.ids.size() <= 6);
+        assertEquals(tabla.ids.size(), informe.creados());
+    }
+
+    /**
+     * Prueba que la lectura nunca va más de lotes-en-vuelo bloques por delante de lo
+     * escrito, sea cual sea el tamaño del fichero
+     */
+    @Test
+    void testContrapresion() throws IOException {
+        // ARRANGE
+        AtomicLong servidas = new AtomicLong();
+        long[] adelantoMaximo = new long[1];
+        TablaProductos medida = new TablaProductos() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> filas) {
+                adelantoMaximo[0] = Math.max(adelantoMaximo[0], servidas.get() - ids.size());
+                return super.batchUpdate(sql, filas);
+            }
+        };
+        importacionService.setJdbcTemplate(medida);
+        importacionService.setTamanoLote(100);
+        importacionService.setLotesEnVuelo(4);
+
+        // ACT
+        ImportacionService.Informe informe = importacionService.importar(ImportacionBenchmarkTest.csv(20_000, servidas), ',');
+
+        // ASSERT
+        assertEquals(20_000, informe.creados());
+        assertTrue(adelantoMaximo[0] <= 5 * 100 + ImportacionBenchmarkTest.FILAS_EN_BUFFERS, "adelanto " + adelantoMaximo[0]);
+    }
+}
@@ -0,0 +1,55 @@
+package com.EcoMarket.producto.importacion;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * Clase de pruebas unitarias para el lector de CSV en streaming
+ */
+public class LectorCsvTest {
+
+    /**
+     * Prueba comillas, separadores y saltos de línea dentro de campos, CRLF, BOM y líneas en blanco
+     */
+    @Test
+    void testRegistros() throws IOException {
+        // ARRANGE
+        String csv = "\uFEFFcodigo;nombre\r\n"
+            + "P1;\"Queso; \"\"curado\"\"\"\r\n"
+            + "\r\n"
+            + "P2;\"Dos\nlíneas\"\n"
+            + "P3;";
+
+        // ACT
+        LectorCsv lector = new LectorCsv(new StringReader(csv), ';', 1000);
+
+        // ASSERT
+        assertEquals(List.of("codigo", "nombre"), lector.siguiente());
+        assertEquals(List.of("P1", "Queso; \"curado\""), lector.siguiente());
+        assertEquals(2, lector.linea());
+        assertEquals(List.of("P2", "Dos\nlíneas"), lector.siguiente());
+        assertEquals(4, lector.linea());
+        assertEquals(List.of("P3", ""), lector.siguiente());
+        assertEquals(6, lector.linea());
+        assertNull(lector.siguiente());
+    }
+
+    /**
+     * Prueba que una comilla sin cerrar corta la lectura en vez de leer el resto del fichero
+     */
+    @Test
+    void testComillaSinCerrar() throws IOException {
+        // ARRANGE
+        LectorCsv lector = new LectorCsv(new StringReader("P1,\"sin cerrar\nP2,b\nP3,c\n"), ',', 10);
+
+        // ACT / ASSERT
+        assertThrows(IOException.class, lector::siguiente);
+    }
+}
@@ -0,0 +1,295 @@
+package com.EcoMarket.producto.invalidacion;
+
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.InventarioRepository;
+import com.EcoMarket.producto.repository.ProductoRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clase de pruebas unitarias para la invalidación entre instancias
+ *
+ * Levanta dos contextos de Spring en la misma JVM, unidos por el transporte en
+ * memoria y con la misma "base de datos", y comprueba que un cambio en uno
+ * refresca el otro una sola vez.
+ */
+public class InvalidacionBusTest {
+
+    /**
+     * JdbcTemplate que simula las tablas entidad_version e invalidacion_secuencia.
+     */
+    static class TablaVersiones extends JdbcTemplate {
+        // "PRODUCTO:12" -> {version, secuencia}
+        final Map<String, long[]> filas = new ConcurrentHashMap<>();
+        final AtomicLong secuencia = new AtomicLong();
+        final AtomicInteger upserts = new AtomicInteger();
+
+        // Sin DataSource: no hay conexión real
+        @Override
+        public void afterPropertiesSet() {
+        }
+
+        // El contador de secuencia y LAST_INSERT_ID() de una conexión
+        @Override
+        public <T> T execute(ConnectionCallback<T> accion) {
+            AtomicLong ultimoId = new AtomicLong();
+            try {
+                Statement sentencia = mock(Statement.class);
+                when(sentencia.executeUpdate(startsWith("UPDATE invalidacion_secuencia"))).thenAnswer(i -> {
+                    ultimoId.set(secuencia.incrementAndGet());
+                    return 1;
+                });
+                when(sentencia.executeQuery("SELECT LAST_INSERT_ID()")).thenAnswer(i -> {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.next()).thenReturn(true);
+                    when(rs.getLong(1)).thenReturn(ultimoId.get());
+                    return rs;
+                });
+                Connection con = mock(Connection.class);
+                when(con.createStatement()).thenReturn(sentencia);
+                return accion.doInConnection(con);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            upserts.incrementAndGet();
+            for (int i = 0; i < args.length; i += 3) {
+                long valor = (Long) args[i + 2];
+                filas.merge(args[i] + ":" + args[i + 1], new long[] {1, valor},
+                    (v, n) -> new long[] {v[0] + 1, valor});
+            }
+            return args.length / 3;
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            List<Map.Entry<String, long[]>> seleccion = new ArrayList<>();
+            if (sql.contains(" IN (")) {
+                for (int i = 0; i < args.length; i += 2) {
+                    String clave = args[i] + ":" + args[i + 1];
+                    seleccion.add(Map.entry(clave, filas.get(clave)));
+                }
+            } else {
+                Comparator<Map.Entry<String, long[]>> orden = Comparator.comparingLong(e -> e.getValue()[1]);
+                orden = orden.thenComparing(e -> e.getKey().split(":")[0])
+                    .thenComparingLong(e -> Long.parseLong(e.getKey().split(":")[1]));
+                // secuencia > ? o (secuencia, entidad, entidad_id) > (?, ?, ?)
+                Map.Entry<String, long[]> desde = Map.entry(args.length == 2 ? "" : args[1] + ":" + args[2],
+                    new long[] {0, (Long) args[0]});
+                Comparator<Map.Entry<String, long[]>> comparador = args.length == 2
+                    ? Comparator.comparingLong(e -> e.getValue()[1]) : orden;
+                filas.entrySet().stream().filter(e -> comparador.compare(e, desde) > 0).sorted(orden)
+                    .limit((Integer) args[args.length - 1]).forEach(seleccion::add);
+            }
+            List<T> resultado = new ArrayList<>();
+            try {
+                for (Map.Entry<String, long[]> fila : seleccion) {
+                    String[] clave = fila.getKey().split(":");
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getString(1)).thenReturn(clave[0]);
+                    when(rs.getLong(2)).thenReturn(Long.parseLong(clave[1]));
+                    when(rs.getLong(3)).thenReturn(fila.getValue()[0]);
+                    when(rs.getLong(5)).thenReturn(fila.getValue()[1]);
+                    resultado.add(rowMapper.mapRow(rs, resultado.size()));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Eventos de producto que llegan a cada instancia.
+     */
+    static class Registro {
+        final List<ProductoCambiadoEvent> eventos = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        public void alCambiarProducto(ProductoCambiadoEvent evento) {
+            eventos.add(evento);
+        }
+    }
+
+    private final String canal = "prueba-" + UUID.randomUUID();
+    private final TablaVersiones tabla = new TablaVersiones();
+    private final ProductoRepository productoRepository = mock(ProductoRepository.class);
+    private final InventarioRepository inventarioRepository = mock(InventarioRepository.class);
+    private final List<AnnotationConfigApplicationContext> instancias = new ArrayList<>();
+
+    private AnnotationConfigApplicationContext instancia() {
+        AnnotationConfigApplicationContext contexto = new AnnotationConfigApplicationContext();
+        contexto.getEnvironment().getPropertySources().addFirst(new MapPropertySource("prueba",
+            Map.of("invalidacion.transporte", "memoria", "invalidacion.memoria.canal", canal)));
+        contexto.registerBean(JdbcTemplate.class, () -> tabla);
+        contexto.registerBean(ProductoRepository.class, () -> productoRepository);
+        contexto.registerBean(InventarioRepository.class, () -> inventarioRepository);
+        contexto.register(TransporteMemoria.class, InvalidacionBus.class, Registro.class);
+        contexto.refresh();
+        instancias.add(contexto);
+        return contexto;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        instancias.forEach(AnnotationConfigApplicationContext::close);
+    }
+
+    /**
+     * Prueba que un cambio en una instancia se relee y se publica como remoto en la otra
+     */
+    @Test
+    void testPropagaCambioAOtraInstancia() {
+        // ARRANGE
+        AnnotationConfigApplicationContext a = instancia();
+        AnnotationConfigApplicationContext b = instancia();
+        Producto manzana = new Producto(1L, "P-1", "Manzana", null, new BigDecimal("2.50"), "Frutas", null, null, true);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(manzana));
+
+        // ACT
+        a.publishEvent(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 1L, null, manzana));
+
+        // ASSERT: la instancia de origen no se refresca a sí misma
+        assertEquals(1, a.getBean(Registro.class).eventos.size());
+        assertFalse(a.getBean(Registro.class).eventos.get(0).remoto());
+        List<ProductoCambiadoEvent> enB = b.getBean(Registro.class).eventos;
+        assertEquals(1, enB.size());
+        assertTrue(enB.get(0).remoto());
+        assertSame(manzana, enB.get(0).actual());
+
+        InvalidacionBus.Informe informeA = a.getBean(InvalidacionBus.class).informe();
+        InvalidacionBus.Informe informeB = b.getBean(InvalidacionBus.class).informe();
+        assertEquals(1, informeA.enviadas());
+        assertEquals(1, informeB.aplicadas());
+        assertEquals(1L, informeB.propagacion().get("muestras"));
+    }
+
+    /**
+     * Prueba que las invalidaciones repetidas o antiguas se descartan y que una entidad borrada se publica como eliminada
+     */
+    @Test
+    void testDescartaRepetidasYAntiguas() {
+        // ARRANGE
+        AnnotationConfigApplicationContext b = instancia();
+        InvalidacionBus bus = b.getBean(InvalidacionBus.class);
+        when(productoRepository.findById(7L)).thenReturn(Optional.empty());
+        long ahora = System.currentTimeMillis();
+
+        // ACT
+        bus.recibir(new Invalidacion("otro", InvalidacionBus.PRODUCTO, 7L, 2, ahora));
+        bus.recibir(new Invalidacion("otro", InvalidacionBus.PRODUCTO, 7L, 2, ahora));
+        bus.recibir(new Invalidacion("otro", InvalidacionBus.PRODUCTO, 7L, 1, ahora));
+        bus.recibir(new Invalidacion("otro", InvalidacionBus.PRODUCTO, 7L, 3, ahora));
+
+        // ASSERT
+        List<ProductoCambiadoEvent> eventos = b.getBean(Registro.class).eventos;
+        assertEquals(2, eventos.size());
+        assertEquals(ProductoCambiadoEvent.Tipo.ELIMINADO, eventos.get(0).tipo());
+        assertEquals(2, bus.informe().descartadas());
+        assertEquals(2, bus.informe().aplicadas());
+    }
+
+    /**
+     * Prueba que los cambios de una transacción se versionan con un solo upsert antes
+     * del commit y solo se difunden tras confirmarse
+     */
+    @Test
+    void testVersionaUnaVezPorTransaccion() {
+        // ARRANGE
+        AnnotationConfigApplicationContext a = instancia();
+        AnnotationConfigApplicationContext b = instancia();
+        for (long id = 1; id <= 2; id++) {
+            when(productoRepository.findById(id)).thenReturn(Optional.of(
+                new Producto(id, "P-" + id, "Producto " + id, null, BigDecimal.ONE, "Frutas", null, null, true)));
+        }
+        TransactionSynchronizationManager.initSynchronization();
+
+        // ACT
+        a.publishEvent(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 1L, null, null));
+        a.publishEvent(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 2L, null, null));
+        a.publishEvent(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 1L, null, null));
+        int antesDelCommit = tabla.upserts.get();
+        List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+        sincronizaciones.forEach(s -> s.beforeCommit(false));
+        int enviadasAntesDeConfirmar = b.getBean(Registro.class).eventos.size();
+        sincronizaciones.forEach(TransactionSynchronization::afterCommit);
+        sincronizaciones.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // ASSERT
+        assertEquals(0, antesDelCommit);
+        assertEquals(1, sincronizaciones.size());
+        assertEquals(1, tabla.upserts.get());
+        assertEquals(0, enviadasAntesDeConfirmar);
+        assertEquals(2, b.getBean(Registro.class).eventos.size());
+        assertEquals(1L, tabla.filas.get("PRODUCTO:1")[0]);
+        assertNull(TransactionSynchronizationManager.getResource(a.getBean(InvalidacionBus.class)));
+    }
+
+    /**
+     * Prueba que el sondeo del transporte "tabla" lee por secuencia, sin perder las
+     * filas de una transacción que no caben en un lote ni releer las ya vistas
+     */
+    @Test
+    void testSondeoPorSecuencia() {
+        // ARRANGE
+        TransporteTablaVersiones transporte = new TransporteTablaVersiones();
+        transporte.setJdbcTemplate(tabla);
+        transporte.setLote(2);
+        tabla.filas.put("PRODUCTO:1", new long[] {4, 1});
+        tabla.filas.put("PRODUCTO:2", new long[] {1, 1});
+        tabla.filas.put("INVENTARIO:9", new long[] {2, 1});
+        tabla.filas.put("PRODUCTO:3", new long[] {1, 2});
+        List<String> recibidas = new ArrayList<>();
+
+        // ACT
+        transporte.sondear(i -> recibidas.add(i.entidad() + ":" + i.id() + "@" + i.version()));
+        tabla.filas.put("PRODUCTO:1", new long[] {5, 3});
+        transporte.sondear(i -> recibidas.add(i.entidad() + ":" + i.id() + "@" + i.version()));
+        transporte.sondear(i -> recibidas.add(i.entidad() + ":" + i.id() + "@" + i.version()));
+
+        // ASSERT
+        assertEquals(List.of("INVENTARIO:9@2", "PRODUCTO:1@4", "PRODUCTO:2@1", "PRODUCTO:3@1", "PRODUCTO:1@5"),
+            recibidas);
+    }
+}
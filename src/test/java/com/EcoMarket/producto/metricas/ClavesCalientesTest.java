@@ -0,0 +1,85 @@
+package com.EcoMarket.producto.metricas;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Clase de pruebas unitarias para la detección de claves calientes
+ *
+ * Verifica que el sketch nunca subestima, que el top encuentra las claves
+ * dominantes de un tráfico sesgado y que el decaimiento reduce los contadores.
+ */
+public class ClavesCalientesTest {
+
+    /**
+     * Prueba que la estimación del sketch es siempre mayor o igual que la frecuencia real
+     */
+    @Test
+    void testSketchNoSubestima() {
+        SketchConteoMinimo sketch = new SketchConteoMinimo(256, 4);
+        Map<Long, Long> reales = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long clave = random.nextInt(5_000);
+            sketch.incrementar(clave);
+            reales.merge(clave, 1L, Long::sum);
+        }
+        reales.forEach((clave, real) -> assertTrue(sketch.estimar(clave) >= real));
+    }
+
+    /**
+     * Prueba que el top recoge las claves más consultadas
+     */
+    @Test
+    void testTopConTraficoSesgado() {
+        // ARRANGE: sin muestreo para que la prueba sea determinista
+        ClavesCalientes claves = new ClavesCalientes(1, 60_000, 5, 1024, 4);
+        Random random = new Random(11);
+
+        // ACT: 3 productos calientes y mucho ruido repartido
+        for (int i = 0; i < 100_000; i++) {
+            int r = random.nextInt(100);
+            long id = r < 20 ? 1 : r < 35 ? 2 : r < 45 ? 3 : 1000 + random.nextInt(50_000);
+            claves.registrarProducto(id);
+        }
+        List<TopClaves.Clave> top = claves.informe().productos();
+
+        // ASSERT
+        assertEquals(List.of(1L, 2L, 3L), top.subList(0, 3).stream().map(TopClaves.Clave::clave).toList());
+        assertTrue(top.get(0).frecuencia() >= 20_000 * 0.95);
+        assertTrue(claves.informe().inventarios().isEmpty());
+    }
+
+    /**
+     * Prueba que al cerrar una ventana las frecuencias se dividen entre dos
+     */
+    @Test
+    void testDecaer() {
+        ClavesCalientes claves = new ClavesCalientes(1, 60_000, 5, 1024, 4);
+        for (int i = 0; i < 100; i++) {
+            claves.registrarInventario(42);
+        }
+
+        claves.decaer();
+
+        assertEquals(50, claves.informe().inventarios().get(0).frecuencia());
+        assertEquals(1, claves.informe().ventanas());
+    }
+
+    /**
+     * Prueba la conversión del id de la ruta
+     */
+    @Test
+    void testParsear() {
+        assertEquals(123, ClavesCalientesInterceptor.parsear("123"));
+        assertEquals(-1, ClavesCalientesInterceptor.parsear("12a"));
+        assertEquals(-1, ClavesCalientesInterceptor.parsear(""));
+    }
+}
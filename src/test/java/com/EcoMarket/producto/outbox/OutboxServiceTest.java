@@ -0,0 +1,305 @@
+package com.EcoMarket.producto.outbox;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Clase de pruebas unitarias para el outbox transaccional
+ *
+ * Usa unas tablas en memoria en lugar de la base de datos para comprobar el
+ * registro de eventos con su versión, la entrega en orden con reintentos y el
+ * orden con transacciones concurrentes sobre el mismo agregado y la escritura de
+ * los eventos de una transacción con tres batches.
+ */
+public class OutboxServiceTest {
+
+    /**
+     * JdbcTemplate que simula outbox_version, outbox_evento y outbox_pendiente. La fila
+     * de outbox_version de cada agregado queda bloqueada hasta commit(), como en InnoDB.
+     */
+    static class TablasOutbox extends JdbcTemplate {
+        final TreeMap<Long, EventoOutbox> eventos = new TreeMap<>();
+        final List<Object[]> pendientes = new ArrayList<>();
+        final Map<String, Long> versiones = new HashMap<>();
+        private final Map<String, ReentrantLock> bloqueos = new ConcurrentHashMap<>();
+        private final ThreadLocal<List<ReentrantLock>> tomados = ThreadLocal.withInitial(ArrayList::new);
+        final AtomicInteger sentencias = new AtomicInteger();
+        private long autoIncremento;
+
+        void commit() {
+            tomados.get().forEach(ReentrantLock::unlock);
+            tomados.get().clear();
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> filas) {
+            sentencias.incrementAndGet();
+            if (sql.startsWith("INSERT INTO outbox_version")) {
+                for (Object[] fila : filas) {
+                    ReentrantLock lock = bloqueos.computeIfAbsent(fila[0] + ":" + fila[1], k -> new ReentrantLock());
+                    lock.lock();
+                    tomados.get().add(lock);
+                    synchronized (this) {
+                        versiones.merge(fila[0] + ":" + fila[1], ((Integer) fila[2]).longValue(), Long::sum);
+                    }
+                }
+                return new int[filas.size()];
+            }
+            synchronized (this) {
+                for (Object[] fila : filas) {
+                    if (sql.startsWith("INSERT INTO outbox_evento")) {
+                        long id = ++autoIncremento;
+                        long version = versiones.get(fila[4] + ":" + fila[5]) - (Integer) fila[0];
+                        eventos.put(id, new EventoOutbox(id, (String) fila[4], (Long) fila[5], version,
+                            (String) fila[1], (Long) fila[2], (String) fila[3]));
+                    } else if (sql.startsWith("INSERT INTO outbox_pendiente")) {
+                        long version = versiones.get(fila[1] + ":" + fila[2]) - (Integer) fila[3];
+                        eventos.values().stream()
+                            .filter(e -> e.agregado().equals(fila[1]) && fila[2].equals(e.agregadoId()) && e.version() == version)
+                            .forEach(e -> pendientes.add(new Object[] {fila[0], e.id()}));
+                    }
+                }
+            }
+            return new int[filas.size()];
+        }
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            if (sql.startsWith("DELETE FROM outbox_pendiente")) {
+                List<Object> ids = Arrays.asList(args).subList(1, args.length);
+                pendientes.removeIf(p -> p[0].equals(args[0]) && ids.contains(p[1]));
+            }
+            return 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            List<EventoOutbox> lote = new ArrayList<>();
+            pendientes.sort(Comparator.comparing(p -> (Long) p[1]));
+            for (Object[] p : pendientes) {
+                if (p[0].equals(args[0]) && lote.size() < (Integer) args[1]) {
+                    lote.add(eventos.get((Long) p[1]));
+                }
+            }
+            return (List<T>) lote;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            // recuento de pendientes por destino: no se usa en estas pruebas
+        }
+    }
+
+    private TablasOutbox tablas;
+    private DestinoMemoria memoria;
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        tablas = new TablasOutbox();
+        memoria = new DestinoMemoria();
+        outboxService = new OutboxService();
+        outboxService.setJdbcTemplate(tablas);
+        outboxService.setObjectMapper(new ObjectMapper());
+        outboxService.setDestinos(List.of(memoria), List.of("memoria"));
+        outboxService.setReloj(Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC));
+    }
+
+    private Producto producto(long id, String codigo, String precio) {
+        return new Producto(id, codigo, "Manzana", null, new BigDecimal(precio), "Frutas", null, null, true);
+    }
+
+    /**
+     * Prueba que cada cambio guarda el evento con los datos del agregado y una pendiente por destino
+     */
+    @Test
+    void testRegistrarEventos() {
+        // ARRANGE
+        Producto manzana = producto(1L, "P-1", "2.50");
+
+        // ACT
+        outboxService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, 1L, null, manzana));
+        outboxService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, 7L, null, null));
+
+        // ASSERT
+        assertEquals(2, tablas.eventos.size());
+        EventoOutbox creado = tablas.eventos.get(1L);
+        assertEquals(OutboxService.PRODUCTO, creado.agregado());
+        assertEquals("CREADO", creado.tipo());
+        assertTrue(creado.datos().contains("\"codigo\":\"P-1\""));
+        assertEquals("{\"id\":7}", tablas.eventos.get(2L).datos());
+        assertEquals(2, tablas.pendientes.size());
+    }
+
+    /**
+     * Prueba que un lote rechazado se reintenta completo y en orden tras la espera
+     */
+    @Test
+    void testDrenarReintentaEnOrden() {
+        // ARRANGE
+        outboxService.setLote(2);
+        Producto manzana = producto(1L, "P-1", "2.50");
+        outboxService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, 1L, null, manzana));
+        outboxService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 1L, manzana,
+            producto(1L, "P-1", "3.00")));
+        outboxService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.CREADO, 5L, null,
+            new Inventario(5L, manzana, 10, 2, "Almacén A", null, null)));
+        memoria.fallarProximos(1);
+
+        // ACT: el primer intento falla y el segundo, antes de la espera, no se hace
+        outboxService.drenar();
+        outboxService.drenar();
+
+        // ASSERT
+        assertTrue(memoria.recibidos().isEmpty());
+        OutboxService.EstadoDestino estado = outboxService.estado().get(0);
+        assertEquals(1, estado.fallosSeguidos());
+        assertEquals(3, tablas.pendientes.size());
+
+        // ACT: pasada la espera se entregan los tres eventos en dos lotes
+        outboxService.setReloj(Clock.offset(Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC),
+            Duration.ofMinutes(1)));
+        outboxService.drenar();
+
+        // ASSERT
+        assertEquals(List.of(1L, 2L, 3L), memoria.recibidos().stream().map(EventoOutbox::id).toList());
+        assertEquals(List.of(1L, 2L, 1L), memoria.recibidos().stream().map(EventoOutbox::version).toList());
+        assertTrue(tablas.pendientes.isEmpty());
+        assertEquals(0, outboxService.estado().get(0).fallosSeguidos());
+    }
+
+    /**
+     * Prueba que con dos transacciones intercaladas sobre el mismo producto la segunda
+     * espera en el contador de versión hasta el commit de la primera, sin frenar a las
+     * de otros productos, y que el destino recibe las versiones en orden
+     */
+    @Test
+    void testTransaccionesIntercaladas() throws Exception {
+        // ARRANGE
+        Producto manzana = producto(1L, "P-1", "2.50");
+        CountDownLatch registradaA = new CountDownLatch(1);
+        CountDownLatch commitA = new CountDownLatch(1);
+        Thread a = new Thread(() -> {
+            outboxService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 1L, manzana,
+                producto(1L, "P-1", "3.00")));
+            registradaA.countDown();
+            try {
+                commitA.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            tablas.commit();
+        });
+        Thread b = new Thread(() -> {
+            outboxService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 1L, manzana,
+                producto(1L, "P-1", "4.00")));
+            tablas.commit();
+        });
+        Thread otro = new Thread(() -> {
+            outboxService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, 2L, null,
+                producto(2L, "P-2", "1.00")));
+            tablas.commit();
+        });
+
+        // ACT: A registra su evento y no confirma; B (mismo producto) y otro (producto 2) empiezan
+        a.start();
+        registradaA.await();
+        b.start();
+        otro.start();
+        otro.join(5000);
+        b.join(200);
+
+        // ASSERT: B espera a A; el otro producto no
+        assertTrue(b.isAlive());
+        assertEquals(2, tablas.eventos.size());
+
+        // ACT: A confirma, B continúa y el relay entrega
+        commitA.countDown();
+        a.join(5000);
+        b.join(5000);
+        outboxService.drenar();
+
+        // ASSERT
+        List<EventoOutbox> manzanas = memoria.recibidos().stream().filter(e -> e.agregadoId() == 1L).toList();
+        assertEquals(List.of(1L, 2L), manzanas.stream().map(EventoOutbox::version).toList());
+        assertTrue(manzanas.get(0).datos().contains("\"precio\":3.00"), manzanas.get(0).datos());
+        assertTrue(manzanas.get(1).datos().contains("\"precio\":4.00"), manzanas.get(1).datos());
+        assertEquals(3, memoria.recibidos().size());
+    }
+
+    /**
+     * Prueba que los eventos de una transacción se escriben juntos antes del commit con
+     * tres sentencias, cada uno con su versión en orden de llegada y una pendiente por destino
+     */
+    @Test
+    void testEventosDeUnaTransaccionEnBatch() {
+        // ARRANGE
+        outboxService.setDestinos(List.of(memoria, new DestinoMemoria() {
+            @Override
+            public String nombre() {
+                return "copia";
+            }
+        }), List.of("memoria", "copia"));
+        Producto manzana = producto(1L, "P-1", "2.50");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // ACT: tres cambios en la misma transacción, dos del mismo producto
+            outboxService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, 1L, null, manzana));
+            outboxService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.CREADO, 5L, null,
+                new Inventario(5L, manzana, 10, 2, "Almacén A", null, null)));
+            outboxService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 1L, manzana,
+                producto(1L, "P-1", "3.00")));
+
+            // ASSERT: nada escrito hasta el commit
+            assertEquals(0, tablas.sentencias.get());
+
+            // ACT
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+            tablas.commit();
+        }
+
+        // ASSERT
+        assertEquals(3, tablas.sentencias.get());
+        assertEquals(List.of("CREADO", "CREADO", "ACTUALIZADO"), tablas.eventos.values().stream().map(EventoOutbox::tipo).toList());
+        assertEquals(List.of(1L, 1L, 2L), tablas.eventos.values().stream().map(EventoOutbox::version).toList());
+        assertTrue(tablas.eventos.get(3L).datos().contains("\"precio\":3.00"));
+        assertEquals(6, tablas.pendientes.size());
+        assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+    }
+}
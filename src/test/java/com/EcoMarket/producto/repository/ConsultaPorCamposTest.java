@@ -0,0 +1,91 @@
+package com.EcoMarket.producto.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+
+/**
+ * Clase de pruebas unitarias para ConsultaPorCampos.
+ * Compara las columnas del SELECT que genera Hibernate para fields= con las que
+ * lee la carga de la entidad completa.
+ */
+public class ConsultaPorCamposTest {
+
+    private static SqlGenerado sqlGenerado;
+
+    @BeforeAll
+    static void arrancar() {
+        sqlGenerado = new SqlGenerado();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        sqlGenerado.close();
+    }
+
+    /**
+     * Prueba que la proyección lee solo las columnas pedidas y no descripcion,
+     * que sí aparece al cargar la entidad completa.
+     */
+    @Test
+    void testProyeccionProductoSoloLeeColumnasPedidas() {
+        // ACT
+        String proyeccion = sqlGenerado.capturar(() -> ConsultaPorCampos.seleccionar(sqlGenerado.entityManager(),
+            Producto.class, ProductoRepositoryCustom.CAMPOS, Set.of("id", "codigo", "nombre", "precio"), null));
+        String completa = sqlGenerado.capturar(() -> sqlGenerado.entityManager()
+            .createQuery("SELECT p FROM Producto p ORDER BY p.id", Producto.class).getResultList());
+
+        // ASSERT
+        assertEquals(Set.of("id", "codigo", "nombre", "precio"), columnasSeleccionadas(proyeccion));
+        assertEquals(9, columnasSeleccionadas(completa).size());
+        assertTrue(columnasSeleccionadas(completa).contains("descripcion"));
+    }
+
+    /**
+     * Prueba que por id se añade el WHERE sobre la clave primaria.
+     */
+    @Test
+    void testProyeccionPorId() {
+        // ACT
+        String sql = sqlGenerado.capturar(() -> ConsultaPorCampos.seleccionar(sqlGenerado.entityManager(),
+            Producto.class, ProductoRepositoryCustom.CAMPOS, Set.of("id", "nombre"), 7L));
+
+        // ASSERT
+        assertEquals(Set.of("id", "nombre"), columnasSeleccionadas(sql));
+        assertTrue(sql.contains(" where p1_0.id=?"), sql);
+    }
+
+    /**
+     * Prueba que productoId se lee de la clave foránea de Inventario sin JOIN con Producto.
+     */
+    @Test
+    void testProyeccionInventarioSinJoin() {
+        // ACT
+        String sql = sqlGenerado.capturar(() -> ConsultaPorCampos.seleccionar(sqlGenerado.entityManager(),
+            Inventario.class, InventarioRepositoryCustom.CAMPOS, Set.of("id", "productoId", "cantidad"), null));
+
+        // ASSERT
+        assertEquals(Set.of("id", "producto_id", "cantidad"), columnasSeleccionadas(sql));
+        assertFalse(sql.contains(" join "), sql);
+    }
+
+    // Columnas entre SELECT y FROM, sin alias de tabla
+    private static Set<String> columnasSeleccionadas(String sql) {
+        String lista = sql.substring("select ".length(), sql.indexOf(" from "));
+        return Arrays.stream(lista.split(","))
+            .map(c -> c.trim().replaceAll("^\\w+\\.", ""))
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
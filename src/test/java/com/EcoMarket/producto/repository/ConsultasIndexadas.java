@@ -0,0 +1,74 @@
+package com.EcoMarket.producto.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.PageRequest;
+
+import com.EcoMarket.producto.model.EstadoInventario;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+
+/**
+ * Consultas de ProductoRepository e InventarioRepository que deben resolverse con un
+ * índice, con el SQL y los valores que Hibernate genera de verdad para cada una.
+ *
+ * Las usan ConsultasIndexadasTest (qué índice cubre el WHERE, sin base de datos) e
+ * IndicesExplainTest (qué índice elige MySQL). Los valores encajan con las filas que
+ * siembra IndicesExplainTest: categorías EXPLAIN-C0..C99, 2 % de productos activos,
+ * 1 % de inventario agotado y fechas de actualización repartidas hacia atrás en horas.
+ */
+final class ConsultasIndexadas {
+
+    /**
+     * Consulta generada, la entidad a la que pertenece y el índice que debe usar.
+     */
+    record Caso(String nombre, Class<?> entidad, String indice, SqlGenerado.Consulta consulta) {
+
+        @Override
+        public String toString() {
+            return nombre;
+        }
+    }
+
+    private ConsultasIndexadas() {
+    }
+
+    static List<Caso> casos(SqlGenerado sqlGenerado, long productoId) {
+        ProductoRepository productos = sqlGenerado.repositorio(ProductoRepository.class, new ProductoRepositoryCustomImpl());
+        InventarioRepository inventario = sqlGenerado.repositorio(InventarioRepository.class,
+            new InventarioRepositoryCustomImpl());
+        List<Caso> casos = new ArrayList<>();
+        casos.add(producto(sqlGenerado, "ProductoRepository.findByCodigo", "uk_producto_codigo",
+            () -> productos.findByCodigo("EXPLAIN-17")));
+        casos.add(producto(sqlGenerado, "ProductoRepository.findByCategoria", "idx_producto_categoria_activo_precio",
+            () -> productos.findByCategoria("EXPLAIN-C7")));
+        casos.add(producto(sqlGenerado, "ProductoRepository.findByActivoTrue", "idx_producto_activo_precio",
+            productos::findByActivoTrue));
+        casos.add(producto(sqlGenerado, "ProductoRepository.findAll(filtro)", "idx_producto_categoria_activo_precio",
+            () -> productos.findAll(ProductoSpecifications.filtro("EXPLAIN-C0", true,
+                new BigDecimal("1.00"), new BigDecimal("10.00"), null, null), PageRequest.of(0, 20))));
+        casos.add(producto(sqlGenerado, "ProductoRepository.findAll(actualizadoDesde)", "idx_producto_fecha_actualizacion",
+            () -> productos.findAll(ProductoSpecifications.filtro(null, null, null, null, null,
+                LocalDateTime.now().minusHours(10)), PageRequest.of(0, 20))));
+        casos.add(inventario(sqlGenerado, "InventarioRepository.findByProductoId", "idx_inventario_producto_ubicacion",
+            () -> inventario.findByProductoId(productoId)));
+        casos.add(inventario(sqlGenerado, "InventarioRepository.findByProducto", "idx_inventario_producto_ubicacion",
+            () -> inventario.findByProducto(sqlGenerado.entityManager().getReference(Producto.class, productoId))));
+        casos.add(inventario(sqlGenerado, "InventarioRepository.findByEstado", "idx_inventario_estado_cantidad",
+            () -> inventario.findByEstado(EstadoInventario.AGOTADO)));
+        casos.add(inventario(sqlGenerado, "InventarioRepository.findByCantidadLessThanEqual", "idx_inventario_cantidad",
+            () -> inventario.findByCantidadLessThanEqual(5)));
+        return casos;
+    }
+
+    private static Caso producto(SqlGenerado sqlGenerado, String nombre, String indice, Runnable consulta) {
+        return new Caso(nombre, Producto.class, indice, sqlGenerado.capturarConsulta(consulta));
+    }
+
+    private static Caso inventario(SqlGenerado sqlGenerado, String nombre, String indice, Runnable consulta) {
+        return new Caso(nombre, Inventario.class, indice, sqlGenerado.capturarConsulta(consulta));
+    }
+}
@@ -0,0 +1,81 @@
+package com.EcoMarket.producto.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Clase de pruebas unitarias para las consultas de ProductoRepository e InventarioRepository.
+ * Comprueba sobre el SQL que genera Hibernate que el WHERE de cada método es el prefijo
+ * de su índice, sin base de datos (IndicesExplainTest lo confirma con EXPLAIN).
+ */
+public class ConsultasIndexadasTest {
+
+    private static SqlGenerado sqlGenerado;
+
+    @BeforeAll
+    static void arrancar() {
+        sqlGenerado = new SqlGenerado();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        sqlGenerado.close();
+    }
+
+    static List<ConsultasIndexadas.Caso> casos() {
+        return ConsultasIndexadas.casos(sqlGenerado, 1L);
+    }
+
+    /**
+     * Prueba que el índice que más columnas del WHERE cubre es el esperado.
+     */
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("casos")
+    void testConsultaCubiertaPorIndice(ConsultasIndexadas.Caso caso) {
+        // ACT
+        String indice = SqlGenerado.mejorIndice(caso.entidad(), caso.consulta().sql());
+
+        // ASSERT
+        assertEquals(caso.indice(), indice, caso.consulta().sql());
+    }
+
+    /**
+     * Prueba que findByActivoTrue compara activo con un valor en lugar de dejar la
+     * columna sola en el WHERE, que MySQL no resuelve con el índice.
+     */
+    @Test
+    void testActivoTrueComparaColumna() {
+        // ACT
+        String sql = caso("ProductoRepository.findByActivoTrue").consulta().sql();
+
+        // ASSERT
+        assertTrue(sql.endsWith(" where p1_0.activo=1"), sql);
+    }
+
+    /**
+     * Prueba que findByProductoId filtra por la clave foránea sin JOIN con Producto.
+     */
+    @Test
+    void testProductoIdSinJoin() {
+        // ACT
+        SqlGenerado.Consulta consulta = caso("InventarioRepository.findByProductoId").consulta();
+
+        // ASSERT
+        assertFalse(consulta.sql().contains(" join "), consulta.sql());
+        assertTrue(consulta.sql().endsWith(" where i1_0.producto_id=?"), consulta.sql());
+        assertEquals(List.of(1L), consulta.parametros());
+    }
+
+    private static ConsultasIndexadas.Caso caso(String nombre) {
+        return casos().stream().filter(c -> c.nombre().equals(nombre)).findFirst().orElseThrow();
+    }
+}
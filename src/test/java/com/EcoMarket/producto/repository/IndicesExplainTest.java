@@ -0,0 +1,104 @@
+package com.EcoMarket.producto.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Comprueba con EXPLAIN que MySQL resuelve cada consulta de los repositorios con su índice.
+ *
+ * Necesita una base de datos MySQL 8 real (DB_URL, DB_USERNAME, DB_PASSWORD, las mismas
+ * variables que la aplicación); sin ellas la prueba se omite. Aplica las migraciones
+ * de Flyway, siembra FILAS productos EXPLAIN-* con su inventario (con la selectividad
+ * que describe ConsultasIndexadas), ejecuta ANALYZE TABLE y lanza EXPLAIN sobre el SQL
+ * y los valores que genera Hibernate para cada método. Se valida key, el índice que
+ * el optimizador elige de verdad. Las filas sembradas se borran al terminar.
+ */
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+public class IndicesExplainTest {
+
+    private static final int FILAS = 20_000;
+
+    private static Connection conexion;
+    private static SqlGenerado sqlGenerado;
+    private static long productoId;
+
+    @BeforeAll
+    static void migrar() throws Exception {
+        String url = System.getenv("DB_URL");
+        String usuario = System.getenv("DB_USERNAME");
+        String clave = System.getenv("DB_PASSWORD");
+        Flyway.configure().dataSource(url, usuario, clave).baselineOnMigrate(true).load().migrate();
+        conexion = DriverManager.getConnection(url, usuario, clave);
+        sqlGenerado = new SqlGenerado();
+        borrarSembradas();
+        try (Statement st = conexion.createStatement()) {
+            st.execute("SET SESSION cte_max_recursion_depth = " + FILAS);
+            st.executeUpdate("INSERT INTO Producto (codigo, nombre, precio, categoria, fecha_creacion, fecha_actualizacion, activo) "
+                + "WITH RECURSIVE n (i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + FILAS + ") "
+                + "SELECT CONCAT('EXPLAIN-', i), CONCAT('Producto ', i), (i DIV 100) % 100, CONCAT('EXPLAIN-C', i % 100), "
+                + "NOW(6) - INTERVAL i HOUR, NOW(6) - INTERVAL i HOUR, i % 50 = 0 FROM n");
+            st.executeUpdate("INSERT INTO Inventario (producto_id, cantidad, cantidad_minima, ubicacion, fecha_actualizacion, estado) "
+                + "SELECT id, IF(id % 100 = 0, 0, 6 + id % 1000), 5, 'A', NOW(6), IF(id % 100 = 0, 'AGOTADO', 'DISPONIBLE') "
+                + "FROM Producto WHERE codigo LIKE 'EXPLAIN-%'");
+            try (ResultSet rs = st.executeQuery("SELECT MIN(id) FROM Producto WHERE codigo LIKE 'EXPLAIN-%'")) {
+                rs.next();
+                productoId = rs.getLong(1);
+            }
+            st.execute("ANALYZE TABLE Producto, Inventario");
+        }
+    }
+
+    @AfterAll
+    static void cerrar() throws Exception {
+        if (conexion != null) {
+            borrarSembradas();
+            conexion.close();
+        }
+        if (sqlGenerado != null) {
+            sqlGenerado.close();
+        }
+    }
+
+    static List<ConsultasIndexadas.Caso> casos() {
+        return ConsultasIndexadas.casos(sqlGenerado, productoId);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("casos")
+    void testConsultaUsaIndice(ConsultasIndexadas.Caso caso) throws Exception {
+        SqlGenerado.Consulta consulta = caso.consulta();
+        try (PreparedStatement ps = conexion.prepareStatement("EXPLAIN " + consulta.sql())) {
+            for (int i = 0; i < consulta.parametros().size(); i++) {
+                ps.setObject(i + 1, consulta.parametros().get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next(), caso + ": EXPLAIN sin filas");
+                assertEquals(caso.indice(), rs.getString("key"),
+                    caso + ": possible_keys " + rs.getString("possible_keys") + " en " + consulta.sql());
+                assertFalse(rs.next(), caso + ": se esperaba una sola tabla en " + consulta.sql());
+            }
+        }
+    }
+
+    private static void borrarSembradas() throws Exception {
+        try (Statement st = conexion.createStatement()) {
+            st.executeUpdate("DELETE i FROM Inventario i JOIN Producto p ON p.id = i.producto_id WHERE p.codigo LIKE 'EXPLAIN-%'");
+            st.executeUpdate("DELETE FROM Producto WHERE codigo LIKE 'EXPLAIN-%'");
+        }
+    }
+}
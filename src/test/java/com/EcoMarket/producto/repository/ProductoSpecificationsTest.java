@@ -0,0 +1,155 @@
+package com.EcoMarket.producto.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import com.EcoMarket.producto.model.Producto;
+
+/**
+ * Clase de pruebas unitarias para ProductoSpecifications.
+ * Comprueba el WHERE que Hibernate genera con el dialecto de MySQL para cada
+ * combinación de criterios y que sus columnas forman el prefijo de un índice de Producto.
+ */
+public class ProductoSpecificationsTest {
+
+    private static SqlGenerado sqlGenerado;
+    private static SimpleJpaRepository<Producto, Long> repositorio;
+
+    @BeforeAll
+    static void arrancar() {
+        sqlGenerado = new SqlGenerado();
+        repositorio = new SimpleJpaRepository<>(Producto.class, sqlGenerado.entityManager());
+    }
+
+    @AfterAll
+    static void cerrar() {
+        sqlGenerado.close();
+    }
+
+    /**
+     * Prueba que categoria, activo y el rango de precio generan igualdades seguidas
+     * de un rango sobre las tres columnas de idx_producto_categoria_activo_precio.
+     */
+    @Test
+    void testFiltroCategoriaActivoPrecioUsaIndiceCompuesto() {
+        // ARRANGE
+        Specification<Producto> filtro = ProductoSpecifications.filtro("Frutas", true,
+            new BigDecimal("1.00"), new BigDecimal("10.00"), null, null);
+
+        // ACT
+        String sql = consultar(filtro, Sort.unsorted());
+
+        // ASSERT
+        assertTrue(sql.contains("where p1_0.categoria=? and p1_0.activo=? and p1_0.precio>=? and p1_0.precio<=?"), sql);
+        assertEquals("idx_producto_categoria_activo_precio", mejorIndice(sql));
+        assertEquals(3, SqlGenerado.prefijoUsable(
+            SqlGenerado.indices(Producto.class).get("idx_producto_categoria_activo_precio"), SqlGenerado.predicados(sql)));
+    }
+
+    /**
+     * Prueba que sin categoria el filtro por activo y precio usa idx_producto_activo_precio.
+     */
+    @Test
+    void testFiltroActivoPrecioUsaIndiceActivoPrecio() {
+        // ARRANGE
+        Specification<Producto> filtro = ProductoSpecifications.filtro(null, false,
+            new BigDecimal("5.00"), null, null, null);
+
+        // ACT
+        String sql = consultar(filtro, Sort.unsorted());
+
+        // ASSERT
+        assertTrue(sql.contains("where p1_0.activo=? and p1_0.precio>=?"), sql);
+        assertFalse(sql.contains("categoria=?"), sql);
+        assertEquals("idx_producto_activo_precio", mejorIndice(sql));
+    }
+
+    /**
+     * Prueba que actualizadoDesde genera un rango sobre fecha_actualizacion.
+     */
+    @Test
+    void testFiltroActualizadoDesdeUsaIndiceFecha() {
+        // ARRANGE
+        Specification<Producto> filtro = ProductoSpecifications.filtro(null, null, null, null, null,
+            LocalDateTime.of(2024, 1, 1, 0, 0));
+
+        // ACT
+        String sql = consultar(filtro, Sort.unsorted());
+
+        // ASSERT
+        assertTrue(sql.contains("where p1_0.fecha_actualizacion>=?"), sql);
+        assertEquals("idx_producto_fecha_actualizacion", mejorIndice(sql));
+    }
+
+    /**
+     * Prueba que el texto en nombre va envuelto en lower(...) LIKE y no cuenta para
+     * ningún índice, mientras que el resto de criterios sigue usando el compuesto.
+     */
+    @Test
+    void testFiltroNombreNoImpideUsarIndice() {
+        // ARRANGE
+        Specification<Producto> filtro = ProductoSpecifications.filtro("Frutas", true, null, null, "Manz", null);
+
+        // ACT
+        String sql = consultar(filtro, Sort.unsorted());
+
+        // ASSERT
+        assertTrue(sql.contains("lower(p1_0.nombre) like"), sql);
+        assertFalse(SqlGenerado.predicados(sql).containsKey("nombre"));
+        assertEquals("idx_producto_categoria_activo_precio", mejorIndice(sql));
+    }
+
+    /**
+     * Prueba que ordenar por precio con categoria y activo fijados sigue el orden del
+     * índice compuesto (precio es la columna siguiente a las igualdades) y que la
+     * página se traduce a LIMIT.
+     */
+    @Test
+    void testOrdenPorPrecioSigueIndiceCompuesto() {
+        // ARRANGE
+        Specification<Producto> filtro = ProductoSpecifications.filtro("Frutas", true, null, null, null, null);
+
+        // ACT
+        String sql = consultar(filtro, Sort.by("precio"));
+
+        // ASSERT
+        assertTrue(sql.endsWith("order by p1_0.precio limit ?,?") || sql.endsWith("order by p1_0.precio limit ?"), sql);
+        List<String> columnas = SqlGenerado.indices(Producto.class).get("idx_producto_categoria_activo_precio");
+        assertEquals(2, SqlGenerado.prefijoUsable(columnas, SqlGenerado.predicados(sql)));
+        assertEquals("precio", columnas.get(2));
+    }
+
+    /**
+     * Prueba que sin criterios no se genera WHERE.
+     */
+    @Test
+    void testFiltroVacioSinWhere() {
+        // ACT
+        String sql = consultar(ProductoSpecifications.filtro(null, null, null, null, " ", null), Sort.unsorted());
+
+        // ASSERT
+        assertFalse(sql.contains(" where "), sql);
+    }
+
+    private String consultar(Specification<Producto> filtro, Sort orden) {
+        // Primera página sin filas: Spring Data no lanza el COUNT y solo queda el SELECT de datos
+        return sqlGenerado.capturar(() -> repositorio.findAll(filtro, PageRequest.of(0, 20, orden)));
+    }
+
+    private static String mejorIndice(String sql) {
+        return SqlGenerado.mejorIndice(Producto.class, sql);
+    }
+}
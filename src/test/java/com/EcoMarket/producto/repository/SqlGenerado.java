@@ -0,0 +1,295 @@
+package com.EcoMarket.producto.repository;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * SQL que Hibernate genera para los repositorios, sin base de datos.
+ *
+ * Arranca una SessionFactory con el dialecto de MySQL sobre una conexión JDBC falsa
+ * (toda consulta devuelve cero filas) y guarda cada sentencia con un StatementInspector.
+ * Sirve para comprobar qué columnas acaban en el WHERE y qué índice de la entidad
+ * las cubre; IndicesExplainTest ejecuta después esas mismas sentencias, con los
+ * valores que Hibernate les enlazó, con EXPLAIN en MySQL.
+ */
+public class SqlGenerado implements AutoCloseable {
+
+    // alias.columna operador ? o literal   (p. ej. "p1_0.precio>=?", "p1_0.activo=1")
+    private static final Pattern PREDICADO = Pattern.compile(
+        "\\b\\w+\\.(\\w+)\\s*(=|<=|>=|<|>|\\s+like\\s+|\\s+in\\s*\\()\\s*\\(?(\\?|\\d+\\b|true\\b|false\\b|'[^']*')",
+        Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Sentencia preparada y los valores enlazados, en el orden de sus parámetros.
+     */
+    public record Consulta(String sql, List<Object> parametros) {
+    }
+
+    private final List<String> sentencias = new ArrayList<>();
+    private final List<Preparada> preparadas = new ArrayList<>();
+    private final SessionFactory sessionFactory;
+    private final EntityManager entityManager;
+
+    public SqlGenerado() {
+        Configuration configuracion = new Configuration()
+            .addAnnotatedClass(Producto.class)
+            .addAnnotatedClass(Inventario.class);
+        configuracion.getProperties().put(AvailableSettings.DIALECT, MySQLDialect.class.getName());
+        configuracion.getProperties().put("hibernate.boot.allow_jdbc_metadata_access", "false");
+        configuracion.getProperties().put(AvailableSettings.HBM2DDL_AUTO, "none");
+        configuracion.getProperties().put(AvailableSettings.CONNECTION_PROVIDER, new ConexionVacia(preparadas));
+        configuracion.getProperties().put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+            synchronized (sentencias) {
+                sentencias.add(sql);
+            }
+            return sql;
+        });
+        sessionFactory = configuracion.buildSessionFactory();
+        entityManager = sessionFactory.createEntityManager();
+    }
+
+    public EntityManager entityManager() {
+        return entityManager;
+    }
+
+    /**
+     * Repositorio de Spring Data real sobre la conexión falsa; los fragmentos
+     * personalizados se pasan ya construidos.
+     */
+    public <R> R repositorio(Class<R> tipo, Object... fragmentos) {
+        return new JpaRepositoryFactory(entityManager).getRepository(tipo, RepositoryFragments.just(fragmentos));
+    }
+
+    /**
+     * Ejecuta la acción y devuelve la única sentencia SELECT que ha generado.
+     */
+    public String capturar(Runnable accion) {
+        synchronized (sentencias) {
+            sentencias.clear();
+        }
+        accion.run();
+        synchronized (sentencias) {
+            List<String> selects = sentencias.stream()
+                .filter(s -> s.trim().toLowerCase().startsWith("select"))
+                .toList();
+            if (selects.size() != 1) {
+                throw new AssertionError("Se esperaba una sentencia SELECT y hubo " + selects.size() + ": " + sentencias);
+            }
+            return selects.get(0).replaceAll("\\s+", " ").trim();
+        }
+    }
+
+    /**
+     * Como capturar, pero devuelve también los valores enlazados a la sentencia.
+     */
+    public Consulta capturarConsulta(Runnable accion) {
+        synchronized (preparadas) {
+            preparadas.clear();
+        }
+        String sql = capturar(accion);
+        synchronized (preparadas) {
+            Preparada preparada = preparadas.stream()
+                .filter(p -> p.sql.replaceAll("\\s+", " ").trim().equals(sql))
+                .reduce((primera, ultima) -> ultima)
+                .orElseThrow(() -> new AssertionError("Sentencia no preparada: " + sql));
+            return new Consulta(sql, new ArrayList<>(preparada.valores.values()));
+        }
+    }
+
+    /**
+     * Columnas del WHERE con su operador, en orden de aparición ("=", ">=", "like"...).
+     */
+    public static Map<String, List<String>> predicados(String sql) {
+        int where = sql.toLowerCase().indexOf(" where ");
+        Map<String, List<String>> columnas = new LinkedHashMap<>();
+        if (where < 0) {
+            return columnas;
+        }
+        Matcher m = PREDICADO.matcher(sql.substring(where));
+        while (m.find()) {
+            String operador = m.group(2).trim().toLowerCase().replace("(", "").trim();
+            columnas.computeIfAbsent(m.group(1).toLowerCase(), c -> new ArrayList<>()).add(operador);
+        }
+        return columnas;
+    }
+
+    /**
+     * Índices de la entidad (los de @Table más las columnas unique) con sus columnas en orden.
+     */
+    public static Map<String, List<String>> indices(Class<?> entidad) {
+        Map<String, List<String>> indices = new LinkedHashMap<>();
+        Table tabla = entidad.getAnnotation(Table.class);
+        for (Index indice : tabla.indexes()) {
+            indices.put(indice.name(), Arrays.stream(indice.columnList().split(","))
+                .map(c -> c.trim().toLowerCase()).toList());
+        }
+        for (java.lang.reflect.Field campo : entidad.getDeclaredFields()) {
+            Column columna = campo.getAnnotation(Column.class);
+            if (columna != null && columna.unique()) {
+                String nombre = columna.name().isEmpty() ? campo.getName() : columna.name();
+                indices.put("uk_" + tabla.name().toLowerCase() + "_" + nombre.toLowerCase(), List.of(nombre.toLowerCase()));
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Columnas del índice que el WHERE puede usar: el prefijo más a la izquierda con
+     * igualdades, más una columna de rango si la hay. 0 = el índice no sirve.
+     */
+    public static int prefijoUsable(List<String> columnasIndice, Map<String, List<String>> predicados) {
+        int usadas = 0;
+        for (String columna : columnasIndice) {
+            List<String> operadores = predicados.get(columna);
+            if (operadores == null || operadores.contains("like")) {
+                break;
+            }
+            usadas++;
+            if (!operadores.stream().allMatch(o -> o.equals("=") || o.equals("in"))) {
+                break;
+            }
+        }
+        return usadas;
+    }
+
+    /**
+     * Índice de la entidad que cubre más columnas del WHERE (null si ninguno sirve).
+     */
+    public static String mejorIndice(Class<?> entidad, String sql) {
+        Map<String, List<String>> predicados = predicados(sql);
+        String mejor = null;
+        int cubiertas = 0;
+        for (Map.Entry<String, List<String>> indice : indices(entidad).entrySet()) {
+            int usadas = prefijoUsable(indice.getValue(), predicados);
+            if (usadas > cubiertas) {
+                mejor = indice.getKey();
+                cubiertas = usadas;
+            }
+        }
+        return mejor;
+    }
+
+    @Override
+    public void close() {
+        entityManager.close();
+        sessionFactory.close();
+    }
+
+    // SQL de un prepareStatement y los valores de sus setXxx(posición, valor)
+    private static class Preparada {
+        private final String sql;
+        private final Map<Integer, Object> valores = new TreeMap<>();
+
+        Preparada(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    // Conexión JDBC que acepta cualquier llamada, no devuelve filas y apunta los parámetros enlazados
+    private static class ConexionVacia implements ConnectionProvider {
+
+        private final List<Preparada> preparadas;
+
+        ConexionVacia(List<Preparada> preparadas) {
+            this.preparadas = preparadas;
+        }
+
+        @Override
+        public Connection getConnection() {
+            return vacio(Connection.class, null);
+        }
+
+        @Override
+        public void closeConnection(Connection conexion) {
+        }
+
+        @Override
+        public boolean supportsAggressiveRelease() {
+            return false;
+        }
+
+        @Override
+        public boolean isUnwrappableAs(Class<?> tipo) {
+            return false;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> tipo) {
+            return null;
+        }
+
+        private <T> T vacio(Class<T> tipo, Preparada preparada) {
+            return tipo.cast(Proxy.newProxyInstance(SqlGenerado.class.getClassLoader(), new Class<?>[] {tipo},
+                (proxy, metodo, argumentos) -> {
+                    Class<?> retorno = metodo.getReturnType();
+                    if (preparada != null && metodo.getName().startsWith("set") && argumentos != null
+                            && argumentos.length >= 2 && argumentos[0] instanceof Integer posicion) {
+                        preparada.valores.put(posicion, metodo.getName().equals("setNull") ? null : argumentos[1]);
+                        return null;
+                    }
+                    if (retorno == PreparedStatement.class && argumentos != null && argumentos[0] instanceof String sql) {
+                        Preparada nueva = new Preparada(sql);
+                        synchronized (preparadas) {
+                            preparadas.add(nueva);
+                        }
+                        return vacio(PreparedStatement.class, nueva);
+                    }
+                    if (metodo.getName().equals("toString")) {
+                        return "ConexionVacia";
+                    }
+                    if (metodo.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    if (metodo.getName().equals("equals")) {
+                        return proxy == argumentos[0];
+                    }
+                    if (retorno == PreparedStatement.class || retorno == Statement.class || retorno == ResultSet.class
+                            || retorno == ResultSetMetaData.class || retorno == DatabaseMetaData.class
+                            || retorno == java.sql.CallableStatement.class) {
+                        return vacio(retorno, null);
+                    }
+                    if (retorno == boolean.class) {
+                        return metodo.getName().equals("getAutoCommit");
+                    }
+                    if (retorno == int.class || retorno == long.class || retorno == short.class || retorno == byte.class) {
+                        return retorno == long.class ? 0L : retorno == short.class ? (short) 0
+                            : retorno == byte.class ? (byte) 0 : 0;
+                    }
+                    if (retorno == double.class || retorno == float.class) {
+                        return retorno == double.class ? 0d : 0f;
+                    }
+                    return null;
+                }));
+        }
+    }
+}
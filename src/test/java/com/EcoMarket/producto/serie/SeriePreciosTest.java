@@ -0,0 +1,83 @@
+package com.EcoMarket.producto.serie;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Clase de pruebas unitarias para la serie de precios
+ *
+ * Verifica que la codificación es reversible y compacta y que la reducción por
+ * intervalos trata el precio como escalonado.
+ */
+public class SeriePreciosTest {
+
+    /**
+     * Prueba que codificar y decodificar devuelve los mismos puntos
+     */
+    @Test
+    void testCodificarDecodificar() {
+        // ARRANGE: cambios casi diarios durante varios años con precios que suben y bajan
+        Random random = new Random(42);
+        SeriePrecios serie = new SeriePrecios();
+        long instante = 1_600_000_000_000L;
+        long precio = 1999;
+        for (int i = 0; i < 2000; i++) {
+            instante += 86_400_000L + random.nextInt(60_000);
+            precio = Math.max(1, precio + random.nextInt(201) - 100);
+            serie.agregar(instante, precio);
+        }
+
+        // ACT
+        byte[] datos = serie.codificar();
+        SeriePrecios decodificada = SeriePrecios.decodificar(datos);
+
+        // ASSERT
+        assertEquals(serie.tamano(), decodificada.tamano());
+        for (int i = 0; i < serie.tamano(); i++) {
+            assertEquals(serie.instante(i), decodificada.instante(i));
+            assertEquals(serie.precio(i), decodificada.precio(i));
+        }
+        // Frente a 16 bytes por punto de dos long sin codificar
+        assertTrue(datos.length < serie.tamano() * 6, "bytes: " + datos.length);
+    }
+
+    /**
+     * Prueba la conversión entre BigDecimal y céntimos
+     */
+    @Test
+    void testEscalar() {
+        assertEquals(1250, SeriePrecios.escalar(new BigDecimal("12.5")));
+        assertEquals(1251, SeriePrecios.escalar(new BigDecimal("12.505")));
+        assertEquals(new BigDecimal("12.50"), SeriePrecios.desescalar(1250));
+    }
+
+    /**
+     * Prueba la reducción a intervalos, incluidos los intervalos sin cambios
+     */
+    @Test
+    void testReducir() {
+        // ARRANGE
+        SeriePrecios serie = new SeriePrecios();
+        serie.agregar(5, 100);
+        serie.agregar(12, 150);
+        serie.agregar(15, 80);
+        serie.agregar(35, 90);
+
+        // ACT: [10, 20) [20, 30) [30, 40)
+        List<SeriePrecios.Intervalo> intervalos = serie.reducir(10, 40, 3, null);
+
+        // ASSERT
+        assertEquals(3, intervalos.size());
+        assertEquals(new SeriePrecios.Intervalo(10, 20, 100, 150, 80, 80, 2), intervalos.get(0));
+        assertEquals(new SeriePrecios.Intervalo(20, 30, 80, 80, 80, 80, 0), intervalos.get(1));
+        assertEquals(new SeriePrecios.Intervalo(30, 40, 80, 90, 80, 90, 1), intervalos.get(2));
+        // Antes del primer precio no hay intervalos
+        assertEquals(0, serie.reducir(0, 5, 1, null).size());
+    }
+}
@@ -0,0 +1,249 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.model.EstadoInventario;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Clase de pruebas unitarias para los ajustes de stock en bloque
+ *
+ * Verifica la validación de líneas y el cálculo en memoria de cada lote.
+ */
+public class AjusteStockServiceTest {
+
+    /**
+     * Prueba que las líneas inválidas se rechazan sin consultar la base de datos
+     */
+    @Test
+    void testLineasInvalidas() {
+        // ARRANGE
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        AjusteStockService service = new AjusteStockService();
+        service.setJdbcTemplate(jdbcTemplate);
+        List<AjusteStockService.AjusteStock> ajustes = Arrays.asList(
+            new AjusteStockService.AjusteStock(1L, "Almacén A", 5, 10),
+            new AjusteStockService.AjusteStock(1L, null, 5, null),
+            new AjusteStockService.AjusteStock(1L, "Almacén A", null, -3),
+            null);
+
+        // ACT
+        AjusteStockService.InformeAjustes informe = service.ajustar(ajustes);
+
+        // ASSERT
+        assertEquals(0, informe.aplicados());
+        assertEquals(4, informe.rechazados());
+        informe.lineas().forEach(l -> assertEquals(AjusteStockService.Resultado.INVALIDO, l.resultado()));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    /**
+     * Prueba que las líneas de una misma fila se aplican en orden y que no se permite stock negativo
+     */
+    @Test
+    void testPlanificar() {
+        // ARRANGE
+        Map<AjusteStockService.Clave, AjusteStockService.FilaStock> filas = new HashMap<>();
+        filas.put(new AjusteStockService.Clave(1L, "Almacén A"), new AjusteStockService.FilaStock(10L, 1L, "Almacén A", 20, 10));
+        List<AjusteStockService.AjusteStock> ajustes = List.of(
+            new AjusteStockService.AjusteStock(1L, "Almacén A", 30, null),
+            new AjusteStockService.AjusteStock(1L, "Almacén A", -45, null),
+            new AjusteStockService.AjusteStock(1L, "Almacén A", -60, null),
+            new AjusteStockService.AjusteStock(1L, "Almacén B", 5, null));
+        AjusteStockService.LineaResultado[] resultados = new AjusteStockService.LineaResultado[ajustes.size()];
+
+        // ACT
+        AjusteStockService.planificar(ajustes, new ArrayList<>(List.of(0, 1, 2, 3)), filas, resultados);
+
+        // ASSERT
+        assertEquals(50, resultados[0].cantidad());
+        assertEquals(5, resultados[1].cantidad());
+        assertEquals(EstadoInventario.BAJO_STOCK, resultados[1].estado());
+        assertEquals(AjusteStockService.Resultado.STOCK_NEGATIVO, resultados[2].resultado());
+        assertEquals(AjusteStockService.Resultado.INVENTARIO_NO_ENCONTRADO, resultados[3].resultado());
+        assertEquals(5, filas.get(new AjusteStockService.Clave(1L, "Almacén A")).cantidad);
+    }
+
+    /**
+     * Prueba que la ubicación se busca con la colación de la columna y que una
+     * ubicación con dos filas se rechaza sin tocar ninguna
+     */
+    @Test
+    void testPlanificarColacionYRepetidas() {
+        // ARRANGE
+        Map<AjusteStockService.Clave, AjusteStockService.FilaStock> filas = new HashMap<>();
+        filas.put(new AjusteStockService.Clave(1L, "Almacén A"), new AjusteStockService.FilaStock(10L, 1L, "Almacén A", 20, 10));
+        AjusteStockService.FilaStock repetida = new AjusteStockService.FilaStock(11L, 2L, "B1", 8, null);
+        repetida.repetida = true;
+        filas.put(new AjusteStockService.Clave(2L, "B1"), repetida);
+        List<AjusteStockService.AjusteStock> ajustes = List.of(
+            new AjusteStockService.AjusteStock(1L, "ALMACEN a ", 5, null),
+            new AjusteStockService.AjusteStock(2L, "b1", null, 3));
+        AjusteStockService.LineaResultado[] resultados = new AjusteStockService.LineaResultado[ajustes.size()];
+
+        // ACT
+        AjusteStockService.planificar(ajustes, new ArrayList<>(List.of(0, 1)), filas, resultados);
+
+        // ASSERT
+        assertEquals(AjusteStockService.Resultado.APLICADO, resultados[0].resultado());
+        assertEquals(25, resultados[0].cantidad());
+        assertEquals(AjusteStockService.Resultado.UBICACION_REPETIDA, resultados[1].resultado());
+        assertEquals(8, repetida.cantidad);
+        assertFalse(repetida.modificada);
+    }
+
+    /**
+     * Prueba que dos filas del mismo producto en la misma ubicación (según la
+     * colación) se detectan al leer el lote y no se actualiza ninguna
+     */
+    @Test
+    void testFilasRepetidasNoSeAjustan() throws Exception {
+        // ARRANGE
+        List<List<Object[]>> batches = new ArrayList<>();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler rch, Object... args) throws DataAccessException {
+                try {
+                    if (sql.startsWith("SELECT id FROM Producto")) {
+                        ResultSet rs = mock(ResultSet.class);
+                        when(rs.getLong(1)).thenReturn(1L);
+                        rch.processRow(rs);
+                        return;
+                    }
+                    String[] ubicaciones = {"Almacén A", "almacen a", "Almacén B"};
+                    for (int n = 0; n < ubicaciones.length; n++) {
+                        ResultSet rs = mock(ResultSet.class);
+                        when(rs.getLong(1)).thenReturn(100L + n);
+                        when(rs.getLong(2)).thenReturn(1L);
+                        when(rs.getString(3)).thenReturn(ubicaciones[n]);
+                        when(rs.getInt(4)).thenReturn(3);
+                        rch.processRow(rs);
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                batches.add(batchArgs);
+                return new int[batchArgs.size()];
+            }
+        };
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(i -> {
+            i.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        AjusteStockService service = new AjusteStockService();
+        service.setJdbcTemplate(jdbcTemplate);
+        service.setTransactionTemplate(transactionTemplate);
+        List<AjusteStockService.AjusteStock> ajustes = List.of(
+            new AjusteStockService.AjusteStock(1L, "Almacén A", 1, null),
+            new AjusteStockService.AjusteStock(1L, "ALMACÉN B", 1, null));
+
+        // ACT
+        AjusteStockService.InformeAjustes informe = service.ajustar(ajustes);
+
+        // ASSERT
+        assertEquals(AjusteStockService.Resultado.UBICACION_REPETIDA, informe.lineas().get(0).resultado());
+        assertEquals(AjusteStockService.Resultado.APLICADO, informe.lineas().get(1).resultado());
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+        assertEquals(102L, batches.get(0).get(0)[3]);
+    }
+
+    /**
+     * Prueba que la comprobación de productos se parte en consultas de como mucho
+     * tamanoLote ids y que una cantidad_minima NULL sigue siendo null (sin mínimo)
+     */
+    @Test
+    void testProductosPorTramosYMinimoNulo() throws Exception {
+        // ARRANGE
+        List<Integer> marcadoresPorConsulta = new ArrayList<>();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler rch, Object... args) throws DataAccessException {
+                try {
+                    if (sql.startsWith("SELECT id FROM Producto")) {
+                        marcadoresPorConsulta.add(args.length);
+                        for (Object id : args) {
+                            ResultSet rs = mock(ResultSet.class);
+                            when(rs.getLong(1)).thenReturn((Long) id);
+                            rch.processRow(rs);
+                        }
+                    } else {
+                        for (Object id : args) {
+                            // Fila del producto id con cantidad 3 y sin cantidad mínima
+                            ResultSet rs = mock(ResultSet.class);
+                            when(rs.getLong(1)).thenReturn(1000 + (Long) id);
+                            when(rs.getLong(2)).thenReturn((Long) id);
+                            when(rs.getString(3)).thenReturn("Almacén A");
+                            when(rs.getInt(4)).thenReturn(3);
+                            when(rs.getObject(5, Integer.class)).thenReturn(null);
+                            rch.processRow(rs);
+                        }
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                return new int[batchArgs.size()];
+            }
+        };
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(i -> {
+            i.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        List<InventarioCambiadoEvent> eventos = new ArrayList<>();
+        AjusteStockService service = new AjusteStockService();
+        service.setJdbcTemplate(jdbcTemplate);
+        service.setTransactionTemplate(transactionTemplate);
+        service.setEventPublisher(evento -> eventos.add((InventarioCambiadoEvent) evento));
+        service.setTamanoLote(1000);
+        List<AjusteStockService.AjusteStock> ajustes = new ArrayList<>();
+        for (long id = 1; id <= 2500; id++) {
+            ajustes.add(new AjusteStockService.AjusteStock(id, "Almacén A", 1, null));
+        }
+        // Producto repetido: no cuenta dos veces en el IN
+        ajustes.add(new AjusteStockService.AjusteStock(1L, "Almacén A", 1, null));
+
+        // ACT
+        AjusteStockService.InformeAjustes informe = service.ajustar(ajustes);
+
+        // ASSERT
+        assertEquals(List.of(1000, 1000, 500), marcadoresPorConsulta);
+        assertEquals(2501, informe.aplicados());
+        assertEquals(EstadoInventario.DISPONIBLE, informe.lineas().get(0).estado());
+        assertEquals(2500, eventos.size());
+        eventos.forEach(e -> assertNull(e.actual().getCantidadMinima()));
+    }
+}
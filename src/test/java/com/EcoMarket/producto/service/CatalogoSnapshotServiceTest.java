@@ -0,0 +1,173 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.Assemblers.ProductoModelAssembler;
+import com.EcoMarket.producto.config.FormatosBinariosConfig;
+import com.EcoMarket.producto.controller.ProductoControllerV2;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.ProductoRepository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Clase de pruebas unitarias para el snapshot del catálogo
+ *
+ * Verifica que el snapshot contiene los productos activos, que la versión gzip
+ * es equivalente al JSON, que el ETag depende solo del contenido y de la
+ * codificación, y que un snapshot antiguo no pisa a uno más nuevo.
+ */
+public class CatalogoSnapshotServiceTest {
+
+    private ProductoRepository productoRepository;
+    private CatalogoSnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() {
+        productoRepository = mock(ProductoRepository.class);
+        ProductoModelAssembler assembler = mock(ProductoModelAssembler.class);
+        when(assembler.toModel(any(Producto.class))).thenAnswer(i -> EntityModel.of((Producto) i.getArguments()[0]));
+
+        snapshotService = new CatalogoSnapshotService();
+        snapshotService.setProductoRepository(productoRepository);
+        snapshotService.setAssembler(assembler);
+        snapshotService.setMapper(FormatosBinariosConfig.conHal(new ObjectMapper().findAndRegisterModules(),
+            new DefaultLinkRelationProvider()));
+    }
+
+    private Producto producto(long id, String codigo) {
+        Producto p = new Producto();
+        p.setId(id);
+        p.setCodigo(codigo);
+        p.setNombre("Producto " + codigo);
+        p.setPrecio(BigDecimal.ONE);
+        p.setActivo(true);
+        return p;
+    }
+
+    /**
+     * Prueba que el snapshot contiene el catálogo y su versión comprimida
+     */
+    @Test
+    void testConstruir() throws Exception {
+        // ARRANGE
+        when(productoRepository.findByActivoTrue()).thenReturn(List.of(producto(1L, "P001"), producto(2L, "P002")));
+
+        // ACT
+        CatalogoSnapshotService.Snapshot snapshot = snapshotService.construir(3L);
+
+        // ASSERT
+        assertEquals(3L, snapshot.version());
+        assertEquals(snapshot, snapshotService.obtener());
+        String json = new String(snapshot.json(), StandardCharsets.UTF_8);
+        assertTrue(json.contains("P001") && json.contains("P002"));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(snapshot.gzip()))) {
+            assertArrayEquals(snapshot.json(), gzip.readAllBytes());
+        }
+    }
+
+    /**
+     * Prueba que el ETag solo cambia cuando cambia el contenido
+     */
+    @Test
+    void testEtagSegunContenido() {
+        when(productoRepository.findByActivoTrue()).thenReturn(List.of(producto(1L, "P001")));
+        String etag1 = snapshotService.construir(1L).etag();
+        String etag2 = snapshotService.construir(2L).etag();
+
+        when(productoRepository.findByActivoTrue()).thenReturn(List.of(producto(1L, "P999")));
+        String etag3 = snapshotService.construir(3L).etag();
+
+        assertEquals(etag1, etag2);
+        assertNotEquals(etag1, etag3);
+    }
+
+    /**
+     * Prueba que un snapshot de versión anterior que termina tarde no sustituye al más nuevo
+     */
+    @Test
+    void testSnapshotAntiguoNoSustituyeAlNuevo() {
+        // ARRANGE
+        when(productoRepository.findByActivoTrue()).thenReturn(List.of(producto(1L, "P001")));
+        CatalogoSnapshotService.Snapshot nuevo = snapshotService.construir(5L);
+
+        // ACT
+        CatalogoSnapshotService.Snapshot resultado = snapshotService.construir(3L);
+
+        // ASSERT
+        assertSame(nuevo, resultado);
+        assertEquals(5L, snapshotService.obtener().version());
+    }
+
+    /**
+     * Prueba que el snapshot de arranque se construye en el mismo hilo que las
+     * reconstrucciones, de modo que nunca corren dos a la vez
+     */
+    @Test
+    void testArranqueEnHiloDeReconstruccion() {
+        // ARRANGE
+        List<String> hilos = new CopyOnWriteArrayList<>();
+        when(productoRepository.findByActivoTrue()).thenAnswer(i -> {
+            hilos.add(Thread.currentThread().getName());
+            return List.of(producto(1L, "P001"));
+        });
+
+        // ACT
+        snapshotService.alIniciar();
+
+        // ASSERT
+        assertEquals(List.of("catalogo-snapshot"), hilos);
+        assertNotNull(snapshotService.obtener());
+        snapshotService.detener();
+    }
+
+    /**
+     * Prueba que la representación gzip y la identidad tienen ETags distintos y que
+     * If-None-Match solo devuelve 304 para la representación que el cliente tiene
+     */
+    @Test
+    void testEtagPorCodificacion() {
+        // ARRANGE
+        when(productoRepository.findByActivoTrue()).thenReturn(List.of(producto(1L, "P001")));
+        CatalogoSnapshotService.Snapshot snapshot = snapshotService.construir(1L);
+        ProductoControllerV2 controller = new ProductoControllerV2();
+        controller.setCatalogoSnapshotService(snapshotService);
+
+        // ACT
+        ResponseEntity<byte[]> gzip = controller.catalogo(null, "gzip, deflate");
+        ResponseEntity<byte[]> identidadConEtagGzip = controller.catalogo(snapshot.etag(true), null);
+        ResponseEntity<byte[]> identidadConEtag = controller.catalogo("W/" + snapshot.etag(false), null);
+
+        // ASSERT
+        assertNotEquals(snapshot.etag(false), snapshot.etag(true));
+        assertEquals(snapshot.etag(true), gzip.getHeaders().getETag());
+        assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpStatus.OK, identidadConEtagGzip.getStatusCode());
+        assertArrayEquals(snapshot.json(), identidadConEtagGzip.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED, identidadConEtag.getStatusCode());
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, identidadConEtag.getHeaders().getFirst(HttpHeaders.VARY));
+    }
+}
@@ -0,0 +1,209 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Clase de pruebas unitarias para las altas de productos agrupadas
+ *
+ * Usa una tabla Producto en memoria para comprobar la detección de duplicados
+ * por lote, la respuesta individual a cada alta y el reparto en lotes.
+ */
+public class CreacionAgrupadaServiceTest {
+
+    private TablaProductos tabla;
+    private final List<ProductoCambiadoEvent> eventos = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> guardadosUnoAUno = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> hilosUnoAUno = Collections.synchronizedList(new ArrayList<>());
+    private CreacionAgrupadaService creacionService;
+
+    @BeforeEach
+    void setUp() {
+        tabla = new TablaProductos();
+        ProductoService productoService = new ProductoService() {
+            @Override
+            public Producto guardar(Producto producto) {
+                guardadosUnoAUno.add(producto.getCodigo());
+                hilosUnoAUno.add(Thread.currentThread().getName());
+                producto.setId(tabla.insertar(producto.getCodigo()));
+                return producto;
+            }
+        };
+        PlatformTransactionManager transacciones = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definicion) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus estado) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus estado) {
+            }
+        };
+        creacionService = new CreacionAgrupadaService();
+        creacionService.setProductoService(productoService);
+        creacionService.setJdbcTemplate(tabla);
+        creacionService.setTransactionTemplate(new TransactionTemplate(transacciones));
+        creacionService.setEventPublisher(evento -> eventos.add((ProductoCambiadoEvent) evento));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        creacionService.detener();
+    }
+
+    private CreacionAgrupadaService.Solicitud solicitud(String codigo) {
+        Producto producto = new Producto(null, codigo, "Manzana", null, new BigDecimal("2.50"), "Frutas", null, null, true);
+        return new CreacionAgrupadaService.Solicitud(producto, new CompletableFuture<>());
+    }
+
+    /**
+     * Prueba que un lote rechaza los códigos existentes y repetidos y guarda el resto en un solo batch
+     */
+    @Test
+    void testLoteConDuplicados() {
+        // ARRANGE
+        creacionService.iniciar();
+        tabla.insertar("P-1");
+        List<CreacionAgrupadaService.Solicitud> lote = List.of(solicitud("P-1"), solicitud("P-2"), solicitud("P-2"),
+            solicitud("P-3"));
+
+        // ACT
+        creacionService.procesar(lote);
+
+        // ASSERT
+        assertTrue(lote.get(0).resultado().isCompletedExceptionally());
+        assertEquals(Long.valueOf(2), lote.get(1).resultado().join().getId());
+        assertTrue(lote.get(2).resultado().isCompletedExceptionally());
+        assertEquals(Long.valueOf(3), lote.get(3).resultado().join().getId());
+        assertEquals(List.of(2), tabla.lotes);
+        assertEquals(2, eventos.size());
+        assertEquals(2, creacionService.estado().duplicados());
+    }
+
+    /**
+     * Prueba que los códigos del lote se comparan con la colación de la columna: uno
+     * que solo cambia en mayúsculas o tildes es repetido o existente, no un alta nueva
+     */
+    @Test
+    void testLoteConMayusculasYTildes() {
+        // ARRANGE
+        creacionService.iniciar();
+        tabla.insertar("Abc");
+        List<CreacionAgrupadaService.Solicitud> lote = List.of(solicitud("ABC"), solicitud("pé-2"), solicitud("PE-2"));
+
+        // ACT
+        creacionService.procesar(lote);
+
+        // ASSERT
+        assertTrue(lote.get(0).resultado().isCompletedExceptionally());
+        assertEquals(Long.valueOf(2), lote.get(1).resultado().join().getId());
+        assertTrue(lote.get(2).resultado().isCompletedExceptionally());
+        assertEquals(List.of(1), tabla.lotes);
+        assertEquals(List.of(), guardadosUnoAUno);
+    }
+
+    /**
+     * Prueba que si el batch falla cada alta se repite en su propia transacción, en
+     * el hilo de su petición y no en el del escritor
+     */
+    @Test
+    void testLoteFallidoSeGuardaUnoAUno() throws Exception {
+        // ARRANGE
+        creacionService.setHabilitada(true);
+        creacionService.setTamanoLote(2);
+        creacionService.setEsperaMs(1000);
+        creacionService.iniciar();
+        tabla.fallosPendientes = 1;
+        ExecutorService hilos = Executors.newFixedThreadPool(2, r -> new Thread(r, "peticion"));
+
+        // ACT
+        Future<Producto> primera = hilos.submit(() -> creacionService.crear(solicitud("P-1").producto()));
+        Future<Producto> segunda = hilos.submit(() -> creacionService.crear(solicitud("P-2").producto()));
+
+        // ASSERT
+        assertNotNull(primera.get().getId());
+        assertNotNull(segunda.get().getId());
+        assertEquals(List.of("P-1", "P-2"), guardadosUnoAUno.stream().sorted().toList());
+        assertEquals(List.of("peticion", "peticion"), hilosUnoAUno);
+        assertEquals(2, creacionService.estado().individuales());
+        hilos.shutdown();
+    }
+
+    /**
+     * Prueba que una alta cancelada por timeout antes de formar el lote no se guarda
+     */
+    @Test
+    void testCanceladaNoSeGuarda() {
+        // ARRANGE
+        creacionService.iniciar();
+        List<CreacionAgrupadaService.Solicitud> lote = List.of(solicitud("P-1"), solicitud("P-2"));
+        lote.get(0).resultado().cancel(false);
+
+        // ACT
+        creacionService.procesar(lote);
+
+        // ASSERT
+        assertEquals(List.of("P-2"), List.copyOf(tabla.ids.keySet()));
+        assertEquals(List.of(1), tabla.lotes);
+        assertEquals(1, eventos.size());
+    }
+
+    /**
+     * Prueba que las altas simultáneas se agrupan y cada petición recibe su propio producto
+     */
+    @Test
+    void testAltasSimultaneasAgrupadas() throws Exception {
+        // ARRANGE
+        creacionService.setHabilitada(true);
+        creacionService.setTamanoLote(50);
+        creacionService.setEsperaMs(50);
+        creacionService.iniciar();
+        ExecutorService hilos = Executors.newFixedThreadPool(20);
+
+        // ACT
+        List<Future<Producto>> altas = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String codigo = "P-" + i;
+            altas.add(hilos.submit(() -> creacionService.crear(solicitud(codigo).producto())));
+        }
+        Future<Producto> repetida = hilos.submit(() -> creacionService.crear(solicitud("P-0").producto()));
+
+        // ASSERT
+        for (int i = 0; i < 20; i++) {
+            Producto creado = altas.get(i).get();
+            assertEquals("P-" + i, creado.getCodigo());
+            assertEquals(tabla.ids.get("P-" + i), creado.getId());
+        }
+        Exception error = assertThrows(Exception.class, repetida::get);
+        assertEquals("El código ya existe", error.getCause().getMessage());
+        assertTrue(tabla.lotes.size() < 20, "lotes = " + tabla.lotes);
+        hilos.shutdown();
+    }
+}
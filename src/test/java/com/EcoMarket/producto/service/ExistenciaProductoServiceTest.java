@@ -0,0 +1,212 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Producto;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase de pruebas unitarias para el filtro de códigos y la caché negativa
+ *
+ * Verifica que las ausencias seguras no llegan a la base de datos y que las
+ * altas, renombrados y caducidades mantienen las respuestas correctas.
+ */
+public class ExistenciaProductoServiceTest {
+
+    /**
+     * JdbcTemplate que devuelve los códigos de la tabla Producto.
+     */
+    static class CodigosProducto extends JdbcTemplate {
+        final List<String> codigos = new ArrayList<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> tipo) {
+            return (T) Long.valueOf(codigos.size());
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            for (String codigo : codigos) {
+                ResultSet fila = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] {ResultSet.class}, (proxy, metodo, args) -> codigo);
+                try {
+                    rch.processRow(fila);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private static final Instant INICIO = Instant.parse("2025-01-01T00:00:00Z");
+
+    private CodigosProducto tabla;
+    private ExistenciaProductoService existenciaService;
+    private final AtomicInteger consultas = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        tabla = new CodigosProducto();
+        tabla.codigos.addAll(List.of("P-1", "P-2"));
+        existenciaService = new ExistenciaProductoService();
+        existenciaService.setJdbcTemplate(tabla);
+        existenciaService.setTransporte("tabla");
+        existenciaService.setReloj(Clock.fixed(INICIO, ZoneOffset.UTC));
+        existenciaService.cargar();
+    }
+
+    private Producto producto(long id, String codigo) {
+        return new Producto(id, codigo, "Manzana", null, new BigDecimal("2.50"), "Frutas", null, null, true);
+    }
+
+    private Optional<Producto> consultaVacia() {
+        consultas.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Prueba que un código que nunca se cargó se descarta sin consultar y uno cargado sí se consulta
+     */
+    @Test
+    void testCodigoInexistenteNoConsulta() {
+        // ACT
+        Optional<Producto> inexistente = existenciaService.porCodigo("NO-EXISTE", this::consultaVacia);
+        Optional<Producto> existente = existenciaService.porCodigo("P-1", () -> Optional.of(producto(1L, "P-1")));
+
+        // ASSERT
+        assertTrue(inexistente.isEmpty());
+        assertEquals(0, consultas.get());
+        assertTrue(existente.isPresent());
+        assertEquals(1, existenciaService.estado().evitadasPorFiltro());
+    }
+
+    /**
+     * Prueba que un alta confirmada deja de darse por ausente en el filtro y en la caché negativa
+     */
+    @Test
+    void testAltaActualizaFiltroYCache() {
+        // ARRANGE: el id 3 y el código P-3 se consultan antes de existir
+        existenciaService.porId(3L, this::consultaVacia);
+        assertTrue(existenciaService.porId(3L, this::consultaVacia).isEmpty());
+        assertTrue(existenciaService.codigoAusente("P-3"));
+
+        // ACT
+        ProductoCambiadoEvent alta = new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, 3L, null, producto(3L, "P-3"));
+        existenciaService.antesDeConfirmar(alta);
+        existenciaService.alCambiarProducto(alta);
+
+        // ASSERT
+        assertEquals(1, consultas.get());
+        assertFalse(existenciaService.codigoAusente("P-3"));
+        assertTrue(existenciaService.porId(3L, () -> Optional.of(producto(3L, "P-3"))).isPresent());
+    }
+
+    /**
+     * Prueba que la ausencia caduca y que no se guarda si hubo un cambio durante la consulta
+     */
+    @Test
+    void testAusenciaCaducaYNoCacheaLecturasAntiguas() {
+        // ARRANGE
+        existenciaService.setTtlMs(1000);
+        existenciaService.porId(5L, this::consultaVacia);
+
+        // ACT: pasado el TTL se vuelve a consultar; durante esa consulta se confirma un cambio
+        existenciaService.setReloj(Clock.offset(Clock.fixed(INICIO, ZoneOffset.UTC), Duration.ofSeconds(2)));
+        existenciaService.porId(5L, () -> {
+            existenciaService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, 5L, null,
+                producto(5L, "P-5")));
+            return consultaVacia();
+        });
+        existenciaService.porId(5L, this::consultaVacia);
+
+        // ASSERT
+        assertEquals(3, consultas.get());
+        assertEquals(1, existenciaService.estado().ausentesPorId());
+    }
+
+    /**
+     * Prueba que sin transporte de invalidación el filtro no responde "no está":
+     * otra instancia puede haber dado de alta el código sin avisar
+     */
+    @Test
+    void testSinBusNoRespondeAusencias() {
+        // ARRANGE
+        existenciaService.setTransporte("");
+
+        // ACT
+        boolean ausente = existenciaService.codigoAusente("P-DE-OTRA-INSTANCIA");
+
+        // ASSERT
+        assertFalse(ausente);
+        assertFalse(existenciaService.estado().respondeAusencias());
+        assertEquals(0, existenciaService.estado().evitadasPorFiltro());
+    }
+
+    /**
+     * Prueba que pasado reconstruir-ms el filtro se recarga entero aunque no haya
+     * obsoletos, y recoge un código cuyo aviso se perdió
+     */
+    @Test
+    void testReconstruccionPeriodica() {
+        // ARRANGE: P-3 se insertó sin que llegara su evento
+        existenciaService.setReconstruirMs(60_000);
+        tabla.codigos.add("P-3");
+        existenciaService.revisar();
+        boolean antes = existenciaService.codigoAusente("P-3");
+
+        // ACT
+        existenciaService.setReloj(Clock.offset(Clock.fixed(INICIO, ZoneOffset.UTC), Duration.ofMinutes(1)));
+        existenciaService.revisar();
+
+        // ASSERT
+        assertTrue(antes);
+        assertFalse(existenciaService.codigoAusente("P-3"));
+        assertEquals(2, existenciaService.estado().reconstrucciones());
+    }
+
+    /**
+     * Prueba que los códigos se comparan como la colación de codigo: sin distinguir
+     * mayúsculas, tildes ni espacios finales, en el filtro y en la caché negativa
+     */
+    @Test
+    void testCodigosConMayusculasYTildes() {
+        // ARRANGE
+        tabla.codigos.add("Café-ABC");
+        existenciaService.reconstruir();
+        existenciaService.porCodigo("zz-9", this::consultaVacia);
+
+        // ACT / ASSERT
+        assertFalse(existenciaService.codigoAusente("cafe-abc"));
+        assertFalse(existenciaService.codigoAusente("CAFÉ-abc  "));
+        assertFalse(existenciaService.codigoAusente("p-1"));
+        assertTrue(existenciaService.codigoAusente("ZZ-9"));
+
+        // ACT: el alta de "ZZ-9" quita de la caché la ausencia guardada como "zz-9"
+        existenciaService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.CREADO, 9L, null,
+            producto(9L, "ZZ-9")));
+
+        // ASSERT
+        assertFalse(existenciaService.codigoAusente("zz-9"));
+    }
+}
@@ -0,0 +1,171 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.serie.SeriePrecios;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Clase de pruebas unitarias para el registro del historial de precios
+ *
+ * La tabla precio_historial se simula en memoria con los bloqueos de fila de InnoDB:
+ * UPDATE, INSERT y SELECT ... FOR UPDATE bloquean la fila hasta el commit, y un
+ * SELECT ... FOR UPDATE que no encuentra filas no bloquea a nadie.
+ */
+public class HistorialPreciosServiceTest {
+
+    private TablaHistorial tabla;
+    private HistorialPreciosService historialService;
+
+    @BeforeEach
+    void setUp() {
+        tabla = new TablaHistorial();
+        historialService = new HistorialPreciosService();
+        historialService.setJdbcTemplate(tabla);
+    }
+
+    /**
+     * Prueba que dos primeros cambios simultáneos de un producto sin historial se
+     * guardan los dos en el bloque 0, sin clave duplicada
+     */
+    @Test
+    void testPrimerCambioConcurrente() throws Exception {
+        for (long productoId = 1; productoId <= 200; productoId++) {
+            // ARRANGE
+            long id = productoId;
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Throwable> errores = new CopyOnWriteArrayList<>();
+            List<Thread> hilos = new ArrayList<>();
+            for (int h = 0; h < 2; h++) {
+                long precio = 100 + h;
+                hilos.add(new Thread(() -> {
+                    try {
+                        salida.await();
+                        historialService.registrar(id, 1000, precio);
+                    } catch (Throwable e) {
+                        errores.add(e);
+                    } finally {
+                        tabla.commit();
+                    }
+                }));
+            }
+
+            // ACT
+            hilos.forEach(Thread::start);
+            salida.countDown();
+            for (Thread hilo : hilos) {
+                hilo.join(TimeUnit.SECONDS.toMillis(5));
+            }
+
+            // ASSERT
+            assertEquals(List.of(), errores, "producto " + id);
+            NavigableMap<Integer, Object[]> bloques = tabla.filas.get(id);
+            assertEquals(1, bloques.size());
+            assertEquals(2, SeriePrecios.decodificar((byte[]) bloques.get(0)[3]).tamano());
+            assertEquals(2, bloques.get(0)[2]);
+        }
+    }
+
+    /**
+     * Prueba que al llenarse un bloque el siguiente punto abre otro
+     */
+    @Test
+    void testBloqueLlenoAbreOtro() {
+        // ACT
+        for (int i = 0; i <= HistorialPreciosService.PUNTOS_POR_BLOQUE; i++) {
+            historialService.registrar(7L, 1000L + i, 100 + i);
+            tabla.commit();
+        }
+
+        // ASSERT
+        NavigableMap<Integer, Object[]> bloques = tabla.filas.get(7L);
+        assertEquals(2, bloques.size());
+        assertEquals(HistorialPreciosService.PUNTOS_POR_BLOQUE, bloques.get(0)[2]);
+        assertEquals(1000L, bloques.get(0)[0]);
+        assertEquals(1000L + HistorialPreciosService.PUNTOS_POR_BLOQUE - 1, bloques.get(0)[1]);
+        assertEquals(1, bloques.get(1)[2]);
+    }
+
+    // precio_historial en memoria: producto_id -> bloque -> {desde, hasta, puntos, datos}
+    private static class TablaHistorial extends JdbcTemplate {
+
+        private final Map<Long, NavigableMap<Integer, Object[]>> filas = new ConcurrentHashMap<>();
+        private final Map<String, ReentrantLock> bloqueos = new ConcurrentHashMap<>();
+        private final ThreadLocal<List<ReentrantLock>> tomados = ThreadLocal.withInitial(ArrayList::new);
+
+        void commit() {
+            tomados.get().forEach(ReentrantLock::unlock);
+            tomados.get().clear();
+        }
+
+        private void bloquear(Object productoId, int bloque) {
+            ReentrantLock lock = bloqueos.computeIfAbsent(productoId + ":" + bloque, k -> new ReentrantLock());
+            lock.lock();
+            tomados.get().add(lock);
+        }
+
+        private NavigableMap<Integer, Object[]> bloques(Object productoId) {
+            return filas.computeIfAbsent((Long) productoId, k -> new ConcurrentSkipListMap<>());
+        }
+
+        @Override
+        public int update(String sql, Object... args) throws DataAccessException {
+            if (sql.startsWith("INSERT") && sql.contains("ON DUPLICATE KEY UPDATE")) {
+                bloquear(args[0], 0);
+                bloques(args[0]).putIfAbsent(0, new Object[] {args[1], args[2], 0, args[3]});
+                return 1;
+            }
+            if (sql.startsWith("INSERT")) {
+                int bloque = (Integer) args[1];
+                bloquear(args[0], bloque);
+                if (bloques(args[0]).putIfAbsent(bloque, new Object[] {args[2], args[3], 1, args[4]}) != null) {
+                    throw new DuplicateKeyException("Duplicate entry '" + args[0] + "-" + bloque + "'");
+                }
+                return 1;
+            }
+            int bloque = (Integer) args[5];
+            bloquear(args[4], bloque);
+            bloques(args[4]).put(bloque, new Object[] {args[0], args[1], args[2], args[3]});
+            return 1;
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) throws DataAccessException {
+            NavigableMap<Integer, Object[]> bloques = bloques(args[0]);
+            if (bloques.isEmpty()) {
+                return List.of();
+            }
+            int ultimo = bloques.lastKey();
+            bloquear(args[0], ultimo);
+            try {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getInt(1)).thenReturn(ultimo);
+                when(rs.getBytes(2)).thenReturn((byte[]) bloques.get(ultimo)[3]);
+                return List.of(rowMapper.mapRow(rs, 0));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -25,7 +25,9 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Clase de pruebas unitarias para el servicio de Inventario
@@ -236,4 +238,32 @@ public class InventarioServiceTest {
         // (no debe intentar eliminar algo que no existe)
         verify(inventarioRepository, never()).deleteById(anyLong());
     }
-}
\ No newline at end of file
+
+    /**
+     * Prueba el método listarCampos()
+     * Verifica que solo se piden al repositorio los campos solicitados (más el id)
+     */
+    @Test
+    void testListarCampos() {
+        // ARRANGE: El repositorio devuelve una fila proyectada
+        when(inventarioRepository.findCampos(Set.of("id", "productoId", "cantidad")))
+            .thenReturn(List.of(Map.of("id", 1L, "productoId", 5L, "cantidad", 30)));
+
+        // ACT
+        List<Map<String, Object>> resultado = inventarioService.listarCampos("productoId,cantidad");
+
+        // ASSERT
+        assertEquals(1, resultado.size());
+        assertEquals(30, resultado.get(0).get("cantidad"));
+    }
+
+    /**
+     * Prueba el método listarCampos() con un campo inexistente
+     * Verifica que se rechace sin consultar la base de datos
+     */
+    @Test
+    void testListarCamposNoPermitido() {
+        assertThrows(IllegalArgumentException.class, () -> inventarioService.listarCampos("producto"));
+        verify(inventarioRepository, never()).findCampos(any());
+    }
+}
@@ -0,0 +1,207 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.model.EstadoInventario;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de pruebas unitarias para el stream de cambios de inventario
+ *
+ * El envío se sustituye por un Executor que no hace nada, así los eventos se
+ * quedan en la cola de cada suscriptor y se puede comprobar qué se encoló.
+ */
+public class InventarioStreamServiceTest {
+
+    private InventarioStreamService streamService;
+
+    @BeforeEach
+    void setUp() {
+        streamService = new InventarioStreamService();
+        streamService.setEnvio(tarea -> { });
+    }
+
+    // Actualización sin cambio de estado
+    private InventarioCambiadoEvent evento(long id, long productoId, int cantidad, EstadoInventario estado) {
+        return evento(id, productoId, cantidad, estado, estado);
+    }
+
+    private InventarioCambiadoEvent evento(long id, long productoId, int cantidad, EstadoInventario anterior,
+            EstadoInventario estado) {
+        Producto producto = new Producto();
+        producto.setId(productoId);
+        Inventario actual = new Inventario(id, producto, cantidad, 10, "Almacén A", null, estado);
+        Inventario previo = anterior == null ? null : new Inventario(id, producto, cantidad, 10, "Almacén A", null, anterior);
+        return new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ACTUALIZADO, id, previo, actual);
+    }
+
+    /**
+     * Prueba que cada suscriptor solo recibe los cambios que pasan sus filtros
+     */
+    @Test
+    void testFiltros() {
+        // ARRANGE
+        InventarioStreamService.Suscriptor todos = streamService.registrar(new SseEmitter(), null, null);
+        InventarioStreamService.Suscriptor producto1 = streamService.registrar(new SseEmitter(), 1L, null);
+        InventarioStreamService.Suscriptor agotados = streamService.registrar(new SseEmitter(), null, EstadoInventario.AGOTADO);
+
+        // ACT
+        streamService.alCambiarInventario(evento(1L, 1L, 50, EstadoInventario.DISPONIBLE));
+        streamService.alCambiarInventario(evento(2L, 2L, 0, EstadoInventario.AGOTADO));
+        streamService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, 3L, null, null));
+
+        // ASSERT
+        assertEquals(3, todos.pendientes());
+        assertEquals(2, producto1.pendientes());
+        assertEquals(2, agotados.pendientes());
+    }
+
+    /**
+     * Prueba que un suscriptor lento pierde los eventos más antiguos y acaba desconectado
+     */
+    @Test
+    void testConsumidorLento() {
+        // ARRANGE
+        InventarioStreamService.Suscriptor lento = streamService.registrar(new SseEmitter(), null, null);
+
+        // ACT: llena la cola y descarta hasta justo el máximo
+        int total = InventarioStreamService.CAPACIDAD_COLA + InventarioStreamService.DESCARTES_MAXIMOS;
+        for (int i = 0; i < total; i++) {
+            streamService.alCambiarInventario(evento(i, 1L, i, EstadoInventario.DISPONIBLE));
+        }
+
+        // ASSERT
+        assertEquals(InventarioStreamService.CAPACIDAD_COLA, lento.pendientes());
+        assertEquals(InventarioStreamService.DESCARTES_MAXIMOS, streamService.eventosDescartados());
+        assertEquals(1, streamService.suscriptoresActivos());
+
+        // Un descarte más cierra la conexión
+        streamService.alCambiarInventario(evento(total, 1L, 0, EstadoInventario.DISPONIBLE));
+        assertEquals(0, streamService.suscriptoresActivos());
+    }
+
+    /**
+     * Prueba que un registro que deja de pasar el filtro de estado llega como
+     * inventario-retirado y que uno que nunca lo pasó no se envía
+     */
+    @Test
+    void testRetiradoAlSalirDelFiltro() {
+        // ARRANGE
+        InventarioStreamService.Suscriptor bajoStock = streamService.registrar(new SseEmitter(), null, EstadoInventario.BAJO_STOCK);
+
+        // ACT
+        streamService.alCambiarInventario(evento(1L, 1L, 5, EstadoInventario.DISPONIBLE, EstadoInventario.BAJO_STOCK));
+        streamService.alCambiarInventario(evento(1L, 1L, 50, EstadoInventario.BAJO_STOCK, EstadoInventario.DISPONIBLE));
+        streamService.alCambiarInventario(evento(2L, 2L, 60, EstadoInventario.DISPONIBLE, EstadoInventario.DISPONIBLE));
+        // Ajuste por lotes: sin estado anterior no se sabe si lo mostraba
+        streamService.alCambiarInventario(evento(3L, 3L, 70, null, EstadoInventario.DISPONIBLE));
+
+        // ASSERT
+        assertEquals(List.of(InventarioStreamService.EVENTO, InventarioStreamService.EVENTO_RETIRADO,
+            InventarioStreamService.EVENTO_RETIRADO), bajoStock.eventosPendientes());
+    }
+
+    /**
+     * Prueba que varios clientes con el envío bloqueado en el socket no retrasan a uno
+     * que lee al día, y que vigilarEnvios los desconecta pasado el máximo
+     */
+    @Test
+    void testClientesBloqueadosNoRetrasanAOtros() throws Exception {
+        // ARRANGE: el pool real, más clientes bloqueados que los hilos del pool anterior
+        InventarioStreamService servicio = new InventarioStreamService();
+        servicio.setEnvioMaximoMs(50);
+        CountDownLatch liberar = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            servicio.registrar(new EmitterBloqueado(liberar), null, null);
+        }
+        CountDownLatch recibidos = new CountDownLatch(100);
+        servicio.registrar(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                recibidos.countDown();
+            }
+        }, null, null);
+
+        try {
+            // ACT
+            for (int i = 0; i < 100; i++) {
+                servicio.alCambiarInventario(evento(i, 1L, i, EstadoInventario.DISPONIBLE));
+            }
+
+            // ASSERT
+            assertTrue(recibidos.await(5, TimeUnit.SECONDS), "el cliente rápido no recibió sus eventos");
+            assertEquals(9, servicio.suscriptoresActivos());
+            Thread.sleep(100);
+            servicio.vigilarEnvios();
+            assertEquals(1, servicio.suscriptoresActivos());
+        } finally {
+            liberar.countDown();
+            servicio.detener();
+        }
+    }
+
+    /**
+     * Prueba que un latido bloqueado en el socket cuenta como envío en curso: los
+     * latidos siguientes no encolan más tareas y vigilarEnvios desconecta al cliente
+     */
+    @Test
+    void testLatidoBloqueadoSeVigila() throws Exception {
+        // ARRANGE
+        InventarioStreamService servicio = new InventarioStreamService();
+        servicio.setEnvioMaximoMs(50);
+        List<Runnable> tareas = new CopyOnWriteArrayList<>();
+        servicio.setEnvio(tarea -> {
+            tareas.add(tarea);
+            new Thread(tarea).start();
+        });
+        CountDownLatch liberar = new CountDownLatch(1);
+        servicio.registrar(new EmitterBloqueado(liberar), null, null);
+
+        try {
+            // ACT
+            servicio.latido();
+            Thread.sleep(100);
+            servicio.latido();
+            servicio.latido();
+            servicio.vigilarEnvios();
+
+            // ASSERT
+            assertEquals(1, tareas.size());
+            assertEquals(0, servicio.suscriptoresActivos());
+        } finally {
+            liberar.countDown();
+        }
+    }
+
+    // Emisor cuyo send se queda bloqueado como una escritura a un socket lleno
+    private static class EmitterBloqueado extends SseEmitter {
+        private final CountDownLatch liberar;
+
+        EmitterBloqueado(CountDownLatch liberar) {
+            this.liberar = liberar;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("conexión cerrada");
+        }
+    }
+}
@@ -10,20 +10,42 @@ import org.springframework.stereotype.Service;
 // Importaciones para assertions (verificaciones) en las pruebas
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 // Importaciones para mocking (simulación de objetos)
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.event.ProductoConsultadoEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 // Importaciones para JUnit (framework de pruebas)
 import org.junit.jupiter.api.BeforeEach;
@@ -306,4 +328,224 @@ public class ProductoServiceTest {
         assertEquals("NEW123", result.get().getCodigo()); // Código actualizado
         assertEquals("Producto actualizado", result.get().getNombre()); // Nombre actualizado
     }
-}
\ No newline at end of file
+
+    /**
+     * PRUEBA: FILTRO MULTI-CRITERIO PAGINADO
+     * 
+     * Verifica que el filtro delega en el repositorio con una sola consulta
+     * y que el tamaño de página se acota al máximo permitido.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFiltrar() {
+        // PREPARACIÓN: Una página con un producto
+        Producto producto = new Producto();
+        producto.setCategoria("Frutas");
+        Page<Producto> pagina = new PageImpl<>(List.of(producto));
+        when(productoRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(pagina);
+
+        // EJECUCIÓN: Pedimos 500 elementos ordenados por precio
+        Page<Producto> resultado = productoService.filtrar("Frutas", true, BigDecimal.ONE, BigDecimal.TEN,
+                "manz", null, PageRequest.of(0, 500, Sort.by("precio")));
+
+        // VERIFICACIÓN: Se devuelve la página y el tamaño se acotó a 100
+        assertEquals(1, resultado.getTotalElements());
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+        verify(productoRepository).findAll(any(Specification.class), captor.capture());
+        assertEquals(100, captor.getValue().getPageSize());
+    }
+
+    /**
+     * PRUEBA: FILTRO CON ORDEN NO PERMITIDO
+     * 
+     * Ordenar por una columna sin índice (descripcion) debe rechazarse
+     * antes de llegar a la base de datos.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFiltrarOrdenNoPermitido() {
+        assertThrows(IllegalArgumentException.class, () -> productoService.filtrar(null, null, null, null,
+                null, null, PageRequest.of(0, 20, Sort.by("descripcion"))));
+        verify(productoRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    /**
+     * PRUEBA: FILTRO CON RANGO DE PRECIO INVERTIDO
+     */
+    @Test
+    void testFiltrarRangoInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> productoService.filtrar(null, null, BigDecimal.TEN,
+                BigDecimal.ONE, null, null, PageRequest.of(0, 20)));
+    }
+
+    /**
+     * PRUEBA: LISTAR SOLO ALGUNOS CAMPOS (fields=)
+     * 
+     * Verifica que el repositorio recibe solo los campos pedidos (más el id)
+     * y que la fila proyectada serializa mucho menos que la entidad completa
+     * cuando la descripción ocupa sus 1000 caracteres. No mide la base de datos:
+     * las columnas que se leen de verdad se comprueban en ConsultaPorCamposTest.
+     */
+    @Test
+    void testListarCampos() throws Exception {
+        // PREPARACIÓN: Producto completo con descripción larga
+        Producto completo = new Producto(1L, "P001", "Manzana", "x".repeat(1000), BigDecimal.valueOf(1.5),
+                "Frutas", java.time.LocalDateTime.now(), java.time.LocalDateTime.now(), true);
+        Map<String, Object> proyeccion = new LinkedHashMap<>();
+        proyeccion.put("id", 1L);
+        proyeccion.put("codigo", "P001");
+        proyeccion.put("nombre", "Manzana");
+        proyeccion.put("precio", BigDecimal.valueOf(1.5));
+        when(productoRepository.findCampos(Set.of("id", "codigo", "nombre", "precio"))).thenReturn(List.of(proyeccion));
+
+        // EJECUCIÓN
+        List<Map<String, Object>> resultado = productoService.listarCampos("codigo, nombre,precio");
+
+        // VERIFICACIÓN: Mismos datos pedidos y JSON al menos 10 veces menor
+        assertEquals(1, resultado.size());
+        assertEquals("Manzana", resultado.get(0).get("nombre"));
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        int bytesCompleto = mapper.writeValueAsBytes(List.of(completo)).length;
+        int bytesProyeccion = mapper.writeValueAsBytes(resultado).length;
+        assertTrue(bytesProyeccion * 10 < bytesCompleto,
+                "proyección " + bytesProyeccion + " bytes vs completo " + bytesCompleto + " bytes");
+    }
+
+    /**
+     * PRUEBA: PEDIR UN CAMPO QUE NO EXISTE
+     */
+    @Test
+    void testListarCamposNoPermitido() {
+        assertThrows(IllegalArgumentException.class, () -> productoService.listarCampos("codigo,clave"));
+        verify(productoRepository, never()).findCampos(any());
+    }
+
+    /**
+     * PRUEBA: LAS ESCRITURAS PUBLICAN UN EVENTO DE CAMBIO
+     * 
+     * Los índices y cachés en memoria dependen de este evento para mantenerse al día.
+     */
+    @Test
+    void testGuardarPublicaEvento() {
+        // PREPARACIÓN
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        productoService.setEventPublisher(publisher);
+        Producto producto = new Producto();
+        producto.setId(7L);
+        producto.setCodigo("P007");
+        when(productoRepository.findByCodigo("P007")).thenReturn(Optional.empty());
+        when(productoRepository.save(producto)).thenReturn(producto);
+
+        // EJECUCIÓN
+        productoService.guardar(producto);
+
+        // VERIFICACIÓN
+        ArgumentCaptor<ProductoCambiadoEvent> captor = ArgumentCaptor.forClass(ProductoCambiadoEvent.class);
+        verify(publisher).publishEvent(captor.capture());
+        assertEquals(ProductoCambiadoEvent.Tipo.CREADO, captor.getValue().tipo());
+        assertEquals(7L, captor.getValue().productoId());
+    }
+
+    /**
+     * PRUEBA: LEER UN PRODUCTO PUBLICA LA SEÑAL DE POPULARIDAD
+     *
+     * El autocompletado recibe las lecturas por evento, igual que las escrituras;
+     * una lectura sin resultado no publica nada.
+     */
+    @Test
+    void testObtenerPorIdPublicaConsulta() {
+        // PREPARACIÓN
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        productoService.setEventPublisher(publisher);
+        Producto producto = new Producto();
+        producto.setId(3L);
+        when(productoRepository.findById(3L)).thenReturn(Optional.of(producto));
+        when(productoRepository.findById(4L)).thenReturn(Optional.empty());
+
+        // EJECUCIÓN
+        productoService.obtenerPorId(3L);
+        productoService.obtenerPorId(4L);
+
+        // VERIFICACIÓN
+        verify(publisher).publishEvent(new ProductoConsultadoEvent(3L));
+        verifyNoMoreInteractions(publisher);
+    }
+
+    /**
+     * PRUEBA: ACTUALIZAR Y ELIMINAR ESCRIBEN LA FILA ANTES DE PUBLICAR EL EVENTO
+     *
+     * El outbox registra el evento al publicarlo; el flush hace que el UPDATE o el
+     * DELETE bloqueen la fila antes, así el orden de los eventos de un producto es
+     * el de sus commits.
+     */
+    @Test
+    void testActualizarYEliminarHacenFlushAntesDelEvento() {
+        // PREPARACIÓN
+        ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+        productoService.setEventPublisher(publisher);
+        Producto existente = new Producto();
+        existente.setId(1L);
+        existente.setCodigo("P001");
+        Producto cambios = new Producto();
+        cambios.setCodigo("P001");
+        cambios.setPrecio(BigDecimal.ONE);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(existente));
+        when(productoRepository.save(any())).thenAnswer(i -> i.getArguments()[0]);
+        when(productoRepository.existsById(1L)).thenReturn(true);
+
+        // EJECUCIÓN
+        productoService.actualizar(1L, cambios);
+        productoService.eliminar(1L);
+
+        // VERIFICACIÓN
+        InOrder orden = inOrder(productoRepository, publisher);
+        orden.verify(productoRepository).save(existente);
+        orden.verify(productoRepository).flush();
+        orden.verify(publisher).publishEvent(any(ProductoCambiadoEvent.class));
+        orden.verify(productoRepository).deleteById(1L);
+        orden.verify(productoRepository).flush();
+        orden.verify(publisher).publishEvent(any(ProductoCambiadoEvent.class));
+    }
+
+    /**
+     * PRUEBA: UN CÓDIGO DUPLICADO QUE SE CUELA RESPONDE "EL CÓDIGO YA EXISTE"
+     *
+     * Un alta concurrente o de otra instancia no la ve la comprobación previa;
+     * la restricción única de codigo la para (error 1062, se llame como se llame) y se
+     * responde igual.
+     */
+    @Test
+    void testCodigoDuplicadoPorRestriccionUnica() {
+        // PREPARACIÓN
+        Producto producto = new Producto();
+        producto.setCodigo("P001");
+        when(productoRepository.findByCodigo("P001")).thenReturn(Optional.empty());
+        when(productoRepository.save(any())).thenAnswer(i -> i.getArguments()[0]);
+        // Base de datos anterior a Flyway: la restricción conserva el nombre que le dio Hibernate
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+            new SQLIntegrityConstraintViolationException("Duplicate entry 'P001' for key 'producto.UK_3k2xq9'",
+                "23000", 1062))).when(productoRepository).flush();
+
+        // EJECUCIÓN
+        RuntimeException error = assertThrows(RuntimeException.class, () -> productoService.guardar(producto));
+
+        // VERIFICACIÓN
+        assertEquals("El código ya existe", error.getMessage());
+    }
+
+    /**
+     * PRUEBA: OTRAS VIOLACIONES DE INTEGRIDAD NO SE CONFUNDEN CON UN CÓDIGO DUPLICADO
+     */
+    @Test
+    void testOtraViolacionDeIntegridad() {
+        // PREPARACIÓN
+        Producto producto = new Producto();
+        producto.setCodigo("P001");
+        when(productoRepository.findByCodigo("P001")).thenReturn(Optional.empty());
+        when(productoRepository.save(any())).thenThrow(new DataIntegrityViolationException("could not execute statement",
+            new SQLIntegrityConstraintViolationException("Column 'nombre' cannot be null", "23000", 1048)));
+
+        // EJECUCIÓN Y VERIFICACIÓN
+        assertThrows(DataIntegrityViolationException.class, () -> productoService.guardar(producto));
+    }
+}
@@ -0,0 +1,128 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.InventarioRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clase de pruebas unitarias para la sugerencia de punto de pedido
+ *
+ * Verifica que solo las bajadas de stock cuentan como consumo y que la media
+ * móvil exponencial y las sugerencias se calculan al cerrar cada periodo, también
+ * con cambios que llegan durante la carga inicial.
+ */
+public class ReposicionServiceTest {
+
+    private InventarioRepository inventarioRepository;
+    private ReposicionService reposicionService;
+
+    @BeforeEach
+    void setUp() {
+        inventarioRepository = mock(InventarioRepository.class);
+        reposicionService = new ReposicionService();
+        reposicionService.setInventarioRepository(inventarioRepository);
+        reposicionService.setAlfa(0.5);
+        reposicionService.setPlazo(4);
+        reposicionService.setCobertura(10);
+    }
+
+    private InventarioCambiadoEvent actualizado(long id, int cantidad, int cantidadMinima) {
+        Producto producto = new Producto();
+        producto.setId(1L);
+        Inventario inventario = new Inventario(id, producto, cantidad, cantidadMinima, "Almacén A", null, null);
+        return new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ACTUALIZADO, id, null, inventario);
+    }
+
+    /**
+     * Prueba el cálculo de la EWMA y de las sugerencias a lo largo de varios periodos
+     */
+    @Test
+    void testEwmaPorPeriodo() {
+        // ARRANGE
+        when(inventarioRepository.findCampos(any())).thenReturn(List.of(
+            Map.of("id", 1L, "productoId", 1L, "cantidad", 100, "cantidadMinima", 5, "ubicacion", "Almacén A")));
+        reposicionService.cargar();
+
+        // ACT: periodo 1 consume 10 (con una reposición en medio), periodo 2 consume 20
+        reposicionService.alCambiarInventario(actualizado(1L, 95, 5));
+        reposicionService.alCambiarInventario(actualizado(1L, 200, 5));
+        reposicionService.alCambiarInventario(actualizado(1L, 195, 5));
+        reposicionService.cerrarPeriodo();
+        reposicionService.alCambiarInventario(actualizado(1L, 175, 5));
+        reposicionService.cerrarPeriodo();
+
+        // ASSERT: media = 10 + 0.5 × 10 = 15, varianza = 0.5 × (0 + 0.5 × 100) = 25
+        ReposicionService.Sugerencia sugerencia = reposicionService.obtener(1L).orElseThrow();
+        assertEquals(15.0, sugerencia.consumoMedio(), 1e-9);
+        assertEquals(5.0, sugerencia.desviacion(), 1e-9);
+        assertEquals((int) Math.ceil(15 * 4 + 1.65 * 5 * 2), sugerencia.cantidadMinimaSugerida());
+        assertEquals(150, sugerencia.cantidadReposicion());
+        assertEquals(2, sugerencia.periodos());
+        assertEquals(175, sugerencia.cantidad());
+    }
+
+    /**
+     * Prueba el listado de registros con cantidad mínima insuficiente y el cierre en paralelo
+     */
+    @Test
+    void testInfradimensionados() {
+        // ARRANGE: muchos registros para que el recorrido se reparta entre hilos
+        List<Map<String, Object>> filas = new ArrayList<>();
+        for (long id = 1; id <= 50_000; id++) {
+            filas.add(Map.of("id", id, "productoId", id, "cantidad", 1000, "cantidadMinima", 50, "ubicacion", "Almacén A"));
+        }
+        when(inventarioRepository.findCampos(any())).thenReturn(filas);
+        reposicionService.cargar();
+        reposicionService.alCambiarInventario(actualizado(7L, 900, 50));
+        reposicionService.alCambiarInventario(actualizado(8L, 980, 50));
+
+        // ACT
+        reposicionService.cerrarPeriodo();
+        List<ReposicionService.Sugerencia> resultado = reposicionService.infradimensionados(10);
+
+        // ASSERT: 100 × 4 = 400 > 50 y 20 × 4 = 80 > 50; el resto no consume
+        assertEquals(2, resultado.size());
+        assertEquals(7L, resultado.get(0).inventarioId());
+        assertEquals(8L, resultado.get(1).inventarioId());
+        assertEquals(0, reposicionService.obtener(1L).orElseThrow().cantidadMinimaSugerida());
+    }
+
+    /**
+     * Prueba que un cambio confirmado mientras se lee la carga inicial no se pierde
+     */
+    @Test
+    void testCambioDuranteLaCarga() {
+        // ARRANGE: la lectura ve las filas antes de los cambios, que llegan mientras se lee
+        when(inventarioRepository.findCampos(any())).thenAnswer(invocacion -> {
+            reposicionService.alCambiarInventario(actualizado(1L, 80, 5));
+            reposicionService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, 2L, null, null));
+            return List.of(
+                Map.of("id", 1L, "productoId", 1L, "cantidad", 100, "cantidadMinima", 5, "ubicacion", "Almacén A"),
+                Map.of("id", 2L, "productoId", 2L, "cantidad", 30, "cantidadMinima", 5, "ubicacion", "Almacén A"));
+        });
+
+        // ACT
+        reposicionService.cargar();
+        reposicionService.cerrarPeriodo();
+
+        // ASSERT: el cambio se aplica sobre la fila leída y cuenta su consumo
+        ReposicionService.Sugerencia sugerencia = reposicionService.obtener(1L).orElseThrow();
+        assertEquals(80, sugerencia.cantidad());
+        assertEquals(20.0, sugerencia.consumoMedio(), 1e-9);
+        assertTrue(reposicionService.obtener(2L).isEmpty());
+    }
+}
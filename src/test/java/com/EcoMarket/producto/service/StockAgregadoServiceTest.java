@@ -0,0 +1,141 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.model.EstadoInventario;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+import com.EcoMarket.producto.repository.InventarioRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Clase de pruebas unitarias para el stock agregado por producto
+ *
+ * Verifica la carga inicial y que cada alta, modificación o baja corrige el
+ * total, las ubicaciones y el peor estado sin volver a leer el repositorio.
+ */
+public class StockAgregadoServiceTest {
+
+    private InventarioRepository inventarioRepository;
+    private StockAgregadoService stockService;
+
+    @BeforeEach
+    void setUp() {
+        inventarioRepository = mock(InventarioRepository.class);
+        stockService = new StockAgregadoService();
+        stockService.setInventarioRepository(inventarioRepository);
+    }
+
+    private InventarioCambiadoEvent evento(InventarioCambiadoEvent.Tipo tipo, long id, long productoId,
+            String ubicacion, int cantidad, EstadoInventario estado) {
+        Producto producto = new Producto();
+        producto.setId(productoId);
+        Inventario inventario = new Inventario(id, producto, cantidad, 10, ubicacion, null, estado);
+        return new InventarioCambiadoEvent(tipo, id, null, inventario);
+    }
+
+    /**
+     * Prueba la carga inicial con varias ubicaciones por producto
+     */
+    @Test
+    void testCargar() {
+        // ARRANGE
+        when(inventarioRepository.findCampos(any())).thenReturn(List.of(
+            Map.of("id", 1L, "productoId", 7L, "cantidad", 40, "ubicacion", "Almacén A", "estado", EstadoInventario.DISPONIBLE),
+            Map.of("id", 2L, "productoId", 7L, "cantidad", 5, "ubicacion", "Almacén B", "estado", EstadoInventario.BAJO_STOCK),
+            Map.of("id", 3L, "productoId", 8L, "cantidad", 0, "ubicacion", "Almacén A", "estado", EstadoInventario.AGOTADO)));
+
+        // ACT
+        stockService.cargar();
+
+        // ASSERT
+        StockAgregadoService.StockProducto stock = stockService.obtener(7L).orElseThrow();
+        assertEquals(45, stock.total());
+        assertEquals(Map.of("Almacén A", 40L, "Almacén B", 5L), stock.porUbicacion());
+        assertEquals(EstadoInventario.BAJO_STOCK, stock.estado());
+        assertEquals(EstadoInventario.AGOTADO, stockService.obtener(8L).orElseThrow().estado());
+    }
+
+    /**
+     * Prueba que los cambios se aplican de forma incremental
+     */
+    @Test
+    void testCambiosIncrementales() {
+        // ARRANGE
+        InventarioCambiadoEvent.Tipo creado = InventarioCambiadoEvent.Tipo.CREADO;
+        InventarioCambiadoEvent.Tipo actualizado = InventarioCambiadoEvent.Tipo.ACTUALIZADO;
+        stockService.alCambiarInventario(evento(creado, 1L, 7L, "Almacén A", 40, EstadoInventario.DISPONIBLE));
+        stockService.alCambiarInventario(evento(creado, 2L, 7L, "Almacén B", 0, EstadoInventario.AGOTADO));
+
+        // ACT: repone la ubicación B y luego borra la A
+        stockService.alCambiarInventario(evento(actualizado, 2L, 7L, "Almacén B", 30, EstadoInventario.DISPONIBLE));
+        StockAgregadoService.StockProducto trasReponer = stockService.obtener(7L).orElseThrow();
+        stockService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, 1L, null, null));
+
+        // ASSERT
+        assertEquals(70, trasReponer.total());
+        assertEquals(EstadoInventario.DISPONIBLE, trasReponer.estado());
+        StockAgregadoService.StockProducto stock = stockService.obtener(7L).orElseThrow();
+        assertEquals(30, stock.total());
+        assertEquals(Map.of("Almacén B", 30L), stock.porUbicacion());
+
+        // Al borrar la última fila el producto desaparece del agregado
+        stockService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, 2L, null, null));
+        assertTrue(stockService.obtener(7L).isEmpty());
+    }
+
+    /**
+     * Prueba que un cambio confirmado mientras se lee la carga inicial no se pierde
+     */
+    @Test
+    void testCambioDuranteLaCarga() {
+        // ARRANGE: la lectura ve la fila antes del cambio, que llega mientras se lee
+        when(inventarioRepository.findCampos(any())).thenAnswer(invocacion -> {
+            stockService.alCambiarInventario(evento(InventarioCambiadoEvent.Tipo.ACTUALIZADO, 1L, 7L, "Almacén A", 12,
+                EstadoInventario.DISPONIBLE));
+            stockService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, 2L, null, null));
+            return List.of(
+                Map.of("id", 1L, "productoId", 7L, "cantidad", 40, "ubicacion", "Almacén A", "estado", EstadoInventario.DISPONIBLE),
+                Map.of("id", 2L, "productoId", 8L, "cantidad", 3, "ubicacion", "Almacén A", "estado", EstadoInventario.BAJO_STOCK));
+        });
+
+        // ACT
+        stockService.cargar();
+
+        // ASSERT
+        assertEquals(12, stockService.obtener(7L).orElseThrow().total());
+        assertTrue(stockService.obtener(8L).isEmpty());
+    }
+
+    /**
+     * Prueba que las filas sin ubicación se suman aparte y no como la ubicación "null"
+     */
+    @Test
+    void testFilasSinUbicacion() {
+        // ARRANGE
+        InventarioCambiadoEvent.Tipo creado = InventarioCambiadoEvent.Tipo.CREADO;
+        stockService.alCambiarInventario(evento(creado, 1L, 7L, null, 4, EstadoInventario.DISPONIBLE));
+        stockService.alCambiarInventario(evento(creado, 2L, 7L, "null", 6, EstadoInventario.DISPONIBLE));
+
+        // ACT
+        StockAgregadoService.StockProducto stock = stockService.obtener(7L).orElseThrow();
+        stockService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.ELIMINADO, 1L, null, null));
+
+        // ASSERT
+        assertEquals(10, stock.total());
+        assertEquals(Map.of("null", 6L), stock.porUbicacion());
+        assertEquals(4L, stock.sinUbicacion());
+        assertNull(stockService.obtener(7L).orElseThrow().sinUbicacion());
+    }
+}
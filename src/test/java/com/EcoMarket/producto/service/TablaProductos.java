@@ -0,0 +1,100 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.repository.Colacion;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabla Producto en memoria para las altas por lotes, sin base de datos.
+ *
+ * Simula el batch INSERT con la restricción única uk_producto_codigo (un código
+ * repetido falla con DuplicateKeyException) y las consultas IN por código, tanto
+ * "SELECT id, codigo" como "SELECT codigo". Los códigos se comparan como en MySQL,
+ * con Colacion.clave, y las consultas devuelven el código tal como se guardó. La
+ * usan CreacionAgrupadaServiceTest e ImportacionServiceTest.
+ */
+public class TablaProductos extends JdbcTemplate {
+
+    /** Códigos guardados y su id, en orden de inserción. */
+    public final Map<String, Long> ids = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /** Tamaño de cada batch que llegó a escribirse. */
+    public final List<Integer> lotes = Collections.synchronizedList(new ArrayList<>());
+
+    // Colacion.clave -> código guardado
+    private final Map<String, String> porClave = new HashMap<>();
+
+    /** Batches que fallarán enteros antes de escribir nada, como si otro los adelantara. */
+    public int fallosPendientes;
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> filas) {
+        if (fallosPendientes > 0) {
+            fallosPendientes--;
+            throw new DuplicateKeyException("uk_producto_codigo");
+        }
+        lotes.add(filas.size());
+        for (Object[] fila : filas) {
+            insertar((String) fila[0]);
+        }
+        return new int[filas.size()];
+    }
+
+    /**
+     * Inserta una fila y devuelve su id.
+     *
+     * @throws DuplicateKeyException si el código ya existe
+     */
+    public long insertar(String codigo) {
+        synchronized (ids) {
+            if (porClave.putIfAbsent(Colacion.clave(codigo), codigo) != null) {
+                throw new DuplicateKeyException("uk_producto_codigo");
+            }
+            long id = ids.size() + 1L;
+            ids.put(codigo, id);
+            return id;
+        }
+    }
+
+    /**
+     * Código guardado que la colación da por igual a este, o null.
+     */
+    public String guardado(String codigo) {
+        synchronized (ids) {
+            return porClave.get(Colacion.clave(codigo));
+        }
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler rch, Object... args) throws DataAccessException {
+        for (Object buscado : args) {
+            String codigo = guardado((String) buscado);
+            Long id = codigo == null ? null : ids.get(codigo);
+            if (id != null) {
+                try {
+                    rch.processRow(fila(sql.startsWith("SELECT id") ? new Object[] {id, codigo} : new Object[] {codigo}));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private static ResultSet fila(Object[] columnas) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+            (proxy, metodo, argumentos) -> columnas[(Integer) argumentos[0] - 1]);
+    }
+}
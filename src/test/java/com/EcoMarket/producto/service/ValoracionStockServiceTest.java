@@ -0,0 +1,240 @@
+package com.EcoMarket.producto.service;
+
+import com.EcoMarket.producto.event.InventarioCambiadoEvent;
+import com.EcoMarket.producto.event.ProductoCambiadoEvent;
+import com.EcoMarket.producto.model.Inventario;
+import com.EcoMarket.producto.model.Producto;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase de pruebas unitarias para la valoración del stock por categoría
+ *
+ * Verifica que los cambios incrementales dan el mismo resultado que el
+ * recálculo completo, que el recálculo detecta la deriva y que no bloquea
+ * a los listeners de las escrituras.
+ */
+public class ValoracionStockServiceTest {
+
+    private PlatformTransactionManager transactionManager;
+    private ValoracionStockService valoracionService;
+
+    // Filas de las tablas: {id, categoria, precio} y {id, productoId, cantidad}
+    private final List<Object[]> productos = new ArrayList<>();
+    private final List<Object[]> inventarios = new ArrayList<>();
+    // Se ejecuta mientras el recálculo lee el inventario
+    private Runnable duranteLectura = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        valoracionService = new ValoracionStockService();
+        valoracionService.setCursor(new TablasFalsas());
+        valoracionService.setTransactionManager(transactionManager);
+        valoracionService.iniciar();
+    }
+
+    // Responde a las tres consultas del recálculo con las filas de productos e inventarios
+    private class TablasFalsas extends JdbcTemplate {
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) throws DataAccessException {
+            try {
+                if (sql.equals(ValoracionStockService.SQL_PRODUCTOS)) {
+                    for (Object[] fila : productos) {
+                        rch.processRow(resultSet(fila));
+                    }
+                } else if (sql.equals(ValoracionStockService.SQL_INVENTARIO)) {
+                    for (Object[] fila : inventarios) {
+                        rch.processRow(resultSet(fila));
+                    }
+                    duranteLectura.run();
+                } else {
+                    for (Object[] fila : totales()) {
+                        rch.processRow(resultSet(fila));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // GROUP BY p.categoria de SQL_TOTALES: {categoria, valor, unidades}
+    private List<Object[]> totales() {
+        Map<Long, Object[]> porId = new HashMap<>();
+        productos.forEach(p -> porId.put((Long) p[0], p));
+        Map<String, Object[]> grupos = new HashMap<>();
+        for (Object[] fila : inventarios) {
+            Object[] producto = porId.get((Long) fila[1]);
+            String categoria = producto == null ? null : (String) producto[1];
+            long cantidad = (Long) fila[2];
+            Object[] grupo = grupos.computeIfAbsent(String.valueOf(categoria), c -> new Object[] {categoria, null, 0L});
+            if (producto != null) {
+                BigDecimal valor = ((BigDecimal) producto[2]).multiply(BigDecimal.valueOf(cantidad));
+                grupo[1] = grupo[1] == null ? valor : ((BigDecimal) grupo[1]).add(valor);
+            }
+            grupo[2] = (Long) grupo[2] + cantidad;
+        }
+        return new ArrayList<>(grupos.values());
+    }
+
+    private static ResultSet resultSet(Object[] fila) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        for (int i = 0; i < fila.length; i++) {
+            Object valor = fila[i];
+            if (valor instanceof Long l) {
+                when(rs.getLong(i + 1)).thenReturn(l);
+            } else if (valor instanceof BigDecimal b) {
+                when(rs.getBigDecimal(i + 1)).thenReturn(b);
+            } else if (valor instanceof String texto) {
+                when(rs.getString(i + 1)).thenReturn(texto);
+            }
+        }
+        return rs;
+    }
+
+    private Producto producto(long id, String categoria, String precio) {
+        Producto p = new Producto();
+        p.setId(id);
+        p.setCategoria(categoria);
+        p.setPrecio(new BigDecimal(precio));
+        return p;
+    }
+
+    /**
+     * Prueba que la carga toma los totales del GROUP BY y lee en una transacción REPEATABLE READ
+     */
+    @Test
+    void testCargar() {
+        // ARRANGE
+        productos.add(new Object[] {1L, "Frutas", new BigDecimal("2.50")});
+        productos.add(new Object[] {2L, "Lácteos", new BigDecimal("1.00")});
+        for (long i = 0; i < 11; i++) {
+            inventarios.add(new Object[] {i, i % 2 == 0 ? 1L : 2L, 2L});
+        }
+        inventarios.add(new Object[] {99L, 7L, 4L});
+
+        // ACT
+        valoracionService.cargar();
+
+        // ASSERT
+        ValoracionStockService.ValoracionCategoria frutas = valoracionService.obtener("Frutas").orElseThrow();
+        assertEquals(12, frutas.unidades());
+        assertEquals(0, new BigDecimal("30.00").compareTo(frutas.valor()));
+        assertEquals(10, valoracionService.obtener("Lácteos").orElseThrow().unidades());
+        assertEquals(4, valoracionService.obtener("(sin categoría)").orElseThrow().unidades());
+        ArgumentCaptor<TransactionDefinition> definicion = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definicion.capture());
+        assertEquals(TransactionDefinition.ISOLATION_REPEATABLE_READ, definicion.getValue().getIsolationLevel());
+        assertTrue(definicion.getValue().isReadOnly());
+    }
+
+    /**
+     * Prueba que los cambios de inventario y de precio coinciden con el recálculo (sin deriva)
+     */
+    @Test
+    void testIncrementalSinDeriva() {
+        // ARRANGE
+        productos.add(new Object[] {1L, "Frutas", new BigDecimal("2.00")});
+        inventarios.add(new Object[] {10L, 1L, 10L});
+        valoracionService.cargar();
+        Producto manzana = producto(1L, "Frutas", "2.00");
+
+        // ACT: entra stock en una nueva ubicación y el producto cambia de precio y de categoría
+        Inventario nuevo = new Inventario(11L, manzana, 5, 1, "Almacén B", null, null);
+        valoracionService.alCambiarInventario(new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.CREADO, 11L, null, nuevo));
+        Producto actualizado = producto(1L, "Ofertas", "3.00");
+        valoracionService.alCambiarProducto(new ProductoCambiadoEvent(ProductoCambiadoEvent.Tipo.ACTUALIZADO, 1L, manzana, actualizado));
+
+        // ASSERT
+        ValoracionStockService.ValoracionCategoria ofertas = valoracionService.obtener("Ofertas").orElseThrow();
+        assertEquals(15, ofertas.unidades());
+        assertEquals(0, new BigDecimal("45.00").compareTo(ofertas.valor()));
+        assertTrue(valoracionService.obtener("Frutas").isEmpty());
+
+        productos.set(0, new Object[] {1L, "Ofertas", new BigDecimal("3.00")});
+        inventarios.add(new Object[] {11L, 1L, 5L});
+        assertTrue(valoracionService.recalcular().derivas().isEmpty());
+    }
+
+    /**
+     * Prueba que el recálculo informa de cambios que no pasaron por los eventos
+     */
+    @Test
+    void testRecalcularDetectaDeriva() {
+        // ARRANGE
+        productos.add(new Object[] {1L, "Frutas", new BigDecimal("2.00")});
+        inventarios.add(new Object[] {10L, 1L, 10L});
+        valoracionService.cargar();
+
+        // ACT: alguien modifica la tabla directamente
+        inventarios.set(0, new Object[] {10L, 1L, 12L});
+        ValoracionStockService.Recalculo recalculo = valoracionService.recalcular();
+
+        // ASSERT
+        assertEquals(1, recalculo.derivas().size());
+        assertEquals(10, recalculo.derivas().get(0).unidadesIncremental());
+        assertEquals(12, recalculo.derivas().get(0).unidadesRecalculado());
+        assertEquals(12, valoracionService.obtener("Frutas").orElseThrow().unidades());
+    }
+
+    /**
+     * Prueba que un cambio que llega mientras el recálculo lee la base de datos no espera
+     * al recálculo y se repite sobre el estado recalculado
+     */
+    @Test
+    void testRecalcularNoBloqueaEscrituras() throws Exception {
+        // ARRANGE
+        productos.add(new Object[] {1L, "Frutas", new BigDecimal("2.00")});
+        inventarios.add(new Object[] {10L, 1L, 10L});
+        valoracionService.cargar();
+        Inventario nuevo = new Inventario(11L, producto(1L, "Frutas", "2.00"), 5, 1, "Almacén B", null, null);
+        List<Long> unidadesDurante = new ArrayList<>();
+        duranteLectura = () -> {
+            // Otro hilo escribe (fila que la lectura ya no ve) y consulta; con el lock tomado esperaría
+            CompletableFuture<Long> escritura = CompletableFuture.supplyAsync(() -> {
+                valoracionService.alCambiarInventario(
+                    new InventarioCambiadoEvent(InventarioCambiadoEvent.Tipo.CREADO, 11L, null, nuevo));
+                return valoracionService.obtener("Frutas").orElseThrow().unidades();
+            });
+            try {
+                unidadesDurante.add(escritura.get(5, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        // ACT
+        ValoracionStockService.Recalculo recalculo = valoracionService.recalcular();
+
+        // ASSERT
+        assertEquals(List.of(15L), unidadesDurante);
+        assertTrue(recalculo.derivas().isEmpty());
+        assertEquals(15, valoracionService.obtener("Frutas").orElseThrow().unidades());
+        assertEquals(0, new BigDecimal("30.00").compareTo(valoracionService.obtener("Frutas").orElseThrow().valor()));
+    }
+}